@@ -0,0 +1,100 @@
+package cicloo.model;
+
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.ModoDeStreak;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.RelogioManual;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compara os dois {@link ModoDeStreak modos de streak} sobre muitos hábitos:
+ * no {@link ModoDeStreak#SOB_DEMANDA sob demanda} mede a leitura de todos os
+ * streaks; no {@link ModoDeStreak#IMEDIATO imediato}, a varredura que zera os
+ * vencidos e depois a mesma leitura. Confere também que os dois modos chegam
+ * aos mesmos streaks.
+ * <p>
+ * Não é um teste automático e fica fora de {@code test/}, para não entrar
+ * na suíte. Compile junto com {@code src/} e rode com
+ * {@code java cicloo.model.ComparacaoModoDeStreak [hábitos] [rodadas]}
+ * (padrão: 1.000.000 hábitos e 7 rodadas); use a mediana das rodadas. A
+ * equivalência dos modos é verificada em {@code ModoDeStreakTest}.
+ * </p>
+ *
+ * @author Eric
+ */
+public class ComparacaoModoDeStreak {
+
+    public static void main(String[] args) {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rodadas = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        LocalDate hoje = LocalDate.of(2025, 6, 15);
+        Calendario.usarRelogio(new RelogioManual(hoje));
+
+        long[] leituraSobDemanda = new long[rodadas];
+        long[] varreduraImediata = new long[rodadas];
+        long[] leituraImediata = new long[rodadas];
+        for (int r = 0; r < rodadas; r++) {
+            Habito[] sobDemanda = criar(quantidade, hoje);
+            Habito[] imediatos = criar(quantidade, hoje);
+
+            Habito.usarModoDeStreak(ModoDeStreak.SOB_DEMANDA);
+            long inicio = System.nanoTime();
+            long somaSobDemanda = somarStreaks(sobDemanda);
+            leituraSobDemanda[r] = System.nanoTime() - inicio;
+
+            Habito.usarModoDeStreak(ModoDeStreak.IMEDIATO);
+            inicio = System.nanoTime();
+            for (Habito h : imediatos) {
+                h.verificarEresetarStreak();
+            }
+            varreduraImediata[r] = System.nanoTime() - inicio;
+            inicio = System.nanoTime();
+            long somaImediata = somarStreaks(imediatos);
+            leituraImediata[r] = System.nanoTime() - inicio;
+
+            if (somaSobDemanda != somaImediata) {
+                throw new AssertionError("Streaks diferentes: " + somaSobDemanda + " e " + somaImediata);
+            }
+        }
+        System.out.printf("%,d hábitos, mediana de %d rodadas%n", quantidade, rodadas);
+        System.out.printf("SOB_DEMANDA: leitura %d ms%n", mediana(leituraSobDemanda));
+        System.out.printf("IMEDIATO:    varredura %d ms + leitura %d ms%n",
+                mediana(varreduraImediata), mediana(leituraImediata));
+    }
+
+    /**
+     * Cria hábitos com recorrências variadas e a última conclusão nos últimos
+     * 60 dias, sempre com a mesma semente para que as rodadas sejam iguais.
+     */
+    private static Habito[] criar(int quantidade, LocalDate hoje) {
+        Random aleatorio = new Random(42);
+        Recorrencia[] recorrencias = {Recorrencia.DIARIA, Recorrencia.SEMANAL, Recorrencia.MENSAL};
+        Habito[] habitos = new Habito[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            Habito h = new Habito("Hábito " + i, Categoria.SAUDE,
+                    recorrencias[aleatorio.nextInt(recorrencias.length)], Prioridade.MEDIA);
+            h.setId(i);
+            h.restaurarProgresso(1, 0, 1 + aleatorio.nextInt(30), 30,
+                    hoje.minusDays(aleatorio.nextInt(60)));
+            habitos[i] = h;
+        }
+        return habitos;
+    }
+
+    private static long somarStreaks(Habito[] habitos) {
+        long soma = 0;
+        for (Habito h : habitos) {
+            soma += h.getStreak();
+        }
+        return soma;
+    }
+
+    private static long mediana(long[] nanos) {
+        long[] ordenados = nanos.clone();
+        Arrays.sort(ordenados);
+        return ordenados[ordenados.length / 2] / 1_000_000;
+    }
+}
@@ -0,0 +1,329 @@
+package cicloo.analise;
+
+import cicloo.dao.DAO;
+import cicloo.model.Habito;
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Armazenamento colunar das métricas dos hábitos, para análises sobre muitos
+ * hábitos de uma vez.
+ * <p>
+ * Em vez de um objeto por hábito, cada métrica fica em um vetor primitivo
+ * próprio (XP, nível, streak, conclusões, dia da última conclusão e os ordinais
+ * dos enums), e a linha {@code i} de todos os vetores descreve o mesmo hábito.
+ * Uma soma ou um máximo percorre um único vetor contíguo, sem seguir
+ * referências, e os laços de agregação são simples o bastante para que o JIT
+ * os vetorize.
+ * </p>
+ * <p>
+ * As colunas são uma cópia: depois de concluir ou alterar um hábito, chame
+ * {@link #sincronizar} para atualizar sua linha. A classe não é segura para uso
+ * concorrente.
+ * </p>
+ *
+ * @author Eric
+ */
+public class ColunasHabitos {
+
+    /**
+     * Valor da coluna de última conclusão para hábitos nunca concluídos.
+     */
+    public static final int SEM_CONCLUSAO = Integer.MIN_VALUE;
+
+    /**
+     * Valor devolvido pelas buscas de ID quando não há hábitos.
+     */
+    public static final int NENHUM = -1;
+
+    private static final int CAPACIDADE_MINIMA = 16;
+
+    private int[] ids;
+    private int[] xp;
+    private int[] nivel;
+    private int[] streak;
+    private int[] conclusoes;
+    private int[] ultimaConclusao;
+    private byte[] categoria;
+    private byte[] recorrencia;
+    private byte[] prioridade;
+    private int tamanho;
+
+    /**
+     * Linha de cada hábito mais um, indexada pelo ID; zero indica que o ID não
+     * está nas colunas. Os IDs das DAOs são sequenciais, então um vetor
+     * primitivo do tamanho do maior ID basta, sem embrulhar as linhas em
+     * {@code Integer}.
+     */
+    private int[] linhaPorId;
+
+    /**
+     * Cria colunas vazias.
+     */
+    public ColunasHabitos() {
+        this(CAPACIDADE_MINIMA);
+    }
+
+    /**
+     * Cria colunas vazias capazes de guardar {@code capacidade} hábitos sem
+     * crescer.
+     *
+     * @param capacidade quantidade esperada de hábitos.
+     */
+    public ColunasHabitos(int capacidade) {
+        int cap = Math.max(capacidade, CAPACIDADE_MINIMA);
+        ids = new int[cap];
+        xp = new int[cap];
+        nivel = new int[cap];
+        streak = new int[cap];
+        conclusoes = new int[cap];
+        ultimaConclusao = new int[cap];
+        categoria = new byte[cap];
+        recorrencia = new byte[cap];
+        prioridade = new byte[cap];
+        linhaPorId = new int[cap];
+    }
+
+    /**
+     * Monta as colunas com todos os hábitos de uma DAO, percorrendo-a sem
+     * cópia intermediária.
+     *
+     * @param habitos a DAO de origem.
+     * @return as colunas preenchidas.
+     */
+    public static ColunasHabitos carregar(DAO<Habito> habitos) {
+        ColunasHabitos colunas = new ColunasHabitos();
+        habitos.fluxo().forEachOrdered(colunas::sincronizar);
+        return colunas;
+    }
+
+    /**
+     * Grava a linha do hábito com seus valores atuais, incluindo-o se ainda não
+     * estiver nas colunas.
+     *
+     * @param h o hábito.
+     * @throws IllegalArgumentException se o hábito for {@code null} ou tiver
+     * ID negativo.
+     */
+    public void sincronizar(Habito h) {
+        if (h == null) {
+            throw new IllegalArgumentException("Habito não pode ser nulo");
+        }
+        int id = h.getId();
+        if (id < 0) {
+            throw new IllegalArgumentException("ID inválido: " + id);
+        }
+        int i = linha(id);
+        if (i < 0) {
+            garantirCapacidade(tamanho + 1);
+            if (id >= linhaPorId.length) {
+                linhaPorId = Arrays.copyOf(linhaPorId, Math.max(linhaPorId.length * 2, id + 1));
+            }
+            i = tamanho++;
+            linhaPorId[id] = i + 1;
+        }
+        LocalDate ultima = h.getUltimaConclusao();
+        ids[i] = h.getId();
+        xp[i] = h.getXp();
+        nivel[i] = h.getLevel();
+        streak[i] = h.getStreak();
+        conclusoes[i] = h.getTotalConclusoes();
+        ultimaConclusao[i] = ultima == null ? SEM_CONCLUSAO : (int) ultima.toEpochDay();
+        categoria[i] = (byte) h.getCategoria().ordinal();
+        recorrencia[i] = (byte) h.getRecorrencia().ordinal();
+        prioridade[i] = (byte) h.getPrioridade().ordinal();
+    }
+
+    /**
+     * Remove a linha do hábito. A última linha passa a ocupar o lugar da
+     * removida, mantendo os vetores contíguos.
+     *
+     * @param id o ID do hábito.
+     * @return {@code true} se o hábito estava nas colunas.
+     */
+    public boolean remover(int id) {
+        int i = linha(id);
+        if (i < 0) {
+            return false;
+        }
+        linhaPorId[id] = 0;
+        int ultima = --tamanho;
+        if (i != ultima) {
+            ids[i] = ids[ultima];
+            xp[i] = xp[ultima];
+            nivel[i] = nivel[ultima];
+            streak[i] = streak[ultima];
+            conclusoes[i] = conclusoes[ultima];
+            ultimaConclusao[i] = ultimaConclusao[ultima];
+            categoria[i] = categoria[ultima];
+            recorrencia[i] = recorrencia[ultima];
+            prioridade[i] = prioridade[ultima];
+            linhaPorId[ids[i]] = i + 1;
+        }
+        return true;
+    }
+
+    /**
+     * @return a quantidade de hábitos nas colunas.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return a soma do XP de todos os hábitos.
+     */
+    public long somaXp() {
+        return soma(xp);
+    }
+
+    /**
+     * @return a soma das conclusões de todos os hábitos.
+     */
+    public long somaConclusoes() {
+        return soma(conclusoes);
+    }
+
+    /**
+     * @return o maior nível entre os hábitos, ou 0 se não houver hábitos.
+     */
+    public int maiorNivel() {
+        return maximo(nivel);
+    }
+
+    /**
+     * @return o maior streak entre os hábitos, ou 0 se não houver hábitos.
+     */
+    public int maiorStreak() {
+        return maximo(streak);
+    }
+
+    /**
+     * @return o menor ID entre os hábitos de maior nível, ou {@link #NENHUM}.
+     */
+    public int idMaiorNivel() {
+        return menorIdCom(nivel, maiorNivel());
+    }
+
+    /**
+     * @return o menor ID entre os hábitos de maior streak, ou {@link #NENHUM}.
+     */
+    public int idMaiorStreak() {
+        return menorIdCom(streak, maiorStreak());
+    }
+
+    /**
+     * Soma o XP dos hábitos agrupado por categoria.
+     *
+     * @return vetor indexado pelo ordinal de {@link Categoria}.
+     */
+    public long[] somaXpPorCategoria() {
+        return somaPorGrupo(xp, categoria, Categoria.values().length);
+    }
+
+    /**
+     * Soma o XP dos hábitos agrupado por prioridade.
+     *
+     * @return vetor indexado pelo ordinal de {@link Prioridade}.
+     */
+    public long[] somaXpPorPrioridade() {
+        return somaPorGrupo(xp, prioridade, Prioridade.values().length);
+    }
+
+    /**
+     * Conta os hábitos de cada recorrência.
+     *
+     * @return vetor indexado pelo ordinal de {@link Recorrencia}.
+     */
+    public int[] contarPorRecorrencia() {
+        int[] contagem = new int[Recorrencia.values().length];
+        for (int i = 0; i < tamanho; i++) {
+            contagem[recorrencia[i]]++;
+        }
+        return contagem;
+    }
+
+    /**
+     * Conta os hábitos concluídos no dia informado ou depois dele.
+     *
+     * @param dia o primeiro dia considerado.
+     * @return a quantidade de hábitos com última conclusão a partir de {@code dia}.
+     */
+    public int contarConcluidosDesde(LocalDate dia) {
+        int limite = (int) dia.toEpochDay();
+        int[] coluna = ultimaConclusao;
+        int n = tamanho;
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            total += coluna[i] >= limite ? 1 : 0;
+        }
+        return total;
+    }
+
+    private long soma(int[] coluna) {
+        int n = tamanho;
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            total += coluna[i];
+        }
+        return total;
+    }
+
+    private int maximo(int[] coluna) {
+        int n = tamanho;
+        int maior = 0;
+        for (int i = 0; i < n; i++) {
+            maior = Math.max(maior, coluna[i]);
+        }
+        return maior;
+    }
+
+    /**
+     * Segunda passada das buscas de máximo: com o valor já conhecido, procura o
+     * menor ID que o possui. Separar as passadas deixa o laço do máximo sem
+     * desvios.
+     */
+    private int menorIdCom(int[] coluna, int valor) {
+        int menor = NENHUM;
+        for (int i = 0; i < tamanho; i++) {
+            if (coluna[i] == valor && (menor == NENHUM || ids[i] < menor)) {
+                menor = ids[i];
+            }
+        }
+        return menor;
+    }
+
+    private long[] somaPorGrupo(int[] coluna, byte[] grupo, int grupos) {
+        long[] totais = new long[grupos];
+        for (int i = 0; i < tamanho; i++) {
+            totais[grupo[i]] += coluna[i];
+        }
+        return totais;
+    }
+
+    /**
+     * @return a linha do hábito, ou -1 se ele não estiver nas colunas.
+     */
+    private int linha(int id) {
+        return id >= 0 && id < linhaPorId.length ? linhaPorId[id] - 1 : -1;
+    }
+
+    private void garantirCapacidade(int necessario) {
+        if (necessario <= ids.length) {
+            return;
+        }
+        int cap = Math.max(ids.length * 2, necessario);
+        ids = Arrays.copyOf(ids, cap);
+        xp = Arrays.copyOf(xp, cap);
+        nivel = Arrays.copyOf(nivel, cap);
+        streak = Arrays.copyOf(streak, cap);
+        conclusoes = Arrays.copyOf(conclusoes, cap);
+        ultimaConclusao = Arrays.copyOf(ultimaConclusao, cap);
+        categoria = Arrays.copyOf(categoria, cap);
+        recorrencia = Arrays.copyOf(recorrencia, cap);
+        prioridade = Arrays.copyOf(prioridade, cap);
+    }
+}
@@ -0,0 +1,277 @@
+package cicloo.analise;
+
+import cicloo.dao.DAO;
+import cicloo.model.Calendario;
+import cicloo.model.Habito;
+import cicloo.model.MotorDeXp;
+import cicloo.model.Usuario;
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.Histograma;
+import java.util.LongSummaryStatistics;
+import java.util.stream.Stream;
+
+/**
+ * Relatório consolidado de todos os usuários e hábitos: taxa de conclusão por
+ * {@link Categoria}, distribuição de XP e {@link Histograma histograma} de
+ * streaks por {@link Recorrencia}, histograma de níveis por categoria e
+ * parcela de hábitos ativos por {@link Prioridade}.
+ * <p>
+ * O relatório é gerado em uma única passada paralela sobre o
+ * {@link DAO#fluxo() fluxo} de usuários. O divisor do fluxo reparte os
+ * usuários em faixas, processadas nas threads do pool comum de fork/join;
+ * cada faixa acumula em um relatório próprio, sem travas nem contadores
+ * compartilhados, e os relatórios parciais são somados ao final
+ * ({@link #combinar}). Como cada acumulador só é tocado pela sua thread, o
+ * ganho cresce com o número de núcleos.
+ * </p>
+ * <p>
+ * Os períodos atuais de cada recorrência são lidos uma vez, no início; a
+ * conclusão de cada hábito é comparada com eles sem consultar a data. O
+ * fluxo da {@link cicloo.dao.UsuarioDAO} falha com
+ * {@link java.util.ConcurrentModificationException} se a DAO for alterada
+ * durante a geração, então com ela o relatório deve rodar fora dos horários
+ * de uso.
+ * </p>
+ * <p>
+ * Para consultar só os percentis de streak e nível durante o uso, sem
+ * percorrer os hábitos, há a {@link cicloo.model.DistribuicaoDeHabitos}.
+ * </p>
+ *
+ * @author Eric
+ */
+public final class RelatorioGeral {
+
+    private static final Categoria[] CATEGORIAS = Categoria.values();
+    private static final Recorrencia[] RECORRENCIAS = Recorrencia.values();
+    private static final Prioridade[] PRIORIDADES = Prioridade.values();
+
+    /**
+     * Período atual de cada recorrência, compartilhado (somente leitura) por
+     * todos os acumuladores do mesmo relatório.
+     */
+    private final int[] periodosAtuais;
+
+    private long usuarios;
+    private long usuariosAtivos;
+    private final long[] habitosPorCategoria = new long[CATEGORIAS.length];
+    private final long[] concluidosPorCategoria = new long[CATEGORIAS.length];
+    private final LongSummaryStatistics[] xpPorRecorrencia = new LongSummaryStatistics[RECORRENCIAS.length];
+    private final long[] habitosPorPrioridade = new long[PRIORIDADES.length];
+    private final long[] ativosPorPrioridade = new long[PRIORIDADES.length];
+    private final Histograma[] streaksPorRecorrencia = new Histograma[RECORRENCIAS.length];
+    private final Histograma[] niveisPorCategoria = new Histograma[CATEGORIAS.length];
+
+    private RelatorioGeral(int[] periodosAtuais) {
+        this.periodosAtuais = periodosAtuais;
+        for (int i = 0; i < RECORRENCIAS.length; i++) {
+            xpPorRecorrencia[i] = new LongSummaryStatistics();
+            streaksPorRecorrencia[i] = new Histograma();
+        }
+        for (int i = 0; i < CATEGORIAS.length; i++) {
+            niveisPorCategoria[i] = new Histograma();
+        }
+    }
+
+    /**
+     * Gera o relatório sobre todos os usuários da DAO, em paralelo.
+     *
+     * @param usuarios a DAO dos usuários.
+     * @return o relatório.
+     * @throws IllegalArgumentException se a DAO for {@code null}.
+     */
+    public static RelatorioGeral gerar(DAO<Usuario> usuarios) {
+        if (usuarios == null) {
+            throw new IllegalArgumentException("DAO não pode ser nula");
+        }
+        return gerar(usuarios.fluxo().parallel());
+    }
+
+    /**
+     * Gera o relatório sobre os usuários do fluxo. O fluxo é percorrido do
+     * jeito que vier: paralelo se for paralelo, sequencial se não for.
+     *
+     * @param usuarios os usuários.
+     * @return o relatório.
+     */
+    public static RelatorioGeral gerar(Stream<Usuario> usuarios) {
+        int[] periodos = new int[RECORRENCIAS.length];
+        for (Recorrencia r : RECORRENCIAS) {
+            periodos[r.ordinal()] = Calendario.periodoAtual(r);
+        }
+        return usuarios.collect(() -> new RelatorioGeral(periodos),
+                RelatorioGeral::acumular, RelatorioGeral::combinar);
+    }
+
+    /**
+     * Soma ao relatório o usuário e os seus hábitos.
+     *
+     * @param usuario o usuário.
+     */
+    private void acumular(Usuario usuario) {
+        usuarios++;
+        boolean ativo = false;
+        for (Habito h : usuario.listarHabitos()) {
+            int categoria = h.getCategoria().ordinal();
+            int recorrencia = h.getRecorrencia().ordinal();
+            int prioridade = h.getPrioridade().ordinal();
+            habitosPorCategoria[categoria]++;
+            if (h.foiConcluidoNoPeriodo(periodosAtuais[recorrencia])) {
+                concluidosPorCategoria[categoria]++;
+            }
+            xpPorRecorrencia[recorrencia].accept(MotorDeXp.xpAcumuladoAteNivel(h.getLevel()) + h.getXp());
+            streaksPorRecorrencia[recorrencia].registrar(Math.max(h.getStreak(), 0));
+            niveisPorCategoria[categoria].registrar(Math.max(h.getLevel(), 0));
+            habitosPorPrioridade[prioridade]++;
+            if (h.getStreak() > 0) {
+                ativosPorPrioridade[prioridade]++;
+                ativo = true;
+            }
+        }
+        if (ativo) {
+            usuariosAtivos++;
+        }
+    }
+
+    /**
+     * Soma a este relatório um relatório parcial de outra faixa.
+     *
+     * @param outro o relatório parcial.
+     */
+    private void combinar(RelatorioGeral outro) {
+        usuarios += outro.usuarios;
+        usuariosAtivos += outro.usuariosAtivos;
+        somar(habitosPorCategoria, outro.habitosPorCategoria);
+        somar(concluidosPorCategoria, outro.concluidosPorCategoria);
+        somar(habitosPorPrioridade, outro.habitosPorPrioridade);
+        somar(ativosPorPrioridade, outro.ativosPorPrioridade);
+        for (int i = 0; i < RECORRENCIAS.length; i++) {
+            xpPorRecorrencia[i].combine(outro.xpPorRecorrencia[i]);
+            streaksPorRecorrencia[i].acumular(outro.streaksPorRecorrencia[i]);
+        }
+        for (int i = 0; i < CATEGORIAS.length; i++) {
+            niveisPorCategoria[i].acumular(outro.niveisPorCategoria[i]);
+        }
+    }
+
+    private static void somar(long[] destino, long[] origem) {
+        for (int i = 0; i < destino.length; i++) {
+            destino[i] += origem[i];
+        }
+    }
+
+    /**
+     * @return quantidade de usuários considerados.
+     */
+    public long getUsuarios() {
+        return usuarios;
+    }
+
+    /**
+     * @return quantidade de usuários com ao menos um hábito em sequência.
+     */
+    public long getUsuariosAtivos() {
+        return usuariosAtivos;
+    }
+
+    /**
+     * @param categoria a categoria.
+     * @return quantidade de hábitos da categoria.
+     */
+    public long getHabitos(Categoria categoria) {
+        return habitosPorCategoria[categoria.ordinal()];
+    }
+
+    /**
+     * Fração dos hábitos da categoria já concluídos no período atual da sua
+     * recorrência.
+     *
+     * @param categoria a categoria.
+     * @return um valor entre 0 e 1, ou 0 se a categoria não tiver hábitos.
+     */
+    public double getTaxaDeConclusao(Categoria categoria) {
+        return fracao(concluidosPorCategoria[categoria.ordinal()], habitosPorCategoria[categoria.ordinal()]);
+    }
+
+    /**
+     * Distribuição do XP acumulado (desde o nível 1) dos hábitos da
+     * recorrência: quantidade, soma, mínimo, máximo e média.
+     *
+     * @param recorrencia a recorrência.
+     * @return uma cópia das estatísticas.
+     */
+    public LongSummaryStatistics getXp(Recorrencia recorrencia) {
+        LongSummaryStatistics e = xpPorRecorrencia[recorrencia.ordinal()];
+        if (e.getCount() == 0) {
+            return new LongSummaryStatistics();
+        }
+        return new LongSummaryStatistics(e.getCount(), e.getMin(), e.getMax(), e.getSum());
+    }
+
+    /**
+     * @param recorrencia a recorrência.
+     * @return uma cópia do histograma dos streaks dos hábitos da recorrência.
+     */
+    public Histograma getStreaks(Recorrencia recorrencia) {
+        return streaksPorRecorrencia[recorrencia.ordinal()].copia();
+    }
+
+    /**
+     * @param categoria a categoria.
+     * @return uma cópia do histograma dos níveis dos hábitos da categoria.
+     */
+    public Histograma getNiveis(Categoria categoria) {
+        return niveisPorCategoria[categoria.ordinal()].copia();
+    }
+
+    /**
+     * Fração dos hábitos da prioridade com sequência (streak) em andamento.
+     *
+     * @param prioridade a prioridade.
+     * @return um valor entre 0 e 1, ou 0 se a prioridade não tiver hábitos.
+     */
+    public double getParcelaAtiva(Prioridade prioridade) {
+        return fracao(ativosPorPrioridade[prioridade.ordinal()], habitosPorPrioridade[prioridade.ordinal()]);
+    }
+
+    private static String percentis(Histograma h) {
+        return h.percentil(50) + "/" + h.percentil(90) + "/" + h.percentil(99);
+    }
+
+    private static double fracao(long parte, long total) {
+        return total == 0 ? 0 : (double) parte / total;
+    }
+
+    /**
+     * @return o relatório em texto, uma linha por grupo.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Usuários: ").append(usuarios).append(" (ativos: ").append(usuariosAtivos).append(")\n");
+        sb.append("Taxa de conclusão por categoria:\n");
+        for (Categoria c : CATEGORIAS) {
+            sb.append(String.format("  %-16s %6.1f%% de %d%n", c, 100 * getTaxaDeConclusao(c), getHabitos(c)));
+        }
+        sb.append("XP acumulado por recorrência:\n");
+        for (Recorrencia r : RECORRENCIAS) {
+            LongSummaryStatistics e = xpPorRecorrencia[r.ordinal()];
+            sb.append(String.format("  %-16s n=%d média=%.1f mín=%d máx=%d%n", r, e.getCount(), e.getAverage(),
+                    e.getCount() == 0 ? 0 : e.getMin(), e.getCount() == 0 ? 0 : e.getMax()));
+        }
+        sb.append("Streak por recorrência (p50/p90/p99):\n");
+        for (Recorrencia r : RECORRENCIAS) {
+            sb.append(String.format("  %-16s %s%n", r, percentis(streaksPorRecorrencia[r.ordinal()])));
+        }
+        sb.append("Nível por categoria (p50/p90/p99):\n");
+        for (Categoria c : CATEGORIAS) {
+            sb.append(String.format("  %-16s %s%n", c, percentis(niveisPorCategoria[c.ordinal()])));
+        }
+        sb.append("Hábitos ativos por prioridade:\n");
+        for (Prioridade p : PRIORIDADES) {
+            sb.append(String.format("  %-16s %6.1f%% de %d%n", p, 100 * getParcelaAtiva(p), habitosPorPrioridade[p.ordinal()]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,364 @@
+package cicloo.controller;
+
+import cicloo.dao.Alteracao;
+import cicloo.dao.FluxoDeAlteracoes;
+import cicloo.dao.UsuarioDAO;
+import cicloo.evento.BarramentoDeEventos;
+import cicloo.evento.Evento;
+import cicloo.evento.Eventos;
+import cicloo.model.EstatisticasDoUsuario;
+import cicloo.model.Usuario;
+import cicloo.model.enums.CriterioDeClassificacao;
+import cicloo.util.ListaDeSaltosIndexada;
+import cicloo.util.MapaInt;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Classificação geral dos usuários por XP total, maior streak e maior nível.
+ * <p>
+ * Cada {@link CriterioDeClassificacao critério} tem uma
+ * {@link ListaDeSaltosIndexada} ordenada pelo valor (decrescente) e pelo ID do
+ * usuário (crescente, para desempate), atualizada a cada
+ * {@link Evento.EstatisticasAlteradas}. Atualizar um usuário, buscar os
+ * {@code k} primeiros e a posição de um usuário custam O(log n) (mais
+ * {@code k} para os primeiros), com n o número de usuários classificados.
+ * Só entram no critério os usuários com valor maior que zero.
+ * </p>
+ * <p>
+ * Só são classificados os usuários guardados na {@link UsuarioDAO}: avisos de
+ * um usuário que não está nela (por exemplo, ainda não salvo) são ignorados,
+ * para não tomarem o lugar de quem tem o mesmo ID. As exclusões e
+ * substituições de usuários são lidas do
+ * {@link UsuarioDAO#getAlteracoes() fluxo de alterações} da DAO antes de cada
+ * consulta e de cada aviso, uma thread por vez; como essa leitura consulta a
+ * DAO, que não é sincronizada, ela deve acontecer na thread que altera a DAO.
+ * Se as alterações acumuladas passarem de uma volta do fluxo, a assinatura é
+ * desconectada e a classificação é conferida com todos os usuários da DAO.
+ * </p>
+ * <p>
+ * Cada critério tem sua própria trava de leitura/escrita: consultas
+ * simultâneas não se bloqueiam, e uma atualização só bloqueia o critério que
+ * está alterando. O valor de um usuário é lido das suas
+ * {@link EstatisticasDoUsuario estatísticas} dentro da trava, e não do
+ * evento, então avisos entregues fora de ordem por threads diferentes não
+ * deixam valores antigos na classificação.
+ * </p>
+ * No modo {@link cicloo.model.enums.ModoDeStreak#SOB_DEMANDA} um streak vence
+ * sem aviso; os {@link #primeiros primeiros} são conferidos na consulta e
+ * reposicionados se tiverem mudado.
+ *
+ * @author Eric
+ */
+public class Classificacao implements AutoCloseable {
+
+    /**
+     * Um usuário na classificação.
+     *
+     * @param posicao a posição, a partir de 1.
+     * @param usuario o usuário.
+     * @param valor o valor do critério.
+     */
+    public record Colocacao(int posicao, Usuario usuario, int valor) {}
+
+    private record Pontuacao(int valor, Usuario usuario) {}
+
+    private static final Comparator<Pontuacao> ORDEM = Comparator
+            .comparingInt((Pontuacao p) -> -p.valor())
+            .thenComparingInt(p -> p.usuario().getId());
+
+    private static final CriterioDeClassificacao[] CRITERIOS = CriterioDeClassificacao.values();
+
+    /**
+     * Quantidade máxima de alterações lidas do fluxo de uma vez.
+     */
+    private static final int LOTE = 256;
+
+    /**
+     * A lista ordenada de um critério e a pontuação atual de cada usuário
+     * nela, para removê-la ao atualizar.
+     */
+    private static final class Ranking {
+        final ListaDeSaltosIndexada<Pontuacao> lista = new ListaDeSaltosIndexada<>(ORDEM);
+        final MapaInt<Pontuacao> porUsuario = new MapaInt<>();
+        final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    }
+
+    private static Classificacao instancia;
+
+    private final Ranking[] rankings = new Ranking[CRITERIOS.length];
+    private final UsuarioDAO usuarioDAO;
+    /**
+     * Assinatura do fluxo da DAO, lida por uma thread de cada vez sob
+     * {@link #leitura}.
+     */
+    private FluxoDeAlteracoes<Usuario>.Assinatura assinatura;
+    private final Object leitura = new Object();
+    private final BarramentoDeEventos.Inscricao inscricao;
+
+    /**
+     * Cria a classificação dos usuários da DAO, que se atualiza pelos eventos
+     * do barramento e pelas alterações da DAO.
+     *
+     * @param barramento o barramento de onde vêm os
+     * {@link Evento.EstatisticasAlteradas}.
+     * @param usuarioDAO a DAO dos usuários classificados.
+     * @throws IllegalArgumentException se o barramento ou a DAO forem
+     * {@code null}.
+     */
+    public Classificacao(BarramentoDeEventos barramento, UsuarioDAO usuarioDAO) {
+        if (barramento == null) {
+            throw new IllegalArgumentException("Barramento não pode ser nulo");
+        }
+        if (usuarioDAO == null) {
+            throw new IllegalArgumentException("DAO não pode ser nula");
+        }
+        for (int i = 0; i < rankings.length; i++) {
+            rankings[i] = new Ranking();
+        }
+        this.usuarioDAO = usuarioDAO;
+        // Assina antes de ler os usuários existentes para não perder nenhuma
+        // alteração entre as duas etapas; atualizar de novo é inofensivo.
+        this.assinatura = usuarioDAO.getAlteracoes().assinar();
+        usuarioDAO.fluxo().forEach(this::atualizar);
+        this.inscricao = barramento.inscrever(Evento.EstatisticasAlteradas.class, e -> {
+            sincronizar();
+            atualizar(e.usuario());
+        });
+    }
+
+    /**
+     * Retorna a classificação dos usuários da {@link UsuarioDAO} padrão,
+     * inscrita no barramento {@link Eventos#global() global}.
+     *
+     * @return a instância única.
+     */
+    public static synchronized Classificacao getInstancia() {
+        if (instancia == null) {
+            instancia = new Classificacao(Eventos.global(), UsuarioDAO.getInstancia());
+        }
+        return instancia;
+    }
+
+    /**
+     * Reposiciona o usuário em todos os critérios, segundo as suas
+     * estatísticas atuais. Usuários que não estão guardados na DAO são
+     * ignorados.
+     *
+     * @param usuario o usuário.
+     */
+    public void atualizar(Usuario usuario) {
+        if (usuarioDAO.buscarPorId(usuario.getId()) != usuario) {
+            return;
+        }
+        for (CriterioDeClassificacao c : CRITERIOS) {
+            atualizar(c, usuario);
+        }
+    }
+
+    /**
+     * Retira o usuário de todos os critérios.
+     *
+     * @param usuario o usuário.
+     */
+    public void remover(Usuario usuario) {
+        remover(usuario.getId());
+    }
+
+    /**
+     * Lê as alterações pendentes da DAO: retira os usuários excluídos e
+     * reposiciona os incluídos ou substituídos. As consultas já fazem isso
+     * antes de responder.
+     */
+    public void sincronizar() {
+        synchronized (leitura) {
+            try {
+                while (consumir() > 0) {
+                    // continua até esvaziar o fluxo
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Retorna os primeiros colocados no critério.
+     *
+     * @param criterio o critério.
+     * @param quantidade quantos colocados, no máximo.
+     * @return os colocados, do primeiro em diante.
+     * @throws IllegalArgumentException se a quantidade for negativa.
+     */
+    public List<Colocacao> primeiros(CriterioDeClassificacao criterio, int quantidade) {
+        sincronizar();
+        Ranking r = rankings[criterio.ordinal()];
+        while (true) {
+            List<Pontuacao> pontuacoes;
+            r.trava.readLock().lock();
+            try {
+                pontuacoes = r.lista.faixa(0, quantidade);
+            } finally {
+                r.trava.readLock().unlock();
+            }
+            boolean emDia = true;
+            for (Pontuacao p : pontuacoes) {
+                if (valor(criterio, p.usuario()) != p.valor()) {
+                    atualizar(criterio, p.usuario());
+                    emDia = false;
+                }
+            }
+            if (emDia) {
+                List<Colocacao> colocacoes = new ArrayList<>(pontuacoes.size());
+                for (Pontuacao p : pontuacoes) {
+                    colocacoes.add(new Colocacao(colocacoes.size() + 1, p.usuario(), p.valor()));
+                }
+                return colocacoes;
+            }
+        }
+    }
+
+    /**
+     * Retorna a posição do usuário no critério.
+     *
+     * @param criterio o critério.
+     * @param usuario o usuário.
+     * @return a posição, a partir de 1, ou 0 se o usuário não estiver
+     * classificado no critério.
+     */
+    public int posicaoDe(CriterioDeClassificacao criterio, Usuario usuario) {
+        sincronizar();
+        Ranking r = rankings[criterio.ordinal()];
+        r.trava.readLock().lock();
+        try {
+            Pontuacao atual = r.porUsuario.obter(usuario.getId());
+            return atual == null ? 0 : r.lista.posicao(atual) + 1;
+        } finally {
+            r.trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param criterio o critério.
+     * @return quantos usuários estão classificados no critério.
+     */
+    public int tamanho(CriterioDeClassificacao criterio) {
+        sincronizar();
+        Ranking r = rankings[criterio.ordinal()];
+        r.trava.readLock().lock();
+        try {
+            return r.lista.tamanho();
+        } finally {
+            r.trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cancela a inscrição no barramento e a assinatura do fluxo.
+     */
+    @Override
+    public void close() {
+        inscricao.close();
+        synchronized (leitura) {
+            assinatura.close();
+        }
+    }
+
+    /**
+     * Aplica um lote de alterações do fluxo. Se a assinatura foi desconectada
+     * por atraso, assina de novo e confere a classificação com a DAO.
+     */
+    private int consumir() throws InterruptedException {
+        try {
+            return assinatura.consumir(LOTE, this::aplicar, 0);
+        } catch (IllegalStateException e) {
+            if (!assinatura.isDesconectada()) {
+                throw e;
+            }
+            assinatura = usuarioDAO.getAlteracoes().assinar();
+            refazer();
+            return 0;
+        }
+    }
+
+    private void aplicar(Alteracao<Usuario> alteracao) {
+        // O estado da alteração só copia os dados de login; o usuário
+        // classificado é o guardado agora na DAO.
+        Usuario atual = usuarioDAO.buscarPorId(alteracao.getId());
+        if (atual == null) {
+            remover(alteracao.getId());
+        } else {
+            atualizar(atual);
+        }
+    }
+
+    /**
+     * Retira os usuários que saíram da DAO ou foram substituídos nela e
+     * reposiciona todos os que estão nela.
+     */
+    private void refazer() {
+        List<Integer> saidos = new ArrayList<>();
+        for (Ranking r : rankings) {
+            r.trava.readLock().lock();
+            try {
+                for (Pontuacao p : r.porUsuario.valores()) {
+                    if (usuarioDAO.buscarPorId(p.usuario().getId()) != p.usuario()) {
+                        saidos.add(p.usuario().getId());
+                    }
+                }
+            } finally {
+                r.trava.readLock().unlock();
+            }
+        }
+        saidos.forEach(this::remover);
+        usuarioDAO.fluxo().forEach(this::atualizar);
+    }
+
+    private void remover(int id) {
+        for (Ranking r : rankings) {
+            r.trava.writeLock().lock();
+            try {
+                Pontuacao atual = r.porUsuario.remover(id);
+                if (atual != null) {
+                    r.lista.remover(atual);
+                }
+            } finally {
+                r.trava.writeLock().unlock();
+            }
+        }
+    }
+
+    private void atualizar(CriterioDeClassificacao criterio, Usuario usuario) {
+        Ranking r = rankings[criterio.ordinal()];
+        r.trava.writeLock().lock();
+        try {
+            int valor = valor(criterio, usuario);
+            Pontuacao atual = r.porUsuario.obter(usuario.getId());
+            if (atual != null) {
+                if (atual.valor() == valor && atual.usuario() == usuario) {
+                    return;
+                }
+                r.lista.remover(atual);
+                r.porUsuario.remover(usuario.getId());
+            }
+            if (valor > 0) {
+                Pontuacao nova = new Pontuacao(valor, usuario);
+                r.lista.inserir(nova);
+                r.porUsuario.colocar(usuario.getId(), nova);
+            }
+        } finally {
+            r.trava.writeLock().unlock();
+        }
+    }
+
+    private static int valor(CriterioDeClassificacao criterio, Usuario usuario) {
+        EstatisticasDoUsuario e = usuario.getEstatisticas();
+        return switch (criterio) {
+            case XP_TOTAL -> e.getTotalXp();
+            case MAIOR_STREAK -> e.getMaiorStreak();
+            case MAIOR_NIVEL -> e.getMaiorNivel();
+        };
+    }
+}
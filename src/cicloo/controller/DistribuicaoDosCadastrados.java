@@ -0,0 +1,171 @@
+package cicloo.controller;
+
+import cicloo.dao.Alteracao;
+import cicloo.dao.FluxoDeAlteracoes;
+import cicloo.dao.UsuarioDAO;
+import cicloo.model.DistribuicaoDeHabitos;
+import cicloo.model.Usuario;
+import cicloo.util.MapaInt;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mantém na {@link DistribuicaoDeHabitos} exatamente os usuários guardados na
+ * {@link UsuarioDAO}.
+ * <p>
+ * Os usuários são acompanhados pelo {@link FluxoDeAlteracoes fluxo de
+ * alterações} da DAO: um usuário incluído passa a ser contado, um excluído
+ * deixa de ser, e um substituído (por exemplo ao restaurar um usuário sobre o
+ * mesmo ID) dá lugar ao novo. A DAO não conhece a distribuição. Cada usuário
+ * incluído é lembrado aqui, pelo ID, para que possa ser descontado depois de
+ * sair da DAO.
+ * </p>
+ * <p>
+ * As alterações são lidas em {@link #sincronizar()}, que deve ser chamado na
+ * mesma thread que usa a DAO (a da interface) antes de ler a distribuição. Se
+ * as alterações acumuladas entre duas chamadas passarem de uma volta do
+ * fluxo, a assinatura é desconectada e os usuários são conferidos com a DAO.
+ * </p>
+ * Esta classe não é segura para uso concorrente.
+ *
+ * @author Eric
+ */
+public class DistribuicaoDosCadastrados implements AutoCloseable {
+
+    /**
+     * Quantidade máxima de alterações lidas do fluxo de uma vez.
+     */
+    private static final int LOTE = 256;
+
+    private static DistribuicaoDosCadastrados instancia;
+
+    private final UsuarioDAO usuarioDAO;
+    private final DistribuicaoDeHabitos distribuicao = DistribuicaoDeHabitos.getInstancia();
+    private final MapaInt<Usuario> incluidos = new MapaInt<>();
+    private FluxoDeAlteracoes<Usuario>.Assinatura assinatura;
+
+    /**
+     * Passa a contar os usuários da DAO, incluindo os que ela já tem.
+     *
+     * @param usuarioDAO a DAO dos usuários.
+     * @throws IllegalArgumentException se a DAO for {@code null}.
+     */
+    public DistribuicaoDosCadastrados(UsuarioDAO usuarioDAO) {
+        if (usuarioDAO == null) {
+            throw new IllegalArgumentException("DAO não pode ser nula");
+        }
+        this.usuarioDAO = usuarioDAO;
+        // Assina antes de ler os usuários existentes para não perder nenhuma
+        // alteração entre as duas etapas; incluir de novo é inofensivo.
+        this.assinatura = usuarioDAO.getAlteracoes().assinar();
+        usuarioDAO.fluxo().forEach(this::incluir);
+    }
+
+    /**
+     * Retorna o acompanhamento da {@link UsuarioDAO} padrão.
+     *
+     * @return a instância única.
+     */
+    public static synchronized DistribuicaoDosCadastrados getInstancia() {
+        if (instancia == null) {
+            instancia = new DistribuicaoDosCadastrados(UsuarioDAO.getInstancia());
+        }
+        return instancia;
+    }
+
+    /**
+     * Aplica à distribuição as inclusões, exclusões e substituições de
+     * usuários pendentes na DAO.
+     */
+    public void sincronizar() {
+        try {
+            while (consumir() > 0) {
+                // continua até esvaziar o fluxo
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return quantos usuários estão contados na distribuição.
+     */
+    public int getIncluidos() {
+        return incluidos.tamanho();
+    }
+
+    /**
+     * Cancela a assinatura do fluxo e desconta todos os usuários incluídos.
+     */
+    @Override
+    public void close() {
+        assinatura.close();
+        for (Usuario u : incluidos.valores()) {
+            distribuicao.excluir(u);
+        }
+        incluidos.limpar();
+    }
+
+    /**
+     * Aplica um lote de alterações do fluxo. Se a assinatura foi desconectada
+     * por atraso, assina de novo e confere os incluídos com a DAO.
+     */
+    private int consumir() throws InterruptedException {
+        try {
+            return assinatura.consumir(LOTE, this::aplicar, 0);
+        } catch (IllegalStateException e) {
+            if (!assinatura.isDesconectada()) {
+                throw e;
+            }
+            assinatura = usuarioDAO.getAlteracoes().assinar();
+            refazer();
+            return 0;
+        }
+    }
+
+    private void aplicar(Alteracao<Usuario> alteracao) {
+        // O estado da alteração só copia os dados de login; o usuário contado
+        // é o guardado agora na DAO.
+        conferir(alteracao.getId());
+    }
+
+    /**
+     * Desconta os incluídos que saíram da DAO ou foram substituídos nela e
+     * inclui todos os que estão nela.
+     */
+    private void refazer() {
+        List<Integer> ids = new ArrayList<>();
+        for (Usuario u : incluidos.valores()) {
+            ids.add(u.getId());
+        }
+        ids.forEach(this::conferir);
+        usuarioDAO.fluxo().forEach(this::incluir);
+    }
+
+    /**
+     * Deixa incluído o usuário guardado agora na DAO com o ID, no lugar do
+     * incluído antes, se for outro.
+     */
+    private void conferir(int id) {
+        Usuario atual = usuarioDAO.buscarPorId(id);
+        Usuario anterior = incluidos.obter(id);
+        if (anterior == atual) {
+            return;
+        }
+        if (anterior != null) {
+            distribuicao.excluir(anterior);
+            incluidos.remover(id);
+        }
+        if (atual != null) {
+            incluir(atual);
+        }
+    }
+
+    private void incluir(Usuario u) {
+        Usuario anterior = incluidos.colocar(u.getId(), u);
+        if (anterior != null && anterior != u) {
+            distribuicao.excluir(anterior);
+        }
+        distribuicao.incluir(u);
+    }
+}
@@ -0,0 +1,182 @@
+package cicloo.controller;
+
+import cicloo.dao.Alteracao;
+import cicloo.dao.FluxoDeAlteracoes;
+import cicloo.dao.HabitoDAO;
+import cicloo.evento.Eventos;
+import cicloo.model.Calendario;
+import cicloo.model.Habito;
+import cicloo.util.RodaDeTempo;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zera as sequências (streaks) vencidas no momento em que vencem, sem
+ * percorrer todos os hábitos.
+ * <p>
+ * Cada hábito com sequência em andamento fica agendado em uma
+ * {@link RodaDeTempo}, em dias, pelo seu {@link Habito#getPrazoDoStreak()
+ * prazo}. Os prazos acompanham as alterações da {@link HabitoDAO}, lidas do
+ * seu {@link FluxoDeAlteracoes fluxo de alterações}: concluir, editar ou
+ * excluir um hábito reagenda ou cancela o prazo. Quando o dia muda, só os
+ * hábitos cujo prazo chegou são verificados, então o custo é proporcional às
+ * expirações e não ao total de hábitos.
+ * </p>
+ * <p>
+ * As alterações são lidas e os prazos verificados em {@link #processar()},
+ * que deve ser chamado na mesma thread que usa a DAO e os hábitos (a da
+ * interface), já que nenhum dos dois é sincronizado. A interface o chama no
+ * login, a cada volta do menu e também a cada minuto, por um relógio que
+ * entrega a chamada à thread da interface enquanto ela espera o usuário;
+ * assim os streaks vencem na virada do dia mesmo para quem não está usando o
+ * sistema. Se as alterações acumuladas entre duas chamadas passarem
+ * de uma volta do fluxo, a assinatura é desconectada e os prazos são refeitos
+ * a partir da DAO.
+ * </p>
+ * Os avisos {@link cicloo.evento.Evento.StreakZerado} são publicados no
+ * barramento {@link Eventos#global() global}, já que os hábitos vencidos
+ * podem ser de qualquer usuário. Esta classe não é segura para uso
+ * concorrente.
+ *
+ * @author Eric
+ */
+public class ExpiracaoDeStreaks implements AutoCloseable {
+
+    /**
+     * Quantidade máxima de alterações lidas do fluxo de uma vez.
+     */
+    private static final int LOTE = 256;
+
+    private static ExpiracaoDeStreaks instancia;
+
+    private final HabitoDAO habitoDAO;
+    private FluxoDeAlteracoes<Habito>.Assinatura assinatura;
+    private final RodaDeTempo roda;
+
+    /**
+     * Cria o agendador sobre a DAO, agendando os hábitos que ela já tem.
+     *
+     * @param habitoDAO a DAO dos hábitos.
+     * @throws IllegalArgumentException se a DAO for {@code null}.
+     */
+    public ExpiracaoDeStreaks(HabitoDAO habitoDAO) {
+        if (habitoDAO == null) {
+            throw new IllegalArgumentException("DAO não pode ser nula");
+        }
+        this.habitoDAO = habitoDAO;
+        // Assina antes de ler os hábitos existentes para não perder nenhuma
+        // alteração entre as duas etapas; agendar de novo é inofensivo.
+        this.assinatura = habitoDAO.getAlteracoes().assinar();
+        this.roda = new RodaDeTempo(Calendario.hoje().toEpochDay());
+        habitoDAO.fluxo().forEach(h -> agendar(h.getId(), h));
+    }
+
+    /**
+     * Retorna o agendador da {@link HabitoDAO} padrão.
+     *
+     * @return a instância única.
+     */
+    public static synchronized ExpiracaoDeStreaks getInstancia() {
+        if (instancia == null) {
+            instancia = new ExpiracaoDeStreaks(HabitoDAO.getInstancia());
+        }
+        return instancia;
+    }
+
+    /**
+     * Aplica as alterações pendentes e zera as sequências cujo prazo já
+     * chegou.
+     */
+    public void processar() {
+        try {
+            while (consumir() > 0) {
+                // continua até esvaziar o fluxo
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        vencer();
+    }
+
+    /**
+     * @return quantidade de hábitos com prazo agendado.
+     */
+    public int getAgendados() {
+        return roda.tamanho();
+    }
+
+    /**
+     * Cancela a assinatura do fluxo.
+     */
+    @Override
+    public void close() {
+        assinatura.close();
+    }
+
+    /**
+     * Aplica um lote de alterações do fluxo. Se a assinatura foi desconectada
+     * por atraso, assina de novo e reagenda todos os hábitos da DAO.
+     */
+    private int consumir() throws InterruptedException {
+        try {
+            return assinatura.consumir(LOTE, this::aplicar, 0);
+        } catch (IllegalStateException e) {
+            if (!assinatura.isDesconectada()) {
+                throw e;
+            }
+            assinatura = habitoDAO.getAlteracoes().assinar();
+            habitoDAO.fluxo().forEach(h -> agendar(h.getId(), h));
+            return 0;
+        }
+    }
+
+    private void aplicar(Alteracao<Habito> alteracao) {
+        if (alteracao.getTipo() == Alteracao.Tipo.EXCLUSAO) {
+            roda.cancelar(alteracao.getId());
+        } else {
+            agendar(alteracao.getId(), alteracao.getDepois());
+        }
+    }
+
+    private void agendar(int id, Habito estado) {
+        LocalDate prazo = estado.getPrazoDoStreak();
+        if (prazo == null) {
+            roda.cancelar(id);
+        } else {
+            roda.agendar(id, prazo.toEpochDay());
+        }
+    }
+
+    /**
+     * Avança a roda até hoje e verifica os hábitos vencidos. A verificação é
+     * refeita sobre o estado atual do hábito, que pode ter sido concluído
+     * depois do último agendamento; nesse caso ele é apenas reagendado.
+     */
+    private void vencer() {
+        long hoje = Calendario.hoje().toEpochDay();
+        List<Integer> vencidos = new ArrayList<>();
+        roda.avancarAte(hoje, vencidos::add);
+        if (vencidos.isEmpty()) {
+            return;
+        }
+        Eventos.Vinculo vinculo = Eventos.global().vincular();
+        try {
+            for (int id : vencidos) {
+                Habito h = habitoDAO.buscarPorId(id);
+                if (h == null) {
+                    continue;
+                }
+                LocalDate prazo = h.getPrazoDoStreak();
+                if (prazo != null && prazo.toEpochDay() > hoje) {
+                    agendar(id, h);
+                } else {
+                    h.verificarEresetarStreak();
+                }
+            }
+        } finally {
+            vinculo.close();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package cicloo.controller;
 
-import cicloo.dao.HabitoDAO;
+import cicloo.dao.DAO;
+import cicloo.dao.Persistencia;
 import cicloo.model.Habito;
 import cicloo.model.enums.Categoria;
 import cicloo.model.enums.Prioridade;
@@ -10,7 +11,8 @@ import java.util.Objects;
 /**
  * Controlador responsável por operações relacionadas a um único hábito.
  * Permite concluir, atualizar e gerenciar o progresso de um hábito individual.
- * Utiliza o {@link HabitoDAO} para persistência em memória.
+ * Utiliza a DAO de hábitos de {@link Persistencia}, que registra as
+ * alterações em disco quando a persistência está aberta.
  * 
  * Antes de utilizar os métodos que manipulam dados, o hábito deve ser definido
  * com o método {@link #setHabito(Habito)}.
@@ -20,13 +22,13 @@ import java.util.Objects;
 public class HabitoController {
 
     private Habito habito;
-    private final HabitoDAO habitoDAO;
+    private final DAO<Habito> habitoDAO;
 
     /**
      * Construtor padrão. Inicializa o DAO do hábito.
      */
     public HabitoController() {
-        this.habitoDAO = HabitoDAO.getInstancia();
+        this.habitoDAO = Persistencia.habitos();
     }
 
     /**
@@ -0,0 +1,180 @@
+package cicloo.controller;
+
+import cicloo.evento.BarramentoDeEventos;
+import cicloo.evento.Evento;
+import cicloo.evento.Eventos;
+import cicloo.model.CatalogoDeConquistas;
+import cicloo.model.Conquista;
+import cicloo.model.Habito;
+import cicloo.model.Usuario;
+import cicloo.model.enums.MetricaDeConquista;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Desbloqueia as conquistas de um usuário à medida que as métricas mudam.
+ * <p>
+ * As condições vêm do {@link CatalogoDeConquistas catálogo} e são compiladas,
+ * ao carregar a classe, em uma tabela por {@link MetricaDeConquista métrica}
+ * com os mínimos em ordem crescente. O motor ouve os eventos de domínio que
+ * alteram as métricas (hábito adicionado, concluído ou que subiu de nível) e
+ * consulta só a tabela da métrica afetada, com o valor trazido pelo próprio
+ * evento. Como uma conquista desbloqueada não volta a ser bloqueada, o motor
+ * guarda até onde cada tabela já foi alcançada: um valor abaixo do próximo
+ * mínimo é descartado com uma comparação, e os demais com uma busca binária,
+ * então o custo de cada evento não cresce com o número de conquistas.
+ * </p>
+ *
+ * @author Eric
+ */
+public class MotorDeConquistas implements AutoCloseable {
+
+    /**
+     * Condições de uma métrica, ordenadas pelo mínimo: {@code ids[i]} é
+     * desbloqueada a partir de {@code minimos[i]}.
+     */
+    private static final class Tabela {
+        final int[] minimos;
+        final int[] ids;
+
+        Tabela(List<Conquista> conquistas) {
+            conquistas.sort(Comparator.comparingInt(Conquista::getMinimo).thenComparingInt(Conquista::getId));
+            minimos = new int[conquistas.size()];
+            ids = new int[conquistas.size()];
+            for (int i = 0; i < minimos.length; i++) {
+                minimos[i] = conquistas.get(i).getMinimo();
+                ids[i] = conquistas.get(i).getId();
+            }
+        }
+
+        /**
+         * @return a primeira posição a partir de {@code inicio} cujo mínimo
+         * passa do valor.
+         */
+        int alcance(int inicio, int valor) {
+            int baixo = inicio;
+            int alto = minimos.length;
+            while (baixo < alto) {
+                int meio = (baixo + alto) >>> 1;
+                if (minimos[meio] <= valor) {
+                    baixo = meio + 1;
+                } else {
+                    alto = meio;
+                }
+            }
+            return baixo;
+        }
+    }
+
+    private static final CatalogoDeConquistas CATALOGO = CatalogoDeConquistas.getInstancia();
+
+    /**
+     * Tabelas de condições, indexadas pelo ordinal da métrica.
+     */
+    private static final Tabela[] TABELAS = compilar(CATALOGO);
+
+    private static Tabela[] compilar(CatalogoDeConquistas catalogo) {
+        MetricaDeConquista[] metricas = MetricaDeConquista.values();
+        Tabela[] tabelas = new Tabela[metricas.length];
+        for (MetricaDeConquista m : metricas) {
+            List<Conquista> daMetrica = new ArrayList<>();
+            for (Conquista c : catalogo.listar()) {
+                if (c.getMetrica() == m) {
+                    daMetrica.add(c);
+                }
+            }
+            tabelas[m.ordinal()] = new Tabela(daMetrica);
+        }
+        return tabelas;
+    }
+
+    private final Usuario usuario;
+
+    /**
+     * Por métrica, quantas condições da tabela já foram alcançadas.
+     */
+    private final int[] alcancadas = new int[TABELAS.length];
+    private final List<BarramentoDeEventos.Inscricao> inscricoes = new ArrayList<>();
+
+    /**
+     * Cria o motor para as conquistas do usuário.
+     *
+     * @param usuario o usuário.
+     * @throws IllegalArgumentException se o usuário for {@code null}.
+     */
+    public MotorDeConquistas(Usuario usuario) {
+        if (usuario == null) {
+            throw new IllegalArgumentException("Usuário não pode ser nulo");
+        }
+        this.usuario = usuario;
+    }
+
+    /**
+     * Passa a ouvir os eventos do barramento que alteram as métricas do
+     * usuário. As inscrições são canceladas em {@link #close()}.
+     *
+     * @param barramento o barramento da sessão do usuário.
+     */
+    public void ouvir(BarramentoDeEventos barramento) {
+        inscricoes.add(barramento.inscrever(Evento.HabitoAdicionado.class, e -> {
+            if (e.usuario() == usuario) {
+                avaliar(MetricaDeConquista.QUANTIDADE_DE_HABITOS, e.quantidadeDeHabitos());
+            }
+        }));
+        inscricoes.add(barramento.inscrever(Evento.HabitoConcluido.class, e -> {
+            if (pertence(e.habito())) {
+                avaliar(MetricaDeConquista.TOTAL_CONCLUSOES, e.totalConclusoes());
+                avaliar(MetricaDeConquista.STREAK, e.streak());
+            }
+        }));
+        inscricoes.add(barramento.inscrever(Evento.NivelAlcancado.class, e -> {
+            if (pertence(e.habito())) {
+                avaliar(MetricaDeConquista.NIVEL, e.nivel());
+            }
+        }));
+    }
+
+    /**
+     * Avalia todas as regras sobre o estado atual do usuário, por exemplo ao
+     * entrar no sistema com dados carregados de um arquivo.
+     */
+    public void avaliarTudo() {
+        avaliar(MetricaDeConquista.QUANTIDADE_DE_HABITOS, usuario.listarHabitos().size());
+        for (Habito h : usuario.listarHabitos()) {
+            avaliar(MetricaDeConquista.TOTAL_CONCLUSOES, h.getTotalConclusoes());
+            avaliar(MetricaDeConquista.STREAK, h.getStreak());
+            avaliar(MetricaDeConquista.NIVEL, h.getLevel());
+        }
+    }
+
+    /**
+     * Cancela as inscrições feitas em {@link #ouvir}.
+     */
+    @Override
+    public void close() {
+        for (BarramentoDeEventos.Inscricao i : inscricoes) {
+            i.close();
+        }
+        inscricoes.clear();
+    }
+
+    private boolean pertence(Habito h) {
+        return usuario.buscarHabito(h.getId()) == h;
+    }
+
+    private void avaliar(MetricaDeConquista metrica, int valor) {
+        Tabela tabela = TABELAS[metrica.ordinal()];
+        int inicio = alcancadas[metrica.ordinal()];
+        if (inicio == tabela.minimos.length || valor < tabela.minimos[inicio]) {
+            return;
+        }
+        int fim = tabela.alcance(inicio, valor);
+        alcancadas[metrica.ordinal()] = fim;
+        for (int i = inicio; i < fim; i++) {
+            if (usuario.desbloquearConquista(tabela.ids[i])) {
+                Eventos.publicar(new Evento.ConquistaDesbloqueada(usuario, CATALOGO.buscar(tabela.ids[i])));
+            }
+        }
+    }
+}
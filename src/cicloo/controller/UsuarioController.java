@@ -1,11 +1,15 @@
 package cicloo.controller;
 
-import cicloo.model.Conquista;
-import cicloo.dao.HabitoDAO;
-import cicloo.dao.UsuarioDAO;
+import cicloo.evento.Evento;
+import cicloo.evento.Eventos;
+import cicloo.dao.DAO;
+import cicloo.dao.Persistencia;
+import cicloo.model.DistribuicaoDeHabitos;
 import cicloo.model.Habito;
 import cicloo.model.Usuario;
-import java.util.List;
+import cicloo.model.enums.ModoDeStreak;
+import cicloo.model.enums.Recorrencia;
+import java.util.Collection;
 import java.util.Objects;
 
 /**
@@ -13,15 +17,16 @@ import java.util.Objects;
  * Gerencia hábitos, conquistas e estatísticas do usuário.
  * Atua como intermediário entre o modelo {@link Usuario} e a camada de visualização.
  * 
- * Utiliza as classes {@link HabitoDAO} e {@link UsuarioDAO} para persistência em memória.
+ * Utiliza as DAOs de {@link Persistencia}, que registram as alterações em
+ * disco quando a persistência está aberta.
  * 
  * @author Eric
  */
 public class UsuarioController {
 
     private Usuario usuario;
-    private HabitoDAO habitoDAO;
-    private UsuarioDAO usuarioDAO;
+    private DAO<Habito> habitoDAO;
+    private DAO<Usuario> usuarioDAO;
 
     /**
      * Construtor que recebe o usuário logado.
@@ -34,12 +39,13 @@ public class UsuarioController {
             throw new IllegalArgumentException("Usuário não pode ser nulo");
         }
         this.usuario = usuario;
-        this.habitoDAO = HabitoDAO.getInstancia();
-        this.usuarioDAO = UsuarioDAO.getInstancia();
+        this.habitoDAO = Persistencia.habitos();
+        this.usuarioDAO = Persistencia.usuarios();
     }
 
     /**
-     * Adiciona um novo hábito ao usuário e o salva no DAO.
+     * Salva um novo hábito no DAO e o adiciona ao usuário. O hábito é salvo
+     * primeiro para receber o ID sob o qual o usuário o guarda.
      *
      * @param h o hábito a ser adicionado.
      * @throws IllegalArgumentException se o hábito for {@code null}.
@@ -48,108 +54,59 @@ public class UsuarioController {
         if (h == null) {
             throw new IllegalArgumentException("Hábito não pode ser nulo");
         }
-        usuario.adicionarHabito(h);
         habitoDAO.salvar(h);
+        usuario.adicionarHabito(h);
+        registrarUsuario();
+        Eventos.publicar(new Evento.HabitoAdicionado(usuario, h, usuario.listarHabitos().size()));
     }
 
     /**
-     * Verifica e reseta streaks vencidos em todos os hábitos do usuário.
-     */
-    public void verificarStreaks() {
-        for (Habito h : this.usuario.listarHabitos()) {
-            h.verificarEresetarStreak();
-        }
-    }
-
-    /**
-     * Verifica todas as conquistas do sistema e desbloqueia as que o usuário alcançou.
-     * São consideradas as conquistas padrão do Cicloo.
+     * Adiciona vários hábitos ao usuário e os salva no DAO em um único lote.
+     *
+     * @param lote os hábitos a serem adicionados.
+     * @throws IllegalArgumentException se o lote ou algum hábito for {@code null}.
      */
-    public void verificarEdesbloquearConquistas() {
-        Conquista primeiroPasso = buscarConquista("Primeiro Passo");
-        if (primeiroPasso != null && !primeiroPasso.isDesbloqueada()) {
-            if (!usuario.listarHabitos().isEmpty()) {
-                primeiroPasso.desbloquear();
-                notificarDesbloqueio(primeiroPasso);
-            }
+    public void adicionarHabitos(Collection<Habito> lote) throws IllegalArgumentException {
+        if (lote == null) {
+            throw new IllegalArgumentException("Lote não pode ser nulo");
         }
-
-        Conquista colecionador = buscarConquista("Colecionador");
-        if (colecionador != null && !colecionador.isDesbloqueada()) {
-            if (usuario.listarHabitos().size() >= 5) {
-                colecionador.desbloquear();
-                notificarDesbloqueio(colecionador);
-            }
-        }
-
-        for (Habito habito : usuario.listarHabitos()) {
-            Conquista persistencia = buscarConquista("Persistencia de Aco");
-            if (persistencia != null && !persistencia.isDesbloqueada()) {
-                if (habito.getTotalConclusoes() >= 5) {
-                    persistencia.desbloquear();
-                    notificarDesbloqueio(persistencia);
-                }
-            }
-
-            Conquista mestreRotina = buscarConquista("Mestre da Rotina");
-            if (mestreRotina != null && !mestreRotina.isDesbloqueada()) {
-                if (habito.getStreak() >= 7) {
-                    mestreRotina.desbloquear();
-                    notificarDesbloqueio(mestreRotina);
-                }
-            }
-
-            Conquista novatoPromissor = buscarConquista("Novato Promissor");
-            if (novatoPromissor != null && !novatoPromissor.isDesbloqueada()) {
-                if (habito.getLevel() >= 5) {
-                    novatoPromissor.desbloquear();
-                    notificarDesbloqueio(novatoPromissor);
-                }
-            }
+        habitoDAO.salvarTodos(lote);
+        for (Habito h : lote) {
+            usuario.adicionarHabito(h);
+            Eventos.publicar(new Evento.HabitoAdicionado(usuario, h, usuario.listarHabitos().size()));
         }
+        registrarUsuario();
     }
 
     /**
-     * Busca uma conquista específica na lista do usuário.
-     *
-     * @param nome o nome da conquista.
-     * @return a conquista correspondente ou {@code null} se não encontrada.
+     * Zera os streaks vencidos até agora. Os prazos são acompanhados por
+     * {@link ExpiracaoDeStreaks}, então só os hábitos vencidos são visitados.
+     * No modo {@link ModoDeStreak#SOB_DEMANDA} não há nada a fazer: os
+     * streaks vencidos já são lidos como zero.
      */
-    private Conquista buscarConquista(String nome) {
-        for (Conquista c : usuario.getConquistas()) {
-            if (c.getNome().equals(nome)) {
-                return c;
-            }
+    public void verificarStreaks() {
+        if (Habito.getModoDeStreak() == ModoDeStreak.IMEDIATO) {
+            ExpiracaoDeStreaks.getInstancia().processar();
         }
-        return null;
     }
 
     /**
-     * Exibe uma notificação no console sobre a conquista desbloqueada.
-     *
-     * @param conquista a conquista que foi desbloqueada.
+     * Verifica todas as conquistas do sistema e desbloqueia as que o usuário alcançou.
+     * Percorre todos os hábitos; durante a sessão, as conquistas são avaliadas a
+     * cada evento por um {@link MotorDeConquistas} inscrito no barramento.
      */
-    private void notificarDesbloqueio(Conquista conquista) {
-        System.out.println("\n*********************************");
-        System.out.println("  CONQUISTA DESBLOQUEADA!");
-        System.out.println("  " + conquista.getNome());
-        System.out.println("  " + conquista.getDescricao());
-        System.out.println("*********************************");
+    public void verificarEdesbloquearConquistas() {
+        new MotorDeConquistas(usuario).avaliarTudo();
     }
 
     /**
-     * Calcula a soma total de XP de todos os hábitos do usuário.
+     * Retorna a soma total de XP dos hábitos do usuário, mantida nas
+     * {@link cicloo.model.EstatisticasDoUsuario estatísticas} do usuário.
      *
      * @return a quantidade total de experiência (XP).
      */
     public int getTotalXP() {
-        int totalXP = 0;
-        for (Habito h : usuario.listarHabitos()) {
-            if (h.getXp() > 0) {
-                totalXP += h.getXp();
-            }
-        }
-        return totalXP;
+        return usuario.getEstatisticas().getTotalXp();
     }
 
     /**
@@ -158,17 +115,7 @@ public class UsuarioController {
      * @return o hábito de maior nível ou {@code null} se não houver hábitos.
      */
     public Habito getHabitoMaiorNivel() {
-        List<Habito> habitos = usuario.listarHabitos();
-        if (habitos.isEmpty()) {
-            return null;
-        }
-        Habito habitoMaiorNivel = habitos.get(0);
-        for (Habito h : habitos) {
-            if (h.getLevel() > habitoMaiorNivel.getLevel()) {
-                habitoMaiorNivel = h;
-            }
-        }
-        return habitoMaiorNivel;
+        return usuario.getEstatisticas().getHabitoMaiorNivel();
     }
 
     /**
@@ -177,17 +124,35 @@ public class UsuarioController {
      * @return o hábito com maior sequência de dias ou {@code null} se não houver hábitos.
      */
     public Habito getHabitoMaiorStreak() {
-        List<Habito> habitos = usuario.listarHabitos();
-        if (habitos.isEmpty()) {
-            return null;
-        }
-        Habito habitoMaiorStreak = habitos.get(0);
-        for (Habito h : habitos) {
-            if (h.getStreak() > habitoMaiorStreak.getStreak()) {
-                habitoMaiorStreak = h;
-            }
-        }
-        return habitoMaiorStreak;
+        return usuario.getEstatisticas().getHabitoMaiorStreak();
+    }
+
+    /**
+     * Retorna a fração das conclusões esperadas nos últimos dias que foram
+     * feitas, em todos os hábitos do usuário.
+     *
+     * @param dias o tamanho da janela: 7, 30 ou 90.
+     * @return um valor entre 0 e 1.
+     * @throws IllegalArgumentException se a janela não for de 7, 30 ou 90 dias.
+     */
+    public double getTaxaRecente(int dias) throws IllegalArgumentException {
+        return usuario.getEstatisticas().getTaxaRecente(dias);
+    }
+
+    /**
+     * Retorna o percentil do streak entre os hábitos da recorrência de todos
+     * os usuários cadastrados, lido da {@link DistribuicaoDeHabitos} sem
+     * percorrer os hábitos, depois de aplicar as inclusões e exclusões de
+     * usuários pendentes.
+     *
+     * @param recorrencia a recorrência.
+     * @param percentil de 0 a 100.
+     * @return o streak, ou 0 se não houver hábitos da recorrência.
+     * @throws IllegalArgumentException se o percentil estiver fora de 0 a 100.
+     */
+    public int getPercentilDoStreak(Recorrencia recorrencia, double percentil) throws IllegalArgumentException {
+        DistribuicaoDosCadastrados.getInstancia().sincronizar();
+        return DistribuicaoDeHabitos.getInstancia().percentilDoStreak(recorrencia, percentil);
     }
 
     /**
@@ -200,14 +165,13 @@ public class UsuarioController {
         if (id < 0) {
             throw new IllegalArgumentException("ID inválido");
         }
-        Habito habitoParaRemover = buscarHabitoPorId(id);
-
-        if (habitoParaRemover == null) {
+        if (usuario.buscarHabito(id) == null) {
             throw new IllegalArgumentException("Hábito não encontrado com ID: " + id);
         }
 
         habitoDAO.deletar(id);
-        usuario.removerHabito(habitoParaRemover);
+        usuario.removerHabito(id);
+        registrarUsuario();
     }
 
     /**
@@ -220,13 +184,7 @@ public class UsuarioController {
         if (id < 0) {
             return null;
         }
-
-        for (Habito h : usuario.listarHabitos()) {
-            if (h.getId() == id) {
-                return h;
-            }
-        }
-        return null;
+        return usuario.buscarHabito(id);
     }
 
     /**
@@ -250,11 +208,11 @@ public class UsuarioController {
     }
 
     /**
-     * Retorna a lista de todos os hábitos do usuário.
+     * Retorna todos os hábitos do usuário, na ordem em que foram adicionados.
      *
-     * @return lista de hábitos.
+     * @return visão somente leitura dos hábitos.
      */
-    public List<Habito> listarHabitos() {
+    public Collection<Habito> listarHabitos() {
         return usuario.listarHabitos();
     }
 
@@ -290,22 +248,23 @@ public class UsuarioController {
     }
 
     /**
-     * Retorna a quantidade de hábitos ainda não concluídos pelo usuário.
+     * Retorna a quantidade de hábitos já concluídos no período atual da sua
+     * recorrência.
      *
-     * @return número de hábitos pendentes.
+     * @return número de hábitos concluídos no período.
      */
-    
-    
-    
-    
     public int quantidadeDeHabitosConcluidos() {
-        int contador = 0;
-        for (Habito h : usuario.listarHabitos()) {
-            if (!h.isConcluido()) {
-                contador++;
-            }
+        return usuario.getEstatisticas().getConcluidosNoPeriodo();
+    }
+
+    /**
+     * Registra na DAO a lista de hábitos alterada do usuário, se ele já
+     * estiver cadastrado; um usuário novo é registrado inteiro ao ser salvo.
+     */
+    private void registrarUsuario() {
+        if (usuarioDAO.buscarPorId(usuario.getId()) == usuario) {
+            usuarioDAO.atualizar(usuario);
         }
-        return contador;
     }
 
     @Override
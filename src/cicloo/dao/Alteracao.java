@@ -0,0 +1,101 @@
+package cicloo.dao;
+
+/**
+ * Uma alteração publicada por uma DAO em seu {@link FluxoDeAlteracoes}.
+ * <p>
+ * Os objetos desta classe são posições reaproveitadas do buffer circular: os
+ * dados só são válidos durante a chamada que os entrega ao assinante. Quem
+ * precisar guardá-los deve copiar o que interessa.
+ * </p>
+ *
+ * @param <T> o tipo do objeto alterado.
+ *
+ * @author Eric
+ */
+public final class Alteracao<T> {
+
+    /**
+     * Tipo da alteração.
+     */
+    public enum Tipo {
+        INCLUSAO,
+        ATUALIZACAO,
+        EXCLUSAO
+    }
+
+    private long sequencia;
+    private Tipo tipo;
+    private int id;
+    private T antes;
+    private T depois;
+
+    /**
+     * Cópias reaproveitadas para o estado anterior e o posterior.
+     */
+    private T bufferAntes;
+    private T bufferDepois;
+
+    Alteracao() {}
+
+    /**
+     * Preenche esta posição copiando os estados para os buffers próprios,
+     * criados apenas no primeiro uso.
+     */
+    void preencher(long sequencia, Tipo tipo, int id, T antes, T depois,
+            FluxoDeAlteracoes.Copiador<T> copiador) {
+        this.sequencia = sequencia;
+        this.tipo = tipo;
+        this.id = id;
+        if (antes == null) {
+            this.antes = null;
+        } else if (bufferAntes == null) {
+            this.antes = bufferAntes = copiador.copiar(antes);
+        } else {
+            copiador.copiar(antes, bufferAntes);
+            this.antes = bufferAntes;
+        }
+        if (depois == null) {
+            this.depois = null;
+        } else if (bufferDepois == null) {
+            this.depois = bufferDepois = copiador.copiar(depois);
+        } else {
+            copiador.copiar(depois, bufferDepois);
+            this.depois = bufferDepois;
+        }
+    }
+
+    /**
+     * @return o número de sequência, crescente a partir de 1.
+     */
+    public long getSequencia() {
+        return sequencia;
+    }
+
+    /**
+     * @return o tipo da alteração.
+     */
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * @return o ID do objeto alterado.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return o estado antes da alteração, ou {@code null} em inclusões.
+     */
+    public T getAntes() {
+        return antes;
+    }
+
+    /**
+     * @return o estado depois da alteração, ou {@code null} em exclusões.
+     */
+    public T getDepois() {
+        return depois;
+    }
+}
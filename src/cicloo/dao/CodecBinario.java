@@ -0,0 +1,56 @@
+package cicloo.dao;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converte objetos do modelo de e para uma representação binária compacta,
+ * usada pelas DAOs que persistem em disco.
+ *
+ * @param <T> o tipo de objeto convertido.
+ *
+ * @author Eric
+ */
+public interface CodecBinario<T> {
+
+    /**
+     * Retorna o ID do objeto.
+     *
+     * @param t o objeto.
+     * @return o identificador único do objeto.
+     */
+    int idDe(T t);
+
+    /**
+     * Escreve o estado completo do objeto, incluindo o ID.
+     *
+     * @param t o objeto a ser escrito.
+     * @param saida o destino dos bytes.
+     * @throws IOException se a escrita falhar.
+     */
+    void escrever(T t, DataOutput saida) throws IOException;
+
+    /**
+     * Lê um objeto previamente gravado por {@link #escrever}.
+     *
+     * @param entrada a origem dos bytes.
+     * @return o objeto reconstruído, já com seu ID.
+     * @throws IOException se a leitura falhar.
+     */
+    T ler(DataInput entrada) throws IOException;
+
+    /**
+     * Combina um objeto lido de um log com o que já está na DAO sob o mesmo
+     * ID, devolvendo o objeto a ser restaurado. Por padrão o lido substitui o
+     * existente; objetos guardados por referência em outros lugares podem, em
+     * vez disso, receber o estado lido.
+     *
+     * @param existente o objeto presente na DAO.
+     * @param lido o objeto lido do log.
+     * @return o objeto a ser restaurado na DAO.
+     */
+    default T reaplicar(T existente, T lido) {
+        return lido;
+    }
+}
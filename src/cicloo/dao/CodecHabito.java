@@ -0,0 +1,88 @@
+package cicloo.dao;
+
+import cicloo.model.Habito;
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Representação binária de um {@link Habito}: ID, nome, os três enums pelo
+ * ordinal, o progresso (nível, XP, streak, conclusões e dia da última
+ * conclusão) e o histórico de conclusões comprimido.
+ *
+ * @author Eric
+ */
+public class CodecHabito implements CodecBinario<Habito> {
+
+    /**
+     * Valor gravado no lugar do dia da última conclusão quando ela não existe.
+     */
+    static final long SEM_CONCLUSAO = Long.MIN_VALUE;
+
+    private static final Categoria[] CATEGORIAS = Categoria.values();
+    private static final Recorrencia[] RECORRENCIAS = Recorrencia.values();
+    private static final Prioridade[] PRIORIDADES = Prioridade.values();
+
+    @Override
+    public int idDe(Habito h) {
+        return h.getId();
+    }
+
+    @Override
+    public void escrever(Habito h, DataOutput saida) throws IOException {
+        saida.writeInt(h.getId());
+        saida.writeUTF(h.getNome());
+        saida.writeByte(h.getCategoria().ordinal());
+        saida.writeByte(h.getRecorrencia().ordinal());
+        saida.writeByte(h.getPrioridade().ordinal());
+        saida.writeInt(h.getLevel());
+        saida.writeInt(h.getXp());
+        saida.writeInt(h.getStreak());
+        saida.writeInt(h.getTotalConclusoes());
+        LocalDate ultima = h.getUltimaConclusao();
+        saida.writeLong(ultima == null ? SEM_CONCLUSAO : ultima.toEpochDay());
+        long[] historico = h.getHistoricoComprimido();
+        saida.writeInt(historico.length);
+        for (long palavra : historico) {
+            saida.writeLong(palavra);
+        }
+    }
+
+    @Override
+    public Habito ler(DataInput entrada) throws IOException {
+        int id = entrada.readInt();
+        String nome = entrada.readUTF();
+        Categoria categoria = CATEGORIAS[entrada.readUnsignedByte()];
+        Recorrencia recorrencia = RECORRENCIAS[entrada.readUnsignedByte()];
+        Prioridade prioridade = PRIORIDADES[entrada.readUnsignedByte()];
+        Habito h = new Habito(nome, categoria, recorrencia, prioridade);
+        h.setId(id);
+        int level = entrada.readInt();
+        int xp = entrada.readInt();
+        int streak = entrada.readInt();
+        int totalConclusoes = entrada.readInt();
+        long dia = entrada.readLong();
+        h.restaurarProgresso(level, xp, streak, totalConclusoes,
+                dia == SEM_CONCLUSAO ? null : LocalDate.ofEpochDay(dia));
+        long[] historico = new long[entrada.readInt()];
+        for (int i = 0; i < historico.length; i++) {
+            historico[i] = entrada.readLong();
+        }
+        h.restaurarHistorico(historico);
+        return h;
+    }
+
+    /**
+     * Os usuários guardam seus hábitos por referência, então o estado lido é
+     * copiado para o hábito existente em vez de substituí-lo.
+     */
+    @Override
+    public Habito reaplicar(Habito existente, Habito lido) {
+        existente.copiarEstado(lido);
+        return existente;
+    }
+}
@@ -0,0 +1,87 @@
+package cicloo.dao;
+
+import cicloo.model.CatalogoDeConquistas;
+import cicloo.model.Conquista;
+import cicloo.model.Habito;
+import cicloo.model.Usuario;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Representação binária de um {@link Usuario}: dados de login, IDs dos hábitos
+ * e conquistas com seu status.
+ * <p>
+ * Os hábitos são gravados apenas pelo ID e resolvidos na leitura pela DAO de
+ * hábitos informada, que portanto precisa ser carregada antes dos usuários.
+ * </p>
+ * <p>
+ * As conquistas são gravadas por nome, para não depender da ordem do
+ * {@link CatalogoDeConquistas}; só as desbloqueadas são escritas, e na
+ * leitura entradas bloqueadas ou fora do catálogo são ignoradas.
+ * </p>
+ *
+ * @author Eric
+ */
+public class CodecUsuario implements CodecBinario<Usuario> {
+
+    private final DAO<Habito> habitos;
+
+    /**
+     * @param habitos DAO usada para resolver os IDs de hábitos na leitura.
+     */
+    public CodecUsuario(DAO<Habito> habitos) {
+        this.habitos = habitos;
+    }
+
+    @Override
+    public int idDe(Usuario u) {
+        return u.getId();
+    }
+
+    @Override
+    public void escrever(Usuario u, DataOutput saida) throws IOException {
+        saida.writeInt(u.getId());
+        saida.writeUTF(u.getNome());
+        saida.writeUTF(u.getEmail());
+        saida.writeUTF(u.getSenha());
+        Collection<Habito> lista = u.listarHabitos();
+        saida.writeInt(lista.size());
+        for (Habito h : lista) {
+            saida.writeInt(h.getId());
+        }
+        List<Conquista> conquistas = CatalogoDeConquistas.getInstancia().desbloqueadasPor(u);
+        saida.writeInt(conquistas.size());
+        for (Conquista c : conquistas) {
+            saida.writeUTF(c.getNome());
+            saida.writeUTF(c.getDescricao());
+            saida.writeBoolean(true);
+        }
+    }
+
+    @Override
+    public Usuario ler(DataInput entrada) throws IOException {
+        int id = entrada.readInt();
+        Usuario u = new Usuario(entrada.readUTF(), entrada.readUTF(), entrada.readUTF());
+        u.setId(id);
+        int quantidadeHabitos = entrada.readInt();
+        for (int i = 0; i < quantidadeHabitos; i++) {
+            Habito h = habitos.buscarPorId(entrada.readInt());
+            if (h != null) {
+                u.adicionarHabito(h);
+            }
+        }
+        CatalogoDeConquistas catalogo = CatalogoDeConquistas.getInstancia();
+        int quantidadeConquistas = entrada.readInt();
+        for (int i = 0; i < quantidadeConquistas; i++) {
+            Conquista c = catalogo.buscarPorNome(entrada.readUTF());
+            entrada.readUTF();
+            if (entrada.readBoolean() && c != null) {
+                u.desbloquearConquista(c.getId());
+            }
+        }
+        return u;
+    }
+}
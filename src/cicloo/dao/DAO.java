@@ -1,11 +1,23 @@
 package cicloo.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface genérica para operações básicas de persistência de dados.
  * Define os métodos CRUD (Create, Read, Update, Delete) que devem ser
  * implementados pelas classes DAO específicas.
+ * <p>
+ * As operações em lote ({@code salvarTodos}, {@code atualizarTodos},
+ * {@code deletarTodos} e {@code restaurarTodos}) têm implementações padrão que
+ * repetem a operação unitária; as DAOs podem sobrescrevê-las para dividir o
+ * custo de geração de IDs, índices e E/S por todo o lote.
+ * </p>
+ * <p>
+ * Para percorrer todos os dados sem copiá-los, use {@link #fluxo()} ou
+ * {@link #buscarPagina}; {@link #buscarTodos()} devolve sempre uma cópia.
+ * </p>
  *
  * @param <T> o tipo de objeto que será manipulado pela DAO.
  * 
@@ -35,6 +47,33 @@ public interface DAO<T> {
      */
     List<T> buscarTodos();
 
+    /**
+     * Retorna um {@link Stream} sobre os objetos do repositório, sem copiá-los
+     * para uma lista intermediária. As implementações devolvem fluxos que
+     * podem ser divididos para processamento paralelo.
+     * <p>
+     * A implementação padrão usa {@link #buscarTodos()} e portanto copia os
+     * dados.
+     * </p>
+     *
+     * @return um fluxo com todos os objetos.
+     */
+    default Stream<T> fluxo() {
+        return buscarTodos().stream();
+    }
+
+    /**
+     * Retorna até {@code limite} objetos com ID maior que {@code cursor}, em
+     * ordem crescente de ID.
+     *
+     * @param cursor {@link Pagina#INICIO} para a primeira página, ou o
+     * {@link Pagina#getProximoCursor()} da página anterior.
+     * @param limite quantidade máxima de objetos na página.
+     * @return a página encontrada.
+     * @throws IllegalArgumentException se o limite for menor que 1.
+     */
+    Pagina<T> buscarPagina(int cursor, int limite);
+
     /**
      * Atualiza um objeto existente no repositório.
      *
@@ -48,7 +87,57 @@ public interface DAO<T> {
      * @param id o identificador do objeto a ser removido.
      */
     void deletar(int id);
-    
-    
-    
+
+    /**
+     * Insere ou substitui um objeto que já possui ID (por exemplo, recuperado
+     * do disco), preservando esse ID. O gerador de IDs passa a começar após o
+     * maior ID restaurado.
+     *
+     * @param t o objeto a ser restaurado.
+     */
+    void restaurar(T t);
+
+    /**
+     * Salva vários objetos novos de uma vez.
+     *
+     * @param itens os objetos a serem salvos.
+     */
+    default void salvarTodos(Collection<? extends T> itens) {
+        for (T t : itens) {
+            salvar(t);
+        }
+    }
+
+    /**
+     * Atualiza vários objetos existentes de uma vez.
+     *
+     * @param itens os objetos com os dados atualizados.
+     */
+    default void atualizarTodos(Collection<? extends T> itens) {
+        for (T t : itens) {
+            atualizar(t);
+        }
+    }
+
+    /**
+     * Remove vários objetos de uma vez.
+     *
+     * @param ids os identificadores dos objetos a serem removidos.
+     */
+    default void deletarTodos(int... ids) {
+        for (int id : ids) {
+            deletar(id);
+        }
+    }
+
+    /**
+     * Restaura vários objetos que já possuem ID de uma vez.
+     *
+     * @param itens os objetos a serem restaurados.
+     */
+    default void restaurarTodos(Collection<? extends T> itens) {
+        for (T t : itens) {
+            restaurar(t);
+        }
+    }
 }
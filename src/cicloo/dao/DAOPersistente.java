@@ -0,0 +1,361 @@
+package cicloo.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * DAO durável: envolve outra {@link DAO} em memória e registra cada
+ * {@code salvar}, {@code atualizar} e {@code deletar} em um
+ * {@link LogDeEscrita}.
+ * <p>
+ * Ao ser criada, reaplica o log existente sobre a DAO envolvida, reconstruindo
+ * o estado em memória. Os registros de inclusão e atualização guardam o estado
+ * completo do objeto (via {@link CodecBinario}) e são reaplicados com
+ * {@link DAO#restaurar}, combinados pelo {@link CodecBinario#reaplicar codec}
+ * com o objeto que já estiver na DAO; exclusões guardam só o ID.
+ * </p>
+ * <p>
+ * A alteração em memória e o acréscimo do registro acontecem juntos, sob a
+ * trava desta DAO, para que a ordem do log seja a mesma das alterações. DAOs
+ * que precisam ser salvas juntas em um snapshot (como as de hábitos e
+ * usuários, em {@link Persistencia}) podem compartilhar a mesma trava. A espera
+ * pelo fsync acontece fora da trava, permitindo que várias threads tenham seus
+ * registros gravados no mesmo lote.
+ * </p>
+ * <p>
+ * As operações em lote acrescentam um registro por objeto, mas esperam apenas
+ * pelo último, de modo que o lote inteiro é gravado com um único fsync.
+ * </p>
+ * Erros de E/S são propagados como {@link UncheckedIOException}.
+ *
+ * @param <T> o tipo de objeto persistido.
+ *
+ * @author Eric
+ */
+public class DAOPersistente<T> implements DAO<T>, Closeable {
+
+    private static final byte SALVAR = 1;
+    private static final byte ATUALIZAR = 2;
+    private static final byte DELETAR = 3;
+
+    private final DAO<T> delegado;
+    private final CodecBinario<T> codec;
+    private final LogDeEscrita log;
+    private final Object trava;
+    private final BytesReutilizaveis bytes = new BytesReutilizaveis();
+    private final DataOutputStream saida = new DataOutputStream(bytes);
+
+    /**
+     * Abre o log, reaplica seus registros sobre {@code delegado} e passa a
+     * registrar as novas alterações.
+     *
+     * @param delegado a DAO em memória que guarda o estado.
+     * @param codec conversor binário dos objetos.
+     * @param arquivo caminho do arquivo de log.
+     * @throws IOException se o log não puder ser aberto ou lido.
+     */
+    public DAOPersistente(DAO<T> delegado, CodecBinario<T> codec, Path arquivo) throws IOException {
+        this(delegado, codec, arquivo, null, true);
+    }
+
+    /**
+     * Como {@link #DAOPersistente(DAO, CodecBinario, Path)}, mas sincronizando
+     * as alterações na trava informada e, se pedido, sem reaplicar o log,
+     * quando ele já foi reaplicado por {@link #reaplicar}.
+     *
+     * @param trava a trava compartilhada, ou {@code null} para usar esta DAO.
+     * @param reaplicarLog se o log deve ser reaplicado sobre {@code delegado}.
+     */
+    DAOPersistente(DAO<T> delegado, CodecBinario<T> codec, Path arquivo, Object trava,
+            boolean reaplicarLog) throws IOException {
+        if (delegado == null || codec == null || arquivo == null) {
+            throw new IllegalArgumentException("DAO, codec e arquivo não podem ser nulos");
+        }
+        this.delegado = delegado;
+        this.codec = codec;
+        this.trava = trava == null ? this : trava;
+        this.log = new LogDeEscrita(arquivo);
+        try {
+            if (reaplicarLog) {
+                reaplicar(log, delegado, codec);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reaplica os registros do log sobre a DAO informada, sem passar a
+     * registrar alterações. Uma cauda corrompida é descartada do arquivo.
+     *
+     * @param <T> o tipo de objeto persistido.
+     * @param arquivo caminho do arquivo de log; se não existir, é criado vazio.
+     * @param destino a DAO que recebe os registros.
+     * @param codec conversor binário dos objetos.
+     * @return a quantidade de registros reaplicados.
+     * @throws IOException se o log não puder ser lido ou tiver um registro inválido.
+     */
+    static <T> int reaplicar(Path arquivo, DAO<T> destino, CodecBinario<T> codec) throws IOException {
+        try (LogDeEscrita log = new LogDeEscrita(arquivo)) {
+            return reaplicar(log, destino, codec);
+        }
+    }
+
+    private static <T> int reaplicar(LogDeEscrita log, DAO<T> destino, CodecBinario<T> codec) throws IOException {
+        return log.recuperar((tipo, dados) -> {
+            switch (tipo) {
+                case SALVAR, ATUALIZAR -> {
+                    T lido = codec.ler(dados);
+                    T atual = destino.buscarPorId(codec.idDe(lido));
+                    destino.restaurar(atual == null ? lido : codec.reaplicar(atual, lido));
+                }
+                case DELETAR -> destino.deletar(dados.readInt());
+                default -> throw new IOException("Tipo de registro desconhecido: " + tipo);
+            }
+        });
+    }
+
+    /**
+     * Salva o objeto na DAO envolvida e registra seu estado no log. Se a DAO
+     * recusar o objeto (por exemplo, e-mail duplicado), nada é registrado.
+     *
+     * @param t o objeto a ser salvo.
+     */
+    @Override
+    public void salvar(T t) {
+        long sequencia;
+        synchronized (trava) {
+            delegado.salvar(t);
+            if (delegado.buscarPorId(codec.idDe(t)) != t) {
+                return;
+            }
+            sequencia = registrarEstado(SALVAR, t);
+        }
+        aguardar(sequencia);
+    }
+
+    @Override
+    public T buscarPorId(int id) {
+        return delegado.buscarPorId(id);
+    }
+
+    @Override
+    public List<T> buscarTodos() {
+        return delegado.buscarTodos();
+    }
+
+    @Override
+    public Stream<T> fluxo() {
+        return delegado.fluxo();
+    }
+
+    @Override
+    public Pagina<T> buscarPagina(int cursor, int limite) {
+        return delegado.buscarPagina(cursor, limite);
+    }
+
+    /**
+     * Atualiza o objeto na DAO envolvida e registra o estado completo
+     * resultante no log.
+     *
+     * @param t o objeto com os dados atualizados.
+     */
+    @Override
+    public void atualizar(T t) {
+        long sequencia;
+        synchronized (trava) {
+            delegado.atualizar(t);
+            T atual = delegado.buscarPorId(codec.idDe(t));
+            if (atual == null) {
+                return;
+            }
+            sequencia = registrarEstado(ATUALIZAR, atual);
+        }
+        aguardar(sequencia);
+    }
+
+    @Override
+    public void deletar(int id) {
+        long sequencia;
+        synchronized (trava) {
+            if (delegado.buscarPorId(id) == null) {
+                return;
+            }
+            delegado.deletar(id);
+            sequencia = registrarExclusao(id);
+        }
+        aguardar(sequencia);
+    }
+
+    @Override
+    public void restaurar(T t) {
+        long sequencia;
+        synchronized (trava) {
+            delegado.restaurar(t);
+            sequencia = registrarEstado(SALVAR, t);
+        }
+        aguardar(sequencia);
+    }
+
+    /**
+     * Salva o lote na DAO envolvida e registra no log os objetos aceitos,
+     * esperando por um único fsync no final.
+     *
+     * @param lote os objetos a serem salvos.
+     */
+    @Override
+    public void salvarTodos(Collection<? extends T> lote) {
+        long sequencia = 0;
+        synchronized (trava) {
+            delegado.salvarTodos(lote);
+            for (T t : lote) {
+                if (delegado.buscarPorId(codec.idDe(t)) == t) {
+                    sequencia = registrarEstado(SALVAR, t);
+                }
+            }
+        }
+        aguardar(sequencia);
+    }
+
+    /**
+     * Atualiza o lote na DAO envolvida e registra o estado resultante de cada
+     * objeto existente, esperando por um único fsync no final.
+     *
+     * @param lote os objetos com os dados atualizados.
+     */
+    @Override
+    public void atualizarTodos(Collection<? extends T> lote) {
+        long sequencia = 0;
+        synchronized (trava) {
+            delegado.atualizarTodos(lote);
+            for (T t : lote) {
+                T atual = delegado.buscarPorId(codec.idDe(t));
+                if (atual != null) {
+                    sequencia = registrarEstado(ATUALIZAR, atual);
+                }
+            }
+        }
+        aguardar(sequencia);
+    }
+
+    /**
+     * Remove de uma vez, na DAO envolvida, os IDs que existem nela e registra
+     * a exclusão de cada um no log, esperando por um único fsync no final.
+     *
+     * @param ids os IDs a serem removidos; inexistentes e repetidos são
+     * ignorados.
+     */
+    @Override
+    public void deletarTodos(int... ids) {
+        long sequencia = 0;
+        synchronized (trava) {
+            BitSet existentes = new BitSet();
+            for (int id : ids) {
+                if (id >= 0 && !existentes.get(id) && delegado.buscarPorId(id) != null) {
+                    existentes.set(id);
+                }
+            }
+            if (existentes.isEmpty()) {
+                return;
+            }
+            delegado.deletarTodos(existentes.stream().toArray());
+            for (int id = existentes.nextSetBit(0); id >= 0; id = existentes.nextSetBit(id + 1)) {
+                sequencia = registrarExclusao(id);
+            }
+        }
+        aguardar(sequencia);
+    }
+
+    @Override
+    public void restaurarTodos(Collection<? extends T> lote) {
+        long sequencia = 0;
+        synchronized (trava) {
+            delegado.restaurarTodos(lote);
+            for (T t : lote) {
+                sequencia = registrarEstado(SALVAR, t);
+            }
+        }
+        aguardar(sequencia);
+    }
+
+    /**
+     * Grava o que estiver pendente e fecha o log.
+     *
+     * @throws IOException se a gravação final falhar.
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Descarta o log, depois que o estado da DAO envolvida foi salvo em outro
+     * lugar. Deve ser chamado com a trava desta DAO, para que nenhuma
+     * alteração aconteça entre o salvamento e o descarte.
+     *
+     * @throws IOException se o log não puder ser truncado.
+     */
+    void descartarLog() throws IOException {
+        log.truncar();
+    }
+
+    /**
+     * Codifica o estado do objeto e o acrescenta ao lote pendente do log.
+     * Deve ser chamado com a trava desta DAO.
+     */
+    private long registrarEstado(byte tipo, T t) {
+        try {
+            bytes.reset();
+            codec.escrever(t, saida);
+            return log.acrescentar(tipo, bytes.vetor(), bytes.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Acrescenta ao lote pendente do log a exclusão do ID informado. Deve ser
+     * chamado com a trava desta DAO.
+     */
+    private long registrarExclusao(int id) {
+        try {
+            bytes.reset();
+            saida.writeInt(id);
+            return log.acrescentar(DELETAR, bytes.vetor(), bytes.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void aguardar(long sequencia) {
+        try {
+            log.aguardar(sequencia);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Buffer de codificação reaproveitado entre chamadas, que expõe o vetor
+     * interno para evitar a cópia feita por {@code toByteArray()}.
+     */
+    private static final class BytesReutilizaveis extends ByteArrayOutputStream {
+
+        BytesReutilizaveis() {
+            super(256);
+        }
+
+        byte[] vetor() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package cicloo.dao;
+
+import cicloo.util.MapaInt;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Fluxo ordenado das inclusões, atualizações e exclusões feitas em uma DAO
+ * (captura de alterações), para que caches, rankings e exportações reajam às
+ * mudanças sem consultar {@code buscarTodos()}.
+ * <p>
+ * As alterações ficam em um buffer circular de tamanho fixo cujas posições
+ * ({@link Alteracao}) são criadas uma vez e reaproveitadas; os estados antes e
+ * depois são copiados para objetos que também pertencem à posição. Cada
+ * alteração recebe uma sequência crescente, que o assinante pode guardar para
+ * retomar a leitura de onde parou.
+ * </p>
+ * <p>
+ * Cada {@link Assinatura} lê no seu próprio ritmo, em outra thread se quiser.
+ * Quando o assinante mais lento está uma volta inteira atrás, a DAO espera que
+ * ele libere espaço antes de publicar (contrapressão), mas só por um tempo
+ * limitado: passado esse tempo, os assinantes atrasados que não estão no meio
+ * de uma entrega são desconectados e a DAO segue em frente. Um assinante
+ * desconectado recebe {@link IllegalStateException} ao consumir e deve
+ * assinar de novo e reler o estado da DAO. Sem assinantes, as alterações são
+ * descartadas assim que o buffer dá a volta.
+ * </p>
+ * <p>
+ * Para conhecer o estado anterior de uma atualização mesmo quando o objeto já
+ * foi alterado antes de chegar à DAO, o fluxo guarda uma cópia (sombra) do
+ * último estado publicado de cada objeto.
+ * </p>
+ *
+ * @param <T> o tipo dos objetos da DAO.
+ *
+ * @author Eric
+ */
+public class FluxoDeAlteracoes<T> {
+
+    /**
+     * Capacidade padrão do buffer, em alterações.
+     */
+    public static final int CAPACIDADE_PADRAO = 1024;
+
+    /**
+     * Espera padrão, em milissegundos, por espaço no buffer antes de
+     * desconectar os assinantes atrasados.
+     */
+    public static final long ESPERA_MAXIMA_PADRAO = 100;
+
+    /**
+     * Sabe copiar o estado de um objeto, criando uma cópia nova ou
+     * reaproveitando uma existente.
+     *
+     * @param <T> o tipo copiado.
+     */
+    public interface Copiador<T> {
+
+        /**
+         * @param origem o objeto a copiar.
+         * @return uma cópia nova e independente.
+         */
+        T copiar(T origem);
+
+        /**
+         * @param origem o objeto a copiar.
+         * @param destino cópia existente que recebe o estado de {@code origem}.
+         */
+        void copiar(T origem, T destino);
+    }
+
+    private final Alteracao<T>[] posicoes;
+    private final int mascara;
+    private final Copiador<T> copiador;
+    private final ToIntFunction<T> idDe;
+    private final long esperaMaxima;
+    private final MapaInt<T> sombras = new MapaInt<>();
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition espacoLiberado = trava.newCondition();
+    private final Condition publicado = trava.newCondition();
+    private final List<Assinatura> assinaturas = new ArrayList<>();
+
+    /**
+     * Sequência da última alteração publicada.
+     */
+    private long ultimaSequencia;
+
+    /**
+     * Cria o fluxo com a {@link #ESPERA_MAXIMA_PADRAO espera máxima padrão}.
+     *
+     * @param capacidade quantidade de alterações no buffer (arredondada para a
+     * próxima potência de dois).
+     * @param copiador copiador do estado dos objetos.
+     * @param idDe extrai o ID de um objeto.
+     * @throws IllegalArgumentException se a capacidade for menor que 1.
+     */
+    public FluxoDeAlteracoes(int capacidade, Copiador<T> copiador, ToIntFunction<T> idDe) {
+        this(capacidade, copiador, idDe, ESPERA_MAXIMA_PADRAO);
+    }
+
+    /**
+     * Cria o fluxo.
+     *
+     * @param capacidade quantidade de alterações no buffer (arredondada para a
+     * próxima potência de dois).
+     * @param copiador copiador do estado dos objetos.
+     * @param idDe extrai o ID de um objeto.
+     * @param esperaMaxima quanto a DAO espera, em milissegundos, por espaço no
+     * buffer antes de desconectar os assinantes atrasados.
+     * @throws IllegalArgumentException se a capacidade for menor que 1 ou a
+     * espera for negativa.
+     */
+    public FluxoDeAlteracoes(int capacidade, Copiador<T> copiador, ToIntFunction<T> idDe, long esperaMaxima) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("Capacidade deve ser ao menos 1");
+        }
+        if (esperaMaxima < 0) {
+            throw new IllegalArgumentException("Espera não pode ser negativa");
+        }
+        int n = Integer.highestOneBit(Math.max(1, capacidade - 1)) << 1;
+        @SuppressWarnings("unchecked")
+        Alteracao<T>[] novas = (Alteracao<T>[]) new Alteracao<?>[n];
+        this.posicoes = novas;
+        for (int i = 0; i < n; i++) {
+            posicoes[i] = new Alteracao<>();
+        }
+        this.mascara = n - 1;
+        this.copiador = copiador;
+        this.idDe = idDe;
+        this.esperaMaxima = TimeUnit.MILLISECONDS.toNanos(esperaMaxima);
+    }
+
+    /**
+     * Cria uma assinatura que recebe as alterações publicadas a partir de agora.
+     *
+     * @return a nova assinatura.
+     */
+    public Assinatura assinar() {
+        trava.lock();
+        try {
+            return novaAssinatura(ultimaSequencia);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Cria uma assinatura que retoma a leitura na sequência informada.
+     *
+     * @param aPartirDe a primeira sequência a ser entregue.
+     * @return a nova assinatura.
+     * @throws IllegalArgumentException se a sequência já saiu do buffer ou
+     * ainda não foi publicada.
+     */
+    public Assinatura assinar(long aPartirDe) {
+        trava.lock();
+        try {
+            long maisAntiga = Math.max(1, ultimaSequencia - posicoes.length + 1);
+            if (aPartirDe < maisAntiga || aPartirDe > ultimaSequencia + 1) {
+                throw new IllegalArgumentException("Sequência fora do buffer: " + aPartirDe
+                        + " (disponíveis de " + maisAntiga + " a " + ultimaSequencia + ")");
+            }
+            return novaAssinatura(aPartirDe - 1);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * @return a sequência da última alteração publicada, ou 0 se nenhuma foi.
+     */
+    public long getUltimaSequencia() {
+        trava.lock();
+        try {
+            return ultimaSequencia;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Registra o estado atual de um objeto já existente na DAO, sem publicar
+     * alteração. Usado ao ativar o fluxo sobre uma DAO com dados.
+     */
+    void conhecer(T t) {
+        trava.lock();
+        try {
+            sombras.colocar(idDe.applyAsInt(t), copiador.copiar(t));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Publica a inclusão ou a atualização do objeto, conforme ele já seja
+     * conhecido pelo fluxo.
+     */
+    void registrar(T t) {
+        trava.lock();
+        try {
+            registrarComTrava(t);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Como {@link #registrar}, para vários objetos, segurando a trava uma vez.
+     */
+    void registrarTodos(Iterable<? extends T> itens) {
+        trava.lock();
+        try {
+            for (T t : itens) {
+                registrarComTrava(t);
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Publica a exclusão do objeto, se ele for conhecido pelo fluxo.
+     */
+    void excluido(int id) {
+        trava.lock();
+        try {
+            excluidoComTrava(id);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Como {@link #excluido}, para vários IDs, segurando a trava uma vez.
+     */
+    void excluidos(BitSet ids) {
+        trava.lock();
+        try {
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                excluidoComTrava(id);
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private void registrarComTrava(T t) {
+        int id = idDe.applyAsInt(t);
+        T sombra = sombras.obter(id);
+        if (sombra == null) {
+            publicar(Alteracao.Tipo.INCLUSAO, id, null, t);
+            sombras.colocar(id, copiador.copiar(t));
+        } else {
+            publicar(Alteracao.Tipo.ATUALIZACAO, id, sombra, t);
+            copiador.copiar(t, sombra);
+        }
+    }
+
+    private void excluidoComTrava(int id) {
+        T sombra = sombras.obter(id);
+        if (sombra != null) {
+            publicar(Alteracao.Tipo.EXCLUSAO, id, sombra, null);
+            sombras.remover(id);
+        }
+    }
+
+    /**
+     * Espera haver espaço no buffer e preenche a próxima posição. Chamado com
+     * a trava segura. A espera é limitada: esgotada, os assinantes atrasados
+     * são desconectados. Quem está no meio de uma entrega ainda usa as
+     * posições que leu e continua sendo esperado, em novas rodadas.
+     */
+    private void publicar(Alteracao.Tipo tipo, int id, T antes, T depois) {
+        long sequencia = ultimaSequencia + 1;
+        long restante = esperaMaxima;
+        boolean interrompida = false;
+        while (sequencia - menorSequenciaLida() > posicoes.length) {
+            if (restante <= 0) {
+                desconectarAtrasados(sequencia);
+                restante = esperaMaxima;
+                continue;
+            }
+            try {
+                restante = espacoLiberado.awaitNanos(restante);
+            } catch (InterruptedException e) {
+                interrompida = true;
+                restante = 0;
+            }
+        }
+        if (interrompida) {
+            Thread.currentThread().interrupt();
+        }
+        posicoes[(int) sequencia & mascara].preencher(sequencia, tipo, id, antes, depois, copiador);
+        ultimaSequencia = sequencia;
+        publicado.signalAll();
+    }
+
+    /**
+     * Desconecta os assinantes que impedem a publicação da sequência e não
+     * estão no meio de uma entrega. Chamado com a trava segura.
+     */
+    private void desconectarAtrasados(long sequencia) {
+        boolean algum = assinaturas.removeIf(a -> {
+            if (a.entregando || sequencia - a.lidas <= posicoes.length) {
+                return false;
+            }
+            a.desconectada = true;
+            return true;
+        });
+        if (algum) {
+            publicado.signalAll();
+        }
+    }
+
+    /**
+     * Menor sequência já lida entre os assinantes; sem assinantes, não há
+     * restrição. Chamado com a trava segura.
+     */
+    private long menorSequenciaLida() {
+        long menor = ultimaSequencia;
+        for (Assinatura a : assinaturas) {
+            menor = Math.min(menor, a.lidas);
+        }
+        return menor;
+    }
+
+    private Assinatura novaAssinatura(long lidas) {
+        Assinatura a = new Assinatura(lidas);
+        assinaturas.add(a);
+        return a;
+    }
+
+    /**
+     * Leitura independente do fluxo. As alterações entregues a
+     * {@code acao} são posições do buffer e só podem ser usadas durante a
+     * chamada; as posições do lote são liberadas para a DAO quando a entrega
+     * termina. Enquanto isso a DAO espera por elas, então {@code acao} deve
+     * ser rápida e não pode esperar por outra escrita na DAO.
+     */
+    public final class Assinatura implements AutoCloseable {
+
+        /**
+         * Sequência da última alteração entregue. Protegida pela trava do fluxo.
+         */
+        private long lidas;
+        private boolean cancelada;
+
+        /**
+         * Indica que a assinatura foi desconectada por ficar atrasada demais.
+         * Protegida pela trava do fluxo.
+         */
+        private boolean desconectada;
+
+        /**
+         * Indica que um lote está sendo entregue fora da trava, com as suas
+         * posições em uso. Protegido pela trava do fluxo.
+         */
+        private boolean entregando;
+
+        private Assinatura(long lidas) {
+            this.lidas = lidas;
+        }
+
+        /**
+         * Espera até haver alterações e entrega até {@code maximo} delas, em
+         * ordem.
+         *
+         * @param maximo quantidade máxima de alterações entregues.
+         * @param acao quem processa cada alteração.
+         * @return a quantidade entregue, ou 0 se a assinatura foi cancelada.
+         * @throws InterruptedException se a thread for interrompida na espera.
+         * @throws IllegalStateException se a assinatura foi desconectada por
+         * atraso.
+         */
+        public int consumir(int maximo, Consumer<? super Alteracao<T>> acao) throws InterruptedException {
+            return consumir(maximo, acao, -1);
+        }
+
+        /**
+         * Entrega até {@code maximo} alterações, esperando no máximo o tempo
+         * informado para que surja a primeira.
+         *
+         * @param maximo quantidade máxima de alterações entregues.
+         * @param acao quem processa cada alteração.
+         * @param espera tempo máximo de espera, em milissegundos; 0 não espera.
+         * @return a quantidade entregue.
+         * @throws InterruptedException se a thread for interrompida na espera.
+         * @throws IllegalStateException se a assinatura foi desconectada por
+         * atraso.
+         */
+        public int consumir(int maximo, Consumer<? super Alteracao<T>> acao, long espera) throws InterruptedException {
+            if (maximo < 1) {
+                throw new IllegalArgumentException("Máximo deve ser ao menos 1");
+            }
+            long primeira;
+            int quantidade;
+            trava.lockInterruptibly();
+            try {
+                long restante = espera < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(espera);
+                while (lidas == ultimaSequencia && !cancelada && !desconectada) {
+                    if (espera < 0) {
+                        publicado.await();
+                    } else if (restante <= 0) {
+                        return 0;
+                    } else {
+                        restante = publicado.awaitNanos(restante);
+                    }
+                }
+                if (desconectada) {
+                    throw new IllegalStateException("Assinatura desconectada por atraso");
+                }
+                if (cancelada) {
+                    return 0;
+                }
+                primeira = lidas + 1;
+                quantidade = (int) Math.min(maximo, ultimaSequencia - lidas);
+                entregando = true;
+            } finally {
+                trava.unlock();
+            }
+            int entregues = 0;
+            try {
+                while (entregues < quantidade) {
+                    acao.accept(posicoes[(int) (primeira + entregues) & mascara]);
+                    entregues++;
+                }
+            } finally {
+                liberar(entregues);
+            }
+            return entregues;
+        }
+
+        /**
+         * @return {@code true} se a assinatura foi desconectada por ficar uma
+         * volta inteira atrás por mais que a espera máxima do fluxo.
+         */
+        public boolean isDesconectada() {
+            trava.lock();
+            try {
+                return desconectada;
+            } finally {
+                trava.unlock();
+            }
+        }
+
+        /**
+         * @return a sequência da última alteração entregue; a leitura pode ser
+         * retomada com {@code assinar(getSequencia() + 1)}.
+         */
+        public long getSequencia() {
+            trava.lock();
+            try {
+                return lidas;
+            } finally {
+                trava.unlock();
+            }
+        }
+
+        /**
+         * Cancela a assinatura, liberando a DAO de esperar por ela.
+         */
+        @Override
+        public void close() {
+            trava.lock();
+            try {
+                cancelada = true;
+                assinaturas.remove(this);
+                espacoLiberado.signalAll();
+                publicado.signalAll();
+            } finally {
+                trava.unlock();
+            }
+        }
+
+        private void liberar(int entregues) {
+            trava.lock();
+            try {
+                lidas += entregues;
+                entregando = false;
+                espacoLiberado.signalAll();
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package cicloo.dao;
 
 import cicloo.model.Habito;
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.IndiceEnum;
+import cicloo.util.MapaInt;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * Classe responsável por gerenciar a persistência em memória dos objetos {@link Habito}.
  * Implementa o padrão Singleton e a interface genérica {@code DAO<Habito>}.
  * 
- * Esta DAO simula um banco de dados armazenando hábitos em uma lista.
+ * Esta DAO simula um banco de dados armazenando hábitos em um mapa indexado
+ * pelo ID ({@link MapaInt}), de modo que busca, atualização e remoção custam
+ * O(1) independentemente da quantidade de hábitos cadastrados.
+ * Índices por categoria, prioridade e recorrência permitem filtrar os hábitos
+ * com {@link #buscarPorFiltro} sem percorrer todos eles.
  * Ideal para testes ou sistemas sem persistência em disco.
  * 
  * @author Eric
@@ -22,9 +35,39 @@ public class HabitoDAO implements DAO<Habito> {
     private static HabitoDAO instancia;
 
     /**
-     * Lista que armazena os hábitos em memória.
+     * Mapa que armazena os hábitos em memória, indexados pelo ID.
      */
-    private List<Habito> habitos = new ArrayList<>();
+    private final MapaInt<Habito> habitos = new MapaInt<>();
+
+    /**
+     * IDs dos hábitos de cada categoria, prioridade e recorrência.
+     */
+    private final IndiceEnum<Categoria> porCategoria = new IndiceEnum<>(Categoria.class);
+    private final IndiceEnum<Prioridade> porPrioridade = new IndiceEnum<>(Prioridade.class);
+    private final IndiceEnum<Recorrencia> porRecorrencia = new IndiceEnum<>(Recorrencia.class);
+
+    /**
+     * Copia o estado completo de um hábito para o fluxo de alterações.
+     */
+    private static final FluxoDeAlteracoes.Copiador<Habito> COPIADOR = new FluxoDeAlteracoes.Copiador<>() {
+        @Override
+        public Habito copiar(Habito origem) {
+            Habito copia = new Habito(origem.getNome(), origem.getCategoria(),
+                    origem.getRecorrencia(), origem.getPrioridade());
+            copia.copiarEstado(origem);
+            return copia;
+        }
+
+        @Override
+        public void copiar(Habito origem, Habito destino) {
+            destino.copiarEstado(origem);
+        }
+    };
+
+    /**
+     * Fluxo de alterações, criado apenas quando alguém o pede.
+     */
+    private FluxoDeAlteracoes<Habito> alteracoes;
 
     /**
      * Contador utilizado para gerar IDs únicos para os hábitos.
@@ -32,9 +75,10 @@ public class HabitoDAO implements DAO<Habito> {
     private int contador = 0;
 
     /**
-     * Construtor privado para impedir múltiplas instâncias (Singleton).
+     * Construtor restrito ao pacote: fora dele só existe a instância única;
+     * dentro, {@link Persistencia} monta a carga em uma instância separada.
      */
-    private HabitoDAO() {}
+    HabitoDAO() {}
 
     /**
      * Retorna a instância única da classe {@code HabitoDAO}.
@@ -49,7 +93,7 @@ public class HabitoDAO implements DAO<Habito> {
     }
 
     /**
-     * Salva um novo hábito na lista e atribui um ID único a ele.
+     * Salva um novo hábito no mapa e atribui um ID único a ele.
      *
      * @param h o hábito a ser salvo.
      * @throws IllegalArgumentException se o hábito for {@code null}.
@@ -60,7 +104,31 @@ public class HabitoDAO implements DAO<Habito> {
             throw new IllegalArgumentException("Habito não pode ser nulo");
         }
         h.setId(contador++);
-        habitos.add(h);
+        habitos.colocar(h.getId(), h);
+        indexar(h);
+        publicar(h);
+    }
+
+    /**
+     * Salva vários hábitos de uma vez. A faixa de IDs e o espaço no mapa são
+     * reservados uma única vez para todo o lote.
+     *
+     * @param lote os hábitos a serem salvos.
+     * @throws IllegalArgumentException se algum hábito for {@code null};
+     * nesse caso nenhum hábito do lote é salvo.
+     */
+    @Override
+    public void salvarTodos(Collection<? extends Habito> lote) {
+        validarLote(lote);
+        habitos.reservar(lote.size());
+        int id = contador;
+        contador += lote.size();
+        for (Habito h : lote) {
+            h.setId(id++);
+            habitos.colocar(h.getId(), h);
+            indexar(h);
+        }
+        publicarTodos(lote);
     }
 
     /**
@@ -74,22 +142,91 @@ public class HabitoDAO implements DAO<Habito> {
         if (id < 0) {
             return null;
         }
-        for (Habito h : habitos) {
-            if (h.getId() == id) {
-                return h;
-            }
-        }
-        return null;
+        return habitos.obter(id);
     }
 
     /**
      * Retorna todos os hábitos armazenados.
      *
-     * @return uma nova lista contendo todos os hábitos.
+     * @return uma nova lista contendo todos os hábitos, na ordem de cadastro.
      */
     @Override
     public List<Habito> buscarTodos() {
-        return new ArrayList<>(habitos);
+        return new ArrayList<>(habitos.valores());
+    }
+
+    /**
+     * Retorna um fluxo sobre os hábitos armazenados, na ordem de inserção,
+     * sem copiá-los. O fluxo pode ser paralelizado e falha com
+     * {@link java.util.ConcurrentModificationException} se a DAO for alterada
+     * durante o percurso.
+     *
+     * @return um fluxo com todos os hábitos.
+     */
+    @Override
+    public Stream<Habito> fluxo() {
+        return habitos.valores().stream();
+    }
+
+    /**
+     * Retorna uma página de hábitos ordenada por ID, a partir do cursor.
+     *
+     * @param cursor o ID do último item da página anterior, ou {@link Pagina#INICIO}.
+     * @param limite quantidade máxima de hábitos na página.
+     * @return a página encontrada.
+     * @throws IllegalArgumentException se o limite for menor que 1.
+     */
+    @Override
+    public Pagina<Habito> buscarPagina(int cursor, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("Limite deve ser ao menos 1");
+        }
+        List<Habito> itens = new ArrayList<>(Math.min(limite, habitos.tamanho()));
+        boolean temMais = habitos.copiarApos(cursor, limite, itens);
+        int proximo = itens.isEmpty() ? cursor : itens.get(itens.size() - 1).getId();
+        return new Pagina<>(itens, proximo, temMais);
+    }
+
+    /**
+     * Busca os hábitos que atendem a todos os critérios informados, em ordem
+     * crescente de ID. Critérios {@code null} aceitam qualquer valor.
+     * <p>
+     * O filtro é resolvido nos índices: parte do conjunto de IDs do critério
+     * mais seletivo e o intersecta com os demais, consultando o mapa apenas para
+     * os hábitos do resultado.
+     * </p>
+     *
+     * @param categoria a categoria desejada, ou {@code null}.
+     * @param prioridade a prioridade desejada, ou {@code null}.
+     * @param recorrencia a recorrência desejada, ou {@code null}.
+     * @return uma nova lista com os hábitos encontrados.
+     */
+    public List<Habito> buscarPorFiltro(Categoria categoria, Prioridade prioridade, Recorrencia recorrencia) {
+        List<BitSet> criterios = new ArrayList<>(3);
+        if (categoria != null) {
+            criterios.add(porCategoria.ids(categoria));
+        }
+        if (prioridade != null) {
+            criterios.add(porPrioridade.ids(prioridade));
+        }
+        if (recorrencia != null) {
+            criterios.add(porRecorrencia.ids(recorrencia));
+        }
+        if (criterios.isEmpty()) {
+            List<Habito> todos = new ArrayList<>(habitos.valores());
+            todos.sort(Comparator.comparingInt(Habito::getId));
+            return todos;
+        }
+        criterios.sort((a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+        BitSet resultado = (BitSet) criterios.get(0).clone();
+        for (int i = 1; i < criterios.size() && !resultado.isEmpty(); i++) {
+            resultado.and(criterios.get(i));
+        }
+        List<Habito> encontrados = new ArrayList<>(resultado.cardinality());
+        for (int id = resultado.nextSetBit(0); id >= 0; id = resultado.nextSetBit(id + 1)) {
+            encontrados.add(habitos.obter(id));
+        }
+        return encontrados;
     }
 
     /**
@@ -103,17 +240,38 @@ public class HabitoDAO implements DAO<Habito> {
         if (habitoAtualizar == null) {
             throw new IllegalArgumentException("Habito não pode ser nulo");
         }
-        for (Habito h : habitos) {
-            if (h.getId() == habitoAtualizar.getId()) {
-                h.atualizarCamposBasicos(habitoAtualizar);
-                return;
-            }
+        Habito h = habitos.obter(habitoAtualizar.getId());
+        if (h != null) {
+            h.atualizarCamposBasicos(habitoAtualizar);
+            reindexar(h);
+            publicar(h);
         }
     }
 
+    /**
+     * Atualiza os dados básicos de vários hábitos de uma vez. As
+     * atualizações são publicadas no fluxo de alterações de uma vez, no final.
+     *
+     * @param lote os hábitos com os novos dados.
+     * @throws IllegalArgumentException se algum hábito for {@code null}.
+     */
+    @Override
+    public void atualizarTodos(Collection<? extends Habito> lote) {
+        validarLote(lote);
+        List<Habito> atualizados = new ArrayList<>(lote.size());
+        for (Habito novo : lote) {
+            Habito h = habitos.obter(novo.getId());
+            if (h != null) {
+                h.atualizarCamposBasicos(novo);
+                reindexar(h);
+                atualizados.add(h);
+            }
+        }
+        publicarTodos(atualizados);
+    }
 
     /**
-     * Remove um hábito da lista com base no seu ID.
+     * Remove um hábito do mapa com base no seu ID.
      *
      * @param id o ID do hábito a ser removido.
      */
@@ -122,6 +280,156 @@ public class HabitoDAO implements DAO<Habito> {
         if (id < 0) {
             return;
         }
-        habitos.removeIf(h -> h.getId() == id);
+        if (habitos.remover(id) != null) {
+            desindexar(id);
+            if (alteracoes != null) {
+                alteracoes.excluido(id);
+            }
+        }
+    }
+
+    /**
+     * Remove vários hábitos de uma vez. IDs inexistentes são ignorados. Os
+     * IDs removidos são retirados dos índices em uma única passada por valor
+     * e publicados no fluxo de alterações de uma vez.
+     *
+     * @param ids os IDs dos hábitos a serem removidos.
+     */
+    @Override
+    public void deletarTodos(int... ids) {
+        BitSet removidos = new BitSet();
+        for (int id : ids) {
+            if (id >= 0 && habitos.remover(id) != null) {
+                removidos.set(id);
+            }
+        }
+        if (removidos.isEmpty()) {
+            return;
+        }
+        porCategoria.desindexarTodos(removidos);
+        porPrioridade.desindexarTodos(removidos);
+        porRecorrencia.desindexarTodos(removidos);
+        if (alteracoes != null) {
+            alteracoes.excluidos(removidos);
+        }
+    }
+
+    /**
+     * Insere ou substitui um hábito mantendo o ID que ele já possui.
+     *
+     * @param h o hábito a ser restaurado.
+     * @throws IllegalArgumentException se o hábito for {@code null}.
+     */
+    @Override
+    public void restaurar(Habito h) {
+        if (h == null) {
+            throw new IllegalArgumentException("Habito não pode ser nulo");
+        }
+        habitos.colocar(h.getId(), h);
+        reindexar(h);
+        publicar(h);
+        if (h.getId() >= contador) {
+            contador = h.getId() + 1;
+        }
+    }
+
+    /**
+     * Restaura vários hábitos de uma vez, reservando o espaço do mapa uma
+     * única vez.
+     *
+     * @param lote os hábitos a serem restaurados.
+     * @throws IllegalArgumentException se algum hábito for {@code null}.
+     */
+    @Override
+    public void restaurarTodos(Collection<? extends Habito> lote) {
+        validarLote(lote);
+        habitos.reservar(lote.size());
+        int maiorId = contador - 1;
+        for (Habito h : lote) {
+            habitos.colocar(h.getId(), h);
+            reindexar(h);
+            maiorId = Math.max(maiorId, h.getId());
+        }
+        contador = maiorId + 1;
+        publicarTodos(lote);
+    }
+
+    /**
+     * Retorna o fluxo de alterações desta DAO, criando-o no primeiro pedido.
+     * Os hábitos já cadastrados passam a ser conhecidos pelo fluxo, sem gerar
+     * alterações; a partir daí toda inclusão, atualização e exclusão é publicada.
+     *
+     * @return o fluxo de alterações dos hábitos.
+     */
+    public FluxoDeAlteracoes<Habito> getAlteracoes() {
+        if (alteracoes == null) {
+            FluxoDeAlteracoes<Habito> fluxo = new FluxoDeAlteracoes<>(
+                    FluxoDeAlteracoes.CAPACIDADE_PADRAO, COPIADOR, Habito::getId);
+            for (Habito h : habitos.valores()) {
+                fluxo.conhecer(h);
+            }
+            alteracoes = fluxo;
+        }
+        return alteracoes;
+    }
+
+    /**
+     * Publica o estado atual do hábito no fluxo de alterações, se ativo.
+     *
+     * @param h o hábito incluído ou alterado.
+     */
+    private void publicar(Habito h) {
+        if (alteracoes != null) {
+            alteracoes.registrar(h);
+        }
+    }
+
+    private void publicarTodos(Collection<? extends Habito> lote) {
+        if (alteracoes != null) {
+            alteracoes.registrarTodos(lote);
+        }
+    }
+
+    /**
+     * Registra o hábito nos índices de categoria, prioridade e recorrência.
+     *
+     * @param h o hábito já presente no mapa.
+     */
+    private void indexar(Habito h) {
+        porCategoria.indexar(h.getCategoria(), h.getId());
+        porPrioridade.indexar(h.getPrioridade(), h.getId());
+        porRecorrencia.indexar(h.getRecorrencia(), h.getId());
+    }
+
+    /**
+     * Refaz os registros do hábito nos índices. Os valores antigos são
+     * descobertos pelos próprios índices, então funciona mesmo quando o objeto
+     * já foi alterado antes de chegar à DAO.
+     *
+     * @param h o hábito já presente no mapa.
+     */
+    private void reindexar(Habito h) {
+        desindexar(h.getId());
+        indexar(h);
+    }
+
+    private void desindexar(int id) {
+        porCategoria.desindexar(id);
+        porPrioridade.desindexar(id);
+        porRecorrencia.desindexar(id);
+    }
+
+    /**
+     * Garante que o lote não tenha hábitos nulos antes de alterar o mapa.
+     */
+    private static void validarLote(Collection<? extends Habito> lote) {
+        if (lote == null) {
+            throw new IllegalArgumentException("Lote não pode ser nulo");
+        }
+        for (Habito h : lote) {
+            if (h == null) {
+                throw new IllegalArgumentException("Habito não pode ser nulo");
+            }
+        }
     }
 }
@@ -0,0 +1,216 @@
+package cicloo.dao;
+
+import cicloo.model.Habito;
+import cicloo.util.MapaIntConcorrente;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Variante de {@link HabitoDAO} segura para várias sessões simultâneas na
+ * mesma JVM.
+ * <p>
+ * Os IDs são gerados por um {@link AtomicInteger}, sem risco de repetição, e os
+ * hábitos ficam em um {@link MapaIntConcorrente}, que divide as chaves em faixas
+ * com travas independentes para que leituras e escritas escalem entre núcleos.
+ * A instância única é criada na inicialização da classe, o que garante sua
+ * publicação segura entre threads.
+ * </p>
+ *
+ * @author Eric
+ */
+public class HabitoDAOConcorrente implements DAO<Habito> {
+
+    /**
+     * Instância única da classe (padrão Singleton), publicada de forma segura.
+     */
+    private static final HabitoDAOConcorrente INSTANCIA = new HabitoDAOConcorrente();
+
+    /**
+     * Mapa concorrente que armazena os hábitos, indexados pelo ID.
+     */
+    private final MapaIntConcorrente<Habito> habitos = new MapaIntConcorrente<>();
+
+    /**
+     * Gerador atômico de IDs únicos.
+     */
+    private final AtomicInteger contador = new AtomicInteger();
+
+    /**
+     * Construtor privado para impedir múltiplas instâncias (Singleton).
+     */
+    private HabitoDAOConcorrente() {}
+
+    /**
+     * Retorna a instância única da classe {@code HabitoDAOConcorrente}.
+     *
+     * @return a instância única.
+     */
+    public static HabitoDAOConcorrente getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Salva um novo hábito e atribui a ele um ID único.
+     *
+     * @param h o hábito a ser salvo.
+     * @throws IllegalArgumentException se o hábito for {@code null}.
+     */
+    @Override
+    public void salvar(Habito h) {
+        if (h == null) {
+            throw new IllegalArgumentException("Habito não pode ser nulo");
+        }
+        int id = contador.getAndIncrement();
+        h.setId(id);
+        habitos.colocar(id, h);
+    }
+
+    /**
+     * Salva vários hábitos, reservando a faixa de IDs do lote com um único
+     * incremento atômico.
+     *
+     * @param lote os hábitos a serem salvos.
+     * @throws IllegalArgumentException se algum hábito for {@code null};
+     * nesse caso nenhum hábito do lote é salvo.
+     */
+    @Override
+    public void salvarTodos(Collection<? extends Habito> lote) {
+        if (lote == null) {
+            throw new IllegalArgumentException("Lote não pode ser nulo");
+        }
+        for (Habito h : lote) {
+            if (h == null) {
+                throw new IllegalArgumentException("Habito não pode ser nulo");
+            }
+        }
+        int id = contador.getAndAdd(lote.size());
+        for (Habito h : lote) {
+            h.setId(id);
+            habitos.colocar(id++, h);
+        }
+    }
+
+    /**
+     * Busca um hábito pelo seu ID.
+     *
+     * @param id o ID do hábito.
+     * @return o hábito correspondente ou {@code null} se não encontrado.
+     */
+    @Override
+    public Habito buscarPorId(int id) {
+        if (id < 0) {
+            return null;
+        }
+        return habitos.obter(id);
+    }
+
+    /**
+     * Retorna todos os hábitos armazenados, ordenados pelo ID.
+     *
+     * @return uma nova lista contendo todos os hábitos.
+     */
+    @Override
+    public List<Habito> buscarTodos() {
+        List<Habito> todos = habitos.copiarValores();
+        todos.sort(Comparator.comparingInt(Habito::getId));
+        return todos;
+    }
+
+    /**
+     * Retorna um fluxo sobre os hábitos, em ordem de ID, percorrendo a faixa de
+     * IDs já gerados sem copiar o mapa. O fluxo é fracamente consistente: reflete
+     * as alterações feitas por outras threads durante o percurso, sem nunca
+     * lançar {@link java.util.ConcurrentModificationException}, e pode ser
+     * paralelizado.
+     *
+     * @return um fluxo com todos os hábitos.
+     */
+    @Override
+    public Stream<Habito> fluxo() {
+        return IntStream.range(0, contador.get())
+                .mapToObj(habitos::obter)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Retorna uma página de hábitos ordenada por ID, a partir do cursor. Como os
+     * IDs são sequenciais, a página é montada consultando os IDs seguintes ao
+     * cursor, sem percorrer o mapa inteiro.
+     *
+     * @param cursor o ID do último item da página anterior, ou {@link Pagina#INICIO}.
+     * @param limite quantidade máxima de hábitos na página.
+     * @return a página encontrada.
+     * @throws IllegalArgumentException se o limite for menor que 1.
+     */
+    @Override
+    public Pagina<Habito> buscarPagina(int cursor, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("Limite deve ser ao menos 1");
+        }
+        int fim = contador.get();
+        List<Habito> itens = new ArrayList<>(Math.min(limite, 64));
+        int id = Math.max(cursor + 1, 0);
+        for (; id < fim && itens.size() < limite; id++) {
+            Habito encontrado = habitos.obter(id);
+            if (encontrado != null) {
+                itens.add(encontrado);
+            }
+        }
+        int proximo = itens.isEmpty() ? cursor : itens.get(itens.size() - 1).getId();
+        boolean temMais = false;
+        for (; id < fim && !temMais; id++) {
+            temMais = habitos.obter(id) != null;
+        }
+        return new Pagina<>(itens, proximo, temMais);
+    }
+
+    /**
+     * Atualiza os dados básicos de um hábito existente. A cópia dos campos é
+     * feita com a trava da faixa do hábito, então duas atualizações do mesmo
+     * hábito nunca se intercalam.
+     *
+     * @param habitoAtualizar o hábito com os novos dados.
+     * @throws IllegalArgumentException se o hábito for {@code null}.
+     */
+    @Override
+    public void atualizar(Habito habitoAtualizar) {
+        if (habitoAtualizar == null) {
+            throw new IllegalArgumentException("Habito não pode ser nulo");
+        }
+        habitos.aplicarSePresente(habitoAtualizar.getId(), h -> h.atualizarCamposBasicos(habitoAtualizar));
+    }
+
+    /**
+     * Remove um hábito com base no seu ID.
+     *
+     * @param id o ID do hábito a ser removido.
+     */
+    @Override
+    public void deletar(int id) {
+        if (id < 0) {
+            return;
+        }
+        habitos.remover(id);
+    }
+
+    /**
+     * Insere ou substitui um hábito mantendo o ID que ele já possui.
+     *
+     * @param h o hábito a ser restaurado.
+     * @throws IllegalArgumentException se o hábito for {@code null}.
+     */
+    @Override
+    public void restaurar(Habito h) {
+        if (h == null) {
+            throw new IllegalArgumentException("Habito não pode ser nulo");
+        }
+        habitos.colocar(h.getId(), h);
+        contador.accumulateAndGet(h.getId() + 1, Math::max);
+    }
+}
@@ -0,0 +1,363 @@
+package cicloo.dao;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Arquivo de log somente de acréscimo (write-ahead log) usado para tornar as
+ * alterações das DAOs duráveis.
+ * <p>
+ * Cada registro tem o formato {@code [tamanho][crc32][tipo][dados]}, onde o
+ * CRC cobre tipo e dados. Na recuperação, o primeiro registro incompleto ou
+ * com CRC inválido marca o fim do log e o arquivo é truncado nesse ponto,
+ * descartando uma escrita interrompida no meio.
+ * </p>
+ * <p>
+ * As gravações usam <em>group commit</em>: os registros são acumulados em
+ * memória e a primeira thread que precisa esperar pela durabilidade grava tudo
+ * o que estiver pendente com um único {@code force}. Enquanto isso, outras
+ * threads continuam acrescentando registros, que serão gravados juntos na
+ * próxima rodada. Assim a vazão não fica limitada pela latência do fsync.
+ * </p>
+ *
+ * @author Eric
+ */
+public class LogDeEscrita implements Closeable {
+
+    /**
+     * Tamanho máximo aceito para um registro (tipo + dados).
+     */
+    private static final int TAMANHO_MAXIMO_REGISTRO = 16 * 1024 * 1024;
+
+    /**
+     * Bytes de cabeçalho de cada registro: tamanho e CRC.
+     */
+    private static final int CABECALHO = 8;
+
+    /**
+     * Recebe os registros lidos durante a recuperação.
+     */
+    @FunctionalInterface
+    public interface LeitorDeRegistro {
+
+        /**
+         * Processa um registro válido do log.
+         *
+         * @param tipo o tipo gravado junto ao registro.
+         * @param dados os dados do registro.
+         * @throws IOException se os dados não puderem ser interpretados.
+         */
+        void ler(byte tipo, DataInput dados) throws IOException;
+    }
+
+    private final FileChannel canal;
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition gravado = trava.newCondition();
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Buffer que recebe novos registros.
+     */
+    private Buffer ativo = new Buffer();
+
+    /**
+     * Buffer livre para a próxima troca; enquanto uma gravação está em curso,
+     * é o buffer sendo gravado.
+     */
+    private Buffer reserva = new Buffer();
+
+    /**
+     * Sequência do último registro acrescentado.
+     */
+    private long ultimaSequencia;
+
+    /**
+     * Sequência do último registro garantidamente gravado em disco.
+     */
+    private long sequenciaDuravel;
+
+    /**
+     * Indica que alguma thread está gravando um lote.
+     */
+    private boolean gravando;
+
+    /**
+     * Falha de gravação anterior; depois dela o log não aceita novos registros.
+     */
+    private IOException falha;
+
+    private boolean fechado;
+
+    /**
+     * Abre (ou cria) o arquivo de log, posicionado no final.
+     *
+     * @param arquivo caminho do arquivo de log.
+     * @throws IOException se o arquivo não puder ser aberto.
+     */
+    public LogDeEscrita(Path arquivo) throws IOException {
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.canal.position(canal.size());
+    }
+
+    /**
+     * Lê todos os registros válidos desde o início do arquivo e trunca a cauda
+     * corrompida, se houver. Deve ser chamado antes de acrescentar registros.
+     *
+     * @param leitor quem processa cada registro.
+     * @return a quantidade de registros válidos lidos.
+     * @throws IOException se a leitura falhar.
+     */
+    public int recuperar(LeitorDeRegistro leitor) throws IOException {
+        trava.lock();
+        try {
+            long tamanhoArquivo = canal.size();
+            canal.position(0);
+            DataInputStream entrada = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(canal), 64 * 1024));
+            long pos = 0;
+            int lidos = 0;
+            while (tamanhoArquivo - pos >= CABECALHO + 1) {
+                int tamanho = entrada.readInt();
+                int soma = entrada.readInt();
+                if (tamanho < 1 || tamanho > TAMANHO_MAXIMO_REGISTRO
+                        || tamanho > tamanhoArquivo - pos - CABECALHO) {
+                    break;
+                }
+                byte[] corpo = new byte[tamanho];
+                entrada.readFully(corpo);
+                crc.reset();
+                crc.update(corpo, 0, tamanho);
+                if ((int) crc.getValue() != soma) {
+                    break;
+                }
+                leitor.ler(corpo[0], new DataInputStream(new ByteArrayInputStream(corpo, 1, tamanho - 1)));
+                pos += CABECALHO + tamanho;
+                lidos++;
+            }
+            if (pos < tamanhoArquivo) {
+                canal.truncate(pos);
+                canal.force(true);
+            }
+            canal.position(pos);
+            return lidos;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta um registro e espera até que ele esteja gravado em disco.
+     *
+     * @param tipo o tipo do registro.
+     * @param dados vetor com os dados.
+     * @param tamanho quantidade de bytes válidos em {@code dados}.
+     * @throws IOException se a gravação falhar.
+     */
+    public void anexar(byte tipo, byte[] dados, int tamanho) throws IOException {
+        aguardar(acrescentar(tipo, dados, tamanho));
+    }
+
+    /**
+     * Acrescenta um registro ao lote pendente, sem esperar pela gravação.
+     *
+     * @param tipo o tipo do registro.
+     * @param dados vetor com os dados.
+     * @param tamanho quantidade de bytes válidos em {@code dados}.
+     * @return a sequência do registro, a ser passada para {@link #aguardar}.
+     * @throws IOException se o log estiver fechado ou tiver falhado antes.
+     */
+    public long acrescentar(byte tipo, byte[] dados, int tamanho) throws IOException {
+        if (tamanho + 1 > TAMANHO_MAXIMO_REGISTRO) {
+            throw new IllegalArgumentException("Registro grande demais: " + tamanho + " bytes");
+        }
+        trava.lock();
+        try {
+            verificarDisponivel();
+            crc.reset();
+            crc.update(tipo);
+            crc.update(dados, 0, tamanho);
+            ativo.escreverInt(tamanho + 1);
+            ativo.escreverInt((int) crc.getValue());
+            ativo.escrever(tipo);
+            ativo.escrever(dados, tamanho);
+            return ++ultimaSequencia;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Espera até que o registro da sequência informada esteja em disco. Se
+     * nenhuma outra thread estiver gravando, esta thread grava o lote pendente.
+     *
+     * @param sequencia sequência devolvida por {@link #acrescentar}.
+     * @throws IOException se a gravação falhar.
+     */
+    public void aguardar(long sequencia) throws IOException {
+        trava.lock();
+        try {
+            while (sequenciaDuravel < sequencia) {
+                if (falha != null) {
+                    throw new IOException("Falha anterior ao gravar o log", falha);
+                }
+                if (gravando) {
+                    gravado.awaitUninterruptibly();
+                    continue;
+                }
+                gravarLotePendente();
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Descarta todos os registros, gravados ou pendentes, deixando o arquivo
+     * vazio. Usado depois que o estado que eles descrevem foi salvo por outro
+     * meio (por exemplo, em um snapshot); quem espera por um registro
+     * descartado é liberado como se ele tivesse sido gravado.
+     *
+     * @throws IOException se o arquivo não puder ser truncado.
+     */
+    public void truncar() throws IOException {
+        trava.lock();
+        try {
+            while (gravando) {
+                gravado.awaitUninterruptibly();
+            }
+            verificarDisponivel();
+            ativo.tamanho = 0;
+            try {
+                canal.truncate(0);
+                canal.force(true);
+            } catch (IOException e) {
+                falha = e;
+                throw e;
+            }
+            sequenciaDuravel = ultimaSequencia;
+            gravado.signalAll();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Grava tudo o que estiver pendente e fecha o arquivo. A gravação final e
+     * o fechamento acontecem fora da trava; registros acrescentados depois da
+     * chamada são recusados.
+     *
+     * @throws IOException se a gravação final falhar.
+     */
+    @Override
+    public void close() throws IOException {
+        long ate;
+        trava.lock();
+        try {
+            if (fechado) {
+                return;
+            }
+            fechado = true;
+            ate = falha == null ? ultimaSequencia : 0;
+        } finally {
+            trava.unlock();
+        }
+        try {
+            aguardar(ate);
+        } finally {
+            canal.close();
+        }
+    }
+
+    /**
+     * Troca os buffers e grava o lote acumulado com um único {@code force}.
+     * Chamado com a trava segura; a trava é liberada durante a E/S para que
+     * outras threads continuem acrescentando registros.
+     */
+    private void gravarLotePendente() throws IOException {
+        gravando = true;
+        Buffer lote = ativo;
+        ativo = reserva;
+        long ate = ultimaSequencia;
+        IOException erro = null;
+        trava.unlock();
+        try {
+            ByteBuffer bb = ByteBuffer.wrap(lote.dados, 0, lote.tamanho);
+            while (bb.hasRemaining()) {
+                canal.write(bb);
+            }
+            canal.force(false);
+        } catch (IOException e) {
+            erro = e;
+        } finally {
+            trava.lock();
+            lote.tamanho = 0;
+            reserva = lote;
+            gravando = false;
+            if (erro == null) {
+                sequenciaDuravel = ate;
+            } else {
+                falha = erro;
+            }
+            gravado.signalAll();
+        }
+        if (erro != null) {
+            throw erro;
+        }
+    }
+
+    private void verificarDisponivel() throws IOException {
+        if (fechado) {
+            throw new IOException("Log fechado");
+        }
+        if (falha != null) {
+            throw new IOException("Falha anterior ao gravar o log", falha);
+        }
+    }
+
+    /**
+     * Vetor de bytes que cresce conforme necessário e é reaproveitado entre lotes.
+     */
+    private static final class Buffer {
+        private byte[] dados = new byte[8 * 1024];
+        private int tamanho;
+
+        void escrever(byte b) {
+            garantir(1);
+            dados[tamanho++] = b;
+        }
+
+        void escreverInt(int v) {
+            garantir(4);
+            dados[tamanho++] = (byte) (v >>> 24);
+            dados[tamanho++] = (byte) (v >>> 16);
+            dados[tamanho++] = (byte) (v >>> 8);
+            dados[tamanho++] = (byte) v;
+        }
+
+        void escrever(byte[] origem, int n) {
+            garantir(n);
+            System.arraycopy(origem, 0, dados, tamanho, n);
+            tamanho += n;
+        }
+
+        private void garantir(int n) {
+            if (tamanho + n > dados.length) {
+                dados = Arrays.copyOf(dados, Math.max(dados.length * 2, tamanho + n));
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package cicloo.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Uma página de resultados de {@link DAO#buscarPagina}.
+ * <p>
+ * A paginação é por cursor: a página seguinte é pedida passando
+ * {@link #getProximoCursor()}, o ID do último item desta página. Ao contrário
+ * de um deslocamento numérico, o cursor continua válido mesmo que itens
+ * anteriores sejam incluídos ou removidos entre uma página e outra.
+ * </p>
+ *
+ * @param <T> o tipo dos itens.
+ *
+ * @author Eric
+ */
+public class Pagina<T> {
+
+    /**
+     * Cursor que pede a primeira página.
+     */
+    public static final int INICIO = -1;
+
+    private final List<T> itens;
+    private final int proximoCursor;
+    private final boolean temMais;
+
+    /**
+     * @param itens os itens da página, em ordem crescente de ID.
+     * @param proximoCursor o cursor para a página seguinte.
+     * @param temMais se ainda existem itens depois desta página.
+     */
+    public Pagina(List<T> itens, int proximoCursor, boolean temMais) {
+        this.itens = Collections.unmodifiableList(itens);
+        this.proximoCursor = proximoCursor;
+        this.temMais = temMais;
+    }
+
+    /**
+     * @return os itens da página, somente leitura.
+     */
+    public List<T> getItens() {
+        return itens;
+    }
+
+    /**
+     * @return o cursor a ser passado para buscar a página seguinte.
+     */
+    public int getProximoCursor() {
+        return proximoCursor;
+    }
+
+    /**
+     * @return {@code true} se existir uma página seguinte.
+     */
+    public boolean temMais() {
+        return temMais;
+    }
+}
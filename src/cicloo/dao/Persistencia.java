@@ -0,0 +1,207 @@
+package cicloo.dao;
+
+import cicloo.model.Habito;
+import cicloo.model.Usuario;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Persistência em disco das DAOs de hábitos e usuários: um
+ * {@link SnapshotBinario snapshot} com o estado completo, mais um
+ * {@link LogDeEscrita log} por DAO com as alterações feitas depois dele.
+ * <p>
+ * Ao abrir, o snapshot é carregado e os logs são reaplicados por cima,
+ * primeiro o de hábitos, porque os usuários os referenciam pelo ID. A carga é
+ * montada em DAOs separadas e só passa para {@link HabitoDAO} e
+ * {@link UsuarioDAO} se terminar sem erros. Se falhar, o snapshot e os logs
+ * são renomeados com o sufixo {@code .corrompido-<instante>}, para que
+ * nenhum salvamento posterior os sobrescreva, e o sistema começa vazio.
+ * </p>
+ * <p>
+ * Depois de aberta, as alterações devem passar pelas DAOs devolvidas por
+ * {@link #habitos()} e {@link #usuarios()}, que as registram nos logs antes
+ * de retornar. Um {@link #checkpoint() checkpoint}
+ * grava um snapshot novo e esvazia os logs.
+ * </p>
+ * <p>
+ * Os logs ficam ao lado do snapshot, com os sufixos {@code .habitos.log} e
+ * {@code .usuarios.log}. As duas DAOs duráveis compartilham a mesma trava,
+ * para que o checkpoint veja um estado em que nenhuma alteração ficou só no
+ * log de uma delas.
+ * </p>
+ * Streaks zerados por vencimento não são registrados: eles são recalculados
+ * a partir da data da última conclusão a cada execução.
+ *
+ * @author Eric
+ */
+public final class Persistencia implements Closeable {
+
+    /**
+     * A persistência aberta, ou {@code null} se as DAOs estão só em memória.
+     */
+    private static volatile Persistencia aberta;
+
+    private final Path snapshot;
+    private final Object trava = new Object();
+    private final DAOPersistente<Habito> habitos;
+    private final DAOPersistente<Usuario> usuarios;
+    private final boolean carregada;
+    private final Exception falhaNaCarga;
+    private final List<Path> preservados = new ArrayList<>();
+
+    private Persistencia(Path snapshot) throws IOException {
+        this.snapshot = snapshot;
+        Path logHabitos = arquivoDeLog(".habitos.log");
+        Path logUsuarios = arquivoDeLog(".usuarios.log");
+        HabitoDAO novosHabitos = new HabitoDAO();
+        UsuarioDAO novosUsuarios = new UsuarioDAO();
+        Exception falha = null;
+        try {
+            SnapshotBinario.carregar(snapshot, novosHabitos, novosUsuarios);
+            DAOPersistente.reaplicar(logHabitos, novosHabitos, new CodecHabito());
+            DAOPersistente.reaplicar(logUsuarios, novosUsuarios, new CodecUsuario(novosHabitos));
+        } catch (IOException | RuntimeException e) {
+            falha = e;
+            String sufixo = ".corrompido-" + System.currentTimeMillis();
+            preservar(snapshot, sufixo);
+            preservar(logHabitos, sufixo);
+            preservar(logUsuarios, sufixo);
+            novosHabitos = new HabitoDAO();
+            novosUsuarios = new UsuarioDAO();
+        }
+        this.falhaNaCarga = falha;
+
+        HabitoDAO habitoDAO = HabitoDAO.getInstancia();
+        UsuarioDAO usuarioDAO = UsuarioDAO.getInstancia();
+        habitoDAO.restaurarTodos(novosHabitos.buscarTodos());
+        usuarioDAO.restaurarTodos(novosUsuarios.buscarTodos());
+        this.carregada = !habitoDAO.buscarTodos().isEmpty() || !usuarioDAO.buscarTodos().isEmpty();
+
+        this.habitos = new DAOPersistente<>(habitoDAO, new CodecHabito(), logHabitos, trava, false);
+        try {
+            this.usuarios = new DAOPersistente<>(usuarioDAO, new CodecUsuario(habitoDAO), logUsuarios, trava, false);
+        } catch (IOException | RuntimeException e) {
+            habitos.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Carrega o snapshot e os logs e passa a registrar as alterações das DAOs.
+     *
+     * @param snapshot caminho do arquivo de snapshot; os logs ficam ao lado.
+     * @return a persistência aberta; se os dados salvos não puderem ser
+     * carregados, ela começa vazia e informa a {@link #getFalhaNaCarga falha}.
+     * @throws IOException se os arquivos não puderem ser renomeados ou os logs
+     * abertos para escrita.
+     * @throws IllegalStateException se já houver uma persistência aberta.
+     */
+    public static synchronized Persistencia abrir(Path snapshot) throws IOException {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Arquivo não pode ser nulo");
+        }
+        if (aberta != null) {
+            throw new IllegalStateException("Persistência já aberta");
+        }
+        aberta = new Persistencia(snapshot);
+        return aberta;
+    }
+
+    /**
+     * @return a DAO de hábitos durável, se houver persistência aberta, ou a
+     * {@link HabitoDAO} em memória.
+     */
+    public static DAO<Habito> habitos() {
+        Persistencia p = aberta;
+        return p == null ? HabitoDAO.getInstancia() : p.habitos;
+    }
+
+    /**
+     * @return a DAO de usuários durável, se houver persistência aberta, ou a
+     * {@link UsuarioDAO} em memória.
+     */
+    public static DAO<Usuario> usuarios() {
+        Persistencia p = aberta;
+        return p == null ? UsuarioDAO.getInstancia() : p.usuarios;
+    }
+
+    /**
+     * @return {@code true} se havia dados salvos, no snapshot ou nos logs.
+     */
+    public boolean isCarregada() {
+        return carregada;
+    }
+
+    /**
+     * @return o erro que impediu a carga dos dados salvos, ou {@code null} se
+     * eles foram carregados (ou não existiam).
+     */
+    public Exception getFalhaNaCarga() {
+        return falhaNaCarga;
+    }
+
+    /**
+     * @return os novos caminhos dos arquivos renomeados por não poderem ser
+     * carregados; vazio se a carga não falhou.
+     */
+    public List<Path> getArquivosPreservados() {
+        return Collections.unmodifiableList(preservados);
+    }
+
+    /**
+     * Grava um snapshot com o estado atual e esvazia os logs. As alterações
+     * ficam bloqueadas enquanto isso; se a gravação falhar, os logs são
+     * mantidos e continuam valendo sobre o snapshot anterior.
+     *
+     * @throws IOException se o snapshot não puder ser gravado ou os logs
+     * esvaziados.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (trava) {
+            SnapshotBinario.gravar(snapshot, HabitoDAO.getInstancia(), UsuarioDAO.getInstancia());
+            habitos.descartarLog();
+            usuarios.descartarLog();
+        }
+    }
+
+    /**
+     * Grava o que estiver pendente e fecha os logs. As DAOs voltam a ficar só
+     * em memória.
+     *
+     * @throws IOException se a gravação final falhar.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (Persistencia.class) {
+            if (aberta == this) {
+                aberta = null;
+            }
+        }
+        try {
+            habitos.close();
+        } finally {
+            usuarios.close();
+        }
+    }
+
+    /**
+     * Renomeia um arquivo que não pôde ser carregado, se ele existir.
+     */
+    private void preservar(Path arquivo, String sufixo) throws IOException {
+        if (Files.exists(arquivo)) {
+            Path destino = arquivo.resolveSibling(arquivo.getFileName() + sufixo);
+            Files.move(arquivo, destino, StandardCopyOption.ATOMIC_MOVE);
+            preservados.add(destino);
+        }
+    }
+
+    private Path arquivoDeLog(String sufixo) {
+        return snapshot.resolveSibling(snapshot.getFileName() + sufixo);
+    }
+}
@@ -0,0 +1,364 @@
+package cicloo.dao;
+
+import cicloo.model.CatalogoDeConquistas;
+import cicloo.model.Conquista;
+import cicloo.model.Habito;
+import cicloo.model.Usuario;
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.MapaInt;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fotografia binária de todo o estado de usuários, hábitos e conquistas, com
+ * layout fixo para carregamento rápido.
+ * <p>
+ * O arquivo tem um cabeçalho seguido de seções de registros de tamanho fixo
+ * (hábitos, usuários, referências usuário→hábito e conquistas), das palavras
+ * dos históricos de conclusão comprimidos e, por último, um conjunto de textos
+ * sem repetição, referenciados por deslocamento. As
+ * referências usuário→hábito guardam a posição do registro do hábito, e não
+ * seu ID, para que a carga as resolva por índice, sem buscas na DAO. Na
+ * carga o arquivo é mapeado com {@link FileChannel#map}, e cada campo é lido
+ * por posição absoluta, sem interpretar o arquivo sequencialmente. Textos
+ * repetidos, como nomes e descrições das conquistas, são gravados uma vez só.
+ * </p>
+ * <p>
+ * Das conquistas, só as desbloqueadas são gravadas, pelo nome, e resolvidas
+ * na carga pelo {@link CatalogoDeConquistas}.
+ * </p>
+ * <p>
+ * A versão 1 do formato, sem históricos, continua sendo lida.
+ * </p>
+ * A gravação é feita em um arquivo temporário que depois substitui o anterior,
+ * para que uma falha no meio nunca deixe uma fotografia incompleta.
+ *
+ * @author Eric
+ */
+public final class SnapshotBinario {
+
+    private static final int MAGICO = 0x43434C53;
+    private static final int VERSAO = 2;
+
+    private static final int TAMANHO_CABECALHO = 72;
+    private static final int TAMANHO_HABITO = 40;
+    private static final int TAMANHO_CABECALHO_V1 = 64;
+    private static final int TAMANHO_HABITO_V1 = 32;
+    private static final int TAMANHO_USUARIO = 32;
+    private static final int TAMANHO_CONQUISTA = 12;
+
+    /**
+     * Dia gravado quando o hábito nunca foi concluído.
+     */
+    private static final int SEM_CONCLUSAO = Integer.MIN_VALUE;
+
+    private static final Categoria[] CATEGORIAS = Categoria.values();
+    private static final Recorrencia[] RECORRENCIAS = Recorrencia.values();
+    private static final Prioridade[] PRIORIDADES = Prioridade.values();
+
+    private SnapshotBinario() {}
+
+    /**
+     * Grava a fotografia de todos os hábitos e usuários das DAOs informadas.
+     *
+     * @param arquivo destino da fotografia.
+     * @param habitos DAO de hábitos.
+     * @param usuarios DAO de usuários.
+     * @throws IOException se a gravação falhar.
+     */
+    public static void gravar(Path arquivo, DAO<Habito> habitos, DAO<Usuario> usuarios) throws IOException {
+        List<Habito> listaHabitos = habitos.buscarTodos();
+        List<Usuario> listaUsuarios = usuarios.buscarTodos();
+        MapaInt<Integer> posicaoPorId = new MapaInt<>(listaHabitos.size());
+        for (int i = 0; i < listaHabitos.size(); i++) {
+            posicaoPorId.colocar(listaHabitos.get(i).getId(), i);
+        }
+        long[][] historicos = new long[listaHabitos.size()][];
+        int qtdPalavras = 0;
+        for (int i = 0; i < historicos.length; i++) {
+            historicos[i] = listaHabitos.get(i).getHistoricoComprimido();
+            qtdPalavras += historicos[i].length;
+        }
+        int qtdReferencias = 0;
+        int qtdConquistas = 0;
+        CatalogoDeConquistas catalogo = CatalogoDeConquistas.getInstancia();
+        List<List<Conquista>> conquistas = new ArrayList<>(listaUsuarios.size());
+        for (Usuario u : listaUsuarios) {
+            qtdReferencias += u.listarHabitos().size();
+            conquistas.add(catalogo.desbloqueadasPor(u));
+            qtdConquistas += conquistas.get(conquistas.size() - 1).size();
+        }
+
+        long inicioHabitos = TAMANHO_CABECALHO;
+        long inicioUsuarios = inicioHabitos + (long) listaHabitos.size() * TAMANHO_HABITO;
+        long inicioReferencias = inicioUsuarios + (long) listaUsuarios.size() * TAMANHO_USUARIO;
+        long inicioConquistas = inicioReferencias + (long) qtdReferencias * 4;
+        long inicioHistoricos = inicioConquistas + (long) qtdConquistas * TAMANHO_CONQUISTA;
+        long inicioTextos = inicioHistoricos + (long) qtdPalavras * 8;
+
+        Textos textos = new Textos();
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream bruto = new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16);
+            DataOutputStream saida = new DataOutputStream(bruto);
+
+            saida.writeInt(MAGICO);
+            saida.writeInt(VERSAO);
+            saida.writeInt(listaHabitos.size());
+            saida.writeInt(listaUsuarios.size());
+            saida.writeInt(qtdReferencias);
+            saida.writeInt(qtdConquistas);
+            saida.writeLong(inicioHabitos);
+            saida.writeLong(inicioUsuarios);
+            saida.writeLong(inicioReferencias);
+            saida.writeLong(inicioConquistas);
+            saida.writeLong(inicioTextos);
+            saida.writeLong(inicioHistoricos);
+
+            int proximaPalavra = 0;
+            for (int i = 0; i < listaHabitos.size(); i++) {
+                Habito h = listaHabitos.get(i);
+                LocalDate ultima = h.getUltimaConclusao();
+                saida.writeInt(h.getId());
+                saida.writeInt(textos.referencia(h.getNome()));
+                saida.writeByte(h.getCategoria().ordinal());
+                saida.writeByte(h.getRecorrencia().ordinal());
+                saida.writeByte(h.getPrioridade().ordinal());
+                saida.writeByte(0);
+                saida.writeInt(h.getLevel());
+                saida.writeInt(h.getXp());
+                saida.writeInt(h.getStreak());
+                saida.writeInt(h.getTotalConclusoes());
+                saida.writeInt(ultima == null ? SEM_CONCLUSAO : (int) ultima.toEpochDay());
+                saida.writeInt(proximaPalavra);
+                saida.writeInt(historicos[i].length);
+                proximaPalavra += historicos[i].length;
+            }
+
+            int proximaReferencia = 0;
+            int proximaConquista = 0;
+            for (int i = 0; i < listaUsuarios.size(); i++) {
+                Usuario u = listaUsuarios.get(i);
+                int qtdHabitos = u.listarHabitos().size();
+                int qtdDoUsuario = conquistas.get(i).size();
+                saida.writeInt(u.getId());
+                saida.writeInt(textos.referencia(u.getNome()));
+                saida.writeInt(textos.referencia(u.getEmail()));
+                saida.writeInt(textos.referencia(u.getSenha()));
+                saida.writeInt(proximaReferencia);
+                saida.writeInt(qtdHabitos);
+                saida.writeInt(proximaConquista);
+                saida.writeInt(qtdDoUsuario);
+                proximaReferencia += qtdHabitos;
+                proximaConquista += qtdDoUsuario;
+            }
+
+            for (Usuario u : listaUsuarios) {
+                for (Habito h : u.listarHabitos()) {
+                    Integer posicao = posicaoPorId.obter(h.getId());
+                    saida.writeInt(posicao == null ? -1 : posicao);
+                }
+            }
+
+            for (List<Conquista> doUsuario : conquistas) {
+                for (Conquista c : doUsuario) {
+                    saida.writeInt(textos.referencia(c.getNome()));
+                    saida.writeInt(textos.referencia(c.getDescricao()));
+                    saida.writeInt(1);
+                }
+            }
+
+            for (long[] historico : historicos) {
+                for (long palavra : historico) {
+                    saida.writeLong(palavra);
+                }
+            }
+
+            textos.conteudo.writeTo(saida);
+            saida.flush();
+            canal.force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carrega a fotografia, restaurando hábitos e usuários nas DAOs informadas.
+     *
+     * @param arquivo a fotografia a carregar.
+     * @param habitos DAO que receberá os hábitos.
+     * @param usuarios DAO que receberá os usuários.
+     * @return {@code false} se o arquivo não existir; {@code true} se foi carregado.
+     * @throws IOException se o arquivo não puder ser lido ou estiver inválido.
+     */
+    public static boolean carregar(Path arquivo, DAO<Habito> habitos, DAO<Usuario> usuarios) throws IOException {
+        if (!Files.exists(arquivo)) {
+            return false;
+        }
+        MappedByteBuffer mapa;
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        if (mapa.capacity() < TAMANHO_CABECALHO_V1 || mapa.getInt(0) != MAGICO) {
+            throw new IOException("Arquivo de snapshot inválido: " + arquivo);
+        }
+        int versao = mapa.getInt(4);
+        if (versao != 1 && versao != VERSAO) {
+            throw new IOException("Versão de snapshot não suportada: " + versao);
+        }
+        boolean comHistorico = versao >= 2;
+        int tamanhoHabito = comHistorico ? TAMANHO_HABITO : TAMANHO_HABITO_V1;
+        long inicioHistoricos = comHistorico ? mapa.getLong(64) : 0;
+        int qtdHabitos = mapa.getInt(8);
+        int qtdUsuarios = mapa.getInt(12);
+        int inicioHabitos = (int) mapa.getLong(24);
+        int inicioUsuarios = (int) mapa.getLong(32);
+        int inicioReferencias = (int) mapa.getLong(40);
+        int inicioConquistas = (int) mapa.getLong(48);
+        LeitorDeTextos textos = new LeitorDeTextos(mapa, (int) mapa.getLong(56));
+        MapaInt<LocalDate> datas = new MapaInt<>();
+        Habito[] carregados = new Habito[qtdHabitos];
+
+        for (int i = 0; i < qtdHabitos; i++) {
+            int p = inicioHabitos + i * tamanhoHabito;
+            Habito h = new Habito(textos.ler(mapa.getInt(p + 4)),
+                    CATEGORIAS[mapa.get(p + 8)],
+                    RECORRENCIAS[mapa.get(p + 9)],
+                    PRIORIDADES[mapa.get(p + 10)]);
+            h.setId(mapa.getInt(p));
+            int dia = mapa.getInt(p + 28);
+            LocalDate ultima = null;
+            if (dia != SEM_CONCLUSAO) {
+                ultima = datas.obter(dia);
+                if (ultima == null) {
+                    ultima = LocalDate.ofEpochDay(dia);
+                    datas.colocar(dia, ultima);
+                }
+            }
+            h.restaurarProgresso(mapa.getInt(p + 12), mapa.getInt(p + 16), mapa.getInt(p + 20),
+                    mapa.getInt(p + 24), ultima);
+            int qtdPalavras = comHistorico ? mapa.getInt(p + 36) : 0;
+            if (qtdPalavras > 0) {
+                long[] historico = new long[qtdPalavras];
+                int inicio = (int) inicioHistoricos + mapa.getInt(p + 32) * 8;
+                for (int k = 0; k < qtdPalavras; k++) {
+                    historico[k] = mapa.getLong(inicio + k * 8);
+                }
+                h.restaurarHistorico(historico);
+            }
+            carregados[i] = h;
+        }
+        habitos.restaurarTodos(Arrays.asList(carregados));
+
+        CatalogoDeConquistas catalogo = CatalogoDeConquistas.getInstancia();
+        Usuario[] usuariosCarregados = new Usuario[qtdUsuarios];
+        for (int i = 0; i < qtdUsuarios; i++) {
+            int p = inicioUsuarios + i * TAMANHO_USUARIO;
+            Usuario u = new Usuario(textos.ler(mapa.getInt(p + 4)),
+                    textos.ler(mapa.getInt(p + 8)),
+                    textos.ler(mapa.getInt(p + 12)));
+            u.setId(mapa.getInt(p));
+            int primeiraReferencia = mapa.getInt(p + 16);
+            int qtdReferencias = mapa.getInt(p + 20);
+            for (int r = 0; r < qtdReferencias; r++) {
+                int posicao = mapa.getInt(inicioReferencias + (primeiraReferencia + r) * 4);
+                if (posicao >= 0) {
+                    u.adicionarHabito(carregados[posicao]);
+                }
+            }
+            int primeiraConquista = mapa.getInt(p + 24);
+            int qtdConquistas = mapa.getInt(p + 28);
+            for (int c = 0; c < qtdConquistas; c++) {
+                int pc = inicioConquistas + (primeiraConquista + c) * TAMANHO_CONQUISTA;
+                if (mapa.getInt(pc + 8) == 0) {
+                    continue;
+                }
+                Conquista conquista = catalogo.buscarPorNome(textos.lerCompartilhado(mapa.getInt(pc)));
+                if (conquista != null) {
+                    u.desbloquearConquista(conquista.getId());
+                }
+            }
+            usuariosCarregados[i] = u;
+        }
+        usuarios.restaurarTodos(Arrays.asList(usuariosCarregados));
+        return true;
+    }
+
+    /**
+     * Conjunto de textos da fotografia em gravação. Cada texto distinto é
+     * gravado uma vez, como {@code [tamanho][bytes UTF-8]}.
+     */
+    private static final class Textos {
+        private final ByteArrayOutputStream conteudo = new ByteArrayOutputStream(1 << 16);
+        private final DataOutputStream saida = new DataOutputStream(conteudo);
+        private final Map<String, Integer> referencias = new HashMap<>();
+
+        int referencia(String texto) throws IOException {
+            Integer existente = referencias.get(texto);
+            if (existente != null) {
+                return existente;
+            }
+            int ref = conteudo.size();
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            saida.writeInt(bytes.length);
+            saida.write(bytes);
+            referencias.put(texto, ref);
+            return ref;
+        }
+    }
+
+    /**
+     * Lê textos da área mapeada. Textos que se repetem em muitos registros
+     * (como os das conquistas) podem ser lidos com {@link #lerCompartilhado},
+     * que reaproveita a mesma instância de {@link String}.
+     */
+    private static final class LeitorDeTextos {
+        private final MappedByteBuffer mapa;
+        private final int inicio;
+        private final MapaInt<String> lidos = new MapaInt<>();
+        private byte[] auxiliar = new byte[64];
+
+        LeitorDeTextos(MappedByteBuffer mapa, int inicio) {
+            this.mapa = mapa;
+            this.inicio = inicio;
+        }
+
+        String ler(int referencia) {
+            int p = inicio + referencia;
+            int tamanho = mapa.getInt(p);
+            if (auxiliar.length < tamanho) {
+                auxiliar = new byte[Math.max(tamanho, auxiliar.length * 2)];
+            }
+            mapa.get(p + 4, auxiliar, 0, tamanho);
+            return new String(auxiliar, 0, tamanho, StandardCharsets.UTF_8);
+        }
+
+        String lerCompartilhado(int referencia) {
+            String texto = lidos.obter(referencia);
+            if (texto == null) {
+                texto = ler(referencia);
+                lidos.colocar(referencia, texto);
+            }
+            return texto;
+        }
+    }
+}
@@ -5,20 +5,63 @@
 package cicloo.dao;
 
 import cicloo.model.Usuario;
+import cicloo.util.MapaInt;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
+ * DAO em memória dos objetos {@link Usuario}.
+ * <p>
+ * Além do mapa principal indexado pelo ID, mantém índices secundários por
+ * e-mail e por nome, normalizados em minúsculas. Login, cadastro e a checagem
+ * de e-mail duplicado custam O(1) em vez de percorrer todos os usuários.
+ * </p>
+ * <p>
+ * As alterações nos dados de login (ID, nome, e-mail e senha) podem ser
+ * acompanhadas pelo {@link #getAlteracoes() fluxo de alterações}.
+ * </p>
  *
  * @author Eric
  */
 public class UsuarioDAO implements DAO<Usuario> {
     private static UsuarioDAO instancia;
-    private List<Usuario> usuarios = new ArrayList<>();
+    private final MapaInt<Usuario> usuarios = new MapaInt<>();
+    private Map<String, Usuario> porEmail = new HashMap<>();
+    private Map<String, List<Usuario>> porNome = new HashMap<>();
+    /**
+     * Chaves com que cada usuário foi indexado, para que os índices possam ser
+     * corrigidos mesmo quando o objeto já foi alterado antes do {@link #atualizar}.
+     */
+    private final MapaInt<String> emailIndexado = new MapaInt<>();
+    private final MapaInt<String> nomeIndexado = new MapaInt<>();
+    /**
+     * Copia os dados de login de um usuário para o fluxo de alterações.
+     */
+    private static final FluxoDeAlteracoes.Copiador<Usuario> COPIADOR = new FluxoDeAlteracoes.Copiador<>() {
+        @Override
+        public Usuario copiar(Usuario origem) {
+            Usuario copia = new Usuario(origem.getNome(), origem.getEmail(), origem.getSenha());
+            copia.setId(origem.getId());
+            return copia;
+        }
+
+        @Override
+        public void copiar(Usuario origem, Usuario destino) {
+            destino.setId(origem.getId());
+            destino.atualizarCampos(origem);
+        }
+    };
+    private FluxoDeAlteracoes<Usuario> alteracoes;
     private int contador = 0;
-    private UsuarioDAO(){}
-    
+    UsuarioDAO(){}
+
     public static UsuarioDAO getInstancia(){
         if(instancia == null){
             instancia = new UsuarioDAO();
@@ -29,70 +72,138 @@ public class UsuarioDAO implements DAO<Usuario> {
     public void salvar(Usuario u) {
         if (u == null) {
             throw new IllegalArgumentException("Usuario não pode ser nulo");
-            
+
         }
-        for (Usuario usuario : usuarios) {
-            if (usuario.getEmail().equals(u.getEmail())) {
-                return;
-            }
+        if (porEmail.containsKey(normalizar(u.getEmail()))) {
+            return;
         }
 
         u.setId(contador++);
-        usuarios.add(u);
+        usuarios.colocar(u.getId(), u);
+        indexar(u);
+        publicar(u);
 
     }
 
+    /**
+     * Salva vários usuários de uma vez. Assim como em {@link #salvar},
+     * usuários cujo e-mail já existe (inclusive repetido dentro do próprio
+     * lote) são ignorados. O lote é validado em uma passada, que normaliza as
+     * chaves de cada usuário uma única vez; depois os mapas e índices são
+     * dimensionados para os aceitos, a faixa de IDs é reservada de uma vez e
+     * os usuários são inseridos sem repetir as checagens.
+     *
+     * @param lote os usuários a serem salvos.
+     * @throws IllegalArgumentException se algum usuário for {@code null}; nesse
+     * caso nenhum usuário do lote é salvo.
+     */
+    @Override
+    public void salvarTodos(Collection<? extends Usuario> lote) {
+        validarLote(lote);
+        List<Usuario> aceitos = new ArrayList<>(lote.size());
+        Map<String, Usuario> emailsDoLote = novoMapa(lote.size());
+        for (Usuario u : lote) {
+            String email = normalizar(u.getEmail());
+            if (!porEmail.containsKey(email) && emailsDoLote.putIfAbsent(email, u) == null) {
+                aceitos.add(u);
+            }
+        }
+        if (aceitos.isEmpty()) {
+            return;
+        }
+        reservar(aceitos.size());
+        int id = contador;
+        contador += aceitos.size();
+        for (Usuario u : aceitos) {
+            u.setId(id++);
+            usuarios.colocar(u.getId(), u);
+            indexar(u);
+        }
+        publicarTodos(aceitos);
+    }
+
     @Override
     public Usuario buscarPorId(int id) {
         if(id < 0){
             return null;
         }
-        for (Usuario u : usuarios) {
-            if (u.getId() == id) {
-                return u;
-            }
-        }
-        return null;
+        return usuarios.obter(id);
     }
     public Usuario buscarPorNome(String nome){
         if(nome.trim().isEmpty()){
             return null;
         }
-        for(Usuario u: usuarios){
-            if(u.getNome().toLowerCase().equals(nome.toLowerCase())){
-                return u;
-            }
-        }
-        return null;
+        List<Usuario> encontrados = porNome.get(normalizar(nome));
+        return encontrados == null ? null : encontrados.get(0);
     }
     public Usuario buscarPorEmail(String email){
         if(email.trim().isEmpty()){
             return null;
         }
-        for(Usuario u: usuarios){
-            if(u.getEmail().toLowerCase().equals(email)){
-                return u;
-            }
-        }
-        return null;
+        return porEmail.get(normalizar(email));
     }
 
     @Override
     public List<Usuario> buscarTodos() {
-        return new ArrayList<>(usuarios);
+        return new ArrayList<>(usuarios.valores());
+    }
+
+    /**
+     * Retorna um fluxo sobre os usuários armazenados, na ordem de inserção,
+     * sem copiá-los. O fluxo pode ser paralelizado e falha com
+     * {@link java.util.ConcurrentModificationException} se a DAO for alterada
+     * durante o percurso.
+     *
+     * @return um fluxo com todos os usuários.
+     */
+    @Override
+    public Stream<Usuario> fluxo() {
+        return usuarios.valores().stream();
+    }
+
+    /**
+     * Retorna uma página de usuários ordenada por ID, a partir do cursor.
+     *
+     * @param cursor o ID do último item da página anterior, ou {@link Pagina#INICIO}.
+     * @param limite quantidade máxima de usuários na página.
+     * @return a página encontrada.
+     * @throws IllegalArgumentException se o limite for menor que 1.
+     */
+    @Override
+    public Pagina<Usuario> buscarPagina(int cursor, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("Limite deve ser ao menos 1");
+        }
+        List<Usuario> itens = new ArrayList<>(Math.min(limite, usuarios.tamanho()));
+        boolean temMais = usuarios.copiarApos(cursor, limite, itens);
+        int proximo = itens.isEmpty() ? cursor : itens.get(itens.size() - 1).getId();
+        return new Pagina<>(itens, proximo, temMais);
     }
 
+    /**
+     * Atualiza os dados de um usuário existente e reindexa e-mail e nome.
+     *
+     * @param usuarioAtualizar o usuário com os novos dados.
+     * @throws IllegalArgumentException se o usuário for {@code null} ou se o
+     * novo e-mail já pertencer a outro usuário.
+     */
     @Override
     public void atualizar(Usuario usuarioAtualizar) {
         if (usuarioAtualizar == null) {
             throw new IllegalArgumentException("Usuario não pode ser nulo");
         }
-        for (Usuario u : usuarios) {
-            if (u.getId() == usuarioAtualizar.getId()) {
-                u.atualizarCampos(usuarioAtualizar);
-                return;
-            }
+        Usuario u = usuarios.obter(usuarioAtualizar.getId());
+        if (u == null) {
+            return;
+        }
+        Usuario dono = porEmail.get(normalizar(usuarioAtualizar.getEmail()));
+        if (dono != null && dono != u) {
+            throw new IllegalArgumentException("Já existe um usuário com esse e-mail.");
         }
+        desindexar(u);
+        u.atualizarCampos(usuarioAtualizar);
+        indexar(u);
+        publicar(u);
     }
 
     @Override
@@ -100,8 +211,270 @@ public class UsuarioDAO implements DAO<Usuario> {
         if (id < 0) {
             return;
         }
-        usuarios.removeIf(u -> u.getId() == id);
+        Usuario u = usuarios.remover(id);
+        if (u != null) {
+            desindexar(u);
+            if (alteracoes != null) {
+                alteracoes.excluido(id);
+            }
+        }
+    }
+
+    /**
+     * Atualiza vários usuários de uma vez. Antes de qualquer alteração o lote
+     * inteiro é validado: dois usuários do lote não podem ficar com o mesmo
+     * e-mail, e um e-mail já indexado só pode ser assumido se o dono atual
+     * também estiver no lote (e, portanto, trocando de e-mail). Depois todos
+     * saem dos índices e voltam com os dados novos, o que permite, por
+     * exemplo, trocar os e-mails de dois usuários. Usuários inexistentes são
+     * ignorados.
+     *
+     * @param lote os usuários com os novos dados.
+     * @throws IllegalArgumentException se algum usuário for {@code null} ou
+     * algum e-mail ficar repetido; nesse caso nada é alterado.
+     */
+    @Override
+    public void atualizarTodos(Collection<? extends Usuario> lote) {
+        validarLote(lote);
+        List<Usuario> atuais = new ArrayList<>(lote.size());
+        List<Usuario> novos = new ArrayList<>(lote.size());
+        Map<String, Usuario> emailsDoLote = novoMapa(lote.size());
+        BitSet idsDoLote = new BitSet();
+        for (Usuario novo : lote) {
+            Usuario u = usuarios.obter(novo.getId());
+            if (u == null) {
+                continue;
+            }
+            Usuario outro = emailsDoLote.putIfAbsent(normalizar(novo.getEmail()), u);
+            if (outro != null && outro != u) {
+                throw new IllegalArgumentException("E-mail repetido no lote: " + novo.getEmail());
+            }
+            atuais.add(u);
+            novos.add(novo);
+            idsDoLote.set(u.getId());
+        }
+        for (Map.Entry<String, Usuario> e : emailsDoLote.entrySet()) {
+            Usuario dono = porEmail.get(e.getKey());
+            if (dono != null && dono != e.getValue() && !idsDoLote.get(dono.getId())) {
+                throw new IllegalArgumentException("Já existe um usuário com esse e-mail.");
+            }
+        }
+        for (Usuario u : atuais) {
+            desindexar(u);
+        }
+        for (int i = 0; i < atuais.size(); i++) {
+            Usuario u = atuais.get(i);
+            desindexar(u); // o mesmo usuário pode aparecer mais de uma vez no lote
+            u.atualizarCampos(novos.get(i));
+            indexar(u);
+        }
+        publicarTodos(atuais);
+    }
+
+    /**
+     * Remove vários usuários de uma vez. IDs inexistentes são ignorados, e as
+     * exclusões são publicadas no fluxo de alterações de uma vez.
+     *
+     * @param ids os IDs dos usuários a serem removidos.
+     */
+    @Override
+    public void deletarTodos(int... ids) {
+        BitSet removidos = new BitSet();
+        for (int id : ids) {
+            Usuario u = id < 0 ? null : usuarios.remover(id);
+            if (u != null) {
+                desindexar(u);
+                removidos.set(id);
+            }
+        }
+        if (alteracoes != null && !removidos.isEmpty()) {
+            alteracoes.excluidos(removidos);
+        }
     }
-    
+
+    /**
+     * Insere ou substitui um usuário mantendo o ID que ele já possui.
+     *
+     * @param u o usuário a ser restaurado.
+     * @throws IllegalArgumentException se o usuário for {@code null}.
+     */
+    @Override
+    public void restaurar(Usuario u) {
+        if (u == null) {
+            throw new IllegalArgumentException("Usuario não pode ser nulo");
+        }
+        Usuario anterior = usuarios.colocar(u.getId(), u);
+        if (anterior != null) {
+            desindexar(anterior);
+        }
+        indexar(u);
+        publicar(u);
+        if (u.getId() >= contador) {
+            contador = u.getId() + 1;
+        }
+    }
+
+    /**
+     * Restaura vários usuários de uma vez. O lote é validado antes de qualquer
+     * alteração: IDs e e-mails não podem se repetir nele, e um e-mail já
+     * indexado só pode ser usado pelo mesmo ID ou se o dono atual também for
+     * substituído pelo lote. Depois os mapas e índices são dimensionados uma
+     * vez, os usuários substituídos saem dos índices e os do lote entram.
+     *
+     * @param lote os usuários a serem restaurados.
+     * @throws IllegalArgumentException se algum usuário for {@code null} ou
+     * houver ID ou e-mail repetido; nesse caso nada é alterado.
+     */
+    @Override
+    public void restaurarTodos(Collection<? extends Usuario> lote) {
+        validarLote(lote);
+        Map<String, Usuario> emailsDoLote = novoMapa(lote.size());
+        BitSet idsDoLote = new BitSet();
+        for (Usuario u : lote) {
+            if (u.getId() < 0 || idsDoLote.get(u.getId())) {
+                throw new IllegalArgumentException("ID inválido ou repetido no lote: " + u.getId());
+            }
+            idsDoLote.set(u.getId());
+            if (emailsDoLote.putIfAbsent(normalizar(u.getEmail()), u) != null) {
+                throw new IllegalArgumentException("E-mail repetido no lote: " + u.getEmail());
+            }
+        }
+        for (Map.Entry<String, Usuario> e : emailsDoLote.entrySet()) {
+            Usuario dono = porEmail.get(e.getKey());
+            if (dono != null && dono.getId() != e.getValue().getId() && !idsDoLote.get(dono.getId())) {
+                throw new IllegalArgumentException("Já existe um usuário com esse e-mail.");
+            }
+        }
+        reservar(lote.size());
+        for (Usuario u : lote) {
+            Usuario anterior = usuarios.obter(u.getId());
+            if (anterior != null) {
+                desindexar(anterior);
+            }
+        }
+        int maiorId = contador - 1;
+        for (Usuario u : lote) {
+            usuarios.colocar(u.getId(), u);
+            indexar(u);
+            maiorId = Math.max(maiorId, u.getId());
+        }
+        contador = maiorId + 1;
+        publicarTodos(lote);
+    }
+
+    /**
+     * Retorna o fluxo de alterações desta DAO, criando-o no primeiro pedido.
+     * Os usuários já cadastrados passam a ser conhecidos pelo fluxo, sem gerar
+     * alterações.
+     *
+     * @return o fluxo de alterações dos usuários.
+     */
+    public FluxoDeAlteracoes<Usuario> getAlteracoes() {
+        if (alteracoes == null) {
+            FluxoDeAlteracoes<Usuario> fluxo = new FluxoDeAlteracoes<>(
+                    FluxoDeAlteracoes.CAPACIDADE_PADRAO, COPIADOR, Usuario::getId);
+            for (Usuario u : usuarios.valores()) {
+                fluxo.conhecer(u);
+            }
+            alteracoes = fluxo;
+        }
+        return alteracoes;
+    }
+
+    private void publicar(Usuario u) {
+        if (alteracoes != null) {
+            alteracoes.registrar(u);
+        }
+    }
+
+    private void publicarTodos(Collection<? extends Usuario> lote) {
+        if (alteracoes != null) {
+            alteracoes.registrarTodos(lote);
+        }
+    }
+
+    /**
+     * Garante que o lote não tenha usuários nulos antes de alterar os mapas.
+     */
+    private static void validarLote(Collection<? extends Usuario> lote) {
+        if (lote == null) {
+            throw new IllegalArgumentException("Lote não pode ser nulo");
+        }
+        for (Usuario u : lote) {
+            if (u == null) {
+                throw new IllegalArgumentException("Usuario não pode ser nulo");
+            }
+        }
+    }
+
+    /**
+     * Reserva espaço para mais {@code quantidade} usuários no mapa principal
+     * e em todos os índices. Os índices por e-mail e nome são refeitos já com
+     * a capacidade final quando o lote é maior que eles, em vez de dobrarem
+     * várias vezes durante a inserção.
+     */
+    private void reservar(int quantidade) {
+        usuarios.reservar(quantidade);
+        emailIndexado.reservar(quantidade);
+        nomeIndexado.reservar(quantidade);
+        if (quantidade > porEmail.size()) {
+            Map<String, Usuario> emails = novoMapa(porEmail.size() + quantidade);
+            emails.putAll(porEmail);
+            porEmail = emails;
+            Map<String, List<Usuario>> nomes = novoMapa(porNome.size() + quantidade);
+            nomes.putAll(porNome);
+            porNome = nomes;
+        }
+    }
+
+    /**
+     * Cria um {@link HashMap} que comporta {@code quantidade} chaves sem crescer.
+     */
+    private static <V> Map<String, V> novoMapa(int quantidade) {
+        return new HashMap<>((int) (quantidade / 0.75f) + 1);
+    }
+
+    /**
+     * Registra o usuário nos índices de e-mail e nome.
+     *
+     * @param u o usuário já presente no mapa principal.
+     */
+    private void indexar(Usuario u) {
+        String email = normalizar(u.getEmail());
+        String nome = normalizar(u.getNome());
+        porEmail.put(email, u);
+        porNome.computeIfAbsent(nome, k -> new ArrayList<>(1)).add(u);
+        emailIndexado.colocar(u.getId(), email);
+        nomeIndexado.colocar(u.getId(), nome);
+    }
+
+    /**
+     * Retira o usuário dos índices usando as chaves com que foi indexado.
+     *
+     * @param u o usuário a ser retirado.
+     */
+    private void desindexar(Usuario u) {
+        String email = emailIndexado.remover(u.getId());
+        if (email != null) {
+            porEmail.remove(email);
+        }
+        String nome = nomeIndexado.remover(u.getId());
+        if (nome != null) {
+            List<Usuario> mesmos = porNome.get(nome);
+            mesmos.removeIf(outro -> outro == u);
+            if (mesmos.isEmpty()) {
+                porNome.remove(nome);
+            }
+        }
+    }
+
+    /**
+     * Normaliza uma chave de busca (e-mail ou nome) para comparação sem
+     * diferenciar maiúsculas de minúsculas.
+     */
+    private static String normalizar(String chave) {
+        return chave.toLowerCase(Locale.ROOT);
+    }
+
 
 }
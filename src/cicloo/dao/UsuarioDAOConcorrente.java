@@ -0,0 +1,276 @@
+package cicloo.dao;
+
+import cicloo.model.Usuario;
+import cicloo.util.MapaIntConcorrente;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Variante de {@link UsuarioDAO} segura para várias sessões simultâneas na
+ * mesma JVM.
+ * <p>
+ * Os usuários ficam em um {@link MapaIntConcorrente} e os índices de e-mail e
+ * nome em {@link ConcurrentHashMap}s. A unicidade do e-mail é garantida
+ * reservando o e-mail em um conjunto concorrente antes de gerar o ID, de modo
+ * que dois cadastros simultâneos com o mesmo e-mail nunca são aceitos. O
+ * usuário só entra no índice de e-mail depois de ter ID e estar no mapa, então
+ * {@link #buscarPorEmail} nunca devolve um usuário pela metade.
+ * </p>
+ *
+ * @author Eric
+ */
+public class UsuarioDAOConcorrente implements DAO<Usuario> {
+
+    private static final UsuarioDAOConcorrente INSTANCIA = new UsuarioDAOConcorrente();
+
+    private final MapaIntConcorrente<Usuario> usuarios = new MapaIntConcorrente<>();
+    private final ConcurrentHashMap<String, Usuario> porEmail = new ConcurrentHashMap<>();
+    /**
+     * E-mails em uso, incluindo os de cadastros ainda em andamento. Todo
+     * e-mail de {@link #porEmail} está aqui.
+     */
+    private final Set<String> emailsReservados = ConcurrentHashMap.newKeySet();
+    /**
+     * Índice por nome. As listas nunca são alteradas depois de publicadas: cada
+     * mudança troca a lista inteira dentro de {@code compute}.
+     */
+    private final ConcurrentHashMap<String, List<Usuario>> porNome = new ConcurrentHashMap<>();
+    private final MapaIntConcorrente<String> emailIndexado = new MapaIntConcorrente<>();
+    private final MapaIntConcorrente<String> nomeIndexado = new MapaIntConcorrente<>();
+    private final AtomicInteger contador = new AtomicInteger();
+
+    private UsuarioDAOConcorrente() {}
+
+    /**
+     * Retorna a instância única da classe {@code UsuarioDAOConcorrente}.
+     *
+     * @return a instância única.
+     */
+    public static UsuarioDAOConcorrente getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Salva um novo usuário caso o e-mail ainda não esteja cadastrado.
+     *
+     * @param u o usuário a ser salvo.
+     * @throws IllegalArgumentException se o usuário for {@code null}.
+     */
+    @Override
+    public void salvar(Usuario u) {
+        if (u == null) {
+            throw new IllegalArgumentException("Usuario não pode ser nulo");
+        }
+        String email = normalizar(u.getEmail());
+        if (!emailsReservados.add(email)) {
+            return;
+        }
+        synchronized (u) {
+            u.setId(contador.getAndIncrement());
+            emailIndexado.colocar(u.getId(), email);
+            indexarNome(u);
+            usuarios.colocar(u.getId(), u);
+            porEmail.put(email, u);
+        }
+    }
+
+    @Override
+    public Usuario buscarPorId(int id) {
+        if (id < 0) {
+            return null;
+        }
+        return usuarios.obter(id);
+    }
+
+    public Usuario buscarPorNome(String nome) {
+        if (nome.trim().isEmpty()) {
+            return null;
+        }
+        List<Usuario> encontrados = porNome.get(normalizar(nome));
+        return encontrados == null ? null : encontrados.get(0);
+    }
+
+    public Usuario buscarPorEmail(String email) {
+        if (email.trim().isEmpty()) {
+            return null;
+        }
+        return porEmail.get(normalizar(email));
+    }
+
+    /**
+     * Retorna todos os usuários, ordenados pelo ID.
+     *
+     * @return uma nova lista contendo todos os usuários.
+     */
+    @Override
+    public List<Usuario> buscarTodos() {
+        List<Usuario> todos = usuarios.copiarValores();
+        todos.sort(Comparator.comparingInt(Usuario::getId));
+        return todos;
+    }
+
+    /**
+     * Retorna um fluxo sobre os usuários, em ordem de ID, percorrendo a faixa de
+     * IDs já gerados sem copiar o mapa. O fluxo é fracamente consistente: reflete
+     * as alterações feitas por outras threads durante o percurso, sem nunca
+     * lançar {@link java.util.ConcurrentModificationException}, e pode ser
+     * paralelizado.
+     *
+     * @return um fluxo com todos os usuários.
+     */
+    @Override
+    public Stream<Usuario> fluxo() {
+        return IntStream.range(0, contador.get())
+                .mapToObj(usuarios::obter)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Retorna uma página de usuários ordenada por ID, a partir do cursor. Como os
+     * IDs são sequenciais, a página é montada consultando os IDs seguintes ao
+     * cursor, sem percorrer o mapa inteiro.
+     *
+     * @param cursor o ID do último item da página anterior, ou {@link Pagina#INICIO}.
+     * @param limite quantidade máxima de usuários na página.
+     * @return a página encontrada.
+     * @throws IllegalArgumentException se o limite for menor que 1.
+     */
+    @Override
+    public Pagina<Usuario> buscarPagina(int cursor, int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("Limite deve ser ao menos 1");
+        }
+        int fim = contador.get();
+        List<Usuario> itens = new ArrayList<>(Math.min(limite, 64));
+        int id = Math.max(cursor + 1, 0);
+        for (; id < fim && itens.size() < limite; id++) {
+            Usuario encontrado = usuarios.obter(id);
+            if (encontrado != null) {
+                itens.add(encontrado);
+            }
+        }
+        int proximo = itens.isEmpty() ? cursor : itens.get(itens.size() - 1).getId();
+        boolean temMais = false;
+        for (; id < fim && !temMais; id++) {
+            temMais = usuarios.obter(id) != null;
+        }
+        return new Pagina<>(itens, proximo, temMais);
+    }
+
+    /**
+     * Atualiza os dados de um usuário existente e reindexa e-mail e nome.
+     * Atualizações do mesmo usuário são serializadas pelo próprio objeto.
+     *
+     * @param usuarioAtualizar o usuário com os novos dados.
+     * @throws IllegalArgumentException se o usuário for {@code null} ou se o
+     * novo e-mail já pertencer a outro usuário.
+     */
+    @Override
+    public void atualizar(Usuario usuarioAtualizar) {
+        if (usuarioAtualizar == null) {
+            throw new IllegalArgumentException("Usuario não pode ser nulo");
+        }
+        Usuario u = usuarios.obter(usuarioAtualizar.getId());
+        if (u == null) {
+            return;
+        }
+        synchronized (u) {
+            if (usuarios.obter(u.getId()) != u) {
+                return; // excluído enquanto esperava a trava
+            }
+            String novoEmail = normalizar(usuarioAtualizar.getEmail());
+            String emailAtual = emailIndexado.obter(u.getId());
+            if (!novoEmail.equals(emailAtual)) {
+                if (!emailsReservados.add(novoEmail) && porEmail.get(novoEmail) != u) {
+                    throw new IllegalArgumentException("Já existe um usuário com esse e-mail.");
+                }
+                porEmail.put(novoEmail, u);
+                if (emailAtual != null && porEmail.remove(emailAtual, u)) {
+                    emailsReservados.remove(emailAtual);
+                }
+                emailIndexado.colocar(u.getId(), novoEmail);
+            }
+            desindexarNome(u);
+            u.atualizarCampos(usuarioAtualizar);
+            indexarNome(u);
+        }
+    }
+
+    @Override
+    public void deletar(int id) {
+        if (id < 0) {
+            return;
+        }
+        Usuario u = usuarios.obter(id);
+        if (u == null) {
+            return;
+        }
+        // Retira dos índices na ordem inversa da publicação em salvar: quem
+        // achar o usuário pelo e-mail ainda o encontra pelo ID.
+        synchronized (u) {
+            String email = emailIndexado.remover(id);
+            if (email != null && porEmail.remove(email, u)) {
+                emailsReservados.remove(email);
+            }
+            desindexarNome(u);
+            usuarios.remover(id);
+        }
+    }
+
+    /**
+     * Insere ou substitui um usuário mantendo o ID que ele já possui.
+     *
+     * @param u o usuário a ser restaurado.
+     * @throws IllegalArgumentException se o usuário for {@code null}.
+     */
+    @Override
+    public void restaurar(Usuario u) {
+        if (u == null) {
+            throw new IllegalArgumentException("Usuario não pode ser nulo");
+        }
+        deletar(u.getId());
+        synchronized (u) {
+            String email = normalizar(u.getEmail());
+            emailsReservados.add(email);
+            emailIndexado.colocar(u.getId(), email);
+            indexarNome(u);
+            usuarios.colocar(u.getId(), u);
+            porEmail.put(email, u);
+        }
+        contador.accumulateAndGet(u.getId() + 1, Math::max);
+    }
+
+    private void indexarNome(Usuario u) {
+        String nome = normalizar(u.getNome());
+        nomeIndexado.colocar(u.getId(), nome);
+        porNome.compute(nome, (k, atual) -> {
+            List<Usuario> nova = atual == null ? new ArrayList<>(1) : new ArrayList<>(atual);
+            nova.add(u);
+            return nova;
+        });
+    }
+
+    private void desindexarNome(Usuario u) {
+        String nome = nomeIndexado.remover(u.getId());
+        if (nome == null) {
+            return;
+        }
+        porNome.computeIfPresent(nome, (k, atual) -> {
+            List<Usuario> nova = new ArrayList<>(atual);
+            nova.removeIf(outro -> outro == u);
+            return nova.isEmpty() ? null : nova;
+        });
+    }
+
+    private static String normalizar(String chave) {
+        return chave.toLowerCase(Locale.ROOT);
+    }
+}
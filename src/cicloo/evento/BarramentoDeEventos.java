@@ -0,0 +1,168 @@
+package cicloo.evento;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Entrega {@link Evento eventos} de domínio aos ouvintes inscritos.
+ * <p>
+ * Os ouvintes se inscrevem para um tipo de evento, ou para {@link Evento}
+ * quando querem todos. A entrega é síncrona, na thread que publicou; ouvintes
+ * caros (como a saída no console) devem apenas enfileirar o trabalho. Sem
+ * ouvintes, publicar custa uma consulta ao mapa, sem nenhuma E/S.
+ * </p>
+ * <p>
+ * Um barramento pode ter um pai, que recebe tudo o que é publicado nele
+ * depois dos ouvintes próprios. Assim cada sessão tem seus ouvintes em um
+ * barramento filho, e o que vale para o sistema inteiro fica no
+ * {@link Eventos#global() global}.
+ * </p>
+ *
+ * @author Eric
+ */
+public class BarramentoDeEventos {
+
+    private static final Ouvinte[] NENHUM = new Ouvinte[0];
+
+    private final BarramentoDeEventos pai;
+
+    /**
+     * Ouvintes por tipo de evento. Os arrays são trocados inteiros a cada
+     * inscrição, para que a publicação leia sem travas.
+     */
+    private final Map<Class<?>, Ouvinte[]> ouvintes = new ConcurrentHashMap<>();
+
+    /**
+     * Cria um barramento sem pai.
+     */
+    public BarramentoDeEventos() {
+        this(null);
+    }
+
+    /**
+     * Cria um barramento que repassa os eventos ao pai.
+     *
+     * @param pai o barramento que também recebe os eventos, ou {@code null}.
+     */
+    public BarramentoDeEventos(BarramentoDeEventos pai) {
+        this.pai = pai;
+    }
+
+    /**
+     * Inscreve um ouvinte para um tipo de evento.
+     *
+     * @param <E> o tipo do evento.
+     * @param tipo a classe do evento, ou {@code Evento.class} para todos.
+     * @param ouvinte quem trata os eventos.
+     * @return a inscrição, que cancela o ouvinte ao ser fechada.
+     * @throws IllegalArgumentException se o tipo ou o ouvinte forem {@code null}.
+     */
+    public <E extends Evento> Inscricao inscrever(Class<E> tipo, Consumer<? super E> ouvinte) {
+        if (tipo == null) {
+            throw new IllegalArgumentException("Tipo de evento não pode ser nulo");
+        }
+        if (ouvinte == null) {
+            throw new IllegalArgumentException("Ouvinte não pode ser nulo");
+        }
+        Ouvinte o = new Ouvinte(tipo, ouvinte);
+        ouvintes.merge(tipo, new Ouvinte[] {o}, (atuais, novo) -> {
+            Ouvinte[] todos = Arrays.copyOf(atuais, atuais.length + 1);
+            todos[atuais.length] = o;
+            return todos;
+        });
+        return new Inscricao(o);
+    }
+
+    /**
+     * Entrega o evento aos inscritos em todos os eventos, depois aos ouvintes
+     * do seu tipo e por fim ao barramento pai. Assim, quem registra tudo (como
+     * o console) vê o evento antes dos que reagem a ele publicando outros.
+     * Exceções lançadas por um ouvinte interrompem a entrega e chegam a quem
+     * publicou.
+     *
+     * @param evento o evento publicado.
+     * @throws IllegalArgumentException se o evento for {@code null}.
+     */
+    public void publicar(Evento evento) {
+        if (evento == null) {
+            throw new IllegalArgumentException("Evento não pode ser nulo");
+        }
+        for (BarramentoDeEventos b = this; b != null; b = b.pai) {
+            b.entregar(b.ouvintes.getOrDefault(Evento.class, NENHUM), evento);
+            b.entregar(b.ouvintes.getOrDefault(evento.getClass(), NENHUM), evento);
+        }
+    }
+
+    /**
+     * @return o barramento pai, ou {@code null}.
+     */
+    public BarramentoDeEventos getPai() {
+        return pai;
+    }
+
+    /**
+     * Torna este barramento o atual da thread corrente, para que os eventos
+     * publicados pelo modelo nesta thread cheguem a ele.
+     *
+     * @return o vínculo, que restaura o barramento anterior ao ser fechado.
+     */
+    public Eventos.Vinculo vincular() {
+        return Eventos.vincular(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void entregar(Ouvinte[] lista, Evento evento) {
+        for (Ouvinte o : lista) {
+            ((Consumer<Evento>) o.acao).accept(evento);
+        }
+    }
+
+    private void remover(Ouvinte o) {
+        ouvintes.computeIfPresent(o.tipo, (tipo, atuais) -> {
+            int i = Arrays.asList(atuais).indexOf(o);
+            if (i < 0) {
+                return atuais;
+            }
+            if (atuais.length == 1) {
+                return null;
+            }
+            Ouvinte[] restantes = new Ouvinte[atuais.length - 1];
+            System.arraycopy(atuais, 0, restantes, 0, i);
+            System.arraycopy(atuais, i + 1, restantes, i, restantes.length - i);
+            return restantes;
+        });
+    }
+
+    private record Ouvinte(Class<?> tipo, Consumer<?> acao) {
+
+        // Cada inscrição é única, mesmo que o mesmo ouvinte seja inscrito duas vezes.
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    /**
+     * Inscrição de um ouvinte; fechá-la retira o ouvinte do barramento.
+     */
+    public final class Inscricao implements AutoCloseable {
+
+        private final Ouvinte ouvinte;
+
+        private Inscricao(Ouvinte ouvinte) {
+            this.ouvinte = ouvinte;
+        }
+
+        @Override
+        public void close() {
+            remover(ouvinte);
+        }
+    }
+}
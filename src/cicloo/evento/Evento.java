@@ -0,0 +1,86 @@
+package cicloo.evento;
+
+import cicloo.model.Conquista;
+import cicloo.model.Habito;
+import cicloo.model.Usuario;
+
+/**
+ * Fato de domínio publicado pelo modelo e pelos controladores em um
+ * {@link BarramentoDeEventos}, no lugar de escrever direto no console.
+ * <p>
+ * Os eventos guardam o objeto envolvido e os valores relevantes no momento da
+ * publicação. Quem for tratar o evento em outra thread deve copiar o que
+ * precisar durante a entrega, pois o objeto pode mudar depois.
+ * </p>
+ *
+ * @author Eric
+ */
+public sealed interface Evento {
+
+    /**
+     * Um hábito passou a pertencer a um usuário.
+     *
+     * @param usuario o usuário.
+     * @param habito o hábito adicionado.
+     * @param quantidadeDeHabitos quantos hábitos o usuário tem após a adição.
+     */
+    record HabitoAdicionado(Usuario usuario, Habito habito, int quantidadeDeHabitos) implements Evento {}
+
+    /**
+     * Um hábito foi concluído no período atual.
+     *
+     * @param habito o hábito concluído.
+     * @param xpGanho o XP ganho pela conclusão.
+     * @param streak a sequência após a conclusão.
+     * @param totalConclusoes o total de conclusões após esta.
+     */
+    record HabitoConcluido(Habito habito, int xpGanho, int streak, int totalConclusoes) implements Evento {}
+
+    /**
+     * Tentativa de concluir um hábito que já foi concluído no período atual.
+     *
+     * @param habito o hábito.
+     */
+    record ConclusaoRecusada(Habito habito) implements Evento {}
+
+    /**
+     * Um hábito subiu um ou mais níveis de uma vez.
+     *
+     * @param habito o hábito.
+     * @param nivelAnterior o nível antes do ganho de XP.
+     * @param nivel o nível alcançado.
+     */
+    record NivelAlcancado(Habito habito, int nivelAnterior, int nivel) implements Evento {
+
+        /**
+         * @return quantos níveis foram ganhos.
+         */
+        public int niveisGanhos() {
+            return nivel - nivelAnterior;
+        }
+    }
+
+    /**
+     * A sequência de um hábito foi zerada por inatividade.
+     *
+     * @param habito o hábito.
+     * @param streakAnterior a sequência que foi perdida.
+     */
+    record StreakZerado(Habito habito, int streakAnterior) implements Evento {}
+
+    /**
+     * Uma conquista foi desbloqueada por um usuário.
+     *
+     * @param usuario o usuário.
+     * @param conquista a conquista desbloqueada.
+     */
+    record ConquistaDesbloqueada(Usuario usuario, Conquista conquista) implements Evento {}
+
+    /**
+     * O XP total, o maior streak ou o maior nível dos hábitos de um usuário
+     * mudou. Os valores atuais ficam em {@link Usuario#getEstatisticas()}.
+     *
+     * @param usuario o usuário.
+     */
+    record EstatisticasAlteradas(Usuario usuario) implements Evento {}
+}
@@ -0,0 +1,72 @@
+package cicloo.evento;
+
+/**
+ * Ponto de publicação dos eventos de domínio.
+ * <p>
+ * O modelo publica em {@link #publicar(Evento)} sem conhecer a sessão: o
+ * evento vai para o barramento vinculado à thread corrente (em geral o da
+ * sessão do usuário logado, filho do global) ou, sem vínculo, direto para o
+ * {@link #global() barramento global}.
+ * </p>
+ *
+ * @author Eric
+ */
+public final class Eventos {
+
+    private static final BarramentoDeEventos GLOBAL = new BarramentoDeEventos();
+    private static final ThreadLocal<BarramentoDeEventos> ATUAL = new ThreadLocal<>();
+
+    private Eventos() {}
+
+    /**
+     * @return o barramento do sistema inteiro.
+     */
+    public static BarramentoDeEventos global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @return o barramento vinculado à thread corrente, ou o global.
+     */
+    public static BarramentoDeEventos atual() {
+        BarramentoDeEventos b = ATUAL.get();
+        return b != null ? b : GLOBAL;
+    }
+
+    /**
+     * Publica o evento no barramento atual da thread.
+     *
+     * @param evento o evento.
+     */
+    public static void publicar(Evento evento) {
+        atual().publicar(evento);
+    }
+
+    static Vinculo vincular(BarramentoDeEventos barramento) {
+        BarramentoDeEventos anterior = ATUAL.get();
+        ATUAL.set(barramento);
+        return new Vinculo(anterior);
+    }
+
+    /**
+     * Vínculo de um barramento à thread que o criou; ao ser fechado, restaura
+     * o barramento que estava vinculado antes.
+     */
+    public static final class Vinculo implements AutoCloseable {
+
+        private final BarramentoDeEventos anterior;
+
+        private Vinculo(BarramentoDeEventos anterior) {
+            this.anterior = anterior;
+        }
+
+        @Override
+        public void close() {
+            if (anterior == null) {
+                ATUAL.remove();
+            } else {
+                ATUAL.set(anterior);
+            }
+        }
+    }
+}
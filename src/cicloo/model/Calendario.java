@@ -0,0 +1,90 @@
+package cicloo.model;
+
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.Relogio;
+import java.time.LocalDate;
+
+/**
+ * Data atual e número do período atual de cada {@link Recorrencia}, usados
+ * pelas regras de conclusão e de streak dos hábitos.
+ * <p>
+ * Os números de período ({@link Recorrencia#indicePeriodo}) de todas as
+ * recorrências são calculados uma vez por dia e guardados; verificar um
+ * milhão de hábitos no login passa a custar uma comparação de inteiros por
+ * hábito, sem refazer contas de calendário.
+ * </p>
+ * O relógio usado pode ser trocado com {@link #usarRelogio}, o que permite
+ * avançar o tempo de forma determinística.
+ *
+ * @author Eric
+ */
+public final class Calendario {
+
+    private static final Recorrencia[] RECORRENCIAS = Recorrencia.values();
+
+    /**
+     * Data e períodos calculados para ela. Imutável, para ser trocado de uma
+     * vez entre threads.
+     */
+    private record Marco(LocalDate dia, int[] periodos) {}
+
+    private static volatile Relogio relogio = Relogio.doSistema();
+    private static volatile Marco marco = calcular(relogio.hoje());
+
+    private Calendario() {}
+
+    /**
+     * Troca o relógio usado como referência de "hoje".
+     *
+     * @param novo o relógio a usar.
+     * @throws IllegalArgumentException se o relógio for {@code null}.
+     */
+    public static void usarRelogio(Relogio novo) {
+        if (novo == null) {
+            throw new IllegalArgumentException("Relógio não pode ser nulo");
+        }
+        relogio = novo;
+    }
+
+    /**
+     * @return o relógio em uso.
+     */
+    public static Relogio getRelogio() {
+        return relogio;
+    }
+
+    /**
+     * @return a data atual segundo o relógio em uso.
+     */
+    public static LocalDate hoje() {
+        return marcoAtual().dia();
+    }
+
+    /**
+     * Número do período atual da recorrência.
+     *
+     * @param recorrencia a recorrência.
+     * @return o período que contém a data de hoje.
+     */
+    public static int periodoAtual(Recorrencia recorrencia) {
+        return marcoAtual().periodos()[recorrencia.ordinal()];
+    }
+
+    private static Marco marcoAtual() {
+        Marco atual = marco;
+        LocalDate dia = relogio.hoje();
+        if (!dia.equals(atual.dia())) {
+            atual = calcular(dia);
+            marco = atual;
+        }
+        return atual;
+    }
+
+    private static Marco calcular(LocalDate dia) {
+        int[] periodos = new int[RECORRENCIAS.length];
+        for (Recorrencia r : RECORRENCIAS) {
+            periodos[r.ordinal()] = r.indicePeriodo(dia);
+        }
+        return new Marco(dia, periodos);
+    }
+}
@@ -0,0 +1,192 @@
+package cicloo.model;
+
+import cicloo.model.enums.MetricaDeConquista;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catálogo imutável das conquistas do sistema, compartilhado por todos os
+ * usuários.
+ * <p>
+ * Cada conquista ocupa no catálogo a posição do seu ID, de modo que a busca
+ * por ID é um acesso a vetor. O usuário guarda apenas quais IDs desbloqueou,
+ * em bits ({@link Usuario#isConquistaDesbloqueada(int)}), sem cópias de nomes
+ * e descrições.
+ * </p>
+ * <p>
+ * O catálogo padrão é lido do arquivo de definição {@value #RECURSO_PADRAO},
+ * distribuído junto com as classes: uma conquista por linha, com nome,
+ * descrição e condição de desbloqueio ({@code MÉTRICA >= mínimo}). O ID de
+ * cada conquista é a ordem da sua linha.
+ * </p>
+ *
+ * @author Eric
+ */
+public final class CatalogoDeConquistas {
+
+    /**
+     * Arquivo de definição do catálogo padrão, relativo a este pacote.
+     */
+    public static final String RECURSO_PADRAO = "conquistas.txt";
+
+    private static final CatalogoDeConquistas PADRAO = lerRecursoPadrao();
+
+    private final Conquista[] porId;
+    private final Map<String, Conquista> porNome = new HashMap<>();
+
+    /**
+     * Cria o catálogo com as conquistas informadas, na ordem dos IDs.
+     *
+     * @param conquistas as conquistas; a de índice {@code i} deve ter o ID {@code i}.
+     * @throws IllegalArgumentException se algum ID estiver fora de ordem ou
+     * algum nome se repetir.
+     */
+    public CatalogoDeConquistas(List<Conquista> conquistas) {
+        this.porId = conquistas.toArray(new Conquista[0]);
+        for (int i = 0; i < porId.length; i++) {
+            if (porId[i].getId() != i) {
+                throw new IllegalArgumentException("Conquista '" + porId[i].getNome()
+                        + "' deveria ter o ID " + i + ", mas tem " + porId[i].getId());
+            }
+            if (porNome.put(porId[i].getNome(), porId[i]) != null) {
+                throw new IllegalArgumentException("Conquista repetida: " + porId[i].getNome());
+            }
+        }
+    }
+
+    /**
+     * Lê um catálogo no formato do arquivo de definição. Linhas em branco e
+     * iniciadas por {@code #} são ignoradas; as demais têm a forma
+     * {@code nome | descrição | MÉTRICA >= mínimo}.
+     *
+     * @param definicao o conteúdo do arquivo.
+     * @return o catálogo lido.
+     * @throws IOException se a leitura falhar.
+     * @throws IllegalArgumentException se alguma linha for inválida, com o
+     * número da linha na mensagem.
+     */
+    public static CatalogoDeConquistas ler(Reader definicao) throws IOException {
+        BufferedReader leitor = new BufferedReader(definicao);
+        List<Conquista> conquistas = new ArrayList<>();
+        int numero = 0;
+        String linha;
+        while ((linha = leitor.readLine()) != null) {
+            numero++;
+            linha = linha.strip();
+            if (linha.isEmpty() || linha.startsWith("#")) {
+                continue;
+            }
+            try {
+                conquistas.add(lerConquista(conquistas.size(), linha));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Linha " + numero + ": " + e.getMessage(), e);
+            }
+        }
+        return new CatalogoDeConquistas(conquistas);
+    }
+
+    private static Conquista lerConquista(int id, String linha) {
+        String[] campos = linha.split("\\|");
+        if (campos.length != 3) {
+            throw new IllegalArgumentException("esperado 'nome | descrição | MÉTRICA >= mínimo'");
+        }
+        String[] condicao = campos[2].split(">=");
+        if (condicao.length != 2) {
+            throw new IllegalArgumentException("condição deve ter a forma 'MÉTRICA >= mínimo'");
+        }
+        MetricaDeConquista metrica;
+        int minimo;
+        try {
+            metrica = MetricaDeConquista.valueOf(condicao[0].strip());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("métrica desconhecida: " + condicao[0].strip());
+        }
+        try {
+            minimo = Integer.parseInt(condicao[1].strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("mínimo inválido: " + condicao[1].strip());
+        }
+        return new Conquista(id, campos[0].strip(), campos[1].strip(), metrica, minimo);
+    }
+
+    private static CatalogoDeConquistas lerRecursoPadrao() {
+        try (InputStream entrada = CatalogoDeConquistas.class.getResourceAsStream(RECURSO_PADRAO)) {
+            if (entrada == null) {
+                throw new IllegalStateException("Arquivo de conquistas não encontrado: " + RECURSO_PADRAO);
+            }
+            return ler(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler " + RECURSO_PADRAO, e);
+        }
+    }
+
+    /**
+     * @return o catálogo padrão do sistema.
+     */
+    public static CatalogoDeConquistas getInstancia() {
+        return PADRAO;
+    }
+
+    /**
+     * Busca uma conquista pelo ID.
+     *
+     * @param id o ID.
+     * @return a conquista, ou {@code null} se o ID não existir.
+     */
+    public Conquista buscar(int id) {
+        return id >= 0 && id < porId.length ? porId[id] : null;
+    }
+
+    /**
+     * Busca uma conquista pelo nome exato.
+     *
+     * @param nome o nome.
+     * @return a conquista, ou {@code null} se não existir.
+     */
+    public Conquista buscarPorNome(String nome) {
+        return porNome.get(nome);
+    }
+
+    /**
+     * Retorna as conquistas do catálogo que o usuário desbloqueou, em ordem de
+     * ID. IDs desbloqueados que não estão no catálogo são ignorados.
+     *
+     * @param usuario o usuário.
+     * @return as conquistas desbloqueadas.
+     */
+    public List<Conquista> desbloqueadasPor(Usuario usuario) {
+        List<Conquista> desbloqueadas = new ArrayList<>();
+        for (int id : usuario.getConquistasDesbloqueadas()) {
+            Conquista c = buscar(id);
+            if (c != null) {
+                desbloqueadas.add(c);
+            }
+        }
+        return desbloqueadas;
+    }
+
+    /**
+     * @return quantidade de conquistas no catálogo.
+     */
+    public int tamanho() {
+        return porId.length;
+    }
+
+    /**
+     * @return todas as conquistas, em ordem de ID.
+     */
+    public List<Conquista> listar() {
+        return Collections.unmodifiableList(Arrays.asList(porId));
+    }
+}
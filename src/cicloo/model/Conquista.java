@@ -1,21 +1,28 @@
 package cicloo.model;
 
+import cicloo.model.enums.MetricaDeConquista;
 import java.util.Objects;
 
 /**
  * Representa uma conquista (achievement) que pode ser desbloqueada por um usuário.
- * Cada conquista possui um nome, uma descrição e um status de desbloqueio.
- * O método {@code toString()} formata a saída no terminal com cores ANSI para indicar o status.
+ * Cada conquista possui um ID, um nome, uma descrição e a condição de
+ * desbloqueio (uma {@link MetricaDeConquista métrica} e o valor mínimo dela),
+ * e é imutável: a mesma
+ * instância do {@link CatalogoDeConquistas} é compartilhada por todos os
+ * usuários, e o status de desbloqueio fica no {@link Usuario}.
+ * O método {@link #formatar(boolean)} formata a saída no terminal com cores ANSI para indicar o status.
  * 
  * Conquistas são utilizadas para motivar o progresso do usuário dentro do sistema Cicloo.
  * 
  * @author Eric
  */
-public class Conquista {
+public final class Conquista {
 
-    private String nome;
-    private String descricao;
-    private boolean desbloqueada;
+    private final int id;
+    private final String nome;
+    private final String descricao;
+    private final MetricaDeConquista metrica;
+    private final int minimo;
 
     /**
      * Código ANSI para resetar a cor no terminal.
@@ -33,41 +40,56 @@ public class Conquista {
     public static final String ANSI_GRAY = "\u001B[90m";
 
     /**
-     * Cria uma nova conquista com nome e descrição fornecidos.
-     * Inicialmente, a conquista está bloqueada.
+     * Cria uma nova conquista com ID, nome, descrição e condição fornecidos.
      *
+     * @param id a posição da conquista no catálogo.
      * @param nome o nome da conquista.
      * @param descricao uma descrição breve da condição ou significado da conquista.
-     * @throws IllegalArgumentException se nome ou descrição forem nulos ou vazios.
+     * @param metrica a métrica observada pela condição.
+     * @param minimo o valor da métrica a partir do qual a conquista é desbloqueada.
+     * @throws IllegalArgumentException se o ID ou o mínimo forem negativos, nome
+     * ou descrição forem nulos ou vazios, ou a métrica for nula.
      */
-    public Conquista(String nome, String descricao) {
+    public Conquista(int id, String nome, String descricao, MetricaDeConquista metrica, int minimo) {
+        if (id < 0) {
+            throw new IllegalArgumentException("O ID da conquista não pode ser negativo.");
+        }
         if (nome == null || nome.trim().isEmpty()) {
             throw new IllegalArgumentException("O nome da conquista não pode ser vazio.");
         }
         if (descricao == null || descricao.trim().isEmpty()) {
             throw new IllegalArgumentException("A descrição da conquista não pode ser vazia.");
         }
+        if (metrica == null) {
+            throw new IllegalArgumentException("A métrica da conquista não pode ser nula.");
+        }
+        if (minimo < 0) {
+            throw new IllegalArgumentException("O mínimo da conquista não pode ser negativo.");
+        }
+        this.id = id;
         this.nome = nome;
         this.descricao = descricao;
-        this.desbloqueada = false;
+        this.metrica = metrica;
+        this.minimo = minimo;
     }
 
     /**
-     * Retorna o nome da conquista.
+     * Retorna o ID da conquista, que é sua posição no catálogo e o bit que a
+     * representa no usuário.
      *
-     * @return o nome.
+     * @return o ID.
      */
-    public String getNome() {
-        return nome;
+    public int getId() {
+        return id;
     }
 
     /**
-     * Define o nome da conquista (privado para controle interno).
+     * Retorna o nome da conquista.
      *
-     * @param nome novo nome.
+     * @return o nome.
      */
-    private void setNome(String nome) {
-        this.nome = nome;
+    public String getNome() {
+        return nome;
     }
 
     /**
@@ -80,47 +102,31 @@ public class Conquista {
     }
 
     /**
-     * Define a descrição da conquista (privado para controle interno).
+     * Retorna a métrica observada pela condição de desbloqueio.
      *
-     * @param descricao nova descrição.
+     * @return a métrica.
      */
-    private void setDescricao(String descricao) {
-        this.descricao = descricao;
+    public MetricaDeConquista getMetrica() {
+        return metrica;
     }
 
     /**
-     * Retorna se a conquista está desbloqueada.
+     * Retorna o valor da métrica a partir do qual a conquista é desbloqueada.
      *
-     * @return {@code true} se desbloqueada, {@code false} caso contrário.
-     */
-    public boolean isDesbloqueada() {
-        return desbloqueada;
-    }
-
-    /**
-     * Desbloqueia a conquista.
+     * @return o valor mínimo.
      */
-    public void desbloquear() {
-        this.desbloqueada = true;
-    }
-
-    /**
-     * Define o status de desbloqueio da conquista (privado para controle interno).
-     *
-     * @param desbloqueada novo status de desbloqueio.
-     */
-    private void setDesbloqueada(boolean desbloqueada) {
-        this.desbloqueada = desbloqueada;
+    public int getMinimo() {
+        return minimo;
     }
 
     /**
      * Retorna uma string representando a conquista, formatada com cores ANSI para o terminal.
      *
+     * @param desbloqueada se o usuário já desbloqueou a conquista.
      * @return uma string colorida indicando se a conquista está bloqueada ou desbloqueada.
      */
-    @Override
-    public String toString() {
-        if (this.desbloqueada) {
+    public String formatar(boolean desbloqueada) {
+        if (desbloqueada) {
             String status = "[DESBLOQUEADA]";
             return ANSI_GREEN + status + " " + nome + ": " + descricao + ANSI_RESET;
         } else {
@@ -128,6 +134,16 @@ public class Conquista {
             return ANSI_GRAY + status + " " + nome + ": " + descricao + ANSI_RESET;
         }
     }
+
+    /**
+     * Retorna uma representação em String da conquista, sem status.
+     *
+     * @return o nome e a descrição.
+     */
+    @Override
+    public String toString() {
+        return nome + ": " + descricao;
+    }
     
     /**
      * Gera um código hash para o objeto Conquista.
@@ -137,9 +153,11 @@ public class Conquista {
     @Override
     public int hashCode() {
         int hash = 3;
+        hash = 41 * hash + this.id;
         hash = 41 * hash + Objects.hashCode(this.nome);
         hash = 41 * hash + Objects.hashCode(this.descricao);
-        hash = 41 * hash + (this.desbloqueada ? 1 : 0);
+        hash = 41 * hash + Objects.hashCode(this.metrica);
+        hash = 41 * hash + this.minimo;
         return hash;
     }
 
@@ -155,7 +173,10 @@ public class Conquista {
             return false;
         }
         final Conquista other = (Conquista) obj;
-        if (this.desbloqueada != other.desbloqueada) {
+        if (this.id != other.id || this.minimo != other.minimo) {
+            return false;
+        }
+        if (this.metrica != other.metrica) {
             return false;
         }
         if (!Objects.equals(this.nome, other.nome)) {
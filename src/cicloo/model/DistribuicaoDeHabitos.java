@@ -0,0 +1,176 @@
+package cicloo.model;
+
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.Histograma;
+
+/**
+ * Distribuição dos streaks e níveis dos hábitos dos usuários cadastrados,
+ * por {@link Recorrencia} e por {@link Categoria}, em {@link Histograma
+ * histogramas} mantidos a cada mudança.
+ * <p>
+ * Só são contados os usuários {@link #incluir(Usuario) incluídos}: a
+ * {@link cicloo.controller.DistribuicaoDosCadastrados} inclui os usuários
+ * guardados na {@link cicloo.dao.UsuarioDAO} e exclui os que saem dela,
+ * lendo o fluxo de alterações da DAO. Usuários ainda não salvos, ou montados
+ * em outra DAO durante uma carga, ficam de fora. Enquanto o usuário está
+ * incluído, as {@link EstatisticasDoUsuario estatísticas} dele avisam quando
+ * um hábito entra, sai ou muda de streak, nível, recorrência ou categoria; o
+ * valor antigo é descontado e o novo contado, em O(1). Os percentis (por
+ * exemplo o p90 do streak dos hábitos diários) percorrem no máximo os 864
+ * baldes de um {@link Histograma}, sem ordenar os hábitos, em tempo que não
+ * depende de quantos eles são.
+ * </p>
+ * <p>
+ * Descontar um valor que não está contado não deve acontecer. Se acontecer,
+ * a contagem fica como está, em vez de negativa, e o desconto é somado em
+ * {@link #getDescontosIgnorados()}: quem altera o hábito não é interrompido
+ * por uma falha da distribuição.
+ * </p>
+ * No modo {@link cicloo.model.enums.ModoDeStreak#SOB_DEMANDA} um streak
+ * vencido continua contado com o valor antigo até que o hábito seja lido ou
+ * alterado. Os métodos podem ser chamados de qualquer thread.
+ *
+ * @author Eric
+ */
+public final class DistribuicaoDeHabitos {
+
+    private static final DistribuicaoDeHabitos INSTANCIA = new DistribuicaoDeHabitos();
+
+    private final Histograma[] streaksPorRecorrencia = novos(Recorrencia.values().length);
+    private final Histograma[] streaksPorCategoria = novos(Categoria.values().length);
+    private final Histograma[] niveisPorRecorrencia = novos(Recorrencia.values().length);
+    private final Histograma[] niveisPorCategoria = novos(Categoria.values().length);
+    private long descontosIgnorados;
+
+    private DistribuicaoDeHabitos() {
+    }
+
+    /**
+     * @return a distribuição de todos os hábitos de usuários.
+     */
+    public static DistribuicaoDeHabitos getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Passa a contar os hábitos do usuário, inclusive os que ele receber
+     * depois. Incluir de novo um usuário já incluído não muda nada.
+     *
+     * @param usuario o usuário.
+     * @throws IllegalArgumentException se o usuário for {@code null}.
+     */
+    public void incluir(Usuario usuario) {
+        if (usuario == null) {
+            throw new IllegalArgumentException("Usuario não pode ser nulo");
+        }
+        usuario.getEstatisticas().distribuirTodos(true);
+    }
+
+    /**
+     * Deixa de contar os hábitos do usuário.
+     *
+     * @param usuario o usuário.
+     * @throws IllegalArgumentException se o usuário for {@code null}.
+     */
+    public void excluir(Usuario usuario) {
+        if (usuario == null) {
+            throw new IllegalArgumentException("Usuario não pode ser nulo");
+        }
+        usuario.getEstatisticas().distribuirTodos(false);
+    }
+
+    /**
+     * @return quantos descontos encontraram o valor já sem contagem e foram
+     * ignorados; diferente de zero indica uma distribuição inconsistente.
+     */
+    public synchronized long getDescontosIgnorados() {
+        return descontosIgnorados;
+    }
+
+    /**
+     * @param recorrencia a recorrência.
+     * @return uma cópia do histograma dos streaks dos hábitos da recorrência.
+     */
+    public synchronized Histograma getStreaks(Recorrencia recorrencia) {
+        return streaksPorRecorrencia[recorrencia.ordinal()].copia();
+    }
+
+    /**
+     * @param categoria a categoria.
+     * @return uma cópia do histograma dos streaks dos hábitos da categoria.
+     */
+    public synchronized Histograma getStreaks(Categoria categoria) {
+        return streaksPorCategoria[categoria.ordinal()].copia();
+    }
+
+    /**
+     * @param recorrencia a recorrência.
+     * @return uma cópia do histograma dos níveis dos hábitos da recorrência.
+     */
+    public synchronized Histograma getNiveis(Recorrencia recorrencia) {
+        return niveisPorRecorrencia[recorrencia.ordinal()].copia();
+    }
+
+    /**
+     * @param categoria a categoria.
+     * @return uma cópia do histograma dos níveis dos hábitos da categoria.
+     */
+    public synchronized Histograma getNiveis(Categoria categoria) {
+        return niveisPorCategoria[categoria.ordinal()].copia();
+    }
+
+    /**
+     * Percentil do streak dos hábitos da recorrência, sem copiar o histograma.
+     *
+     * @param recorrencia a recorrência.
+     * @param percentil de 0 a 100.
+     * @return o streak, ou 0 se não houver hábitos.
+     * @throws IllegalArgumentException se o percentil estiver fora de 0 a 100.
+     */
+    public synchronized int percentilDoStreak(Recorrencia recorrencia, double percentil) {
+        return streaksPorRecorrencia[recorrencia.ordinal()].percentil(percentil);
+    }
+
+    /**
+     * Percentil do nível dos hábitos da categoria, sem copiar o histograma.
+     *
+     * @param categoria a categoria.
+     * @param percentil de 0 a 100.
+     * @return o nível, ou 0 se não houver hábitos.
+     * @throws IllegalArgumentException se o percentil estiver fora de 0 a 100.
+     */
+    public synchronized int percentilDoNivel(Categoria categoria, double percentil) {
+        return niveisPorCategoria[categoria.ordinal()].percentil(percentil);
+    }
+
+    // Os setters de Habito não validam streak e nível; valores negativos
+    // contam como zero, dos dois lados, para não quebrar quem os altera.
+    synchronized void incluir(Recorrencia recorrencia, Categoria categoria, int streak, int nivel) {
+        streaksPorRecorrencia[recorrencia.ordinal()].registrar(Math.max(streak, 0));
+        streaksPorCategoria[categoria.ordinal()].registrar(Math.max(streak, 0));
+        niveisPorRecorrencia[recorrencia.ordinal()].registrar(Math.max(nivel, 0));
+        niveisPorCategoria[categoria.ordinal()].registrar(Math.max(nivel, 0));
+    }
+
+    synchronized void excluir(Recorrencia recorrencia, Categoria categoria, int streak, int nivel) {
+        descontar(streaksPorRecorrencia[recorrencia.ordinal()], streak);
+        descontar(streaksPorCategoria[categoria.ordinal()], streak);
+        descontar(niveisPorRecorrencia[recorrencia.ordinal()], nivel);
+        descontar(niveisPorCategoria[categoria.ordinal()], nivel);
+    }
+
+    private void descontar(Histograma histograma, int valor) {
+        if (!histograma.remover(Math.max(valor, 0))) {
+            descontosIgnorados++;
+        }
+    }
+
+    private static Histograma[] novos(int quantidade) {
+        Histograma[] histogramas = new Histograma[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            histogramas[i] = new Histograma();
+        }
+        return histogramas;
+    }
+}
@@ -0,0 +1,514 @@
+package cicloo.model;
+
+import cicloo.evento.Evento;
+import cicloo.evento.Eventos;
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.JanelaMovel;
+import cicloo.util.MapaInt;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Estatísticas agregadas dos hábitos de um usuário, mantidas a cada alteração
+ * em vez de recalculadas a cada consulta.
+ * <p>
+ * O {@link Usuario} avisa quando um hábito é adicionado ou removido, e o
+ * próprio {@link Habito} avisa quando conclui, sobe de nível ou tem o streak
+ * alterado. Cada aviso custa O(log n) nos hábitos do usuário. Os maiores
+ * nível e streak ficam em conjuntos ordenados pelo valor (decrescente) e pelo
+ * ID (crescente, o hábito mais antigo vence o empate), de modo que remover o
+ * hábito que está no topo apenas promove o seguinte. As conclusões do período
+ * atual são contadas por recorrência e zeradas quando o período muda.
+ * </p>
+ * <p>
+ * As taxas de conclusão dos últimos 7, 30 e 90 dias, por hábito, por
+ * categoria e do usuário, vêm de {@link JanelaMovel janelas móveis} de
+ * conclusões por dia: cada conclusão soma 1 ao dia na janela do hábito, na da
+ * sua categoria e na do usuário, e a virada do dia só desloca as janelas, sem
+ * reler o histórico. A janela de um hábito é montada a partir do histórico
+ * quando ele é adicionado ou tem as conclusões restauradas, e criada apenas
+ * se houver conclusão nos últimos 90 dias.
+ * </p>
+ * <p>
+ * No modo {@link cicloo.model.enums.ModoDeStreak#SOB_DEMANDA} um streak vence
+ * sem que o hábito seja alterado. Como o streak só diminui ao vencer, o topo é
+ * conferido na leitura e, se tiver vencido, reposicionado até que o topo esteja
+ * em dia.
+ * </p>
+ * <p>
+ * Quando o XP total, o maior streak ou o maior nível mudam, é publicado
+ * {@link Evento.EstatisticasAlteradas}, depois que as estatísticas já estão
+ * atualizadas.
+ * </p>
+ * <p>
+ * Enquanto o usuário estiver incluído na {@link DistribuicaoDeHabitos} de
+ * todos os usuários (o que vale para os guardados na
+ * {@link cicloo.dao.UsuarioDAO}), os streaks e níveis dos hábitos também são
+ * repassados a ela quando mudam.
+ * </p>
+ * Esta classe não é sincronizada: como os hábitos que a alimentam, ela é
+ * usada só na thread da interface, inclusive pela
+ * {@link cicloo.controller.ExpiracaoDeStreaks expiração de streaks}.
+ *
+ * @author Eric
+ */
+public final class EstatisticasDoUsuario {
+
+    private static final Recorrencia[] RECORRENCIAS = Recorrencia.values();
+    private static final Categoria[] CATEGORIAS = Categoria.values();
+
+    /**
+     * Tamanhos, em dias, das janelas de conclusões recentes.
+     */
+    private static final int[] JANELAS = {7, 30, 90};
+
+    /**
+     * Valores de um hábito no momento do último aviso, usados para desfazer
+     * a sua contribuição quando ele muda.
+     */
+    private static final class Entrada {
+        final Habito habito;
+        int xp;
+        int nivel;
+        int streak;
+        Recorrencia recorrencia;
+        Categoria categoria;
+        int periodoConcluido;
+        boolean temConclusao;
+        LocalDate ultimaConclusao;
+        int totalConclusoes;
+        JanelaMovel janela;
+
+        Entrada(Habito habito) {
+            this.habito = habito;
+        }
+    }
+
+    private static final Comparator<Entrada> POR_NIVEL = Comparator
+            .comparingInt((Entrada e) -> -e.nivel)
+            .thenComparingInt(e -> e.habito.getId());
+
+    private static final Comparator<Entrada> POR_STREAK = Comparator
+            .comparingInt((Entrada e) -> -e.streak)
+            .thenComparingInt(e -> e.habito.getId());
+
+    private final Usuario usuario;
+    private final MapaInt<Entrada> porId = new MapaInt<>();
+    private final TreeSet<Entrada> porNivel = new TreeSet<>(POR_NIVEL);
+    private final TreeSet<Entrada> porStreak = new TreeSet<>(POR_STREAK);
+    private long totalXp;
+
+    /**
+     * Se os hábitos estão contados na {@link DistribuicaoDeHabitos}.
+     */
+    private boolean distribuida;
+
+    /**
+     * Por recorrência, o período contado e quantos hábitos foram concluídos
+     * nele.
+     */
+    private final int[] periodoContado = new int[RECORRENCIAS.length];
+    private final int[] concluidosNoPeriodo = new int[RECORRENCIAS.length];
+
+    /**
+     * Conclusões por dia do usuário e de cada categoria, criadas na primeira
+     * conclusão, e quantas conclusões os hábitos atuais esperam em cada
+     * janela.
+     */
+    private JanelaMovel conclusoesRecentes;
+    private final JanelaMovel[] conclusoesRecentesPorCategoria = new JanelaMovel[CATEGORIAS.length];
+    private final long[] esperadas = new long[JANELAS.length];
+    private final long[][] esperadasPorCategoria = new long[CATEGORIAS.length][JANELAS.length];
+
+    /**
+     * Valores do último {@link Evento.EstatisticasAlteradas} publicado.
+     */
+    private int xpAvisado;
+    private int streakAvisado;
+    private int nivelAvisado;
+
+    EstatisticasDoUsuario(Usuario usuario) {
+        this.usuario = usuario;
+        for (Recorrencia r : RECORRENCIAS) {
+            periodoContado[r.ordinal()] = Integer.MIN_VALUE;
+        }
+    }
+
+    /**
+     * @return a soma do XP atual de todos os hábitos.
+     */
+    public int getTotalXp() {
+        return (int) Math.min(totalXp, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return quantos hábitos já foram concluídos no período atual da sua
+     * recorrência.
+     */
+    public int getConcluidosNoPeriodo() {
+        int total = 0;
+        for (Recorrencia r : RECORRENCIAS) {
+            total += concluidosNoPeriodoAtual(r);
+        }
+        return total;
+    }
+
+    /**
+     * @return o maior nível entre os hábitos, ou 0 se não houver hábitos.
+     */
+    public int getMaiorNivel() {
+        return porNivel.isEmpty() ? 0 : porNivel.first().nivel;
+    }
+
+    /**
+     * @return o maior streak atual entre os hábitos, ou 0 se não houver
+     * hábitos.
+     */
+    public int getMaiorStreak() {
+        Habito h = getHabitoMaiorStreak();
+        return h == null ? 0 : porStreak.first().streak;
+    }
+
+    /**
+     * @return o hábito de maior nível, ou {@code null} se não houver hábitos.
+     */
+    public Habito getHabitoMaiorNivel() {
+        return porNivel.isEmpty() ? null : porNivel.first().habito;
+    }
+
+    /**
+     * @return o hábito de maior streak atual, ou {@code null} se não houver
+     * hábitos.
+     */
+    public Habito getHabitoMaiorStreak() {
+        while (!porStreak.isEmpty()) {
+            Entrada topo = porStreak.first();
+            int streak = topo.habito.getStreak();
+            if (streak == topo.streak) {
+                return topo.habito;
+            }
+            porStreak.remove(topo);
+            distribuir(topo, false);
+            topo.streak = streak;
+            distribuir(topo, true);
+            porStreak.add(topo);
+        }
+        return null;
+    }
+
+    /**
+     * Fração das conclusões esperadas nos últimos dias que foram feitas, em
+     * todos os hábitos do usuário. Cada hábito espera uma conclusão por
+     * período da sua recorrência que cabe na janela, e no mínimo uma.
+     *
+     * @param dias o tamanho da janela: 7, 30 ou 90.
+     * @return um valor entre 0 e 1, ou 0 se não houver hábitos.
+     * @throws IllegalArgumentException se a janela não for de 7, 30 ou 90
+     * dias.
+     */
+    public double getTaxaRecente(int dias) {
+        return taxa(conclusoesRecentes, dias, esperadas[indiceDaJanela(dias)]);
+    }
+
+    /**
+     * Como {@link #getTaxaRecente(int)}, só com os hábitos da categoria.
+     *
+     * @param categoria a categoria.
+     * @param dias o tamanho da janela: 7, 30 ou 90.
+     * @return um valor entre 0 e 1, ou 0 se a categoria não tiver hábitos.
+     * @throws IllegalArgumentException se a janela não for de 7, 30 ou 90
+     * dias.
+     */
+    public double getTaxaRecente(Categoria categoria, int dias) {
+        int c = categoria.ordinal();
+        return taxa(conclusoesRecentesPorCategoria[c], dias, esperadasPorCategoria[c][indiceDaJanela(dias)]);
+    }
+
+    /**
+     * Como {@link #getTaxaRecente(int)}, só com o hábito informado.
+     *
+     * @param h o hábito.
+     * @param dias o tamanho da janela: 7, 30 ou 90.
+     * @return um valor entre 0 e 1.
+     * @throws IllegalArgumentException se o hábito não for do usuário ou a
+     * janela não for de 7, 30 ou 90 dias.
+     */
+    public double getTaxaRecente(Habito h, int dias) {
+        Entrada e = porId.obter(h.getId());
+        if (e == null || e.habito != h) {
+            throw new IllegalArgumentException("Hábito não pertence ao usuário");
+        }
+        indiceDaJanela(dias);
+        return taxa(e.janela, dias, esperadasNaJanela(e.recorrencia, dias));
+    }
+
+    /**
+     * @return quantidade de hábitos contabilizados.
+     */
+    public int getQuantidadeDeHabitos() {
+        return porId.tamanho();
+    }
+
+    void adicionar(Habito h) {
+        if (porId.obter(h.getId()) != null) {
+            return;
+        }
+        Entrada e = new Entrada(h);
+        porId.colocar(h.getId(), e);
+        ler(e);
+        semear(e);
+        incluir(e);
+        distribuir(e, true);
+        h.setEstatisticas(this);
+        avisar(resumoMudou());
+    }
+
+    void remover(Habito h) {
+        Entrada e = porId.obter(h.getId());
+        if (e == null || e.habito != h) {
+            return;
+        }
+        porId.remover(h.getId());
+        excluir(e);
+        retirarJanela(e, e.categoria);
+        distribuir(e, false);
+        h.setEstatisticas(null);
+        avisar(resumoMudou());
+    }
+
+    void atualizar(Habito h) {
+        Entrada e = porId.obter(h.getId());
+        if (e == null || e.habito != h) {
+            return;
+        }
+        excluir(e);
+        Categoria categoriaAnterior = e.categoria;
+        LocalDate conclusaoAnterior = e.ultimaConclusao;
+        int totalAnterior = e.totalConclusoes;
+        Recorrencia recorrenciaAnterior = e.recorrencia;
+        int streakAnterior = e.streak;
+        int nivelAnterior = e.nivel;
+        ler(e);
+        if (distribuida && (e.recorrencia != recorrenciaAnterior || e.categoria != categoriaAnterior
+                || e.streak != streakAnterior || e.nivel != nivelAnterior)) {
+            DistribuicaoDeHabitos d = DistribuicaoDeHabitos.getInstancia();
+            d.excluir(recorrenciaAnterior, categoriaAnterior, streakAnterior, nivelAnterior);
+            d.incluir(e.recorrencia, e.categoria, e.streak, e.nivel);
+        }
+        boolean novaConclusao = e.ultimaConclusao != null && e.totalConclusoes == totalAnterior + 1
+                && (conclusaoAnterior == null || e.ultimaConclusao.isAfter(conclusaoAnterior));
+        if (novaConclusao || Objects.equals(conclusaoAnterior, e.ultimaConclusao)) {
+            moverJanela(e, categoriaAnterior);
+            if (novaConclusao) {
+                registrarConclusao(e, e.ultimaConclusao.toEpochDay());
+            }
+        } else {
+            // Conclusões restauradas ou copiadas: remonta a janela.
+            retirarJanela(e, categoriaAnterior);
+            semear(e);
+        }
+        incluir(e);
+        avisar(resumoMudou());
+    }
+
+    /**
+     * Compara os valores atuais com os do último aviso, guardando os atuais.
+     */
+    private boolean resumoMudou() {
+        int xp = getTotalXp();
+        int streak = getMaiorStreak();
+        int nivel = getMaiorNivel();
+        if (xp == xpAvisado && streak == streakAvisado && nivel == nivelAvisado) {
+            return false;
+        }
+        xpAvisado = xp;
+        streakAvisado = streak;
+        nivelAvisado = nivel;
+        return true;
+    }
+
+    private void avisar(boolean mudou) {
+        if (mudou) {
+            Eventos.publicar(new Evento.EstatisticasAlteradas(usuario));
+        }
+    }
+
+    private void ler(Entrada e) {
+        Habito h = e.habito;
+        e.xp = h.getXp();
+        e.nivel = h.getLevel();
+        e.streak = h.getStreak();
+        e.recorrencia = h.getRecorrencia();
+        e.categoria = h.getCategoria();
+        e.ultimaConclusao = h.getUltimaConclusao();
+        e.temConclusao = e.ultimaConclusao != null;
+        e.periodoConcluido = e.temConclusao ? h.getPeriodoUltimaConclusao() : 0;
+        e.totalConclusoes = h.getTotalConclusoes();
+    }
+
+    private void incluir(Entrada e) {
+        totalXp += e.xp;
+        porNivel.add(e);
+        porStreak.add(e);
+        int r = e.recorrencia.ordinal();
+        if (e.temConclusao && e.periodoConcluido == periodoAtual(e.recorrencia)) {
+            concluidosNoPeriodo[r]++;
+        }
+        somarEsperadas(e, 1);
+    }
+
+    private void excluir(Entrada e) {
+        totalXp -= e.xp;
+        porNivel.remove(e);
+        porStreak.remove(e);
+        int r = e.recorrencia.ordinal();
+        if (e.temConclusao && e.periodoConcluido == periodoAtual(e.recorrencia)) {
+            concluidosNoPeriodo[r]--;
+        }
+        somarEsperadas(e, -1);
+    }
+
+    /**
+     * Conta ou desconta todos os hábitos na {@link DistribuicaoDeHabitos}, se
+     * eles ainda não estiverem assim.
+     *
+     * @param distribuir {@code true} para contar, {@code false} para descontar.
+     */
+    void distribuirTodos(boolean distribuir) {
+        if (distribuir == distribuida) {
+            return;
+        }
+        distribuida = true;
+        for (Entrada e : porId.valores()) {
+            distribuir(e, distribuir);
+        }
+        distribuida = distribuir;
+    }
+
+    private void distribuir(Entrada e, boolean incluir) {
+        if (!distribuida) {
+            return;
+        }
+        DistribuicaoDeHabitos d = DistribuicaoDeHabitos.getInstancia();
+        if (incluir) {
+            d.incluir(e.recorrencia, e.categoria, e.streak, e.nivel);
+        } else {
+            d.excluir(e.recorrencia, e.categoria, e.streak, e.nivel);
+        }
+    }
+
+    private void somarEsperadas(Entrada e, int sinal) {
+        long[] daCategoria = esperadasPorCategoria[e.categoria.ordinal()];
+        for (int j = 0; j < JANELAS.length; j++) {
+            int n = sinal * esperadasNaJanela(e.recorrencia, JANELAS[j]);
+            esperadas[j] += n;
+            daCategoria[j] += n;
+        }
+    }
+
+    /**
+     * Monta a janela do hábito a partir do histórico, somando as conclusões
+     * às janelas do usuário e da categoria.
+     */
+    private void semear(Entrada e) {
+        e.janela = null;
+        LocalDate inicio = LocalDate.ofEpochDay(hoje() - JANELAS[JANELAS.length - 1] + 1);
+        e.habito.paraCadaConclusaoDesde(inicio, dia -> registrarConclusao(e, dia.toEpochDay()));
+    }
+
+    private void registrarConclusao(Entrada e, long dia) {
+        if (e.janela == null) {
+            e.janela = new JanelaMovel(hoje(), JANELAS);
+        }
+        if (conclusoesRecentes == null) {
+            conclusoesRecentes = new JanelaMovel(hoje(), JANELAS);
+        }
+        e.janela.registrar(dia, 1);
+        conclusoesRecentes.registrar(dia, 1);
+        janelaDaCategoria(e.categoria).registrar(dia, 1);
+    }
+
+    /**
+     * Passa as conclusões do hábito da janela da categoria anterior para a
+     * da atual.
+     */
+    private void moverJanela(Entrada e, Categoria anterior) {
+        if (e.janela != null && anterior != e.categoria) {
+            janelaDaCategoria(anterior).acumular(e.janela, -1);
+            janelaDaCategoria(e.categoria).acumular(e.janela, 1);
+        }
+    }
+
+    private void retirarJanela(Entrada e, Categoria categoria) {
+        if (e.janela != null) {
+            conclusoesRecentes.acumular(e.janela, -1);
+            janelaDaCategoria(categoria).acumular(e.janela, -1);
+            e.janela = null;
+        }
+    }
+
+    private JanelaMovel janelaDaCategoria(Categoria categoria) {
+        int c = categoria.ordinal();
+        if (conclusoesRecentesPorCategoria[c] == null) {
+            conclusoesRecentesPorCategoria[c] = new JanelaMovel(hoje(), JANELAS);
+        }
+        return conclusoesRecentesPorCategoria[c];
+    }
+
+    private static double taxa(JanelaMovel janela, int dias, long esperadas) {
+        if (janela == null || esperadas <= 0) {
+            return 0;
+        }
+        janela.avancarAte(hoje());
+        return Math.min(1, (double) janela.soma(dias) / esperadas);
+    }
+
+    /**
+     * Conclusões que um hábito da recorrência espera em uma janela: uma por
+     * período que cabe nela, e no mínimo uma.
+     */
+    private static int esperadasNaJanela(Recorrencia recorrencia, int dias) {
+        int duracao = switch (recorrencia) {
+            case DIARIA, PERSONALIZADO -> 1;
+            case SEMANAL -> 7;
+            case MENSAL -> 30;
+            case ANUAL -> 365;
+        };
+        return Math.max(1, dias / duracao);
+    }
+
+    private static int indiceDaJanela(int dias) {
+        for (int j = 0; j < JANELAS.length; j++) {
+            if (JANELAS[j] == dias) {
+                return j;
+            }
+        }
+        throw new IllegalArgumentException("Janela deve ser de 7, 30 ou 90 dias");
+    }
+
+    private static long hoje() {
+        return Calendario.hoje().toEpochDay();
+    }
+
+    /**
+     * Período atual da recorrência, zerando a contagem se o período mudou
+     * desde o último aviso.
+     */
+    private int periodoAtual(Recorrencia recorrencia) {
+        int r = recorrencia.ordinal();
+        int atual = Calendario.periodoAtual(recorrencia);
+        if (periodoContado[r] != atual) {
+            periodoContado[r] = atual;
+            concluidosNoPeriodo[r] = 0;
+        }
+        return atual;
+    }
+
+    private int concluidosNoPeriodoAtual(Recorrencia recorrencia) {
+        periodoAtual(recorrencia);
+        return concluidosNoPeriodo[recorrencia.ordinal()];
+    }
+}
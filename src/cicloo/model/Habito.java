@@ -1,14 +1,16 @@
 
 package cicloo.model;
 
+import cicloo.evento.Evento;
+import cicloo.evento.Eventos;
 import cicloo.model.enums.Categoria;
+import cicloo.model.enums.ModoDeStreak;
 import cicloo.model.enums.Prioridade;
 import cicloo.model.enums.Recorrencia;
+import cicloo.util.BitmapComprimido;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.time.temporal.WeekFields;
-import java.util.Locale;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Classe que representa um hábito dentro do sistema.
@@ -19,9 +21,9 @@ import java.util.Objects;
 public class Habito {
 
     /**
-     * Constante base para o cálculo de XP necessário para o próximo nível.
+     * Modo de avaliação das sequências vencidas, comum a todos os hábitos.
      */
-    private static final int XP_BASE_POR_NIVEL = 30;
+    private static volatile ModoDeStreak modoDeStreak = ModoDeStreak.IMEDIATO;
 
     /**
      * Identificador único do hábito.
@@ -67,6 +69,22 @@ public class Habito {
      * Número total de vezes que o hábito foi concluído.
      */
     private int totalConclusoes;
+    /**
+     * Histórico de conclusões: o bit {@code i} ligado indica que o hábito foi
+     * concluído no período {@code i} da recorrência
+     * ({@link Recorrencia#indicePeriodo}).
+     */
+    private final BitmapComprimido historico = new BitmapComprimido();
+    /**
+     * Período da recorrência em que caiu a última conclusão, mantido junto com
+     * {@link #ultimaConclusao} para que as verificações comparem inteiros.
+     */
+    private int periodoUltimaConclusao;
+    /**
+     * Estatísticas do usuário dono do hábito, avisadas a cada mudança de XP,
+     * nível, streak ou conclusão. Não faz parte do estado copiado.
+     */
+    private EstatisticasDoUsuario estatisticas;
 
     /**
      * Construtor do hábito.
@@ -88,68 +106,135 @@ public class Habito {
         this.totalConclusoes = 0;
     }
 
+    /**
+     * Define como as sequências vencidas são tratadas por todos os hábitos.
+     *
+     * @param modo O modo a usar.
+     * @throws IllegalArgumentException se o modo for {@code null}.
+     */
+    public static void usarModoDeStreak(ModoDeStreak modo) {
+        if (modo == null) throw new IllegalArgumentException("Modo de streak não pode ser nulo");
+        modoDeStreak = modo;
+    }
+
+    /**
+     * @return O modo de avaliação das sequências vencidas.
+     */
+    public static ModoDeStreak getModoDeStreak() {
+        return modoDeStreak;
+    }
+
     /**
      * Verifica se a sequência (streak) do hábito foi quebrada com base na recorrência e datas.
-     * Se for quebrada, a streak é zerada.
+     * A sequência é quebrada quando um período inteiro da recorrência passou sem
+     * conclusão; hábitos personalizados não perdem a sequência.
+     * Se for quebrada, a streak é zerada e {@link Evento.StreakZerado} é publicado.
      */
     public void verificarEresetarStreak() {
-        if (this.ultimaConclusao == null) return;
-
-        LocalDate hoje = LocalDate.now();
-        long diasDesdeUltimaConclusao = ChronoUnit.DAYS.between(this.ultimaConclusao, hoje);
-        boolean streakQuebrado = switch (this.recorrencia) {
-            case DIARIA -> diasDesdeUltimaConclusao > 1;
-            case SEMANAL -> diasDesdeUltimaConclusao > 7;
-            case MENSAL -> hoje.isAfter(this.ultimaConclusao.plusMonths(1));
-            case ANUAL -> hoje.isAfter(this.ultimaConclusao.plusYears(1));
-            default -> false;
-        };
+        if (this.streak == 0) return;
 
-        if (streakQuebrado) {
-            System.out.println("-> Alerta: A sequência (streak) do hábito '" + this.nome + "' foi zerada por inatividade.");
+        if (streakVencido()) {
+            int anterior = this.streak;
             this.setStreak(0);
+            Eventos.publicar(new Evento.StreakZerado(this, anterior));
         }
     }
 
     /**
-     * Verifica se o hábito pode ser concluído hoje com base em sua recorrência.
+     * Indica se um período inteiro da recorrência passou sem conclusão desde a
+     * última, o que quebra a sequência. Hábitos personalizados não vencem.
+     */
+    private boolean streakVencido() {
+        return this.ultimaConclusao != null
+                && this.recorrencia != Recorrencia.PERSONALIZADO
+                && Calendario.periodoAtual(this.recorrencia) - this.periodoUltimaConclusao > 1;
+    }
+
+    /**
+     * Sequência em vigor: a guardada, ou zero se ela já venceu e ainda não foi
+     * zerada.
+     */
+    private int streakVigente() {
+        return streakVencido() ? 0 : this.streak;
+    }
+
+    /**
+     * Primeiro dia em que a sequência atual estará quebrada, se o hábito não
+     * for concluído antes: o início do segundo período após a última conclusão.
+     *
+     * @return O prazo, ou {@code null} se não houver sequência a perder.
+     */
+    public LocalDate getPrazoDoStreak() {
+        if (this.ultimaConclusao == null || this.streak == 0 || this.recorrencia == Recorrencia.PERSONALIZADO) {
+            return null;
+        }
+        return this.recorrencia.inicioDoPeriodo(this.periodoUltimaConclusao + 2);
+    }
+
+    /**
+     * Verifica se o hábito pode ser concluído hoje com base em sua recorrência,
+     * ou seja, se ainda não foi concluído no período atual (dia, semana, mês ou ano).
      *
      * @return true se puder ser concluído hoje, false caso contrário.
      */
     private boolean podeConcluirHoje() {
         if (this.ultimaConclusao == null) return true;
-
-        LocalDate hoje = LocalDate.now();
-        return switch (this.recorrencia) {
-            case DIARIA -> !this.ultimaConclusao.isEqual(hoje);
-            case SEMANAL -> {
-                WeekFields wf = WeekFields.of(Locale.getDefault());
-                yield hoje.get(wf.weekOfWeekBasedYear()) != this.ultimaConclusao.get(wf.weekOfWeekBasedYear()) ||
-                       hoje.getYear() != this.ultimaConclusao.getYear();
-            }
-            case MENSAL -> hoje.getMonth() != this.ultimaConclusao.getMonth() || hoje.getYear() != this.ultimaConclusao.getYear();
-            case ANUAL -> hoje.getYear() != this.ultimaConclusao.getYear();
-            case PERSONALIZADO -> !this.ultimaConclusao.isEqual(hoje);
-        };
+        return this.periodoUltimaConclusao != Calendario.periodoAtual(this.recorrencia);
     }
 
     /**
      * Marca o hábito como concluído, caso possível, atualizando streak, XP e data.
+     * Publica {@link Evento.HabitoConcluido}, ou {@link Evento.ConclusaoRecusada}
+     * se o hábito já foi concluído no período.
      */
     public void marcarComoConcluido() {
         if (!podeConcluirHoje()) {
-            System.out.println("\nHábito '" + this.nome + "' já foi concluído neste período (" + this.recorrencia.toString() + "). Bom trabalho!");
+            Eventos.publicar(new Evento.ConclusaoRecusada(this));
             return;
         }
 
-        this.streak++;
+        LocalDate hoje = Calendario.hoje();
+        this.streak = streakVigente() + 1;
         this.totalConclusoes++;
         int xpGanho = calcularXpGanho();
-        this.xp += xpGanho;
-        this.ultimaConclusao = LocalDate.now();
+        setUltimaConclusao(hoje);
+        this.historico.marcar(this.periodoUltimaConclusao);
+
+        Eventos.publicar(new Evento.HabitoConcluido(this, xpGanho, this.streak, this.totalConclusoes));
+        ganharXp(xpGanho);
+    }
 
-        System.out.println("\nHábito '" + this.nome + "' concluído! Você ganhou " + xpGanho + " XP!");
-        verificarEvolucaoDeNivel();
+    /**
+     * Aplica de uma vez o XP de várias conclusões, por exemplo ao importar um
+     * histórico antigo. Não altera streak nem data da última conclusão.
+     *
+     * @param quantidade Número de conclusões.
+     * @return Quantos níveis o hábito ganhou.
+     */
+    public int registrarConclusoes(int quantidade) {
+        if (quantidade < 0) throw new IllegalArgumentException("Quantidade não pode ser negativa");
+        this.totalConclusoes += quantidade;
+        return ganharXp((long) quantidade * calcularXpGanho());
+    }
+
+    /**
+     * Adiciona XP ao hábito e calcula o nível resultante em forma fechada
+     * ({@link MotorDeXp}), publicando um único {@link Evento.NivelAlcancado}
+     * mesmo que vários níveis sejam ganhos.
+     *
+     * @param quantidade XP ganho.
+     * @return Quantos níveis o hábito ganhou.
+     */
+    public int ganharXp(long quantidade) {
+        MotorDeXp.Progresso progresso = MotorDeXp.aplicar(this.level, this.xp, quantidade);
+        this.level = progresso.nivel();
+        this.xp = progresso.xp();
+        int ganhos = progresso.niveisGanhos();
+        if (ganhos > 0) {
+            Eventos.publicar(new Evento.NivelAlcancado(this, this.level - ganhos, this.level));
+        }
+        avisarEstatisticas();
+        return ganhos;
     }
 
     /**
@@ -167,26 +252,107 @@ public class Habito {
         };
     }
 
-    /**
-     * Verifica se o hábito evolui de nível e realiza a evolução se aplicável.
-     */
-    private void verificarEvolucaoDeNivel() {
-        int xpNecessario = getXpParaProximoNivel();
-        while (this.xp >= xpNecessario) {
-            this.level++;
-            this.xp -= xpNecessario;
-            System.out.println("LEVEL UP! Seu hábito '" + this.nome + "' evoluiu para o Nível " + this.level + "!");
-            xpNecessario = getXpParaProximoNivel();
-        }
-    }
-
     /**
      * Retorna a quantidade de XP necessária para atingir o próximo nível.
      * Usamos o calculo do level do habito e o xp_base dele.
      * @return XP necessário.
      */
     public int getXpParaProximoNivel() {
-        return this.level * XP_BASE_POR_NIVEL;
+        return this.level * MotorDeXp.XP_BASE_POR_NIVEL;
+    }
+
+    /**
+     * Restaura o progresso do hábito a partir de dados persistidos, sem as
+     * validações e mensagens de {@link #marcarComoConcluido()}.
+     *
+     * @param level Nível salvo.
+     * @param xp XP salvo para o nível atual.
+     * @param streak Streak salva.
+     * @param totalConclusoes Total de conclusões salvo.
+     * @param ultimaConclusao Data da última conclusão, ou {@code null}.
+     */
+    public void restaurarProgresso(int level, int xp, int streak, int totalConclusoes, LocalDate ultimaConclusao) {
+        this.level = level;
+        this.xp = xp;
+        this.streak = streak;
+        this.totalConclusoes = totalConclusoes;
+        setUltimaConclusao(ultimaConclusao);
+        avisarEstatisticas();
+    }
+
+    /**
+     * Substitui o histórico de conclusões pelo gravado com
+     * {@link #getHistoricoComprimido()}.
+     *
+     * @param palavras O histórico comprimido.
+     */
+    public void restaurarHistorico(long[] palavras) {
+        this.historico.carregarPalavras(palavras);
+    }
+
+    /**
+     * @return O histórico de conclusões comprimido, para gravação.
+     */
+    public long[] getHistoricoComprimido() {
+        return this.historico.paraPalavras();
+    }
+
+    /**
+     * Verifica se o hábito foi concluído no período da recorrência que contém
+     * a data informada.
+     *
+     * @param data A data consultada.
+     * @return true se houve conclusão naquele período.
+     */
+    public boolean foiConcluidoEm(LocalDate data) {
+        return this.historico.contem(this.recorrencia.indicePeriodo(data));
+    }
+
+    /**
+     * Verifica se a última conclusão caiu no período informado, sem consultar
+     * a data atual. Útil para verificar muitos hábitos contra um mesmo
+     * período, obtido uma vez com {@link Calendario#periodoAtual}.
+     *
+     * @param periodo O número do período na recorrência do hábito.
+     * @return true se o hábito foi concluído nesse período.
+     */
+    public boolean foiConcluidoNoPeriodo(int periodo) {
+        return this.ultimaConclusao != null && this.periodoUltimaConclusao == periodo;
+    }
+
+    /**
+     * @return A maior sequência de períodos consecutivos com conclusão já registrada.
+     */
+    public int getMaiorStreak() {
+        return this.historico.maiorSequencia();
+    }
+
+    /**
+     * Calcula a fração dos últimos períodos (incluindo o atual) em que o hábito
+     * foi concluído.
+     *
+     * @param periodos Quantidade de períodos considerados, por exemplo 90 dias.
+     * @return Um valor entre 0 e 1.
+     */
+    public double getTaxaDeConclusao(int periodos) {
+        if (periodos < 1) throw new IllegalArgumentException("Quantidade de períodos deve ser positiva");
+        int atual = Calendario.periodoAtual(this.recorrencia);
+        return (double) this.historico.contarEntre(atual - periodos + 1, atual + 1) / periodos;
+    }
+
+    /**
+     * Recalcula a streak a partir do histórico: conta os períodos consecutivos
+     * com conclusão que terminam no período atual, ou no anterior se o atual
+     * ainda não foi concluído.
+     *
+     * @return A streak recalculada.
+     */
+    public int recalcularStreak() {
+        int atual = Calendario.periodoAtual(this.recorrencia);
+        int ultimoPeriodo = this.historico.contem(atual) ? atual : atual - 1;
+        this.streak = this.historico.sequenciaAte(ultimoPeriodo);
+        avisarEstatisticas();
+        return this.streak;
     }
 
     /**
@@ -200,6 +366,74 @@ public class Habito {
         setPrioridade(outro.getPrioridade());
         setRecorrencia(outro.getRecorrencia());
     }
+
+    /**
+     * Copia para este hábito todo o estado de outro: ID, campos básicos e
+     * progresso. Usado para guardar cópias do estado de um hábito sem criar
+     * novos objetos.
+     *
+     * @param outro O hábito de origem.
+     */
+    public void copiarEstado(Habito outro) {
+        this.id = outro.id;
+        this.nome = outro.nome;
+        this.categoria = outro.categoria;
+        this.recorrencia = outro.recorrencia;
+        this.prioridade = outro.prioridade;
+        this.ultimaConclusao = outro.ultimaConclusao;
+        this.periodoUltimaConclusao = outro.periodoUltimaConclusao;
+        this.level = outro.level;
+        this.concluido = outro.concluido;
+        this.xp = outro.xp;
+        this.streak = outro.streak;
+        this.totalConclusoes = outro.totalConclusoes;
+        this.historico.copiarDe(outro.historico);
+        avisarEstatisticas();
+    }
+
+    /**
+     * Define as estatísticas avisadas pelas mudanças deste hábito; chamado por
+     * {@link EstatisticasDoUsuario} ao incluir ou retirar o hábito.
+     */
+    void setEstatisticas(EstatisticasDoUsuario estatisticas) {
+        this.estatisticas = estatisticas;
+    }
+
+    private void avisarEstatisticas() {
+        EstatisticasDoUsuario e = this.estatisticas;
+        if (e != null) {
+            e.atualizar(this);
+        }
+    }
+
+    /**
+     * @return O período da última conclusão, válido se houver conclusão.
+     */
+    int getPeriodoUltimaConclusao() {
+        return periodoUltimaConclusao;
+    }
+
+    /**
+     * Percorre as conclusões do histórico a partir da data informada, em
+     * ordem, entregando o dia de cada uma. O histórico guarda só o período:
+     * o dia é a data da última conclusão no período dela e, nos demais, o
+     * primeiro dia do período que não é anterior ao início.
+     *
+     * @param inicio A primeira data considerada.
+     * @param acao Recebe o dia de cada conclusão.
+     */
+    void paraCadaConclusaoDesde(LocalDate inicio, Consumer<LocalDate> acao) {
+        if (this.ultimaConclusao == null || this.ultimaConclusao.isBefore(inicio)) {
+            return;
+        }
+        for (int p = this.recorrencia.indicePeriodo(inicio); p < this.periodoUltimaConclusao; p++) {
+            if (this.historico.contem(p)) {
+                LocalDate dia = this.recorrencia.inicioDoPeriodo(p);
+                acao.accept(dia.isBefore(inicio) ? inicio : dia);
+            }
+        }
+        acao.accept(this.ultimaConclusao);
+    }
     
 
     // Getters e Setters com Javadoc
@@ -253,6 +487,7 @@ public class Habito {
     public void setCategoria(Categoria categoria) {
         if (categoria == null) throw new IllegalArgumentException("Categoria não pode ser nula");
         this.categoria = categoria;
+        avisarEstatisticas();
     }
 
     /**
@@ -269,7 +504,24 @@ public class Habito {
      */
     public void setRecorrencia(Recorrencia recorrencia) {
         if (recorrencia == null) throw new IllegalArgumentException("Recorrência não pode ser nula");
+        if (this.recorrencia != null && this.recorrencia != recorrencia && !this.historico.estaVazio()) {
+            converterHistorico(this.recorrencia, recorrencia);
+        }
         this.recorrencia = recorrencia;
+        if (this.ultimaConclusao != null) {
+            this.periodoUltimaConclusao = recorrencia.indicePeriodo(this.ultimaConclusao);
+        }
+        avisarEstatisticas();
+    }
+
+    /**
+     * Reescreve o histórico nos períodos da nova recorrência: cada período
+     * concluído passa a marcar o período novo que contém o seu início.
+     */
+    private void converterHistorico(Recorrencia anterior, Recorrencia nova) {
+        BitmapComprimido convertido = new BitmapComprimido();
+        this.historico.paraCada(i -> convertido.marcar(nova.indicePeriodo(anterior.inicioDoPeriodo(i))));
+        this.historico.copiarDe(convertido);
     }
     
     /**
@@ -305,6 +557,9 @@ public class Habito {
      */
     private void setUltimaConclusao(LocalDate ultimaConclusao) {
         this.ultimaConclusao = ultimaConclusao;
+        if (ultimaConclusao != null) {
+            this.periodoUltimaConclusao = this.recorrencia.indicePeriodo(ultimaConclusao);
+        }
     }
 
     /**
@@ -321,6 +576,7 @@ public class Habito {
      */
     public void setLevel(int level) {
         this.level = level;
+        avisarEstatisticas();
     }
 
     /**
@@ -355,14 +611,17 @@ public class Habito {
      */
     public void setXp(int xp) {
         this.xp = xp;
+        avisarEstatisticas();
     }
 
     /**
-     * Retorna a sequência (streak) atual de conclusões do hábito.* @return O valor da streak.
+     * Retorna a sequência (streak) atual de conclusões do hábito. No modo
+     * {@link ModoDeStreak#SOB_DEMANDA}, uma sequência vencida é lida como zero
+     * mesmo que ainda não tenha sido zerada.* @return O valor da streak.
      * @return
      */
     public int getStreak() {
-        return streak;
+        return modoDeStreak == ModoDeStreak.SOB_DEMANDA ? streakVigente() : streak;
     }
 
     /**
@@ -371,6 +630,7 @@ public class Habito {
      */
     public void setStreak(int streak) {
         this.streak = streak;
+        avisarEstatisticas();
     }
 
     /**
@@ -461,7 +721,7 @@ public class Habito {
         return " " + nome +
                 " | Nível: " + level +
                 " | XP: " + xp + "/" + getXpParaProximoNivel() +
-                " | Streak: " + streak + 
+                " | Streak: " + getStreak() + 
                 " | Recorrência: " + recorrencia.toString()+
                 " | Prioridade: " + prioridade.toString() +
                 " | Status (Concluído): " + (isConcluido() ? "Não" : "Sim");
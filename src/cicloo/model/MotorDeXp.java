@@ -0,0 +1,95 @@
+package cicloo.model;
+
+/**
+ * Cálculo de nível e XP dos hábitos em forma fechada.
+ * <p>
+ * Para passar do nível {@code L} ao {@code L + 1} são necessários
+ * {@code L * XP_BASE_POR_NIVEL} pontos. Assim, o XP acumulado desde o nível 1
+ * até o início do nível {@code L} é a soma da progressão aritmética
+ * {@code base * (1 + 2 + ... + (L - 1)) = base * L * (L - 1) / 2}. Invertendo
+ * essa soma com uma raiz quadrada, o nível resultante de qualquer ganho de XP
+ * sai em O(1), em vez de subir um nível por vez.
+ * </p>
+ *
+ * @author Eric
+ */
+public final class MotorDeXp {
+
+    /**
+     * XP necessário para sair do nível 1; cada nível seguinte exige esse valor
+     * multiplicado pelo próprio nível.
+     */
+    public static final int XP_BASE_POR_NIVEL = 30;
+
+    private MotorDeXp() {}
+
+    /**
+     * XP acumulado necessário para chegar ao início do nível informado.
+     *
+     * @param nivel o nível (a partir de 1).
+     * @return o XP total desde o início do nível 1.
+     */
+    public static long xpAcumuladoAteNivel(int nivel) {
+        return (long) XP_BASE_POR_NIVEL * nivel * (nivel - 1) / 2;
+    }
+
+    /**
+     * Nível alcançado com o XP total informado: o maior {@code L} tal que
+     * {@link #xpAcumuladoAteNivel(int) xpAcumuladoAteNivel(L)} não passa de
+     * {@code xpTotal}.
+     *
+     * @param xpTotal o XP acumulado desde o início do nível 1.
+     * @return o nível correspondente.
+     * @throws IllegalArgumentException se o XP for negativo.
+     */
+    public static int nivelParaXpTotal(long xpTotal) {
+        if (xpTotal < 0) {
+            throw new IllegalArgumentException("XP não pode ser negativo");
+        }
+        // base * L * (L - 1) / 2 <= xp  =>  L <= (1 + sqrt(1 + 8 * xp / base)) / 2
+        long nivel = (long) ((1 + Math.sqrt(1 + 8.0 * xpTotal / XP_BASE_POR_NIVEL)) / 2);
+        // Corrige o arredondamento da raiz para valores grandes.
+        while (nivel > 1 && (long) XP_BASE_POR_NIVEL * nivel * (nivel - 1) / 2 > xpTotal) {
+            nivel--;
+        }
+        while ((long) XP_BASE_POR_NIVEL * (nivel + 1) * nivel / 2 <= xpTotal) {
+            nivel++;
+        }
+        if (nivel > Integer.MAX_VALUE) {
+            throw new ArithmeticException("Nível acima do suportado");
+        }
+        return (int) nivel;
+    }
+
+    /**
+     * Resultado da aplicação de XP a um nível: o novo nível e o XP restante
+     * dentro dele.
+     *
+     * @param nivel o nível resultante.
+     * @param xp o XP dentro do nível resultante.
+     * @param niveisGanhos quantos níveis foram ganhos.
+     */
+    public record Progresso(int nivel, int xp, int niveisGanhos) {}
+
+    /**
+     * Aplica um ganho de XP a partir do nível e XP atuais, em O(1).
+     *
+     * @param nivel o nível atual.
+     * @param xp o XP atual dentro do nível.
+     * @param ganho o XP ganho (não negativo).
+     * @return o novo progresso.
+     * @throws IllegalArgumentException se o ganho for negativo.
+     */
+    public static Progresso aplicar(int nivel, int xp, long ganho) {
+        if (ganho < 0) {
+            throw new IllegalArgumentException("Ganho de XP não pode ser negativo");
+        }
+        long total = xpAcumuladoAteNivel(nivel) + xp + ganho;
+        int novoNivel = nivelParaXpTotal(total);
+        if (novoNivel < nivel) {
+            return new Progresso(nivel, (int) Math.min(xp + ganho, Integer.MAX_VALUE), 0);
+        }
+        long resto = total - xpAcumuladoAteNivel(novoNivel);
+        return new Progresso(novoNivel, (int) resto, novoNivel - nivel);
+    }
+}
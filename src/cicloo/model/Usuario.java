@@ -1,9 +1,10 @@
 package cicloo.model;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import cicloo.util.MapaInt;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 /**
  * Representa um usuário do sistema Cicloo, contendo informações de login,
@@ -14,12 +15,33 @@ import java.util.Objects;
  */
 public class Usuario {
 
+    /**
+     * Padrões de validação, compilados uma única vez para não repetir o custo
+     * a cada usuário criado ou carregado.
+     */
+    private static final Pattern FORMATO_EMAIL = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
+    private static final Pattern TEM_LETRA = Pattern.compile(".*[A-Za-z].*");
+    private static final Pattern TEM_NUMERO = Pattern.compile(".*[0-9].*");
+
     private int id;
     private String nome;
     private String email;
     private String senha;
-    private final ArrayList<Habito> habitos;
-    private final List<Conquista> conquistas;
+    /**
+     * Hábitos do usuário por ID, na ordem em que foram adicionados.
+     */
+    private final MapaInt<Habito> habitos;
+    /**
+     * Estatísticas dos hábitos, mantidas a cada alteração.
+     */
+    private final EstatisticasDoUsuario estatisticas = new EstatisticasDoUsuario(this);
+    /**
+     * Conquistas desbloqueadas: o bit {@code id} indica a conquista de mesmo
+     * ID no {@link CatalogoDeConquistas}. As 64 primeiras cabem em
+     * {@code conquistas}; as demais, raras, vão para {@code conquistasExtras}.
+     */
+    private long conquistas;
+    private long[] conquistasExtras;
 
     /**
      * Construtor para criar um novo usuário.
@@ -33,8 +55,7 @@ public class Usuario {
         setNome(nome);
         setEmail(email);
         setSenha(senha);
-        this.habitos = new ArrayList<>();
-        this.conquistas = new ArrayList<>();
+        this.habitos = new MapaInt<>();
     }
 
     /**
@@ -77,8 +98,7 @@ public class Usuario {
         if (email == null || email.trim().isEmpty()) {
             throw new IllegalArgumentException("Email não pode ser nulo ou vazio");
         }
-        String emailRegex = "^[A-Za-z0-9+_.-]+@(.+)$";
-        if (!email.matches(emailRegex)) {
+        if (!FORMATO_EMAIL.matcher(email).matches()) {
             throw new IllegalArgumentException("Formato de email inválido");
         }
         this.email = email;
@@ -104,7 +124,7 @@ public class Usuario {
         if (senha.length() < 6) {
             throw new IllegalArgumentException("Senha deve ter pelo menos 6 caracteres");
         }
-        if (!senha.matches(".*[A-Za-z].*") || !senha.matches(".*[0-9].*")) {
+        if (!TEM_LETRA.matcher(senha).matches() || !TEM_NUMERO.matcher(senha).matches()) {
             throw new IllegalArgumentException("Senha deve conter letras e números");
         }
         this.senha = senha;
@@ -127,52 +147,154 @@ public class Usuario {
     }
 
     /**
-     * Adiciona um hábito à lista do usuário.
+     * Adiciona um hábito ao usuário. O hábito é guardado pelo seu ID, que
+     * portanto já deve ter sido atribuído pela DAO. Adicionar de novo o mesmo
+     * hábito não tem efeito.
      *
      * @param h Hábito a ser adicionado.
+     * @throws IllegalArgumentException se outro hábito com o mesmo ID já
+     * pertencer ao usuário.
      */
     public void adicionarHabito(Habito h) {
         if (h != null) {
-            habitos.add(h);
+            Habito atual = habitos.obter(h.getId());
+            if (atual != null && atual != h) {
+                throw new IllegalArgumentException("Usuário já possui outro hábito com o ID " + h.getId());
+            }
+            habitos.colocar(h.getId(), h);
+            estatisticas.adicionar(h);
         }
     }
 
     /**
-     * Remove um hábito da lista do usuário.
+     * Remove um hábito do usuário, se for o mesmo objeto guardado sob o seu ID.
      *
      * @param h Hábito a ser removido.
      */
     public void removerHabito(Habito h) {
+        if (h != null && habitos.obter(h.getId()) == h) {
+            this.habitos.remover(h.getId());
+            estatisticas.remover(h);
+        }
+    }
+
+    /**
+     * Remove o hábito com o ID informado.
+     *
+     * @param id ID do hábito.
+     * @return O hábito removido, ou {@code null} se o usuário não o possuía.
+     */
+    public Habito removerHabito(int id) {
+        Habito h = habitos.remover(id);
         if (h != null) {
-            this.habitos.remove(h);
+            estatisticas.remover(h);
         }
+        return h;
+    }
+
+    /**
+     * Busca um hábito do usuário pelo ID.
+     *
+     * @param id ID do hábito.
+     * @return O hábito, ou {@code null} se o usuário não o possuir.
+     */
+    public Habito buscarHabito(int id) {
+        return habitos.obter(id);
+    }
+
+    /**
+     * Lista todos os hábitos do usuário, na ordem em que foram adicionados.
+     * A coleção é uma visão somente leitura, sem cópia, que acompanha as
+     * alterações do usuário.
+     *
+     * @return Coleção imutável de hábitos.
+     */
+    public Collection<Habito> listarHabitos() {
+        return habitos.valores();
     }
 
     /**
-     * Lista todos os hábitos do usuário.
+     * Retorna as estatísticas dos hábitos do usuário, mantidas a cada
+     * alteração, para consulta em O(1).
      *
-     * @return Lista imutável de hábitos.
+     * @return as estatísticas.
      */
-    public List<Habito> listarHabitos() {
-        return Collections.unmodifiableList(habitos);
+    public EstatisticasDoUsuario getEstatisticas() {
+        return estatisticas;
     }
 
     /**
-     * Carrega as conquistas iniciais do sistema para o usuário.
+     * Verifica se o usuário desbloqueou a conquista.
      *
-     * @param conquistasIniciais Lista de conquistas pré-definidas.
+     * @param id ID da conquista no catálogo.
+     * @return {@code true} se desbloqueada.
      */
-    public void carregarConquistasIniciais(List<Conquista> conquistasIniciais) {
-        this.conquistas.addAll(conquistasIniciais);
+    public boolean isConquistaDesbloqueada(int id) {
+        if (id < 0) {
+            return false;
+        }
+        if (id < Long.SIZE) {
+            return (conquistas & (1L << id)) != 0;
+        }
+        int palavra = (id >>> 6) - 1;
+        return conquistasExtras != null && palavra < conquistasExtras.length
+                && (conquistasExtras[palavra] & (1L << id)) != 0;
     }
 
     /**
-     * Retorna uma cópia imutável da lista de conquistas do usuário.
+     * Desbloqueia a conquista para o usuário.
      *
-     * @return Lista imutável de conquistas.
+     * @param id ID da conquista no catálogo.
+     * @return {@code true} se a conquista acabou de ser desbloqueada,
+     * {@code false} se já estava.
+     * @throws IllegalArgumentException se o ID for negativo.
      */
-    public List<Conquista> getConquistas() {
-        return Collections.unmodifiableList(this.conquistas);
+    public boolean desbloquearConquista(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("ID de conquista inválido");
+        }
+        if (isConquistaDesbloqueada(id)) {
+            return false;
+        }
+        if (id < Long.SIZE) {
+            conquistas |= 1L << id;
+        } else {
+            int palavra = (id >>> 6) - 1;
+            if (conquistasExtras == null || palavra >= conquistasExtras.length) {
+                conquistasExtras = conquistasExtras == null
+                        ? new long[palavra + 1]
+                        : Arrays.copyOf(conquistasExtras, palavra + 1);
+            }
+            conquistasExtras[palavra] |= 1L << id;
+        }
+        return true;
+    }
+
+    /**
+     * Retorna os IDs das conquistas desbloqueadas, em ordem crescente.
+     *
+     * @return Vetor novo com os IDs.
+     */
+    public int[] getConquistasDesbloqueadas() {
+        int quantidade = Long.bitCount(conquistas);
+        if (conquistasExtras != null) {
+            for (long p : conquistasExtras) {
+                quantidade += Long.bitCount(p);
+            }
+        }
+        int[] ids = new int[quantidade];
+        int n = 0;
+        for (long p = conquistas; p != 0; p &= p - 1) {
+            ids[n++] = Long.numberOfTrailingZeros(p);
+        }
+        if (conquistasExtras != null) {
+            for (int i = 0; i < conquistasExtras.length; i++) {
+                for (long p = conquistasExtras[i]; p != 0; p &= p - 1) {
+                    ids[n++] = ((i + 1) << 6) + Long.numberOfTrailingZeros(p);
+                }
+            }
+        }
+        return ids;
     }
 
     /**
@@ -187,7 +309,8 @@ public class Usuario {
     }
     
      /**
-     * Gera um código hash para o objeto Usuário.
+     * Gera um código hash para o objeto Usuário a partir do ID e do email,
+     * sem percorrer hábitos e conquistas.
      * * @return O código hash.
      */
 
@@ -195,14 +318,14 @@ public class Usuario {
     public int hashCode() {
         int hash = 7;
         hash = 59 * hash + this.id;
-        hash = 59 * hash + Objects.hashCode(this.nome);
         hash = 59 * hash + Objects.hashCode(this.email);
-        hash = 59 * hash + Objects.hashCode(this.senha);
-        hash = 59 * hash + Objects.hashCode(this.habitos);
-        hash = 59 * hash + Objects.hashCode(this.conquistas);
         return hash;
     }
 
+    /**
+     * Compara os dados de cadastro de dois usuários. Hábitos e conquistas não
+     * entram na comparação: pertencem ao usuário, não o identificam.
+     */
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -224,13 +347,7 @@ public class Usuario {
         if (!Objects.equals(this.email, other.email)) {
             return false;
         }
-        if (!Objects.equals(this.senha, other.senha)) {
-            return false;
-        }
-        if (!Objects.equals(this.habitos, other.habitos)) {
-            return false;
-        }
-        return Objects.equals(this.conquistas, other.conquistas);
+        return Objects.equals(this.senha, other.senha);
     }
 
     /**
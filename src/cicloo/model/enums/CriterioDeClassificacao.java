@@ -0,0 +1,36 @@
+package cicloo.model.enums;
+
+/**
+ * Enum que define os critérios da classificação geral dos usuários.
+ *
+ * @author Eric
+ */
+public enum CriterioDeClassificacao {
+    /** Soma do XP dos hábitos do usuário. */
+    XP_TOTAL("XP Total"),
+
+    /** Maior streak atual entre os hábitos do usuário. */
+    MAIOR_STREAK("Maior Streak"),
+
+    /** Maior nível entre os hábitos do usuário. */
+    MAIOR_NIVEL("Maior Nível");
+
+    /**
+     * A representação textual do critério.
+     */
+    private final String descricao;
+
+    private CriterioDeClassificacao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    /**
+     * Retorna a descrição textual do critério.
+     *
+     * @return A descrição.
+     */
+    @Override
+    public String toString() {
+        return descricao;
+    }
+}
@@ -0,0 +1,24 @@
+package cicloo.model.enums;
+
+/**
+ * Enum que define a métrica observada pela condição de uma conquista.
+ * <p>
+ * As métricas de usuário valem para o usuário como um todo; as de hábito são
+ * avaliadas em cada hábito, e basta um deles chegar ao mínimo.
+ * </p>
+ *
+ * @author Eric
+ */
+public enum MetricaDeConquista {
+    /** Quantidade de hábitos do usuário. */
+    QUANTIDADE_DE_HABITOS,
+
+    /** Total de conclusões de um hábito. */
+    TOTAL_CONCLUSOES,
+
+    /** Sequência atual de um hábito. */
+    STREAK,
+
+    /** Nível de um hábito. */
+    NIVEL
+}
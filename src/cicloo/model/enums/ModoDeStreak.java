@@ -0,0 +1,20 @@
+package cicloo.model.enums;
+
+/**
+ * Enum que define quando uma sequência (streak) vencida é zerada.
+ * <p>
+ * No modo imediato a sequência guardada no hábito é zerada por uma
+ * verificação ativa; no modo sob demanda nada é alterado e a sequência
+ * efetiva é calculada a cada leitura, a partir da sequência guardada, da
+ * última conclusão e do período atual.
+ * </p>
+ *
+ * @author Eric
+ */
+public enum ModoDeStreak {
+    /** A sequência vencida é zerada no hábito quando o prazo passa. */
+    IMEDIATO,
+
+    /** A sequência vencida é tratada como zero na leitura, sem varreduras. */
+    SOB_DEMANDA
+}
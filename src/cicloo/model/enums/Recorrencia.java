@@ -4,6 +4,10 @@
  */
 package cicloo.model.enums;
 
+import java.time.LocalDate;
+import java.time.temporal.WeekFields;
+import java.util.Locale;
+
 /**
  * Enum que representa a recorrência ou a frequência com que um hábito
  * deve ser executado.
@@ -38,6 +42,18 @@ public enum Recorrencia {
      */
     private final String descricao;
 
+    /**
+     * Primeiro dia da semana do {@link Locale} padrão (1 = segunda-feira),
+     * lido uma vez, ao carregar a classe, em vez de a cada período calculado.
+     */
+    private static final int PRIMEIRO_DIA_DA_SEMANA = WeekFields.of(Locale.getDefault()).getFirstDayOfWeek().getValue();
+
+    /**
+     * Dia da época (0 a 6) em que começa a semana de número 0. O dia 4 da
+     * época, 1970-01-05, foi uma segunda-feira.
+     */
+    private static final int INICIO_DA_SEMANA_ZERO = Math.floorMod(4 + PRIMEIRO_DIA_DA_SEMANA - 1, 7);
+
     /**
      * Construtor privado para a enumeração Recorrencia.
      *
@@ -56,6 +72,46 @@ public enum Recorrencia {
     public String toString() {
         return descricao;
     }
-    
-    
+
+    /**
+     * Número do período da recorrência que contém a data: o dia para
+     * {@link #DIARIA} e {@link #PERSONALIZADO}, a semana (iniciada no primeiro
+     * dia da semana do {@link Locale} padrão ao carregar a classe) para
+     * {@link #SEMANAL}, o mês para {@link #MENSAL} e o ano para
+     * {@link #ANUAL}.
+     * <p>
+     * Períodos consecutivos têm números consecutivos, e datas a partir de 1970
+     * têm números não negativos.
+     * </p>
+     *
+     * @param data a data.
+     * @return o número do período.
+     */
+    public int indicePeriodo(LocalDate data) {
+        return switch (this) {
+            case DIARIA, PERSONALIZADO -> (int) data.toEpochDay();
+            case SEMANAL -> {
+                long inicio = data.toEpochDay() - Math.floorMod(data.getDayOfWeek().getValue() - PRIMEIRO_DIA_DA_SEMANA, 7);
+                yield (int) Math.floorDiv(inicio, 7);
+            }
+            case MENSAL -> (data.getYear() - 1970) * 12 + data.getMonthValue() - 1;
+            case ANUAL -> data.getYear() - 1970;
+        };
+    }
+
+    /**
+     * Primeiro dia do período de número informado; inverso de
+     * {@link #indicePeriodo}.
+     *
+     * @param indice o número do período.
+     * @return a data em que o período começa.
+     */
+    public LocalDate inicioDoPeriodo(int indice) {
+        return switch (this) {
+            case DIARIA, PERSONALIZADO -> LocalDate.ofEpochDay(indice);
+            case SEMANAL -> LocalDate.ofEpochDay(7L * indice + INICIO_DA_SEMANA_ZERO);
+            case MENSAL -> LocalDate.of(1970 + Math.floorDiv(indice, 12), Math.floorMod(indice, 12) + 1, 1);
+            case ANUAL -> LocalDate.of(1970 + indice, 1, 1);
+        };
+    }
 }
\ No newline at end of file
@@ -0,0 +1,519 @@
+package cicloo.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto de inteiros não negativos guardado como mapa de bits comprimido
+ * por sequências de palavras iguais, no estilo EWAH.
+ * <p>
+ * Os bits são agrupados em palavras de 64. Palavras só com zeros ou só com
+ * uns em sequência viram um marcador com o tamanho da sequência; as demais
+ * são guardadas como estão (literais). Cada marcador ocupa um {@code long}:
+ * </p>
+ * <pre>
+ *   bit 0       valor dos bits da sequência
+ *   bits 1-31   quantidade de palavras da sequência
+ *   bits 32-62  quantidade de palavras literais que seguem o marcador
+ * </pre>
+ * <p>
+ * Um histórico que começa no dia 20.000 e tem longos intervalos vazios custa
+ * poucos {@code long}s. As consultas percorrem as palavras comprimidas:
+ * sequências são contadas de uma vez e literais com operações de bits
+ * ({@link Long#bitCount}, {@link Long#numberOfLeadingZeros}), sem visitar
+ * cada bit.
+ * </p>
+ * <p>
+ * Ligar um bit no fim (o caso comum de um histórico) custa O(1); ligar um bit
+ * no meio reconstrói o mapa.
+ * </p>
+ *
+ * @author Eric
+ */
+public class BitmapComprimido {
+
+    private static final long MAXIMO_SEQUENCIA = 0x7FFFFFFFL;
+    private static final long MAXIMO_LITERAIS = 0x7FFFFFFFL;
+
+    private static final long[] VAZIO = new long[0];
+
+    private long[] palavras = VAZIO;
+
+    /**
+     * Quantidade de posições usadas em {@link #palavras}.
+     */
+    private int usadas;
+
+    /**
+     * Posição do último marcador em {@link #palavras}, ou -1 se vazio.
+     */
+    private int ultimoMarcador = -1;
+
+    /**
+     * Quantidade de palavras de 64 bits representadas.
+     */
+    private int totalPalavras;
+
+    private int cardinalidade;
+
+    /**
+     * Verifica se o bit está ligado.
+     *
+     * @param indice o índice do bit.
+     * @return {@code true} se o bit estiver ligado.
+     */
+    public boolean contem(int indice) {
+        if (indice < 0 || (indice >>> 6) >= totalPalavras) {
+            return false;
+        }
+        int alvo = indice >>> 6;
+        int palavra = 0;
+        int p = 0;
+        while (p < usadas) {
+            long marcador = palavras[p++];
+            int sequencia = sequencia(marcador);
+            if (alvo < palavra + sequencia) {
+                return bit(marcador);
+            }
+            palavra += sequencia;
+            int literais = literais(marcador);
+            if (alvo < palavra + literais) {
+                return (palavras[p + alvo - palavra] & (1L << indice)) != 0;
+            }
+            palavra += literais;
+            p += literais;
+        }
+        return false;
+    }
+
+    /**
+     * Liga o bit informado.
+     *
+     * @param indice o índice do bit.
+     * @return {@code true} se o bit estava desligado.
+     * @throws IllegalArgumentException se o índice for negativo.
+     */
+    public boolean marcar(int indice) {
+        if (indice < 0) {
+            throw new IllegalArgumentException("Índice não pode ser negativo: " + indice);
+        }
+        int alvo = indice >>> 6;
+        long mascara = 1L << indice;
+        if (alvo >= totalPalavras) {
+            adicionarSequencia(false, alvo - totalPalavras);
+            adicionarPalavra(mascara);
+            cardinalidade++;
+            return true;
+        }
+        if (alvo == totalPalavras - 1 && literais(palavras[ultimoMarcador]) > 0) {
+            long ultima = palavras[usadas - 1];
+            if ((ultima & mascara) != 0) {
+                return false;
+            }
+            removerUltimaLiteral();
+            adicionarPalavra(ultima | mascara);
+            cardinalidade++;
+            return true;
+        }
+        if (contem(indice)) {
+            return false;
+        }
+        long[] descomprimido = descomprimir();
+        descomprimido[alvo] |= mascara;
+        reconstruir(descomprimido);
+        return true;
+    }
+
+    /**
+     * @return a quantidade de bits ligados.
+     */
+    public int cardinalidade() {
+        return cardinalidade;
+    }
+
+    /**
+     * @return {@code true} se nenhum bit estiver ligado.
+     */
+    public boolean estaVazio() {
+        return cardinalidade == 0;
+    }
+
+    /**
+     * Conta os bits ligados no intervalo {@code [inicio, fim)}.
+     *
+     * @param inicio primeiro índice, inclusive.
+     * @param fim último índice, exclusive.
+     * @return a quantidade de bits ligados no intervalo.
+     */
+    public int contarEntre(int inicio, int fim) {
+        inicio = Math.max(inicio, 0);
+        if (fim <= inicio) {
+            return 0;
+        }
+        long base = 0;
+        int total = 0;
+        int p = 0;
+        while (p < usadas && base < fim) {
+            long marcador = palavras[p++];
+            long bitsSequencia = (long) sequencia(marcador) << 6;
+            if (bit(marcador)) {
+                total += (int) sobreposicao(base, base + bitsSequencia, inicio, fim);
+            }
+            base += bitsSequencia;
+            int literais = literais(marcador);
+            for (int i = 0; i < literais && base < fim; i++, base += 64) {
+                long w = palavras[p + i];
+                if (base + 64 > inicio && w != 0) {
+                    total += Long.bitCount(w & mascaraIntervalo(base, inicio, fim));
+                }
+            }
+            p += literais;
+        }
+        return total;
+    }
+
+    /**
+     * Tamanho da sequência de bits ligados que termina no índice informado,
+     * contando para trás a partir dele.
+     *
+     * @param indice o último índice da sequência.
+     * @return a quantidade de bits ligados consecutivos até {@code indice},
+     * ou 0 se ele estiver desligado.
+     */
+    public int sequenciaAte(int indice) {
+        if (indice < 0 || (indice >>> 6) >= totalPalavras) {
+            return 0;
+        }
+        int alvo = indice >>> 6;
+        int posicaoNoAlvo = indice & 63;
+        int palavra = 0;
+        long acumulado = 0;
+        int p = 0;
+        while (p < usadas) {
+            long marcador = palavras[p++];
+            int sequencia = sequencia(marcador);
+            if (alvo < palavra + sequencia) {
+                return bit(marcador) ? (int) (acumulado + ((long) (alvo - palavra) << 6) + posicaoNoAlvo + 1) : 0;
+            }
+            acumulado = bit(marcador) ? acumulado + ((long) sequencia << 6) : (sequencia > 0 ? 0 : acumulado);
+            palavra += sequencia;
+            int literais = literais(marcador);
+            for (int i = 0; i < literais; i++, palavra++) {
+                long w = palavras[p + i];
+                if (palavra == alvo) {
+                    long ateIndice = w << (63 - posicaoNoAlvo);
+                    int unsNoTopo = Long.numberOfLeadingZeros(~ateIndice);
+                    return unsNoTopo > posicaoNoAlvo ? (int) (acumulado + posicaoNoAlvo + 1) : unsNoTopo;
+                }
+                acumulado = w == -1L ? acumulado + 64 : Long.numberOfLeadingZeros(~w);
+            }
+            p += literais;
+        }
+        return 0;
+    }
+
+    /**
+     * @return o tamanho da maior sequência de bits ligados consecutivos.
+     */
+    public int maiorSequencia() {
+        long maior = 0;
+        long acumulado = 0;
+        int p = 0;
+        while (p < usadas) {
+            long marcador = palavras[p++];
+            int sequencia = sequencia(marcador);
+            if (bit(marcador)) {
+                acumulado += (long) sequencia << 6;
+            } else if (sequencia > 0) {
+                maior = Math.max(maior, acumulado);
+                acumulado = 0;
+            }
+            int literais = literais(marcador);
+            for (int i = 0; i < literais; i++) {
+                long w = palavras[p + i];
+                if (w == -1L) {
+                    acumulado += 64;
+                    continue;
+                }
+                maior = Math.max(maior, acumulado + Long.numberOfTrailingZeros(~w));
+                maior = Math.max(maior, maiorSequenciaInterna(w));
+                acumulado = Long.numberOfLeadingZeros(~w);
+            }
+            p += literais;
+        }
+        return (int) Math.max(maior, acumulado);
+    }
+
+    /**
+     * Índice do último bit ligado.
+     *
+     * @return o maior índice ligado, ou -1 se vazio.
+     */
+    public int ultimo() {
+        if (cardinalidade == 0) {
+            return -1;
+        }
+        long marcador = palavras[ultimoMarcador];
+        if (literais(marcador) > 0 && palavras[usadas - 1] != 0) {
+            long w = palavras[usadas - 1];
+            return ((totalPalavras - 1) << 6) + 63 - Long.numberOfLeadingZeros(w);
+        }
+        if (literais(marcador) == 0 && bit(marcador)) {
+            return (totalPalavras << 6) - 1;
+        }
+        int[] ultimo = {-1};
+        paraCada(i -> ultimo[0] = i);
+        return ultimo[0];
+    }
+
+    /**
+     * Chama {@code acao} para cada bit ligado, em ordem crescente.
+     *
+     * @param acao recebe o índice de cada bit ligado.
+     */
+    public void paraCada(IntConsumer acao) {
+        int palavra = 0;
+        int p = 0;
+        while (p < usadas) {
+            long marcador = palavras[p++];
+            int sequencia = sequencia(marcador);
+            if (bit(marcador)) {
+                int fim = (palavra + sequencia) << 6;
+                for (int i = palavra << 6; i < fim; i++) {
+                    acao.accept(i);
+                }
+            }
+            palavra += sequencia;
+            int literais = literais(marcador);
+            for (int i = 0; i < literais; i++, palavra++) {
+                long w = palavras[p + i];
+                while (w != 0) {
+                    acao.accept((palavra << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            p += literais;
+        }
+    }
+
+    /**
+     * Retorna as palavras comprimidas, para gravação.
+     *
+     * @return uma cópia das palavras usadas.
+     */
+    public long[] paraPalavras() {
+        return Arrays.copyOf(palavras, usadas);
+    }
+
+    /**
+     * Substitui o conteúdo pelas palavras comprimidas gravadas com
+     * {@link #paraPalavras()}.
+     *
+     * @param gravadas as palavras comprimidas.
+     * @throws IllegalArgumentException se as palavras forem inconsistentes.
+     */
+    public void carregarPalavras(long[] gravadas) {
+        int p = 0;
+        int total = 0;
+        int bits = 0;
+        int marcador = -1;
+        while (p < gravadas.length) {
+            marcador = p;
+            long m = gravadas[p++];
+            total += sequencia(m);
+            if (bit(m)) {
+                bits += sequencia(m) << 6;
+            }
+            int literais = literais(m);
+            if (p + literais > gravadas.length) {
+                throw new IllegalArgumentException("Histórico comprimido inválido");
+            }
+            for (int i = 0; i < literais; i++) {
+                bits += Long.bitCount(gravadas[p + i]);
+            }
+            total += literais;
+            p += literais;
+        }
+        palavras = gravadas.length == 0 ? VAZIO : gravadas.clone();
+        usadas = gravadas.length;
+        ultimoMarcador = marcador;
+        totalPalavras = total;
+        cardinalidade = bits;
+    }
+
+    /**
+     * Torna este mapa uma cópia de outro, reaproveitando o vetor interno
+     * quando possível.
+     *
+     * @param outro o mapa de origem.
+     */
+    public void copiarDe(BitmapComprimido outro) {
+        if (palavras.length < outro.usadas) {
+            palavras = new long[outro.palavras.length];
+        }
+        System.arraycopy(outro.palavras, 0, palavras, 0, outro.usadas);
+        usadas = outro.usadas;
+        ultimoMarcador = outro.ultimoMarcador;
+        totalPalavras = outro.totalPalavras;
+        cardinalidade = outro.cardinalidade;
+    }
+
+    /**
+     * Remove todos os bits.
+     */
+    public void limpar() {
+        usadas = 0;
+        ultimoMarcador = -1;
+        totalPalavras = 0;
+        cardinalidade = 0;
+    }
+
+    /**
+     * Acrescenta {@code quantidade} palavras uniformes ao fim.
+     */
+    private void adicionarSequencia(boolean valor, int quantidade) {
+        while (quantidade > 0) {
+            long marcador = ultimoMarcador < 0 ? 0 : palavras[ultimoMarcador];
+            boolean podeEstender = ultimoMarcador >= 0 && literais(marcador) == 0
+                    && (sequencia(marcador) == 0 || bit(marcador) == valor)
+                    && sequencia(marcador) < MAXIMO_SEQUENCIA;
+            if (!podeEstender) {
+                novoMarcador();
+                marcador = 0;
+            }
+            int cabe = (int) Math.min(quantidade, MAXIMO_SEQUENCIA - sequencia(marcador));
+            palavras[ultimoMarcador] = montar(valor, sequencia(marcador) + cabe, 0);
+            totalPalavras += cabe;
+            quantidade -= cabe;
+        }
+    }
+
+    /**
+     * Acrescenta uma palavra ao fim, como sequência se for uniforme.
+     */
+    private void adicionarPalavra(long w) {
+        if (w == 0 || w == -1L) {
+            adicionarSequencia(w == -1L, 1);
+            return;
+        }
+        if (ultimoMarcador < 0 || literais(palavras[ultimoMarcador]) >= MAXIMO_LITERAIS) {
+            novoMarcador();
+        }
+        long marcador = palavras[ultimoMarcador];
+        palavras[ultimoMarcador] = montar(bit(marcador), sequencia(marcador), literais(marcador) + 1);
+        garantir(1);
+        palavras[usadas++] = w;
+        totalPalavras++;
+    }
+
+    private void removerUltimaLiteral() {
+        long marcador = palavras[ultimoMarcador];
+        palavras[ultimoMarcador] = montar(bit(marcador), sequencia(marcador), literais(marcador) - 1);
+        usadas--;
+        totalPalavras--;
+        if (sequencia(palavras[ultimoMarcador]) == 0 && literais(palavras[ultimoMarcador]) == 0) {
+            usadas--;
+            ultimoMarcador = encontrarMarcadorAnterior();
+        }
+    }
+
+    private int encontrarMarcadorAnterior() {
+        int anterior = -1;
+        int p = 0;
+        while (p < usadas) {
+            anterior = p;
+            p += 1 + literais(palavras[p]);
+        }
+        return anterior;
+    }
+
+    private void novoMarcador() {
+        garantir(1);
+        ultimoMarcador = usadas;
+        palavras[usadas++] = 0;
+    }
+
+    private long[] descomprimir() {
+        long[] saida = new long[totalPalavras];
+        int palavra = 0;
+        int p = 0;
+        while (p < usadas) {
+            long marcador = palavras[p++];
+            int sequencia = sequencia(marcador);
+            if (bit(marcador)) {
+                Arrays.fill(saida, palavra, palavra + sequencia, -1L);
+            }
+            palavra += sequencia;
+            int literais = literais(marcador);
+            System.arraycopy(palavras, p, saida, palavra, literais);
+            palavra += literais;
+            p += literais;
+        }
+        return saida;
+    }
+
+    private void reconstruir(long[] descomprimido) {
+        limpar();
+        for (long w : descomprimido) {
+            adicionarPalavra(w);
+            cardinalidade += Long.bitCount(w);
+        }
+    }
+
+    private void garantir(int n) {
+        if (usadas + n > palavras.length) {
+            palavras = Arrays.copyOf(palavras, Math.max(Math.max(palavras.length * 2, 4), usadas + n));
+        }
+    }
+
+    private static long montar(boolean valor, long sequencia, long literais) {
+        return (valor ? 1L : 0L) | (sequencia << 1) | (literais << 32);
+    }
+
+    private static boolean bit(long marcador) {
+        return (marcador & 1) != 0;
+    }
+
+    private static int sequencia(long marcador) {
+        return (int) ((marcador >>> 1) & MAXIMO_SEQUENCIA);
+    }
+
+    private static int literais(long marcador) {
+        return (int) ((marcador >>> 32) & MAXIMO_LITERAIS);
+    }
+
+    /**
+     * Quantidade de posições comuns aos intervalos {@code [a, b)} e {@code [c, d)}.
+     */
+    private static long sobreposicao(long a, long b, long c, long d) {
+        return Math.max(0, Math.min(b, d) - Math.max(a, c));
+    }
+
+    /**
+     * Máscara dos bits da palavra que começa em {@code base} e caem em
+     * {@code [inicio, fim)}.
+     */
+    private static long mascaraIntervalo(long base, int inicio, int fim) {
+        long mascara = -1L;
+        if (inicio > base) {
+            mascara &= -1L << (inicio - base);
+        }
+        if (fim < base + 64) {
+            mascara &= -1L >>> (64 - (fim - base));
+        }
+        return mascara;
+    }
+
+    /**
+     * Maior sequência de uns dentro de uma palavra: cada passo de
+     * {@code x & (x << 1)} encurta todas as sequências em um bit.
+     */
+    private static int maiorSequenciaInterna(long w) {
+        int passos = 0;
+        while (w != 0) {
+            w &= w << 1;
+            passos++;
+        }
+        return passos;
+    }
+}
@@ -0,0 +1,195 @@
+package cicloo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Histograma de valores inteiros não negativos em baldes log-lineares, no
+ * estilo do HdrHistogram: os valores menores que 64 têm um balde cada, e cada
+ * potência de dois acima disso é dividida em 32 baldes de mesma largura. O
+ * valor de um balde difere dos valores contados nele em menos de 1/32 (cerca
+ * de 3%), e todo o intervalo dos {@code int} cabe em 864 baldes.
+ * <p>
+ * Registrar e remover custam O(1). Um percentil percorre os baldes até o
+ * maior ocupado, no máximo 864, então o custo não depende de quantos valores
+ * foram registrados. Dois histogramas são somados balde a balde
+ * ({@link #acumular}), o que permite que threads diferentes preencham
+ * histogramas próprios e os combinem ao final.
+ * </p>
+ * Esta classe não é sincronizada.
+ *
+ * @author Eric
+ */
+public class Histograma {
+
+    /**
+     * Um balde ocupado do histograma.
+     *
+     * @param menor o menor valor do balde.
+     * @param maior o maior valor do balde.
+     * @param quantidade quantos valores foram contados nele.
+     */
+    public record Faixa(int menor, int maior, long quantidade) {}
+
+    /**
+     * Bits exatos: valores abaixo de {@code 1 << BITS} têm balde próprio, e
+     * cada potência de dois acima tem {@code 1 << (BITS - 1)} baldes.
+     */
+    private static final int BITS = 6;
+    private static final int METADE = 1 << (BITS - 1);
+    private static final int BALDES = (1 << BITS) + (Integer.SIZE - 1 - BITS) * METADE;
+
+    private final long[] contagens = new long[BALDES];
+    private long total;
+    private int maiorOcupado = -1;
+
+    /**
+     * Conta o valor uma vez.
+     *
+     * @param valor o valor.
+     * @throws IllegalArgumentException se o valor for negativo.
+     */
+    public void registrar(int valor) {
+        registrar(valor, 1);
+    }
+
+    /**
+     * Conta o valor várias vezes.
+     *
+     * @param valor o valor.
+     * @param vezes quantas vezes.
+     * @throws IllegalArgumentException se o valor ou as vezes forem negativos.
+     */
+    public void registrar(int valor, long vezes) {
+        if (vezes < 0) {
+            throw new IllegalArgumentException("Quantidade não pode ser negativa");
+        }
+        int i = indice(valor);
+        contagens[i] += vezes;
+        total += vezes;
+        if (vezes > 0 && i > maiorOcupado) {
+            maiorOcupado = i;
+        }
+    }
+
+    /**
+     * Desconta uma ocorrência do valor. Se o balde dele estiver vazio, nada
+     * muda: as contagens nunca ficam negativas, e quem remove decide o que
+     * fazer com a inconsistência.
+     *
+     * @param valor o valor.
+     * @return {@code false} se o balde do valor estava vazio.
+     * @throws IllegalArgumentException se o valor for negativo.
+     */
+    public boolean remover(int valor) {
+        int i = indice(valor);
+        if (contagens[i] == 0) {
+            return false;
+        }
+        contagens[i]--;
+        total--;
+        while (maiorOcupado >= 0 && contagens[maiorOcupado] == 0) {
+            maiorOcupado--;
+        }
+        return true;
+    }
+
+    /**
+     * @return quantos valores estão contados.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Retorna o menor valor tal que ao menos {@code percentil}% dos valores
+     * contados são menores ou iguais a ele, arredondado para o maior valor do
+     * seu balde. Percorre os baldes até o maior ocupado, no máximo 864,
+     * qualquer que seja o total de valores.
+     *
+     * @param percentil de 0 a 100, por exemplo 50, 90 ou 99.
+     * @return o valor, ou 0 se o histograma estiver vazio.
+     * @throws IllegalArgumentException se o percentil estiver fora de 0 a 100.
+     */
+    public int percentil(double percentil) {
+        if (!(percentil >= 0 && percentil <= 100)) {
+            throw new IllegalArgumentException("Percentil deve estar entre 0 e 100");
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(percentil / 100 * total));
+        long acumulado = 0;
+        for (int i = 0; i < maiorOcupado; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= alvo) {
+                return maiorDoBalde(i);
+            }
+        }
+        return maiorDoBalde(maiorOcupado);
+    }
+
+    /**
+     * @return os baldes ocupados, do menor valor para o maior.
+     */
+    public List<Faixa> faixas() {
+        List<Faixa> faixas = new ArrayList<>();
+        for (int i = 0; i <= maiorOcupado; i++) {
+            if (contagens[i] > 0) {
+                faixas.add(new Faixa(menorDoBalde(i), maiorDoBalde(i), contagens[i]));
+            }
+        }
+        return faixas;
+    }
+
+    /**
+     * Soma a este histograma as contagens de outro.
+     *
+     * @param outro o outro histograma.
+     */
+    public void acumular(Histograma outro) {
+        for (int i = 0; i <= outro.maiorOcupado; i++) {
+            contagens[i] += outro.contagens[i];
+        }
+        total += outro.total;
+        maiorOcupado = Math.max(maiorOcupado, outro.maiorOcupado);
+    }
+
+    /**
+     * @return um histograma novo com as mesmas contagens.
+     */
+    public Histograma copia() {
+        Histograma copia = new Histograma();
+        copia.acumular(this);
+        return copia;
+    }
+
+    private static int indice(int valor) {
+        if (valor < 0) {
+            throw new IllegalArgumentException("Valor não pode ser negativo");
+        }
+        if (valor < (1 << BITS)) {
+            return valor;
+        }
+        // Desloca o valor até sobrarem BITS bits: o balde é o deslocamento
+        // (a potência de dois) mais os bits que sobraram.
+        int deslocamento = Integer.SIZE - BITS - Integer.numberOfLeadingZeros(valor);
+        return deslocamento * METADE + (valor >>> deslocamento);
+    }
+
+    private static int menorDoBalde(int indice) {
+        if (indice < (1 << BITS)) {
+            return indice;
+        }
+        int deslocamento = indice / METADE - 1;
+        return (indice - deslocamento * METADE) << deslocamento;
+    }
+
+    private static int maiorDoBalde(int indice) {
+        if (indice < (1 << BITS)) {
+            return indice;
+        }
+        int deslocamento = indice / METADE - 1;
+        return menorDoBalde(indice) + ((1 << deslocamento) - 1);
+    }
+}
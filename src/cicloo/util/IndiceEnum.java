@@ -0,0 +1,81 @@
+package cicloo.util;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Índice secundário de IDs por valor de um enum.
+ * <p>
+ * Cada constante do enum tem um {@link BitSet} em que o bit {@code id} está
+ * ligado quando o objeto com esse ID pertence à constante. Filtros por vários
+ * atributos são resolvidos intersectando os conjuntos, sem percorrer os
+ * objetos.
+ * </p>
+ *
+ * @param <E> o tipo do enum indexado.
+ *
+ * @author Eric
+ */
+public class IndiceEnum<E extends Enum<E>> {
+
+    private final Map<E, BitSet> baldes;
+
+    /**
+     * Cria o índice com um conjunto vazio para cada constante do enum.
+     *
+     * @param tipo a classe do enum.
+     */
+    public IndiceEnum(Class<E> tipo) {
+        this.baldes = new EnumMap<>(tipo);
+        for (E valor : tipo.getEnumConstants()) {
+            baldes.put(valor, new BitSet());
+        }
+    }
+
+    /**
+     * Registra o ID sob o valor informado.
+     *
+     * @param valor a constante do enum.
+     * @param id o ID do objeto.
+     */
+    public void indexar(E valor, int id) {
+        baldes.get(valor).set(id);
+    }
+
+    /**
+     * Retira o ID de todos os valores. Como o número de constantes é pequeno,
+     * não é preciso saber sob qual valor o ID foi indexado, o que permite
+     * reindexar mesmo quando o objeto já foi alterado.
+     *
+     * @param id o ID do objeto.
+     */
+    public void desindexar(int id) {
+        for (BitSet ids : baldes.values()) {
+            ids.clear(id);
+        }
+    }
+
+    /**
+     * Retira vários IDs de todos os valores, com uma operação por valor em vez
+     * de uma por ID.
+     *
+     * @param ids os IDs dos objetos.
+     */
+    public void desindexarTodos(BitSet ids) {
+        for (BitSet doValor : baldes.values()) {
+            doValor.andNot(ids);
+        }
+    }
+
+    /**
+     * Retorna o conjunto de IDs do valor. O conjunto é o próprio índice e não
+     * deve ser alterado.
+     *
+     * @param valor a constante do enum.
+     * @return os IDs indexados sob o valor.
+     */
+    public BitSet ids(E valor) {
+        return baldes.get(valor);
+    }
+}
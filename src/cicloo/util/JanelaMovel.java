@@ -0,0 +1,146 @@
+package cicloo.util;
+
+import java.util.Arrays;
+
+/**
+ * Contagens por dia dos últimos dias, com as somas de algumas janelas móveis
+ * (por exemplo 7, 30 e 90 dias) sempre prontas.
+ * <p>
+ * As contagens ficam em um vetor circular do tamanho da maior janela, indexado
+ * pelo dia módulo esse tamanho. Cada janela tem uma soma corrente: ao avançar
+ * um dia, cada soma perde a contagem do dia que saiu dela, e a posição do dia
+ * que saiu da maior janela é reaproveitada para o novo dia. Avançar um dia
+ * custa O(janelas), registrar custa O(janelas) e ler uma soma custa O(1), sem
+ * reler os dias guardados.
+ * </p>
+ * Os dias são números inteiros, por exemplo dias desde a época. Esta classe
+ * não é sincronizada.
+ *
+ * @author Eric
+ */
+public class JanelaMovel {
+
+    private final int[] tamanhos;
+    private final long[] somas;
+    private final int[] contagens;
+    private long hoje;
+
+    /**
+     * Cria uma janela vazia terminando no dia informado.
+     *
+     * @param hoje o dia atual.
+     * @param tamanhos os tamanhos das janelas, em dias, em ordem crescente.
+     * @throws IllegalArgumentException se não houver tamanhos, algum não for
+     * positivo ou eles não estiverem em ordem crescente.
+     */
+    public JanelaMovel(long hoje, int... tamanhos) {
+        if (tamanhos.length == 0) {
+            throw new IllegalArgumentException("Informe ao menos um tamanho de janela");
+        }
+        for (int i = 0; i < tamanhos.length; i++) {
+            if (tamanhos[i] < 1 || (i > 0 && tamanhos[i] <= tamanhos[i - 1])) {
+                throw new IllegalArgumentException("Tamanhos devem ser positivos e crescentes");
+            }
+        }
+        this.tamanhos = tamanhos.clone();
+        this.somas = new long[tamanhos.length];
+        this.contagens = new int[tamanhos[tamanhos.length - 1]];
+        this.hoje = hoje;
+    }
+
+    /**
+     * @return o dia atual da janela.
+     */
+    public long getHoje() {
+        return hoje;
+    }
+
+    /**
+     * Avança a janela até o dia informado, descartando os dias que saem de
+     * cada janela. Um dia anterior ao atual não tem efeito.
+     *
+     * @param dia o novo dia atual.
+     */
+    public void avancarAte(long dia) {
+        if (dia <= hoje) {
+            return;
+        }
+        if (dia - hoje >= contagens.length) {
+            Arrays.fill(contagens, 0);
+            Arrays.fill(somas, 0);
+            hoje = dia;
+            return;
+        }
+        while (hoje < dia) {
+            hoje++;
+            for (int i = 0; i < tamanhos.length; i++) {
+                somas[i] -= contagens[posicao(hoje - tamanhos[i])];
+            }
+            // A posição de hoje é a do dia que acabou de sair da maior janela.
+            contagens[posicao(hoje)] = 0;
+        }
+    }
+
+    /**
+     * Soma uma quantidade à contagem do dia, avançando a janela se o dia for
+     * posterior ao atual. Dias que já saíram da maior janela são ignorados.
+     *
+     * @param dia o dia.
+     * @param quantidade a quantidade (pode ser negativa, para desfazer).
+     */
+    public void registrar(long dia, int quantidade) {
+        avancarAte(dia);
+        long idade = hoje - dia;
+        if (idade >= contagens.length) {
+            return;
+        }
+        contagens[posicao(dia)] += quantidade;
+        for (int i = 0; i < tamanhos.length; i++) {
+            if (idade < tamanhos[i]) {
+                somas[i] += quantidade;
+            }
+        }
+    }
+
+    /**
+     * Soma (ou subtrai) a esta janela todas as contagens de outra com os
+     * mesmos tamanhos, alinhando as duas no dia mais recente.
+     *
+     * @param outra a outra janela.
+     * @param sinal 1 para somar, -1 para subtrair.
+     * @throws IllegalArgumentException se os tamanhos forem diferentes.
+     */
+    public void acumular(JanelaMovel outra, int sinal) {
+        if (!Arrays.equals(tamanhos, outra.tamanhos)) {
+            throw new IllegalArgumentException("Janelas com tamanhos diferentes");
+        }
+        long dia = Math.max(hoje, outra.hoje);
+        avancarAte(dia);
+        outra.avancarAte(dia);
+        for (int i = 0; i < contagens.length; i++) {
+            contagens[i] += sinal * outra.contagens[i];
+        }
+        for (int i = 0; i < somas.length; i++) {
+            somas[i] += sinal * outra.somas[i];
+        }
+    }
+
+    /**
+     * Soma das contagens da janela de {@code tamanho} dias terminada hoje.
+     *
+     * @param tamanho um dos tamanhos informados na criação.
+     * @return a soma.
+     * @throws IllegalArgumentException se o tamanho não for de uma das janelas.
+     */
+    public long soma(int tamanho) {
+        int i = Arrays.binarySearch(tamanhos, tamanho);
+        if (i < 0) {
+            throw new IllegalArgumentException("Janela de " + tamanho + " dias não mantida");
+        }
+        return somas[i];
+    }
+
+    private int posicao(long dia) {
+        return (int) Math.floorMod(dia, (long) contagens.length);
+    }
+}
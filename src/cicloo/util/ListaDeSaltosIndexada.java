@@ -0,0 +1,247 @@
+package cicloo.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Lista de saltos (skip list) ordenada e indexada: além de inserir, remover e
+ * buscar em O(log n) esperado, informa a posição de um elemento e acessa o
+ * elemento de uma posição também em O(log n).
+ * <p>
+ * Cada ligação guarda quantos elementos ela salta no nível 0. Somando os
+ * saltos percorridos na descida obtém-se a posição de um elemento, e descendo
+ * enquanto o salto não ultrapassa a posição procurada chega-se ao elemento de
+ * uma posição. Os {@code k} primeiros a partir de uma posição custam
+ * O(log n + k).
+ * </p>
+ * Os elementos são distintos segundo o comparador: dois elementos que
+ * comparam como iguais não podem estar na lista ao mesmo tempo. Esta classe
+ * não é sincronizada.
+ *
+ * @param <T> o tipo dos elementos.
+ *
+ * @author Eric
+ */
+public class ListaDeSaltosIndexada<T> {
+
+    private static final int NIVEL_MAXIMO = 17;
+
+    private static final class No<T> {
+        final T valor;
+        final No<T>[] proximos;
+        final int[] saltos;
+
+        No(T valor, int niveis) {
+            this.valor = valor;
+            this.proximos = novos(niveis);
+            this.saltos = new int[niveis];
+        }
+
+        static <T> No<T>[] novos(int quantidade) {
+            @SuppressWarnings("unchecked")
+            No<T>[] nos = (No<T>[]) new No<?>[quantidade];
+            return nos;
+        }
+    }
+
+    private final Comparator<? super T> comparador;
+    private final No<T> cabeca = new No<>(null, NIVEL_MAXIMO);
+    private int niveis = 1;
+    private int tamanho;
+
+    /**
+     * Cria uma lista vazia ordenada pelo comparador.
+     *
+     * @param comparador a ordem dos elementos.
+     * @throws IllegalArgumentException se o comparador for {@code null}.
+     */
+    public ListaDeSaltosIndexada(Comparator<? super T> comparador) {
+        if (comparador == null) {
+            throw new IllegalArgumentException("Comparador não pode ser nulo");
+        }
+        this.comparador = comparador;
+    }
+
+    /**
+     * @return quantidade de elementos.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return {@code true} se não houver elementos.
+     */
+    public boolean estaVazia() {
+        return tamanho == 0;
+    }
+
+    /**
+     * Insere o elemento na sua posição.
+     *
+     * @param valor o elemento.
+     * @return {@code false} se já havia um elemento igual, que é mantido.
+     */
+    public boolean inserir(T valor) {
+        No<T>[] anteriores = No.novos(NIVEL_MAXIMO);
+        int[] posicoes = new int[NIVEL_MAXIMO];
+        No<T> no = cabeca;
+        int posicao = 0;
+        for (int nivel = niveis - 1; nivel >= 0; nivel--) {
+            while (no.proximos[nivel] != null && comparador.compare(no.proximos[nivel].valor, valor) < 0) {
+                posicao += no.saltos[nivel];
+                no = no.proximos[nivel];
+            }
+            anteriores[nivel] = no;
+            posicoes[nivel] = posicao;
+        }
+        if (no.proximos[0] != null && comparador.compare(no.proximos[0].valor, valor) == 0) {
+            return false;
+        }
+
+        int alturaNova = sortearAltura();
+        if (alturaNova > niveis) {
+            for (int nivel = niveis; nivel < alturaNova; nivel++) {
+                anteriores[nivel] = cabeca;
+                posicoes[nivel] = 0;
+                cabeca.saltos[nivel] = tamanho;
+            }
+            niveis = alturaNova;
+        }
+
+        No<T> novo = new No<>(valor, alturaNova);
+        for (int nivel = 0; nivel < alturaNova; nivel++) {
+            No<T> anterior = anteriores[nivel];
+            int distancia = posicao - posicoes[nivel];
+            novo.proximos[nivel] = anterior.proximos[nivel];
+            novo.saltos[nivel] = anterior.saltos[nivel] - distancia;
+            anterior.proximos[nivel] = novo;
+            anterior.saltos[nivel] = distancia + 1;
+        }
+        for (int nivel = alturaNova; nivel < niveis; nivel++) {
+            anteriores[nivel].saltos[nivel]++;
+        }
+        tamanho++;
+        return true;
+    }
+
+    /**
+     * Remove o elemento igual ao informado, se houver.
+     *
+     * @param valor o elemento.
+     * @return {@code true} se o elemento estava na lista.
+     */
+    public boolean remover(T valor) {
+        No<T>[] anteriores = No.novos(NIVEL_MAXIMO);
+        No<T> no = cabeca;
+        for (int nivel = niveis - 1; nivel >= 0; nivel--) {
+            while (no.proximos[nivel] != null && comparador.compare(no.proximos[nivel].valor, valor) < 0) {
+                no = no.proximos[nivel];
+            }
+            anteriores[nivel] = no;
+        }
+        No<T> alvo = no.proximos[0];
+        if (alvo == null || comparador.compare(alvo.valor, valor) != 0) {
+            return false;
+        }
+        for (int nivel = 0; nivel < niveis; nivel++) {
+            No<T> anterior = anteriores[nivel];
+            if (anterior.proximos[nivel] == alvo) {
+                anterior.proximos[nivel] = alvo.proximos[nivel];
+                anterior.saltos[nivel] += alvo.saltos[nivel] - 1;
+            } else {
+                anterior.saltos[nivel]--;
+            }
+        }
+        while (niveis > 1 && cabeca.proximos[niveis - 1] == null) {
+            cabeca.saltos[niveis - 1] = 0;
+            niveis--;
+        }
+        tamanho--;
+        return true;
+    }
+
+    /**
+     * Retorna a posição do elemento igual ao informado.
+     *
+     * @param valor o elemento.
+     * @return a posição, a partir de 0, ou {@code -1} se não estiver na lista.
+     */
+    public int posicao(T valor) {
+        No<T> no = cabeca;
+        int posicao = 0;
+        for (int nivel = niveis - 1; nivel >= 0; nivel--) {
+            while (no.proximos[nivel] != null && comparador.compare(no.proximos[nivel].valor, valor) < 0) {
+                posicao += no.saltos[nivel];
+                no = no.proximos[nivel];
+            }
+        }
+        No<T> alvo = no.proximos[0];
+        if (alvo == null || comparador.compare(alvo.valor, valor) != 0) {
+            return -1;
+        }
+        return posicao;
+    }
+
+    /**
+     * Retorna o elemento da posição informada.
+     *
+     * @param posicao a posição, a partir de 0.
+     * @return o elemento.
+     * @throws IndexOutOfBoundsException se a posição não existir.
+     */
+    public T obter(int posicao) {
+        return noNaPosicao(posicao).valor;
+    }
+
+    /**
+     * Retorna até {@code quantidade} elementos a partir da posição informada,
+     * em ordem.
+     *
+     * @param inicio a primeira posição, a partir de 0.
+     * @param quantidade a quantidade máxima de elementos.
+     * @return os elementos; vazia se o início passar do fim.
+     * @throws IllegalArgumentException se o início ou a quantidade forem
+     * negativos.
+     */
+    public List<T> faixa(int inicio, int quantidade) {
+        if (inicio < 0 || quantidade < 0) {
+            throw new IllegalArgumentException("Início e quantidade não podem ser negativos");
+        }
+        List<T> resultado = new ArrayList<>(Math.min(quantidade, Math.max(tamanho - inicio, 0)));
+        if (inicio >= tamanho) {
+            return resultado;
+        }
+        for (No<T> no = noNaPosicao(inicio); no != null && resultado.size() < quantidade; no = no.proximos[0]) {
+            resultado.add(no.valor);
+        }
+        return resultado;
+    }
+
+    private No<T> noNaPosicao(int posicao) {
+        if (posicao < 0 || posicao >= tamanho) {
+            throw new IndexOutOfBoundsException("Posição " + posicao + " fora de 0.." + (tamanho - 1));
+        }
+        // A cabeça está antes da posição 0; o alvo está posicao + 1 saltos à frente.
+        int restante = posicao + 1;
+        No<T> no = cabeca;
+        for (int nivel = niveis - 1; nivel >= 0; nivel--) {
+            while (no.proximos[nivel] != null && no.saltos[nivel] <= restante) {
+                restante -= no.saltos[nivel];
+                no = no.proximos[nivel];
+            }
+        }
+        return no;
+    }
+
+    /**
+     * Altura de um novo nó: cada nível a mais tem 1/4 de chance.
+     */
+    private static int sortearAltura() {
+        // Dois bits zerados por nível: no máximo 17 níveis, suficientes para
+        // bilhões de elementos.
+        return 1 + Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt()) / 2;
+    }
+}
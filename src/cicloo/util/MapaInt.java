@@ -0,0 +1,559 @@
+package cicloo.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Mapa de chaves {@code int} primitivas para valores, sem boxing das chaves.
+ * <p>
+ * Os pares ficam em vetores densos, na ordem de inserção, e uma tabela de
+ * espalhamento com endereçamento aberto (sondagem linear) guarda a posição de
+ * cada chave nesses vetores. Assim, busca, inserção e remoção custam O(1)
+ * amortizado e a iteração segue a ordem em que as chaves foram inseridas.
+ * </p>
+ * <p>
+ * Enquanto as chaves novas chegam em ordem crescente (o caso dos IDs gerados
+ * pelas DAOs), a ordem de inserção coincide com a ordem das chaves e
+ * {@link #copiarApos} localiza o início de uma página por busca binária.
+ * </p>
+ * Valores {@code null} não são aceitos.
+ *
+ * @param <V> o tipo dos valores armazenados.
+ *
+ * @author Eric
+ */
+public class MapaInt<V> {
+
+    /**
+     * Marca de posição livre na tabela de espalhamento.
+     */
+    private static final int LIVRE = -1;
+
+    /**
+     * Capacidade mínima dos vetores densos.
+     */
+    private static final int CAPACIDADE_MINIMA = 16;
+
+    /**
+     * Tabela de espalhamento: cada posição guarda o índice do par nos vetores
+     * densos, ou {@link #LIVRE}. Tem sempre o dobro da capacidade densa.
+     */
+    private int[] tabela;
+
+    /**
+     * Chaves na ordem de inserção.
+     */
+    private int[] chaves;
+
+    /**
+     * Valores na ordem de inserção; {@code null} marca um par removido.
+     */
+    private Object[] valores;
+
+    /**
+     * Quantidade de posições densas já ocupadas (inclui removidas).
+     */
+    private int usados;
+
+    /**
+     * Quantidade de pares válidos.
+     */
+    private int tamanho;
+
+    /**
+     * Contador de alterações estruturais, usado pelos iteradores.
+     */
+    private int modificacoes;
+
+    /**
+     * Indica que as chaves dos vetores densos estão em ordem crescente.
+     */
+    private boolean ordenado = true;
+
+    /**
+     * Visão dos valores, criada uma única vez.
+     */
+    private Collection<V> visaoValores;
+
+    /**
+     * Cria um mapa vazio com a capacidade mínima.
+     */
+    public MapaInt() {
+        this(CAPACIDADE_MINIMA);
+    }
+
+    /**
+     * Cria um mapa vazio capaz de guardar {@code capacidade} pares sem crescer.
+     *
+     * @param capacidade quantidade esperada de pares.
+     */
+    public MapaInt(int capacidade) {
+        int cap = potenciaDeDois(Math.max(capacidade, CAPACIDADE_MINIMA));
+        this.chaves = new int[cap];
+        this.valores = new Object[cap];
+        this.tabela = new int[cap * 2];
+        Arrays.fill(tabela, LIVRE);
+    }
+
+    /**
+     * Retorna o valor associado à chave.
+     *
+     * @param chave a chave procurada.
+     * @return o valor, ou {@code null} se a chave não existir.
+     */
+    @SuppressWarnings("unchecked")
+    public V obter(int chave) {
+        int slot = localizar(chave);
+        return slot == LIVRE ? null : (V) valores[tabela[slot]];
+    }
+
+    /**
+     * Verifica se a chave está presente.
+     *
+     * @param chave a chave procurada.
+     * @return {@code true} se existir um valor para a chave.
+     */
+    public boolean contem(int chave) {
+        return localizar(chave) != LIVRE;
+    }
+
+    /**
+     * Associa o valor à chave. Se a chave já existir, o valor é substituído
+     * mantendo a posição original na ordem de iteração.
+     *
+     * @param chave a chave.
+     * @param valor o valor (não nulo).
+     * @return o valor anterior, ou {@code null} se a chave era nova.
+     * @throws IllegalArgumentException se o valor for {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V colocar(int chave, V valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("Valor não pode ser nulo");
+        }
+        int slot = localizar(chave);
+        if (slot != LIVRE) {
+            int pos = tabela[slot];
+            V anterior = (V) valores[pos];
+            valores[pos] = valor;
+            return anterior;
+        }
+        if (usados == chaves.length) {
+            abrirEspaco(1);
+        }
+        int pos = usados++;
+        if (pos > 0 && chaves[pos - 1] >= chave) {
+            ordenado = false;
+        }
+        chaves[pos] = chave;
+        valores[pos] = valor;
+        inserirNaTabela(chave, pos);
+        tamanho++;
+        modificacoes++;
+        return null;
+    }
+
+    /**
+     * Remove a chave do mapa.
+     *
+     * @param chave a chave a remover.
+     * @return o valor removido, ou {@code null} se a chave não existia.
+     */
+    @SuppressWarnings("unchecked")
+    public V remover(int chave) {
+        int slot = localizar(chave);
+        if (slot == LIVRE) {
+            return null;
+        }
+        int pos = tabela[slot];
+        V anterior = (V) valores[pos];
+        valores[pos] = null;
+        liberarSlot(slot);
+        tamanho--;
+        modificacoes++;
+        if (tamanho == 0) {
+            usados = 0;
+            ordenado = true;
+        }
+        return anterior;
+    }
+
+    /**
+     * Garante espaço para mais {@code quantidade} inserções sem realocar.
+     *
+     * @param quantidade número de inserções previstas.
+     */
+    public void reservar(int quantidade) {
+        if (quantidade > chaves.length - usados) {
+            abrirEspaco(quantidade);
+        }
+    }
+
+    /**
+     * Remove todos os pares.
+     */
+    public void limpar() {
+        Arrays.fill(valores, 0, usados, null);
+        Arrays.fill(tabela, LIVRE);
+        usados = 0;
+        tamanho = 0;
+        ordenado = true;
+        modificacoes++;
+    }
+
+    /**
+     * @return quantidade de pares no mapa.
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return {@code true} se o mapa não tiver pares.
+     */
+    public boolean estaVazio() {
+        return tamanho == 0;
+    }
+
+    /**
+     * Retorna uma visão somente leitura dos valores, na ordem de inserção.
+     * A visão é criada uma única vez e reflete as alterações do mapa.
+     *
+     * @return coleção com os valores do mapa.
+     */
+    public Collection<V> valores() {
+        if (visaoValores == null) {
+            visaoValores = new VisaoValores();
+        }
+        return visaoValores;
+    }
+
+    /**
+     * Copia para {@code destino} os valores das menores chaves maiores que
+     * {@code chave}, em ordem crescente de chave, até o limite informado.
+     * É a base da paginação por cursor: a última chave de uma página é o
+     * cursor da página seguinte.
+     * <p>
+     * Com as chaves em ordem o início é encontrado por busca binária e a cópia
+     * custa O(log n + limite); caso contrário as chaves são percorridas e
+     * ordenadas.
+     * </p>
+     *
+     * @param chave o cursor; só entram chaves estritamente maiores.
+     * @param limite quantidade máxima de valores copiados.
+     * @param destino lista que recebe os valores.
+     * @return {@code true} se ainda houver chaves depois das copiadas.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean copiarApos(int chave, int limite, List<? super V> destino) {
+        if (limite < 0) {
+            throw new IllegalArgumentException("Limite não pode ser negativo");
+        }
+        if (!ordenado) {
+            return copiarAposDesordenado(chave, limite, destino);
+        }
+        int pos = primeiraPosicaoApos(chave);
+        int copiados = 0;
+        for (; pos < usados; pos++) {
+            if (valores[pos] == null) {
+                continue;
+            }
+            if (copiados == limite) {
+                return true;
+            }
+            destino.add((V) valores[pos]);
+            copiados++;
+        }
+        return false;
+    }
+
+    /**
+     * Busca binária pela primeira posição densa cuja chave é maior que
+     * {@code chave}. As posições removidas mantêm a chave antiga, que continua
+     * respeitando a ordem.
+     */
+    private int primeiraPosicaoApos(int chave) {
+        int baixo = 0;
+        int alto = usados;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (chaves[meio] <= chave) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    private boolean copiarAposDesordenado(int chave, int limite, List<? super V> destino) {
+        int[] candidatas = new int[tamanho];
+        int n = 0;
+        for (int i = 0; i < usados; i++) {
+            if (valores[i] != null && chaves[i] > chave) {
+                candidatas[n++] = chaves[i];
+            }
+        }
+        Arrays.sort(candidatas, 0, n);
+        int copiados = Math.min(n, limite);
+        for (int i = 0; i < copiados; i++) {
+            destino.add(obter(candidatas[i]));
+        }
+        return n > copiados;
+    }
+
+    /**
+     * Procura a posição da chave na tabela de espalhamento.
+     *
+     * @param chave a chave procurada.
+     * @return o índice na tabela, ou {@link #LIVRE} se não encontrada.
+     */
+    private int localizar(int chave) {
+        int mascara = tabela.length - 1;
+        int slot = espalhar(chave) & mascara;
+        while (true) {
+            int pos = tabela[slot];
+            if (pos == LIVRE) {
+                return LIVRE;
+            }
+            if (chaves[pos] == chave) {
+                return slot;
+            }
+            slot = (slot + 1) & mascara;
+        }
+    }
+
+    /**
+     * Grava a posição densa de uma chave nova na tabela de espalhamento.
+     */
+    private void inserirNaTabela(int chave, int pos) {
+        int mascara = tabela.length - 1;
+        int slot = espalhar(chave) & mascara;
+        while (tabela[slot] != LIVRE) {
+            slot = (slot + 1) & mascara;
+        }
+        tabela[slot] = pos;
+    }
+
+    /**
+     * Libera um slot da tabela deslocando para trás os elementos seguintes do
+     * mesmo agrupamento, para que a sondagem linear continue correta sem
+     * marcadores de remoção.
+     */
+    private void liberarSlot(int slot) {
+        int mascara = tabela.length - 1;
+        int vazio = slot;
+        int atual = slot;
+        while (true) {
+            atual = (atual + 1) & mascara;
+            int pos = tabela[atual];
+            if (pos == LIVRE) {
+                break;
+            }
+            int ideal = espalhar(chaves[pos]) & mascara;
+            boolean podeMover = vazio <= atual
+                    ? ideal <= vazio || ideal > atual
+                    : ideal <= vazio && ideal > atual;
+            if (podeMover) {
+                tabela[vazio] = pos;
+                vazio = atual;
+            }
+        }
+        tabela[vazio] = LIVRE;
+    }
+
+    /**
+     * Abre espaço nos vetores densos: compacta se houver muitos pares removidos,
+     * senão dobra a capacidade até caber o pedido.
+     */
+    private void abrirEspaco(int adicionais) {
+        int necessario = tamanho + adicionais;
+        int cap = chaves.length;
+        if (necessario > cap / 2 || usados - tamanho < cap / 4) {
+            while (cap < necessario * 2 && cap < (1 << 29)) {
+                cap <<= 1;
+            }
+        }
+        reconstruir(cap);
+    }
+
+    /**
+     * Reorganiza os vetores com a capacidade informada, descartando os pares
+     * removidos e mantendo a ordem de inserção.
+     */
+    private void reconstruir(int capacidade) {
+        int[] novasChaves = new int[capacidade];
+        Object[] novosValores = new Object[capacidade];
+        int n = 0;
+        boolean emOrdem = true;
+        for (int i = 0; i < usados; i++) {
+            if (valores[i] != null) {
+                if (n > 0 && novasChaves[n - 1] >= chaves[i]) {
+                    emOrdem = false;
+                }
+                novasChaves[n] = chaves[i];
+                novosValores[n] = valores[i];
+                n++;
+            }
+        }
+        ordenado = emOrdem;
+        chaves = novasChaves;
+        valores = novosValores;
+        usados = n;
+        if (tabela.length != capacidade * 2) {
+            tabela = new int[capacidade * 2];
+        }
+        Arrays.fill(tabela, LIVRE);
+        for (int i = 0; i < n; i++) {
+            inserirNaTabela(chaves[i], i);
+        }
+        modificacoes++;
+    }
+
+    /**
+     * Mistura os bits da chave para espalhar IDs sequenciais pela tabela.
+     */
+    private static int espalhar(int chave) {
+        int h = chave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int potenciaDeDois(int n) {
+        int p = Integer.highestOneBit(n);
+        return p == n ? n : p << 1;
+    }
+
+    /**
+     * Visão dos valores do mapa na ordem de inserção.
+     */
+    private final class VisaoValores extends AbstractCollection<V> {
+
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<V>() {
+                private int pos = avancar(0);
+                private final int esperado = modificacoes;
+
+                private int avancar(int i) {
+                    while (i < usados && valores[i] == null) {
+                        i++;
+                    }
+                    return i;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return pos < usados;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public V next() {
+                    if (esperado != modificacoes) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (pos >= usados) {
+                        throw new NoSuchElementException();
+                    }
+                    V v = (V) valores[pos];
+                    pos = avancar(pos + 1);
+                    return v;
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            return new DivisorValores(0, usados, modificacoes);
+        }
+
+        @Override
+        public int size() {
+            return tamanho;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return tamanho == 0;
+        }
+    }
+
+    /**
+     * Divisor sobre uma faixa dos vetores densos, sem cópia. Divide a faixa ao
+     * meio, o que permite percorrer os valores com streams paralelas. Falha
+     * rapidamente se o mapa sofrer alteração estrutural durante o percurso.
+     */
+    private final class DivisorValores implements Spliterator<V> {
+        private int pos;
+        private final int fim;
+        private final int esperado;
+
+        DivisorValores(int inicio, int fim, int esperado) {
+            this.pos = inicio;
+            this.fim = fim;
+            this.esperado = esperado;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> acao) {
+            while (pos < fim) {
+                V v = (V) valores[pos++];
+                if (v != null) {
+                    verificarModificacoes();
+                    acao.accept(v);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super V> acao) {
+            Object[] vetor = valores;
+            for (int i = pos; i < fim; i++) {
+                V v = (V) vetor[i];
+                if (v != null) {
+                    acao.accept(v);
+                }
+            }
+            pos = fim;
+            verificarModificacoes();
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            int meio = (pos + fim) >>> 1;
+            if (meio - pos < 1024) {
+                return null;
+            }
+            Spliterator<V> prefixo = new DivisorValores(pos, meio, esperado);
+            pos = meio;
+            return prefixo;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fim - pos;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+
+        private void verificarModificacoes() {
+            if (esperado != modificacoes) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
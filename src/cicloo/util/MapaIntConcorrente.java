@@ -0,0 +1,170 @@
+package cicloo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Versão segura para uso concorrente do {@link MapaInt}.
+ * <p>
+ * As chaves são distribuídas entre várias faixas ("stripes"), cada uma com seu
+ * próprio {@link MapaInt} e sua própria trava de leitura/escrita. Operações em
+ * chaves de faixas diferentes não disputam a mesma trava, e leituras na mesma
+ * faixa podem ocorrer em paralelo. Como toda escrita e leitura passa pela trava
+ * da faixa, os valores inseridos ficam visíveis de forma segura para as demais
+ * threads.
+ * </p>
+ *
+ * @param <V> o tipo dos valores armazenados.
+ *
+ * @author Eric
+ */
+public class MapaIntConcorrente<V> {
+
+    private final Faixa<V>[] faixas;
+    private final int mascara;
+
+    /**
+     * Cria um mapa com quatro faixas por processador disponível.
+     */
+    public MapaIntConcorrente() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Cria um mapa com ao menos {@code quantidadeFaixas} faixas (arredondado
+     * para a próxima potência de dois).
+     *
+     * @param quantidadeFaixas número desejado de faixas.
+     */
+    public MapaIntConcorrente(int quantidadeFaixas) {
+        int n = Integer.highestOneBit(Math.max(1, quantidadeFaixas - 1)) << 1;
+        @SuppressWarnings("unchecked")
+        Faixa<V>[] novas = (Faixa<V>[]) new Faixa<?>[n];
+        this.faixas = novas;
+        for (int i = 0; i < n; i++) {
+            faixas[i] = new Faixa<>();
+        }
+        this.mascara = n - 1;
+    }
+
+    /**
+     * Retorna o valor associado à chave.
+     *
+     * @param chave a chave procurada.
+     * @return o valor, ou {@code null} se não existir.
+     */
+    public V obter(int chave) {
+        Faixa<V> f = faixa(chave);
+        f.trava.readLock().lock();
+        try {
+            return f.mapa.obter(chave);
+        } finally {
+            f.trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Associa o valor à chave.
+     *
+     * @param chave a chave.
+     * @param valor o valor (não nulo).
+     * @return o valor anterior, ou {@code null}.
+     */
+    public V colocar(int chave, V valor) {
+        Faixa<V> f = faixa(chave);
+        f.trava.writeLock().lock();
+        try {
+            return f.mapa.colocar(chave, valor);
+        } finally {
+            f.trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a chave.
+     *
+     * @param chave a chave a remover.
+     * @return o valor removido, ou {@code null}.
+     */
+    public V remover(int chave) {
+        Faixa<V> f = faixa(chave);
+        f.trava.writeLock().lock();
+        try {
+            return f.mapa.remover(chave);
+        } finally {
+            f.trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Executa a ação sobre o valor da chave, se existir, segurando a trava de
+     * escrita da faixa. Útil para alterar o valor de forma atômica em relação
+     * às demais operações do mapa.
+     *
+     * @param chave a chave.
+     * @param acao a ação a executar.
+     * @return {@code true} se a chave existia e a ação foi executada.
+     */
+    public boolean aplicarSePresente(int chave, Consumer<? super V> acao) {
+        Faixa<V> f = faixa(chave);
+        f.trava.writeLock().lock();
+        try {
+            V v = f.mapa.obter(chave);
+            if (v == null) {
+                return false;
+            }
+            acao.accept(v);
+            return true;
+        } finally {
+            f.trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return quantidade aproximada de pares (cada faixa é lida separadamente).
+     */
+    public int tamanho() {
+        int total = 0;
+        for (Faixa<V> f : faixas) {
+            f.trava.readLock().lock();
+            try {
+                total += f.mapa.tamanho();
+            } finally {
+                f.trava.readLock().unlock();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Copia os valores para uma nova lista, faixa por faixa.
+     *
+     * @return lista com os valores presentes no momento da leitura de cada faixa.
+     */
+    public List<V> copiarValores() {
+        List<V> copia = new ArrayList<>();
+        for (Faixa<V> f : faixas) {
+            f.trava.readLock().lock();
+            try {
+                copia.addAll(f.mapa.valores());
+            } finally {
+                f.trava.readLock().unlock();
+            }
+        }
+        return copia;
+    }
+
+    private Faixa<V> faixa(int chave) {
+        return faixas[(chave ^ (chave >>> 16)) & mascara];
+    }
+
+    /**
+     * Uma faixa do mapa: um {@link MapaInt} protegido por sua própria trava.
+     */
+    private static final class Faixa<V> {
+        private final MapaInt<V> mapa = new MapaInt<>();
+        private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    }
+}
@@ -0,0 +1,65 @@
+package cicloo.util;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Fonte da data atual. O código que depende de "hoje" usa um {@code Relogio}
+ * em vez de chamar {@link LocalDate#now()} diretamente, para que simulações e
+ * testes possam controlar o tempo com um {@link RelogioManual}.
+ *
+ * @author Eric
+ */
+public interface Relogio {
+
+    /**
+     * @return a data atual segundo este relógio.
+     */
+    LocalDate hoje();
+
+    /**
+     * Retorna o relógio do sistema, no fuso horário padrão.
+     * <p>
+     * A data é calculada uma vez e reaproveitada até a próxima meia-noite;
+     * enquanto isso cada consulta custa só uma leitura de
+     * {@link System#currentTimeMillis()}.
+     * </p>
+     *
+     * @return o relógio do sistema.
+     */
+    static Relogio doSistema() {
+        return RelogioDoSistema.INSTANCIA;
+    }
+
+    /**
+     * Relógio do sistema com a data em cache até a virada do dia.
+     */
+    final class RelogioDoSistema implements Relogio {
+
+        private static final RelogioDoSistema INSTANCIA = new RelogioDoSistema();
+
+        /**
+         * Data atual e o instante (em milissegundos) em que ela deixa de valer.
+         */
+        private record Dia(LocalDate data, long validoAte) {}
+
+        private volatile Dia atual = new Dia(LocalDate.MIN, Long.MIN_VALUE);
+
+        private RelogioDoSistema() {}
+
+        @Override
+        public LocalDate hoje() {
+            Dia dia = atual;
+            long agora = System.currentTimeMillis();
+            // Recalcula na virada do dia ou se o relógio do sistema foi atrasado.
+            if (agora >= dia.validoAte() || agora < dia.validoAte() - 86_400_000L * 2) {
+                ZoneId fuso = ZoneId.systemDefault();
+                LocalDate data = LocalDate.now(fuso);
+                long meiaNoite = data.plusDays(1).atStartOfDay(fuso).toInstant().toEpochMilli();
+                dia = new Dia(data, meiaNoite);
+                atual = dia;
+            }
+            return dia.data();
+        }
+    }
+}
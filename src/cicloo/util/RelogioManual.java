@@ -0,0 +1,49 @@
+package cicloo.util;
+
+import java.time.LocalDate;
+
+/**
+ * Relógio cuja data só muda quando alguém a altera, para simular a passagem
+ * dos dias de forma determinística.
+ *
+ * @author Eric
+ */
+public class RelogioManual implements Relogio {
+
+    private volatile LocalDate hoje;
+
+    /**
+     * @param hoje a data inicial.
+     * @throws IllegalArgumentException se a data for {@code null}.
+     */
+    public RelogioManual(LocalDate hoje) {
+        definir(hoje);
+    }
+
+    @Override
+    public LocalDate hoje() {
+        return hoje;
+    }
+
+    /**
+     * Muda a data atual.
+     *
+     * @param hoje a nova data.
+     * @throws IllegalArgumentException se a data for {@code null}.
+     */
+    public void definir(LocalDate hoje) {
+        if (hoje == null) {
+            throw new IllegalArgumentException("Data não pode ser nula");
+        }
+        this.hoje = hoje;
+    }
+
+    /**
+     * Avança (ou recua, com valor negativo) a data atual.
+     *
+     * @param dias quantidade de dias.
+     */
+    public void avancarDias(long dias) {
+        this.hoje = hoje.plusDays(dias);
+    }
+}
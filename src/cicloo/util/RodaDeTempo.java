@@ -0,0 +1,234 @@
+package cicloo.util;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Roda de tempo hierárquica: agenda IDs para vencer em um instante (um
+ * número de "tiques", por exemplo dias desde a época) e entrega apenas os que
+ * venceram quando o tempo avança.
+ * <p>
+ * Cada nível tem {@value #POSICOES} posições. O nível 0 guarda os prazos dos
+ * próximos {@value #POSICOES} tiques, um por posição; cada nível acima cobre
+ * um intervalo {@value #POSICOES} vezes maior. Quando o nível 0 dá a volta, a
+ * posição seguinte do nível de cima é redistribuída nos níveis de baixo.
+ * Agendar e cancelar custam O(1), e avançar o tempo custa o número de tiques
+ * percorridos mais o de prazos vencidos ou redistribuídos, sem depender de
+ * quantos IDs estão agendados.
+ * </p>
+ * Esta classe não é sincronizada.
+ *
+ * @author Eric
+ */
+public class RodaDeTempo {
+
+    private static final int BITS = 6;
+    private static final int POSICOES = 1 << BITS;
+    private static final int MASCARA = POSICOES - 1;
+    private static final int NIVEIS = 4;
+
+    /**
+     * Um ID agendado, encadeado na lista da sua posição.
+     */
+    private static final class Entrada {
+        final int id;
+        long prazo;
+        int posicao;
+        Entrada anterior;
+        Entrada proxima;
+
+        Entrada(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Cabeças das listas de cada posição, nível a nível.
+     */
+    private final Entrada[] posicoes = new Entrada[NIVEIS * POSICOES];
+
+    /**
+     * Posição extra para prazos que já tinham passado ao serem agendados.
+     */
+    private static final int VENCIDOS = NIVEIS * POSICOES;
+    private Entrada vencidos;
+
+    private final MapaInt<Entrada> porId = new MapaInt<>();
+    private long agora;
+
+    /**
+     * Cria a roda com o tempo inicial informado.
+     *
+     * @param agora o tique atual.
+     */
+    public RodaDeTempo(long agora) {
+        this.agora = agora;
+    }
+
+    /**
+     * @return o tique atual.
+     */
+    public long getAgora() {
+        return agora;
+    }
+
+    /**
+     * @return quantidade de IDs agendados.
+     */
+    public int tamanho() {
+        return porId.tamanho();
+    }
+
+    /**
+     * Agenda o ID para vencer no prazo informado, substituindo um agendamento
+     * anterior do mesmo ID. Prazos que já passaram vencem no próximo avanço.
+     *
+     * @param id o ID.
+     * @param prazo o tique em que o ID vence.
+     */
+    public void agendar(int id, long prazo) {
+        Entrada e = porId.obter(id);
+        if (e == null) {
+            e = new Entrada(id);
+            porId.colocar(id, e);
+        } else {
+            desencadear(e);
+        }
+        e.prazo = prazo;
+        encadear(e);
+    }
+
+    /**
+     * Cancela o agendamento do ID, se houver.
+     *
+     * @param id o ID.
+     * @return {@code true} se o ID estava agendado.
+     */
+    public boolean cancelar(int id) {
+        Entrada e = porId.remover(id);
+        if (e == null) {
+            return false;
+        }
+        desencadear(e);
+        return true;
+    }
+
+    /**
+     * Retorna o prazo agendado para o ID.
+     *
+     * @param id o ID.
+     * @return o prazo, ou {@code Long.MIN_VALUE} se o ID não estiver agendado.
+     */
+    public long prazo(int id) {
+        Entrada e = porId.obter(id);
+        return e == null ? Long.MIN_VALUE : e.prazo;
+    }
+
+    /**
+     * Avança o tempo até o tique informado, entregando e retirando da roda os
+     * IDs cujo prazo chegou. Um tique anterior ao atual não volta o tempo, mas
+     * ainda entrega os prazos agendados no passado.
+     *
+     * @param tique o novo tique atual.
+     * @param vencido recebe cada ID vencido; não deve alterar a roda durante a
+     * entrega.
+     */
+    public void avancarAte(long tique, IntConsumer vencido) {
+        entregar(VENCIDOS, vencido);
+        while (agora < tique) {
+            if (porId.estaVazio()) {
+                agora = tique;
+                return;
+            }
+            agora++;
+            // Níveis que dão a volta neste tique, redistribuídos de cima para
+            // baixo para que cada prazo desça até a posição certa.
+            int nivel = 0;
+            while (nivel + 1 < NIVEIS && ((agora >>> (BITS * nivel)) & MASCARA) == 0) {
+                nivel++;
+            }
+            for (; nivel > 0; nivel--) {
+                redistribuir(nivel * POSICOES + (int) ((agora >>> (BITS * nivel)) & MASCARA));
+            }
+            entregar((int) (agora & MASCARA), vencido);
+            entregar(VENCIDOS, vencido);
+        }
+    }
+
+    /**
+     * Posição para o prazo: o menor nível cujo alcance cobre a distância até
+     * ele, ou a posição de vencidos se o prazo já chegou.
+     */
+    private int posicaoPara(long prazo) {
+        long distancia = prazo - agora;
+        if (distancia <= 0) {
+            return VENCIDOS;
+        }
+        for (int nivel = 0; nivel < NIVEIS; nivel++) {
+            if (distancia < 1L << (BITS * (nivel + 1)) || nivel == NIVEIS - 1) {
+                return nivel * POSICOES + (int) ((prazo >>> (BITS * nivel)) & MASCARA);
+            }
+        }
+        throw new AssertionError();
+    }
+
+    private void redistribuir(int posicao) {
+        Entrada e = posicoes[posicao];
+        posicoes[posicao] = null;
+        while (e != null) {
+            Entrada proxima = e.proxima;
+            encadear(e);
+            e = proxima;
+        }
+    }
+
+    private void entregar(int posicao, IntConsumer vencido) {
+        Entrada e = posicao == VENCIDOS ? vencidos : posicoes[posicao];
+        if (posicao == VENCIDOS) {
+            vencidos = null;
+        } else {
+            posicoes[posicao] = null;
+        }
+        while (e != null) {
+            Entrada proxima = e.proxima;
+            if (e.prazo > agora) {
+                // Prazo além do alcance do último nível: volta para a roda.
+                encadear(e);
+            } else {
+                porId.remover(e.id);
+                vencido.accept(e.id);
+            }
+            e = proxima;
+        }
+    }
+
+    private void encadear(Entrada e) {
+        int posicao = posicaoPara(e.prazo);
+        e.posicao = posicao;
+        e.anterior = null;
+        if (posicao == VENCIDOS) {
+            e.proxima = vencidos;
+            vencidos = e;
+        } else {
+            e.proxima = posicoes[posicao];
+            posicoes[posicao] = e;
+        }
+        if (e.proxima != null) {
+            e.proxima.anterior = e;
+        }
+    }
+
+    private void desencadear(Entrada e) {
+        if (e.anterior != null) {
+            e.anterior.proxima = e.proxima;
+        } else if (e.posicao == VENCIDOS) {
+            vencidos = e.proxima;
+        } else {
+            posicoes[e.posicao] = e.proxima;
+        }
+        if (e.proxima != null) {
+            e.proxima.anterior = e.anterior;
+        }
+        e.anterior = null;
+        e.proxima = null;
+    }
+}
@@ -0,0 +1,141 @@
+package cicloo.view;
+
+import cicloo.evento.Evento;
+import cicloo.model.Conquista;
+import cicloo.model.Habito;
+import java.io.PrintStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Ouvinte que mostra os eventos de domínio no console.
+ * <p>
+ * A mensagem é montada na thread que publicou o evento, enquanto o hábito
+ * ainda está no estado do evento, e apenas acumulada em um buffer. Uma thread
+ * própria escreve o buffer de uma vez, de modo que concluir hábitos não espera
+ * pela E/S do console. Antes de pedir algo ao usuário, a tela chama
+ * {@link #esvaziar()} para que as mensagens apareçam na ordem certa.
+ * </p>
+ *
+ * @author Eric
+ */
+public class ConsoleDeEventos implements Consumer<Evento> {
+
+    private final PrintStream saida;
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition haPendentes = trava.newCondition();
+    private final Condition escrito = trava.newCondition();
+
+    /**
+     * Mensagens ainda não escritas. Protegido pela trava.
+     */
+    private StringBuilder pendentes = new StringBuilder();
+    private StringBuilder emEscrita = new StringBuilder();
+    private boolean escrevendo;
+
+    /**
+     * Cria o ouvinte e inicia a thread de escrita.
+     *
+     * @param saida onde as mensagens são escritas.
+     * @throws IllegalArgumentException se a saída for {@code null}.
+     */
+    public ConsoleDeEventos(PrintStream saida) {
+        if (saida == null) {
+            throw new IllegalArgumentException("Saída não pode ser nula");
+        }
+        this.saida = saida;
+        Thread escritor = new Thread(this::escrever, "cicloo-console");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    @Override
+    public void accept(Evento evento) {
+        String mensagem = formatar(evento);
+        if (mensagem == null) {
+            return;
+        }
+        trava.lock();
+        try {
+            pendentes.append(mensagem).append(System.lineSeparator());
+            haPendentes.signal();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Espera até que todas as mensagens recebidas tenham sido escritas.
+     */
+    public void esvaziar() {
+        trava.lock();
+        try {
+            while (escrevendo || pendentes.length() > 0) {
+                escrito.awaitUninterruptibly();
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private void escrever() {
+        while (true) {
+            StringBuilder lote;
+            trava.lock();
+            try {
+                while (pendentes.length() == 0) {
+                    haPendentes.awaitUninterruptibly();
+                }
+                lote = pendentes;
+                pendentes = emEscrita;
+                emEscrita = lote;
+                escrevendo = true;
+            } finally {
+                trava.unlock();
+            }
+            saida.print(lote);
+            saida.flush();
+            lote.setLength(0);
+            trava.lock();
+            try {
+                escrevendo = false;
+                escrito.signalAll();
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return a mensagem do evento, ou {@code null} se ele não tiver uma.
+     */
+    private static String formatar(Evento evento) {
+        if (evento instanceof Evento.HabitoConcluido e) {
+            return "\nHábito '" + e.habito().getNome() + "' concluído! Você ganhou " + e.xpGanho() + " XP!";
+        }
+        if (evento instanceof Evento.ConclusaoRecusada e) {
+            Habito h = e.habito();
+            return "\nHábito '" + h.getNome() + "' já foi concluído neste período (" + h.getRecorrencia() + "). Bom trabalho!";
+        }
+        if (evento instanceof Evento.NivelAlcancado e) {
+            if (e.niveisGanhos() == 1) {
+                return "LEVEL UP! Seu hábito '" + e.habito().getNome() + "' evoluiu para o Nível " + e.nivel() + "!";
+            }
+            return "LEVEL UP! Seu hábito '" + e.habito().getNome() + "' subiu " + e.niveisGanhos()
+                    + " níveis e chegou ao Nível " + e.nivel() + "!";
+        }
+        if (evento instanceof Evento.StreakZerado e) {
+            return "-> Alerta: A sequência (streak) do hábito '" + e.habito().getNome() + "' foi zerada por inatividade.";
+        }
+        if (evento instanceof Evento.ConquistaDesbloqueada e) {
+            Conquista c = e.conquista();
+            return "\n*********************************\n"
+                    + "  CONQUISTA DESBLOQUEADA!\n"
+                    + "  " + c.getNome() + "\n"
+                    + "  " + c.getDescricao() + "\n"
+                    + "*********************************";
+        }
+        return null;
+    }
+}
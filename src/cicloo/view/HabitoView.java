@@ -9,8 +9,8 @@ import cicloo.model.enums.Categoria;
 import cicloo.model.enums.Prioridade;
 import cicloo.model.enums.Recorrencia;
 
+import java.util.Collection;
 import java.util.InputMismatchException;
-import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -20,7 +20,7 @@ import java.util.Scanner;
  */
 public class HabitoView {
 
-    private final Scanner sc = new Scanner(System.in);
+    private final Scanner sc = new Scanner(LacoDaInterface.getInstancia().getEntrada());
     private final Usuario usuario;
     private final UsuarioController uController;
     private final HabitoController hController = new HabitoController();
@@ -41,6 +41,7 @@ public class HabitoView {
     public void exibirMenu() {
         int opcao;
         do {
+            MenuPrincipal.exibirEventos();
             System.out.println("\n--- Menu Hábitos ---");
             System.out.println("Usuário: " + usuario.getNome());
             System.out.println("1. Criar Hábito");
@@ -120,7 +121,6 @@ public class HabitoView {
 
             System.out.println("Hábito criado com sucesso!");
             System.out.println("Você está cada vez mais perto de se tornar sua melhor versão!");
-            uController.verificarEdesbloquearConquistas();
 
         } catch (IllegalArgumentException e) {
             System.out.println("\nErro ao criar habito: " + e.getMessage());
@@ -133,7 +133,7 @@ public class HabitoView {
      */
     private void listarHabitos() {
         System.out.println("\n--- MEUS HABITOS ---");
-        List<Habito> habitos = uController.listarHabitos();
+        Collection<Habito> habitos = uController.listarHabitos();
 
         if (habitos.isEmpty()) {
             System.out.println("Voce ainda nao tem nenhum habito. Que tal criar o primeiro?");
@@ -209,7 +209,6 @@ public class HabitoView {
             animacaoSimples();
             hController.setHabito(habitoSelecionado);
             hController.concluirHabito();
-            uController.verificarEdesbloquearConquistas();
             aguardarEnter();
         }
     }
@@ -273,6 +272,7 @@ public class HabitoView {
      * Pausa a execução até o usuário pressionar Enter.
      */
     private void aguardarEnter() {
+        MenuPrincipal.exibirEventos();
         System.out.println("\n(Pressione Enter para continuar...)");
         sc.nextLine();
     }
@@ -284,7 +284,7 @@ public class HabitoView {
      * @return O hábito selecionado ou {@code null} se não for encontrado ou houver erro.
      */
     private Habito selecionarHabitoPeloId(String acao) {
-        List<Habito> habitos = uController.listarHabitos();
+        Collection<Habito> habitos = uController.listarHabitos();
         if (habitos.isEmpty()) {
             System.out.println("Voce nao tem habitos para " + acao + ".");
             aguardarEnter();
@@ -0,0 +1,220 @@
+package cicloo.view;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Laço da interface de console: a entrada do usuário e as tarefas agendadas
+ * passam por uma única fila, consumida pela thread da interface.
+ * <p>
+ * Os hábitos, os usuários e as DAOs em memória não são sincronizados e só
+ * podem ser usados pela thread da interface. Essa thread passa a maior parte
+ * do tempo parada, esperando o usuário digitar algo. Por isso a entrada é lida
+ * por {@link #getEntrada()}: uma thread própria lê o console e põe o que
+ * chegou na fila, junto com as tarefas pedidas por {@link #executar} e
+ * {@link #repetir}. Enquanto a thread da interface espera a próxima entrada,
+ * ela roda as tarefas que chegarem, uma por vez.
+ * </p>
+ * Uma tarefa não deve ler a entrada nem demorar: o usuário espera por ela.
+ *
+ * @author Eric
+ */
+public final class LacoDaInterface {
+
+    /**
+     * Marca o fim da entrada na fila.
+     */
+    private static final Object FIM = new Object();
+
+    private static LacoDaInterface instancia;
+
+    private final BlockingQueue<Object> fila = new LinkedBlockingQueue<>();
+    private final InputStream entrada = new Entrada();
+    private ScheduledExecutorService relogio;
+
+    /**
+     * Cria o laço e inicia a thread que lê a origem.
+     *
+     * @param origem de onde vem a entrada do usuário.
+     */
+    LacoDaInterface(InputStream origem) {
+        Thread leitor = new Thread(() -> ler(origem), "cicloo-entrada");
+        leitor.setDaemon(true);
+        leitor.start();
+    }
+
+    /**
+     * Retorna o laço sobre a entrada padrão.
+     *
+     * @return a instância única.
+     */
+    public static synchronized LacoDaInterface getInstancia() {
+        if (instancia == null) {
+            instancia = new LacoDaInterface(System.in);
+        }
+        return instancia;
+    }
+
+    /**
+     * Entrada do usuário a ser lida pela thread da interface. Enquanto espera
+     * os próximos bytes, a leitura roda as tarefas pendentes.
+     *
+     * @return a entrada.
+     */
+    public InputStream getEntrada() {
+        return entrada;
+    }
+
+    /**
+     * Pede que a tarefa seja rodada pela thread da interface, na próxima vez
+     * que ela esperar pela entrada. Pode ser chamado de qualquer thread.
+     *
+     * @param tarefa a tarefa.
+     * @throws IllegalArgumentException se a tarefa for {@code null}.
+     */
+    public void executar(Runnable tarefa) {
+        if (tarefa == null) {
+            throw new IllegalArgumentException("Tarefa não pode ser nula");
+        }
+        fila.add(tarefa);
+    }
+
+    /**
+     * Entrega a tarefa à thread da interface a cada intervalo, contado pelo
+     * relógio do sistema. Se a thread da interface estiver ocupada, a tarefa
+     * fica pendente uma única vez, em vez de se acumular na fila.
+     *
+     * @param tarefa a tarefa.
+     * @param intervalo o intervalo entre as entregas.
+     * @throws IllegalArgumentException se a tarefa for {@code null} ou o
+     * intervalo não for positivo.
+     */
+    public void repetir(Runnable tarefa, Duration intervalo) {
+        if (tarefa == null) {
+            throw new IllegalArgumentException("Tarefa não pode ser nula");
+        }
+        if (intervalo == null || intervalo.isNegative() || intervalo.isZero()) {
+            throw new IllegalArgumentException("Intervalo deve ser positivo");
+        }
+        AtomicBoolean pendente = new AtomicBoolean();
+        Runnable entrega = () -> {
+            pendente.set(false);
+            tarefa.run();
+        };
+        long nanos = intervalo.toNanos();
+        relogio().scheduleWithFixedDelay(() -> {
+            if (pendente.compareAndSet(false, true)) {
+                fila.add(entrega);
+            }
+        }, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized ScheduledExecutorService relogio() {
+        if (relogio == null) {
+            relogio = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cicloo-relogio");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return relogio;
+    }
+
+    /**
+     * Corpo da thread de leitura: repassa à fila o que chega da origem, até o
+     * fim dela.
+     */
+    private void ler(InputStream origem) {
+        byte[] buffer = new byte[1024];
+        try {
+            int lidos;
+            while ((lidos = origem.read(buffer)) >= 0) {
+                if (lidos > 0) {
+                    fila.add(Arrays.copyOf(buffer, lidos));
+                }
+            }
+        } catch (IOException e) {
+            // Uma entrada que falha é tratada como encerrada.
+        } finally {
+            fila.add(FIM);
+        }
+    }
+
+    /**
+     * Entrada lida pela thread da interface, que roda as tarefas da fila
+     * enquanto espera.
+     */
+    private final class Entrada extends InputStream {
+
+        private byte[] atual;
+        private int posicao;
+        private boolean encerrada;
+
+        @Override
+        public int read() throws IOException {
+            byte[] um = new byte[1];
+            return read(um, 0, 1) < 0 ? -1 : um[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destino, int inicio, int tamanho) throws IOException {
+            if (tamanho == 0) {
+                return 0;
+            }
+            if (atual == null || posicao == atual.length) {
+                if (!proximo()) {
+                    return -1;
+                }
+            }
+            int copiados = Math.min(tamanho, atual.length - posicao);
+            System.arraycopy(atual, posicao, destino, inicio, copiados);
+            posicao += copiados;
+            return copiados;
+        }
+
+        @Override
+        public int available() {
+            return atual == null ? 0 : atual.length - posicao;
+        }
+
+        /**
+         * Roda as tarefas da fila até chegar mais entrada.
+         *
+         * @return {@code false} se a entrada acabou.
+         */
+        private boolean proximo() throws IOException {
+            while (!encerrada) {
+                Object item;
+                try {
+                    item = fila.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Leitura interrompida");
+                }
+                if (item == FIM) {
+                    encerrada = true;
+                } else if (item instanceof Runnable tarefa) {
+                    try {
+                        tarefa.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Falha em tarefa da interface: " + e);
+                    }
+                } else {
+                    atual = (byte[]) item;
+                    posicao = 0;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
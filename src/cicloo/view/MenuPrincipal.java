@@ -1,12 +1,22 @@
 package cicloo.view;
 
+import cicloo.controller.Classificacao;
+import cicloo.controller.DistribuicaoDosCadastrados;
+import cicloo.controller.ExpiracaoDeStreaks;
+import cicloo.controller.MotorDeConquistas;
 import cicloo.controller.UsuarioController;
 import cicloo.model.Usuario;
+import cicloo.dao.Persistencia;
 import cicloo.dao.UsuarioDAO;
-import cicloo.model.Conquista;
+import cicloo.evento.BarramentoDeEventos;
+import cicloo.evento.Evento;
+import cicloo.evento.Eventos;
 import cicloo.model.Habito;
 import cicloo.model.enums.*;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
@@ -17,17 +27,51 @@ import java.util.Scanner;
  */
 public class MenuPrincipal {
 
-    private static final Scanner sc = new Scanner(System.in);
+    private static final Scanner sc = new Scanner(LacoDaInterface.getInstancia().getEntrada());
     private static final UsuarioDAO usuarioDAO = UsuarioDAO.getInstancia();
 
+    /**
+     * Arquivo onde o estado do sistema é salvo entre execuções. As alterações
+     * feitas depois do último salvamento ficam nos logs ao lado dele.
+     */
+    private static final Path ARQUIVO_DADOS = Paths.get("cicloo.snapshot");
+
+    /**
+     * De quanto em quanto tempo os prazos dos streaks são verificados, mesmo
+     * que ninguém esteja usando os menus.
+     */
+    private static final Duration INTERVALO_EXPIRACAO = Duration.ofMinutes(1);
+
+    /**
+     * Persistência aberta sobre {@link #ARQUIVO_DADOS}, ou {@code null} se os
+     * dados não puderam ser carregados e o sistema roda só em memória.
+     */
+    private static Persistencia persistencia;
+
+    /**
+     * Saída dos eventos de domínio no console, inscrita na sessão de cada
+     * usuário logado.
+     */
+    private static final ConsoleDeEventos console = new ConsoleDeEventos(System.out);
+
     /**
      * Método principal que inicia a aplicação.
      *
-     * @param args argumentos de linha de comando (não utilizados).
+     * @param args argumentos de linha de comando; {@code --streak=sob-demanda}
+     * usa o {@link ModoDeStreak#SOB_DEMANDA modo de streak sob demanda} em vez
+     * do imediato.
      */
     public static void main(String[] args) {
-        // Popular dados de teste
-        popularDadosIniciais();
+        configurarModoDeStreak(args);
+        carregarDados();
+        if (Habito.getModoDeStreak() == ModoDeStreak.IMEDIATO) {
+            // A verificação roda na thread da interface, enquanto ela espera
+            // o usuário, para não disputar os hábitos com outra thread.
+            ExpiracaoDeStreaks expiracao = ExpiracaoDeStreaks.getInstancia();
+            LacoDaInterface.getInstancia().repetir(expiracao::processar, INTERVALO_EXPIRACAO);
+        }
+        Classificacao.getInstancia();
+        DistribuicaoDosCadastrados.getInstancia();
 
         exibirBoasVindas();
 
@@ -40,12 +84,32 @@ public class MenuPrincipal {
                     if (usuarioLogado != null) {
                         System.out.println("\nLogin bem-sucedido! Olá " + usuarioLogado.getNome() + "!");
 
-                        UsuarioController uController = new UsuarioController(usuarioLogado);
-                        uController.verificarStreaks();
-                        uController.verificarEdesbloquearConquistas();
+                        BarramentoDeEventos sessao = new BarramentoDeEventos(Eventos.global());
+                        sessao.inscrever(Evento.class, console);
+                        sessao.inscrever(Evento.ConquistaDesbloqueada.class,
+                                e -> Persistencia.usuarios().atualizar(e.usuario()));
+                        Eventos.Vinculo vinculo = sessao.vincular();
+                        // Streaks vencidos são avisados no barramento global, já que
+                        // podem ser de qualquer usuário; a sessão mostra só os seus.
+                        BarramentoDeEventos.Inscricao alertas = Eventos.global().inscrever(
+                                Evento.StreakZerado.class, e -> {
+                                    if (usuarioLogado.buscarHabito(e.habito().getId()) == e.habito()) {
+                                        console.accept(e);
+                                    }
+                                });
+                        try (MotorDeConquistas conquistas = new MotorDeConquistas(usuarioLogado)) {
+                            conquistas.ouvir(sessao);
+                            UsuarioController uController = new UsuarioController(usuarioLogado);
+                            uController.verificarStreaks();
+                            uController.verificarEdesbloquearConquistas();
 
-                        aguardarEnter();
-                        loopPrincipalApp(usuarioLogado);
+                            aguardarEnter();
+                            loopPrincipalApp(usuarioLogado);
+                        } finally {
+                            alertas.close();
+                            vinculo.close();
+                        }
+                        salvarDados();
 
                     } else {
                         System.out.println("\nUsuário ou senha incorretos. Por favor, tente novamente.");
@@ -54,6 +118,8 @@ public class MenuPrincipal {
                 }
                 case 2 -> cadastrarUsuario();
                 case 0 -> {
+                    salvarDados();
+                    fecharDados();
                     System.out.println("\nFim da jornada por hoje! Volte ao Cicloo para continuar evoluindo!");
                     return;
                 }
@@ -68,8 +134,11 @@ public class MenuPrincipal {
      * @param usuarioLogado o usuário autenticado.
      */
     private static void loopPrincipalApp(Usuario usuarioLogado) {
+        UsuarioController controller = new UsuarioController(usuarioLogado);
         int opcao = -1;
         do {
+            // Os prazos dos streaks são verificados aqui, na thread da interface.
+            controller.verificarStreaks();
             System.out.println("\n --- MENU PRINCIPAL --- ");
             System.out.println("Logado como: " + usuarioLogado.getNome());
             System.out.println("---------------------------------");
@@ -165,8 +234,7 @@ public class MenuPrincipal {
             }
 
             Usuario novoUsuario = new Usuario(nome, email, senha);
-            novoUsuario.carregarConquistasIniciais(popularConquistas());
-            usuarioDAO.salvar(novoUsuario);
+            Persistencia.usuarios().salvar(novoUsuario);
 
             System.out.println("\nUsuário '" + nome + "' criado com sucesso!");
             System.out.println("Agora você pode fazer o login e iniciar sua jornada de hábitos!");
@@ -192,39 +260,109 @@ public class MenuPrincipal {
      * Aguarda o usuário pressionar Enter antes de continuar.
      */
     private static void aguardarEnter() {
+        exibirEventos();
         System.out.println("\n(Pressione Enter para continuar...)");
         sc.nextLine();
     }
 
+    /**
+     * Espera que as mensagens dos eventos já publicados sejam escritas no
+     * console, antes de mostrar a próxima tela.
+     */
+    static void exibirEventos() {
+        console.esvaziar();
+    }
+
+    /**
+     * Aplica a opção {@code --streak=imediato|sob-demanda}, se informada. Uma
+     * opção inválida é avisada e o modo padrão é mantido.
+     *
+     * @param args argumentos de linha de comando.
+     */
+    private static void configurarModoDeStreak(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--streak=")) {
+                String valor = arg.substring("--streak=".length());
+                try {
+                    Habito.usarModoDeStreak(ModoDeStreak.valueOf(valor.replace('-', '_').toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Modo de streak inválido: " + valor
+                            + ". Usando " + Habito.getModoDeStreak() + ".");
+                }
+            }
+        }
+    }
+
+    /**
+     * Carrega o estado salvo em {@link #ARQUIVO_DADOS} e nos logs e passa a
+     * registrar cada alteração. Na primeira execução, ou se os dados não
+     * puderem ser lidos, usa os dados iniciais de teste; arquivos que não
+     * puderam ser lidos são preservados com outro nome. Se nem assim os logs
+     * puderem ser abertos, o sistema roda só em memória e não salva nada.
+     */
+    private static void carregarDados() {
+        try {
+            persistencia = Persistencia.abrir(ARQUIVO_DADOS);
+            if (persistencia.getFalhaNaCarga() != null) {
+                System.out.println("Não foi possível carregar os dados salvos: "
+                        + persistencia.getFalhaNaCarga().getMessage());
+                System.out.println("Os arquivos foram preservados como: " + persistencia.getArquivosPreservados());
+            }
+            if (persistencia.isCarregada()) {
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Não foi possível abrir os dados: " + e.getMessage());
+            System.out.println("Nenhuma alteração desta execução será salva.");
+        }
+        popularDadosIniciais();
+    }
+
+    /**
+     * Salva o estado atual do sistema em {@link #ARQUIVO_DADOS}, esvaziando
+     * os logs. É chamado ao sair de uma conta e ao encerrar o programa. Sem
+     * persistência aberta nada é gravado, para não sobrescrever dados que não
+     * foram carregados.
+     */
+    private static void salvarDados() {
+        if (persistencia == null) {
+            return;
+        }
+        try {
+            persistencia.checkpoint();
+        } catch (IOException e) {
+            System.out.println("Não foi possível salvar os dados: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Grava o que estiver pendente nos logs e os fecha.
+     */
+    private static void fecharDados() {
+        if (persistencia == null) {
+            return;
+        }
+        try {
+            persistencia.close();
+        } catch (IOException e) {
+            System.out.println("Não foi possível fechar os dados: " + e.getMessage());
+        }
+    }
+
     /**
      * Popula o sistema com dados iniciais para testes.
-     * Cria um usuário padrão com alguns hábitos e conquistas.
+     * Cria um usuário padrão com alguns hábitos.
      */
     private static void popularDadosIniciais() {
         if (usuarioDAO.buscarPorNome("eric") == null) {
             Usuario u1 = new Usuario("eric", "eric@email.com", "123456a");
             UsuarioController controller = new UsuarioController(u1);
-            u1.carregarConquistasIniciais(popularConquistas());
-            controller.adicionarHabito(new Habito("Beber 2L de água", Categoria.SAUDE, Recorrencia.DIARIA, Prioridade.ALTA));
-            controller.adicionarHabito(new Habito("Ler 1 capítulo de um livro", Categoria.ESTUDO, Recorrencia.DIARIA, Prioridade.MEDIA));
-            controller.adicionarHabito(new Habito("Fazer exercício físico", Categoria.SAUDE, Recorrencia.SEMANAL, Prioridade.ALTA));
-            controller.adicionarHabito(new Habito("Organizar finanças do mês", Categoria.FINANCAS, Recorrencia.MENSAL, Prioridade.BAIXA));
-            usuarioDAO.salvar(u1);
+            controller.adicionarHabitos(List.of(
+                    new Habito("Beber 2L de água", Categoria.SAUDE, Recorrencia.DIARIA, Prioridade.ALTA),
+                    new Habito("Ler 1 capítulo de um livro", Categoria.ESTUDO, Recorrencia.DIARIA, Prioridade.MEDIA),
+                    new Habito("Fazer exercício físico", Categoria.SAUDE, Recorrencia.SEMANAL, Prioridade.ALTA),
+                    new Habito("Organizar finanças do mês", Categoria.FINANCAS, Recorrencia.MENSAL, Prioridade.BAIXA)));
+            Persistencia.usuarios().salvar(u1);
         }
     }
-
-    /**
-     * Cria e retorna a lista de conquistas padrões que serão atribuídas ao usuário.
-     *
-     * @return uma lista com conquistas iniciais.
-     */
-    private static List<Conquista> popularConquistas() {
-        List<Conquista> catalogoDeConquistas = new ArrayList<>();
-        catalogoDeConquistas.add(new Conquista("Primeiro Passo", "Criar seu primeiro hábito."));
-        catalogoDeConquistas.add(new Conquista("Persistência de Aço", "Concluir um hábito 5 vezes."));
-        catalogoDeConquistas.add(new Conquista("Mestre da Rotina", "Manter um streak de 7 dias em qualquer hábito."));
-        catalogoDeConquistas.add(new Conquista("Novato Promissor", "Alcançar o Nível 5 em qualquer hábito."));
-        catalogoDeConquistas.add(new Conquista("Colecionador", "Ter 5 hábitos ativos ao mesmo tempo."));
-        return catalogoDeConquistas;
-    }
 }
@@ -1,9 +1,14 @@
 package cicloo.view;
 
+import cicloo.controller.Classificacao;
 import cicloo.controller.UsuarioController;
+import cicloo.model.CatalogoDeConquistas;
 import cicloo.model.Conquista;
 import cicloo.model.Habito;
 import cicloo.model.Usuario;
+import cicloo.model.enums.CriterioDeClassificacao;
+import cicloo.model.enums.Recorrencia;
+import java.util.Collection;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
@@ -14,7 +19,12 @@ import java.util.Scanner;
  */
 public class UsuarioView {
 
-    private final Scanner sc = new Scanner(System.in);
+    /**
+     * Quantos colocados de cada critério são exibidos na classificação.
+     */
+    private static final int TAMANHO_CLASSIFICACAO = 10;
+
+    private final Scanner sc = new Scanner(LacoDaInterface.getInstancia().getEntrada());
     private final Usuario usuario;
     private final UsuarioController uController;
 
@@ -41,6 +51,7 @@ public class UsuarioView {
             System.out.println("1. Ver Meu Perfil");
             System.out.println("2. Ver Minhas Estatísticas");
             System.out.println("3. Ver Minhas Conquistas");
+            System.out.println("4. Ver Classificação Geral");
             System.out.println("0. Voltar");
             System.out.print("Escolha: ");
 
@@ -51,6 +62,7 @@ public class UsuarioView {
                     case 1 -> exibirPerfil();
                     case 2 -> exibirEstatisticas();
                     case 3 -> exibirConquistas();
+                    case 4 -> exibirClassificacao();
                     case 0 -> System.out.println("Voltando ao menu principal...");
                     default -> System.out.println("Opção inválida.");
                 }
@@ -66,7 +78,7 @@ public class UsuarioView {
      * Exibe o perfil do usuário logado, incluindo nome, e-mail e hábitos ativos.
      */
     private void exibirPerfil() {
-        List<Habito> habitos = uController.listarHabitos();
+        Collection<Habito> habitos = uController.listarHabitos();
 
         System.out.println("\n--- Perfil do Usuário ---");
         System.out.println("Nome: " + usuario.getNome());
@@ -90,7 +102,7 @@ public class UsuarioView {
      */
     private void exibirConquistas() {
         System.out.println("\n--- MINHAS CONQUISTAS ---");
-        List<Conquista> conquistas = usuario.getConquistas();
+        List<Conquista> conquistas = CatalogoDeConquistas.getInstancia().listar();
 
         if (conquistas.isEmpty()) {
             System.out.println("Nenhuma conquista no sistema.");
@@ -99,7 +111,7 @@ public class UsuarioView {
         }
 
         for (Conquista c : conquistas) {
-            System.out.println("- " + c.toString());
+            System.out.println("- " + c.formatar(usuario.isConquistaDesbloqueada(c.getId())));
         }
 
         aguardarEnter();
@@ -107,7 +119,8 @@ public class UsuarioView {
 
     /**
      * Exibe estatísticas do progresso do usuário como XP total,
-     * quantidade de hábitos concluídos, hábito de maior nível e maior streak.
+     * quantidade de hábitos concluídos, consistência recente, hábito de maior
+     * nível e maior streak, comparado aos streaks dos outros usuários.
      */
     private void exibirEstatisticas() {
         System.out.println("\n--- Minhas Estatísticas de Progresso ---");
@@ -119,6 +132,9 @@ public class UsuarioView {
 
         System.out.println("Pontos de Experiência (XP) Totais: " + totalXP);
         System.out.println("Hábitos Concluídos no Período Atual: " + concluidosHoje);
+        System.out.printf("Consistência Recente: 7 dias %.0f%% | 30 dias %.0f%% | 90 dias %.0f%%%n",
+                100 * uController.getTaxaRecente(7), 100 * uController.getTaxaRecente(30),
+                100 * uController.getTaxaRecente(90));
 
         if (maiorNivel != null) {
             System.out.println("Seu Hábito de Maior Nível: '" + maiorNivel.getNome() + "' (Nível " + maiorNivel.getLevel() + ")");
@@ -128,6 +144,10 @@ public class UsuarioView {
 
         if (maiorStreak != null && maiorStreak.getStreak() > 0) {
             System.out.println("Seu Recorde de Streak: " + maiorStreak.getStreak() + " dias com o hábito '" + maiorStreak.getNome() + "'");
+            Recorrencia recorrencia = maiorStreak.getRecorrencia();
+            System.out.println("Streak dos hábitos " + recorrencia + " de todos os usuários: mediana "
+                    + uController.getPercentilDoStreak(recorrencia, 50) + ", 90% até "
+                    + uController.getPercentilDoStreak(recorrencia, 90));
         } else {
             System.out.println("Seu Recorde de Streak: 0 \nComece uma sequência para registrar seu recorde!");
         }
@@ -136,6 +156,33 @@ public class UsuarioView {
         aguardarEnter();
     }
 
+    /**
+     * Exibe os primeiros colocados de cada critério da classificação geral e
+     * a posição do usuário logado.
+     */
+    private void exibirClassificacao() {
+        Classificacao classificacao = Classificacao.getInstancia();
+        System.out.println("\n--- Classificação Geral ---");
+        for (CriterioDeClassificacao criterio : CriterioDeClassificacao.values()) {
+            System.out.println("\n" + criterio + ":");
+            List<Classificacao.Colocacao> primeiros = classificacao.primeiros(criterio, TAMANHO_CLASSIFICACAO);
+            if (primeiros.isEmpty()) {
+                System.out.println("Ninguém pontuou ainda.");
+            }
+            for (Classificacao.Colocacao c : primeiros) {
+                System.out.println(c.posicao() + ". " + c.usuario().getNome() + " - " + c.valor());
+            }
+            int posicao = classificacao.posicaoDe(criterio, usuario);
+            if (posicao > 0) {
+                System.out.println("Sua posição: " + posicao + " de " + classificacao.tamanho(criterio));
+            } else {
+                System.out.println("Você ainda não pontuou neste critério.");
+            }
+        }
+        System.out.println("----------------------------------------");
+        aguardarEnter();
+    }
+
     /**
      * Aguarda o usuário pressionar Enter antes de continuar a execução.
      */
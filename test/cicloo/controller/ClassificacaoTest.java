@@ -0,0 +1,169 @@
+package cicloo.controller;
+
+import cicloo.dao.UsuarioDAO;
+import cicloo.evento.BarramentoDeEventos;
+import cicloo.evento.Eventos;
+import cicloo.model.Habito;
+import cicloo.model.Usuario;
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.CriterioDeClassificacao;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link Classificacao} sobre a {@link UsuarioDAO} padrão: ordem por valor,
+ * desempate pelo ID, saída de usuários excluídos ou substituídos na DAO e
+ * avisos de usuários que não estão nela.
+ *
+ * @author Eric
+ */
+public class ClassificacaoTest {
+
+    private static int proximoEmail;
+
+    private final UsuarioDAO dao = UsuarioDAO.getInstancia();
+    private final List<Integer> criados = new ArrayList<>();
+    private BarramentoDeEventos barramento;
+    private Eventos.Vinculo vinculo;
+    private Classificacao classificacao;
+
+    @Before
+    public void criar() {
+        barramento = new BarramentoDeEventos();
+        vinculo = barramento.vincular();
+        classificacao = new Classificacao(barramento, dao);
+    }
+
+    @After
+    public void limpar() {
+        classificacao.close();
+        vinculo.close();
+        dao.deletarTodos(criados.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    @Test
+    public void ordemPorValorComDesempatePeloId() {
+        Usuario a = salvar(50, 3);
+        Usuario b = salvar(80, 1);
+        Usuario c = salvar(50, 3);
+        Usuario semXp = salvar(0, 2);
+
+        assertEquals(List.of(b, a, c), meus(CriterioDeClassificacao.XP_TOTAL));
+        assertEquals(List.of(a, c, semXp, b), meus(CriterioDeClassificacao.MAIOR_NIVEL));
+        assertEquals(0, classificacao.posicaoDe(CriterioDeClassificacao.XP_TOTAL, semXp));
+        assertEquals(classificacao.posicaoDe(CriterioDeClassificacao.XP_TOTAL, a) + 1,
+                classificacao.posicaoDe(CriterioDeClassificacao.XP_TOTAL, c));
+
+        // Passar à frente e voltar a empatar.
+        habito(c).setXp(90);
+        assertEquals(List.of(c, b, a), meus(CriterioDeClassificacao.XP_TOTAL));
+        habito(c).setXp(50);
+        assertEquals(List.of(b, a, c), meus(CriterioDeClassificacao.XP_TOTAL));
+    }
+
+    @Test
+    public void usuariosExcluidosSaemDaClassificacao() {
+        Usuario a = salvar(10, 1);
+        Usuario b = salvar(20, 1);
+        Usuario c = salvar(30, 1);
+        int antes = classificacao.tamanho(CriterioDeClassificacao.XP_TOTAL);
+
+        dao.deletar(a.getId());
+        assertEquals(List.of(c, b), meus(CriterioDeClassificacao.XP_TOTAL));
+        assertEquals(0, classificacao.posicaoDe(CriterioDeClassificacao.MAIOR_NIVEL, a));
+
+        dao.deletarTodos(b.getId(), c.getId());
+        assertEquals(List.of(), meus(CriterioDeClassificacao.XP_TOTAL));
+        assertEquals(antes - 3, classificacao.tamanho(CriterioDeClassificacao.XP_TOTAL));
+
+        // Avisos do usuário já excluído não o trazem de volta.
+        habito(a).setXp(500);
+        assertEquals(0, classificacao.posicaoDe(CriterioDeClassificacao.XP_TOTAL, a));
+    }
+
+    @Test
+    public void usuarioSubstituidoDaLugarAoNovo() {
+        Usuario a = salvar(40, 1);
+        Usuario b = salvar(20, 1);
+        Usuario novo = new Usuario("Substituto", email(), "senha123");
+        novo.setId(a.getId());
+        adicionarHabito(novo, 10, 1);
+
+        dao.restaurar(novo);
+        assertEquals(List.of(b, novo), meus(CriterioDeClassificacao.XP_TOTAL));
+
+        // O usuário substituído não volta ao ser alterado.
+        habito(a).setXp(100);
+        assertEquals(List.of(b, novo), meus(CriterioDeClassificacao.XP_TOTAL));
+    }
+
+    @Test
+    public void usuarioNaoSalvoNaoTomaOLugarDoGuardado() {
+        Usuario a = salvar(40, 1);
+        Usuario fantasma = new Usuario("Fantasma", email(), "senha123");
+        fantasma.setId(a.getId());
+        adicionarHabito(fantasma, 1_000, 9);
+
+        List<Classificacao.Colocacao> colocacoes = classificacao.primeiros(CriterioDeClassificacao.XP_TOTAL, Integer.MAX_VALUE);
+        Classificacao.Colocacao colocacao = colocacoes.stream()
+                .filter(c -> c.usuario().getId() == a.getId())
+                .findFirst().orElseThrow();
+        assertSame(a, colocacao.usuario());
+        assertEquals(40, colocacao.valor());
+    }
+
+    @Test
+    public void assinaturaDesconectadaRefazAClassificacao() {
+        Usuario a = salvar(10, 1);
+        Usuario b = salvar(20, 1);
+        // Mais alterações que uma volta do fluxo, sem consultas no meio.
+        for (int i = 0; i < 1_500; i++) {
+            dao.atualizar(b);
+        }
+        dao.deletar(a.getId());
+        assertEquals(List.of(b), meus(CriterioDeClassificacao.XP_TOTAL));
+    }
+
+    private Usuario salvar(int xp, int nivel) {
+        Usuario u = new Usuario("Usuário", email(), "senha123");
+        dao.salvar(u);
+        criados.add(u.getId());
+        adicionarHabito(u, xp, nivel);
+        return u;
+    }
+
+    private static void adicionarHabito(Usuario u, int xp, int nivel) {
+        Habito h = new Habito("Hábito", Categoria.SAUDE, Recorrencia.DIARIA, Prioridade.MEDIA);
+        h.setId(1);
+        u.adicionarHabito(h);
+        h.setLevel(nivel);
+        h.setXp(xp);
+    }
+
+    private static Habito habito(Usuario u) {
+        return u.buscarHabito(1);
+    }
+
+    private static String email() {
+        return "classificacao" + proximoEmail++ + "@x.com";
+    }
+
+    /**
+     * Os usuários criados por este teste, na ordem do critério.
+     */
+    private List<Usuario> meus(CriterioDeClassificacao criterio) {
+        List<Usuario> meus = new ArrayList<>();
+        for (Classificacao.Colocacao c : classificacao.primeiros(criterio, Integer.MAX_VALUE)) {
+            if (criados.contains(c.usuario().getId())) {
+                meus.add(c.usuario());
+            }
+        }
+        return meus;
+    }
+}
@@ -0,0 +1,136 @@
+package cicloo.controller;
+
+import cicloo.dao.UsuarioDAO;
+import cicloo.model.DistribuicaoDeHabitos;
+import cicloo.model.Habito;
+import cicloo.model.Usuario;
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.Histograma;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link DistribuicaoDosCadastrados} sobre a {@link UsuarioDAO} padrão: a
+ * {@link DistribuicaoDeHabitos} conta os usuários salvos, deixa de contar os
+ * excluídos e os substituídos e ignora os que não estão na DAO, inclusive
+ * depois de a assinatura do fluxo ser desconectada.
+ *
+ * @author Eric
+ */
+public class DistribuicaoDosCadastradosTest {
+
+    private static int proximoEmail;
+
+    private final UsuarioDAO dao = UsuarioDAO.getInstancia();
+    private final DistribuicaoDeHabitos distribuicao = DistribuicaoDeHabitos.getInstancia();
+    private final List<Integer> criados = new ArrayList<>();
+    private DistribuicaoDosCadastrados cadastrados;
+    private Histograma antes;
+    private long ignoradosAntes;
+
+    @Before
+    public void criar() {
+        cadastrados = new DistribuicaoDosCadastrados(dao);
+        antes = distribuicao.getStreaks(Recorrencia.ANUAL);
+        ignoradosAntes = distribuicao.getDescontosIgnorados();
+    }
+
+    @After
+    public void limpar() {
+        dao.deletarTodos(criados.stream().mapToInt(Integer::intValue).toArray());
+        cadastrados.sincronizar();
+        cadastrados.close();
+    }
+
+    @Test
+    public void contaSoOsUsuariosDaDao() {
+        Usuario a = salvar(10);
+        Usuario b = salvar(20);
+        Usuario naoSalvo = new Usuario("Não salvo", email(), "senha123");
+        adicionarHabito(naoSalvo, 30);
+        cadastrados.sincronizar();
+        conferir(10, 20);
+
+        // Hábitos mudados depois da inclusão também contam.
+        adicionarHabito(a, 40);
+        conferir(10, 20, 40);
+
+        dao.deletar(a.getId());
+        cadastrados.sincronizar();
+        conferir(20);
+
+        dao.deletarTodos(b.getId());
+        cadastrados.sincronizar();
+        conferir();
+        assertEquals(ignoradosAntes, distribuicao.getDescontosIgnorados());
+    }
+
+    @Test
+    public void usuarioSubstituidoDaLugarAoNovo() {
+        Usuario a = salvar(10);
+        cadastrados.sincronizar();
+        Usuario novo = new Usuario("Substituto", email(), "senha123");
+        novo.setId(a.getId());
+        adicionarHabito(novo, 50);
+
+        dao.restaurar(novo);
+        cadastrados.sincronizar();
+        conferir(50);
+
+        // O usuário substituído não conta mais.
+        adicionarHabito(a, 60);
+        conferir(50);
+    }
+
+    @Test
+    public void assinaturaDesconectadaConfereComADao() {
+        Usuario a = salvar(10);
+        Usuario b = salvar(20);
+        cadastrados.sincronizar();
+        // Mais alterações que uma volta do fluxo, sem sincronizar no meio.
+        for (int i = 0; i < 1_500; i++) {
+            dao.atualizar(b);
+        }
+        dao.deletar(a.getId());
+        salvar(30);
+        cadastrados.sincronizar();
+        conferir(20, 30);
+    }
+
+    private Usuario salvar(int streak) {
+        Usuario u = new Usuario("Usuário", email(), "senha123");
+        dao.salvar(u);
+        criados.add(u.getId());
+        adicionarHabito(u, streak);
+        return u;
+    }
+
+    /**
+     * Dá ao usuário um hábito anual com o streak informado; os hábitos
+     * anuais são conferidos contra a distribuição de antes do teste.
+     */
+    private static void adicionarHabito(Usuario u, int streak) {
+        Habito h = new Habito("Hábito", Categoria.SAUDE, Recorrencia.ANUAL, Prioridade.MEDIA);
+        h.setId(u.listarHabitos().size() + 1);
+        u.adicionarHabito(h);
+        h.setStreak(streak);
+    }
+
+    private static String email() {
+        return "distribuicao" + proximoEmail++ + "@x.com";
+    }
+
+    private void conferir(int... streaks) {
+        Histograma esperado = antes.copia();
+        for (int s : streaks) {
+            esperado.registrar(s);
+        }
+        assertEquals(esperado.faixas(), distribuicao.getStreaks(Recorrencia.ANUAL).faixas());
+    }
+}
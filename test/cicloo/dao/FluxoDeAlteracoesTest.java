@@ -0,0 +1,92 @@
+package cicloo.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Contrapressão do {@link FluxoDeAlteracoes}: um assinante parado não pode
+ * segurar as escritas da DAO para sempre, e um assinante que está lendo não
+ * pode ter as suas posições sobrescritas.
+ *
+ * @author Eric
+ */
+public class FluxoDeAlteracoesTest {
+
+    private static final FluxoDeAlteracoes.Copiador<int[]> COPIADOR = new FluxoDeAlteracoes.Copiador<>() {
+        @Override
+        public int[] copiar(int[] origem) {
+            return origem.clone();
+        }
+
+        @Override
+        public void copiar(int[] origem, int[] destino) {
+            System.arraycopy(origem, 0, destino, 0, origem.length);
+        }
+    };
+
+    private static FluxoDeAlteracoes<int[]> novoFluxo() {
+        return new FluxoDeAlteracoes<>(4, COPIADOR, v -> v[0], 50);
+    }
+
+    @Test(timeout = 10_000)
+    public void assinanteParadoEDesconectado() throws Exception {
+        FluxoDeAlteracoes<int[]> fluxo = novoFluxo();
+        FluxoDeAlteracoes<int[]>.Assinatura parada = fluxo.assinar();
+        FluxoDeAlteracoes<int[]>.Assinatura ativa = fluxo.assinar();
+        List<Integer> recebidos = new ArrayList<>();
+        for (int id = 0; id < 20; id++) {
+            fluxo.registrar(new int[] {id});
+            ativa.consumir(10, a -> recebidos.add(a.getId()), 0);
+        }
+        assertTrue(parada.isDesconectada());
+        assertFalse(ativa.isDesconectada());
+        assertEquals(20, recebidos.size());
+        assertEquals(20, fluxo.getUltimaSequencia());
+        try {
+            parada.consumir(1, a -> {}, 0);
+            fail("assinatura desconectada não deveria consumir");
+        } catch (IllegalStateException esperado) {
+            // a assinatura precisa ser refeita
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void entregaEmAndamentoNaoESobrescrita() throws Exception {
+        FluxoDeAlteracoes<int[]> fluxo = novoFluxo();
+        FluxoDeAlteracoes<int[]>.Assinatura lenta = fluxo.assinar();
+        for (int id = 0; id < 4; id++) {
+            fluxo.registrar(new int[] {id});
+        }
+        CountDownLatch lendo = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Integer>> lidos = pool.submit(() -> {
+                List<Integer> ids = new ArrayList<>();
+                lenta.consumir(4, a -> {
+                    lendo.countDown();
+                    try {
+                        // bem mais que a espera máxima do fluxo
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    ids.add(a.getDepois()[0]);
+                }, -1);
+                return ids;
+            });
+            assertTrue(lendo.await(5, TimeUnit.SECONDS));
+            fluxo.registrar(new int[] {4});
+            assertEquals(List.of(0, 1, 2, 3), lidos.get());
+            assertFalse(lenta.isDesconectada());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
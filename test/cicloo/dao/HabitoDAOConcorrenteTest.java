@@ -0,0 +1,122 @@
+package cicloo.dao;
+
+import cicloo.model.Habito;
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Teste de estresse da {@link HabitoDAOConcorrente}: cada thread salva,
+ * atualiza, exclui e busca os seus hábitos, sozinhos e em lotes, e ao final
+ * a DAO deve ter exatamente os hábitos que cada thread manteve.
+ *
+ * @author Eric
+ */
+public class HabitoDAOConcorrenteTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERACOES = 20_000;
+
+    @Test
+    public void operacoesConcorrentesNaoPerdemNemRepetemHabitos() throws Exception {
+        HabitoDAOConcorrente dao = HabitoDAOConcorrente.getInstancia();
+        String prefixo = "stress" + System.nanoTime();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Map<Integer, String>>> resultados = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                String dono = prefixo + "-" + t;
+                resultados.add(pool.submit(() -> trabalhar(dao, dono, largada)));
+            }
+            largada.countDown();
+
+            Map<Integer, String> mantidos = new HashMap<>();
+            for (Future<Map<Integer, String>> f : resultados) {
+                for (Map.Entry<Integer, String> e : f.get(2, TimeUnit.MINUTES).entrySet()) {
+                    assertNull("ID gerado duas vezes: " + e.getKey(), mantidos.put(e.getKey(), e.getValue()));
+                }
+            }
+            for (Map.Entry<Integer, String> e : mantidos.entrySet()) {
+                Habito h = dao.buscarPorId(e.getKey());
+                assertNotNull("Hábito perdido: " + e.getKey(), h);
+                assertEquals(e.getValue(), h.getNome());
+            }
+            Set<Integer> noFluxo = new HashSet<>();
+            dao.fluxo().filter(h -> h.getNome().startsWith(prefixo)).forEach(h -> {
+                assertTrue("ID repetido no fluxo: " + h.getId(), noFluxo.add(h.getId()));
+            });
+            assertEquals(mantidos.keySet(), noFluxo);
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    /**
+     * Executa operações aleatórias sobre hábitos próprios da thread.
+     *
+     * @return o nome atual de cada hábito que a thread manteve, por ID.
+     */
+    private static Map<Integer, String> trabalhar(HabitoDAOConcorrente dao, String dono, CountDownLatch largada)
+            throws InterruptedException {
+        largada.await();
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        Map<Integer, String> meus = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < OPERACOES; i++) {
+            int op = r.nextInt(10);
+            if (op < 3 || ids.isEmpty()) {
+                Habito h = novo(dono + "-" + i);
+                dao.salvar(h);
+                meus.put(h.getId(), h.getNome());
+                ids.add(h.getId());
+            } else if (op < 4) {
+                List<Habito> lote = new ArrayList<>();
+                for (int j = 0; j < 5; j++) {
+                    lote.add(novo(dono + "-" + i + "-" + j));
+                }
+                dao.salvarTodos(lote);
+                for (Habito h : lote) {
+                    meus.put(h.getId(), h.getNome());
+                    ids.add(h.getId());
+                }
+            } else if (op < 6) {
+                int id = ids.remove(r.nextInt(ids.size()));
+                dao.deletar(id);
+                meus.remove(id);
+                assertNull(dao.buscarPorId(id));
+            } else if (op < 8) {
+                int id = ids.get(r.nextInt(ids.size()));
+                Habito alterado = novo(dono + "-alterado-" + i);
+                alterado.setId(id);
+                dao.atualizar(alterado);
+                meus.put(id, alterado.getNome());
+            } else {
+                int id = ids.get(r.nextInt(ids.size()));
+                Habito h = dao.buscarPorId(id);
+                assertNotNull(h);
+                assertEquals(meus.get(id), h.getNome());
+            }
+        }
+        return meus;
+    }
+
+    private static Habito novo(String nome) {
+        return new Habito(nome, Categoria.SAUDE, Recorrencia.DIARIA, Prioridade.MEDIA);
+    }
+}
@@ -0,0 +1,113 @@
+package cicloo.dao;
+
+import cicloo.model.Usuario;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Teste de estresse da {@link UsuarioDAOConcorrente}: várias threads
+ * cadastram, atualizam, excluem e buscam usuários com e-mails em comum,
+ * enquanto leitoras conferem que nenhuma busca devolve um usuário pela metade.
+ *
+ * @author Eric
+ */
+public class UsuarioDAOConcorrenteTest {
+
+    private static final int THREADS = 8;
+    private static final int EMAILS = 200;
+    private static final int OPERACOES = 20_000;
+
+    @Test
+    public void operacoesConcorrentesMantemIndicesConsistentes() throws Exception {
+        UsuarioDAOConcorrente dao = UsuarioDAOConcorrente.getInstancia();
+        // A DAO é única; um prefixo próprio isola este teste de outros dados.
+        String prefixo = "stress" + System.nanoTime();
+        AtomicBoolean rodando = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> erros = new ConcurrentLinkedQueue<>();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 2);
+        List<Future<?>> escritoras = new ArrayList<>();
+        try {
+            for (int t = 0; t < 2; t++) {
+                pool.submit(() -> {
+                    largada.await();
+                    while (rodando.get()) {
+                        String email = email(prefixo, ThreadLocalRandom.current().nextInt(EMAILS));
+                        Usuario u = dao.buscarPorEmail(email);
+                        // Fora do mapa e ainda no índice de e-mail: publicado antes da hora.
+                        if (u != null && dao.buscarPorId(u.getId()) != u && dao.buscarPorEmail(email) == u) {
+                            erros.add("Usuário achado pelo e-mail e não pelo ID: " + email + " id " + u.getId());
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (int t = 0; t < THREADS; t++) {
+                escritoras.add(pool.submit(() -> {
+                    largada.await();
+                    ThreadLocalRandom r = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERACOES; i++) {
+                        int n = r.nextInt(EMAILS);
+                        String email = email(prefixo, n);
+                        int op = r.nextInt(10);
+                        if (op < 5) {
+                            dao.salvar(new Usuario(prefixo + "-" + n, email, "senha123"));
+                        } else if (op < 7) {
+                            Usuario u = dao.buscarPorEmail(email);
+                            if (u != null) {
+                                dao.deletar(u.getId());
+                            }
+                        } else if (op < 8) {
+                            Usuario u = dao.buscarPorEmail(email);
+                            if (u != null) {
+                                Usuario novo = new Usuario(prefixo + "-novo-" + n, email, "senha456");
+                                novo.setId(u.getId());
+                                dao.atualizar(novo);
+                            }
+                        } else {
+                            dao.buscarPorNome(prefixo + "-" + n);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> f : escritoras) {
+                f.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            rodando.set(false);
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        }
+
+        assertTrue(erros.toString(), erros.isEmpty());
+        for (int n = 0; n < EMAILS; n++) {
+            String email = email(prefixo, n);
+            Usuario u = dao.buscarPorEmail(email);
+            long comEmail = dao.fluxo().filter(x -> x.getEmail().equals(email)).count();
+            assertTrue("E-mail repetido: " + email, comEmail <= 1);
+            if (u == null) {
+                assertEquals("Usuário fora do índice de e-mail: " + email, 0, comEmail);
+            } else {
+                assertSame(u, dao.buscarPorId(u.getId()));
+                assertEquals(1, comEmail);
+                assertNotNull(dao.buscarPorNome(u.getNome()));
+            }
+        }
+    }
+
+    private static String email(String prefixo, int n) {
+        return prefixo + "." + n + "@teste.com";
+    }
+}
@@ -0,0 +1,154 @@
+package cicloo.model;
+
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.ModoDeStreak;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.Histograma;
+import cicloo.util.Relogio;
+import cicloo.util.RelogioManual;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link DistribuicaoDeHabitos} comparada a uma recontagem dos hábitos de um
+ * usuário incluído, somada ao que a distribuição já tinha antes do teste.
+ * Usuários não incluídos não mudam a distribuição, e descontos
+ * inconsistentes são ignorados e contados em vez de lançar exceção.
+ *
+ * @author Eric
+ */
+public class DistribuicaoDeHabitosTest {
+
+    private final DistribuicaoDeHabitos distribuicao = DistribuicaoDeHabitos.getInstancia();
+    private Relogio relogioAnterior;
+    private ModoDeStreak modoAnterior;
+    private Histograma[] streaksAntes;
+    private Histograma[] niveisAntes;
+    private long ignoradosAntes;
+
+    @Before
+    public void fixarData() {
+        relogioAnterior = Calendario.getRelogio();
+        modoAnterior = Habito.getModoDeStreak();
+        Calendario.usarRelogio(new RelogioManual(LocalDate.of(2025, 6, 15)));
+        Habito.usarModoDeStreak(ModoDeStreak.IMEDIATO);
+        streaksAntes = new Histograma[Recorrencia.values().length];
+        for (Recorrencia r : Recorrencia.values()) {
+            streaksAntes[r.ordinal()] = distribuicao.getStreaks(r);
+        }
+        niveisAntes = new Histograma[Categoria.values().length];
+        for (Categoria c : Categoria.values()) {
+            niveisAntes[c.ordinal()] = distribuicao.getNiveis(c);
+        }
+        ignoradosAntes = distribuicao.getDescontosIgnorados();
+    }
+
+    @After
+    public void restaurarData() {
+        Calendario.usarRelogio(relogioAnterior);
+        Habito.usarModoDeStreak(modoAnterior);
+    }
+
+    @Test
+    public void alteracoesAleatoriasBatemComRecontagem() {
+        Random aleatorio = new Random(41);
+        Usuario usuario = new Usuario("Teste", "distribuicao@x.com", "senha123");
+        List<Habito> habitos = new ArrayList<>();
+        distribuicao.incluir(usuario);
+        for (int i = 0; i < 5_000; i++) {
+            int op = aleatorio.nextInt(8);
+            if (op < 2 || habitos.isEmpty()) {
+                Habito h = new Habito("Hábito " + i, sortear(aleatorio, Categoria.values()),
+                        sortear(aleatorio, Recorrencia.values()), Prioridade.MEDIA);
+                h.setId(i);
+                h.setStreak(aleatorio.nextInt(100));
+                usuario.adicionarHabito(h);
+                habitos.add(h);
+            } else {
+                Habito h = habitos.get(aleatorio.nextInt(habitos.size()));
+                switch (op) {
+                    case 2 -> {
+                        usuario.removerHabito(h);
+                        habitos.remove(h);
+                    }
+                    case 3 -> h.setStreak(aleatorio.nextInt(100));
+                    case 4 -> h.setLevel(1 + aleatorio.nextInt(20));
+                    case 5 -> h.setRecorrencia(sortear(aleatorio, Recorrencia.values()));
+                    case 6 -> h.setCategoria(sortear(aleatorio, Categoria.values()));
+                    // um valor negativo conta como zero, dos dois lados
+                    default -> h.setStreak(-1);
+                }
+            }
+            conferir(habitos);
+        }
+
+        distribuicao.excluir(usuario);
+        conferir(List.of());
+        // Com o usuário excluído, os hábitos dele não contam mais.
+        habitos.get(0).setStreak(77);
+        conferir(List.of());
+        assertEquals(ignoradosAntes, distribuicao.getDescontosIgnorados());
+    }
+
+    @Test
+    public void usuarioNaoIncluidoNaoConta() {
+        Usuario usuario = new Usuario("Teste", "distribuicao@x.com", "senha123");
+        Habito h = new Habito("Hábito", Categoria.SAUDE, Recorrencia.DIARIA, Prioridade.MEDIA);
+        h.setId(1);
+        usuario.adicionarHabito(h);
+        h.setStreak(5);
+        conferir(List.of());
+
+        distribuicao.incluir(usuario);
+        distribuicao.incluir(usuario);
+        conferir(List.of(h));
+        distribuicao.excluir(usuario);
+        distribuicao.excluir(usuario);
+        conferir(List.of());
+    }
+
+    @Test
+    public void descontoInconsistenteEIgnorado() {
+        // Nenhum hábito tem esse streak nem esse nível.
+        distribuicao.excluir(Recorrencia.ANUAL, Categoria.SAUDE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals(ignoradosAntes + 4, distribuicao.getDescontosIgnorados());
+        conferir(List.of());
+    }
+
+    @SafeVarargs
+    private static <T> T sortear(Random aleatorio, T... valores) {
+        return valores[aleatorio.nextInt(valores.length)];
+    }
+
+    /**
+     * Compara a distribuição com a de antes do teste somada aos hábitos
+     * informados.
+     */
+    private void conferir(List<Habito> habitos) {
+        Histograma[] streaks = new Histograma[streaksAntes.length];
+        for (int i = 0; i < streaks.length; i++) {
+            streaks[i] = streaksAntes[i].copia();
+        }
+        Histograma[] niveis = new Histograma[niveisAntes.length];
+        for (int i = 0; i < niveis.length; i++) {
+            niveis[i] = niveisAntes[i].copia();
+        }
+        for (Habito h : habitos) {
+            streaks[h.getRecorrencia().ordinal()].registrar(Math.max(h.getStreak(), 0));
+            niveis[h.getCategoria().ordinal()].registrar(Math.max(h.getLevel(), 0));
+        }
+        for (Recorrencia r : Recorrencia.values()) {
+            assertEquals("streaks " + r, streaks[r.ordinal()].faixas(), distribuicao.getStreaks(r).faixas());
+        }
+        for (Categoria c : Categoria.values()) {
+            assertEquals("níveis " + c, niveis[c.ordinal()].faixas(), distribuicao.getNiveis(c).faixas());
+        }
+    }
+}
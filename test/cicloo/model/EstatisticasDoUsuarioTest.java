@@ -0,0 +1,139 @@
+package cicloo.model;
+
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.ModoDeStreak;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.Relogio;
+import cicloo.util.RelogioManual;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link EstatisticasDoUsuario} comparadas a um recálculo sobre os hábitos do
+ * usuário depois de cada adição, remoção e alteração, incluindo a troca do
+ * topo quando o hábito de maior nível ou streak sai.
+ *
+ * @author Eric
+ */
+public class EstatisticasDoUsuarioTest {
+
+    private Relogio relogioAnterior;
+    private ModoDeStreak modoAnterior;
+
+    @Before
+    public void fixarData() {
+        relogioAnterior = Calendario.getRelogio();
+        modoAnterior = Habito.getModoDeStreak();
+        Calendario.usarRelogio(new RelogioManual(LocalDate.of(2025, 6, 15)));
+        Habito.usarModoDeStreak(ModoDeStreak.IMEDIATO);
+    }
+
+    @After
+    public void restaurarData() {
+        Calendario.usarRelogio(relogioAnterior);
+        Habito.usarModoDeStreak(modoAnterior);
+    }
+
+    @Test
+    public void operacoesAleatoriasBatemComRecalculo() {
+        Random aleatorio = new Random(9);
+        Usuario usuario = new Usuario("Teste", "teste@x.com", "senha123");
+        List<Habito> habitos = new ArrayList<>();
+        int proximoId = 0;
+        for (int i = 0; i < 20_000; i++) {
+            int op = aleatorio.nextInt(10);
+            if (op < 3 || habitos.isEmpty()) {
+                Habito h = new Habito("Hábito " + proximoId, Categoria.SAUDE, Recorrencia.DIARIA, Prioridade.MEDIA);
+                h.setId(proximoId++);
+                h.setLevel(1 + aleatorio.nextInt(10));
+                h.setStreak(aleatorio.nextInt(10));
+                usuario.adicionarHabito(h);
+                habitos.add(h);
+            } else {
+                Habito h = habitos.get(aleatorio.nextInt(habitos.size()));
+                switch (op) {
+                    case 3 -> {
+                        usuario.removerHabito(h);
+                        habitos.remove(h);
+                    }
+                    case 4, 5 -> h.setLevel(1 + aleatorio.nextInt(10));
+                    case 6, 7 -> h.setStreak(aleatorio.nextInt(10));
+                    case 8 -> h.setXp(aleatorio.nextInt(100));
+                    default -> h.setCategoria(Categoria.values()[aleatorio.nextInt(Categoria.values().length)]);
+                }
+            }
+            conferir(usuario.getEstatisticas(), habitos);
+        }
+    }
+
+    @Test
+    public void empateVaiParaOHabitoMaisAntigo() {
+        Usuario usuario = new Usuario("Teste", "teste@x.com", "senha123");
+        Habito a = novo(usuario, 1, 5, 3);
+        Habito b = novo(usuario, 2, 5, 3);
+        Habito c = novo(usuario, 3, 2, 1);
+        EstatisticasDoUsuario e = usuario.getEstatisticas();
+        assertSame(a, e.getHabitoMaiorNivel());
+        assertSame(a, e.getHabitoMaiorStreak());
+
+        usuario.removerHabito(a);
+        assertSame(b, e.getHabitoMaiorNivel());
+        assertSame(b, e.getHabitoMaiorStreak());
+
+        b.setLevel(1);
+        b.setStreak(0);
+        assertSame(c, e.getHabitoMaiorNivel());
+        assertSame(c, e.getHabitoMaiorStreak());
+
+        usuario.removerHabito(b);
+        usuario.removerHabito(c);
+        assertNull(e.getHabitoMaiorNivel());
+        assertEquals(0, e.getMaiorStreak());
+        assertEquals(0, e.getTotalXp());
+    }
+
+    @Test
+    public void streakVencidoSaiDoTopoSobDemanda() {
+        Habito.usarModoDeStreak(ModoDeStreak.SOB_DEMANDA);
+        LocalDate hoje = Calendario.hoje();
+        Usuario usuario = new Usuario("Teste", "teste@x.com", "senha123");
+        Habito vencido = novo(usuario, 1, 1, 0);
+        vencido.restaurarProgresso(1, 0, 8, 8, hoje.minusDays(5));
+        Habito emDia = novo(usuario, 2, 1, 0);
+        emDia.restaurarProgresso(1, 0, 3, 3, hoje.minusDays(1));
+        assertSame(emDia, usuario.getEstatisticas().getHabitoMaiorStreak());
+        assertEquals(3, usuario.getEstatisticas().getMaiorStreak());
+    }
+
+    private static Habito novo(Usuario usuario, int id, int nivel, int streak) {
+        Habito h = new Habito("Hábito " + id, Categoria.SAUDE, Recorrencia.DIARIA, Prioridade.MEDIA);
+        h.setId(id);
+        h.setLevel(nivel);
+        h.setStreak(streak);
+        usuario.adicionarHabito(h);
+        return h;
+    }
+
+    private static void conferir(EstatisticasDoUsuario e, List<Habito> habitos) {
+        assertEquals(habitos.size(), e.getQuantidadeDeHabitos());
+        assertEquals(habitos.stream().mapToInt(Habito::getXp).sum(), e.getTotalXp());
+        Habito maiorNivel = habitos.stream()
+                .min(Comparator.comparingInt((Habito h) -> -h.getLevel()).thenComparingInt(Habito::getId))
+                .orElse(null);
+        Habito maiorStreak = habitos.stream()
+                .min(Comparator.comparingInt((Habito h) -> -h.getStreak()).thenComparingInt(Habito::getId))
+                .orElse(null);
+        assertSame(maiorNivel, e.getHabitoMaiorNivel());
+        assertSame(maiorStreak, e.getHabitoMaiorStreak());
+        assertEquals(maiorNivel == null ? 0 : maiorNivel.getLevel(), e.getMaiorNivel());
+        assertEquals(maiorStreak == null ? 0 : maiorStreak.getStreak(), e.getMaiorStreak());
+    }
+}
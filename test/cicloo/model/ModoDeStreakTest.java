@@ -0,0 +1,113 @@
+package cicloo.model;
+
+import cicloo.model.enums.Categoria;
+import cicloo.model.enums.ModoDeStreak;
+import cicloo.model.enums.Prioridade;
+import cicloo.model.enums.Recorrencia;
+import cicloo.util.Relogio;
+import cicloo.util.RelogioManual;
+import java.time.LocalDate;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Os dois {@link ModoDeStreak modos de streak} informam a mesma sequência:
+ * um hábito no modo {@link ModoDeStreak#IMEDIATO imediato}, verificado todo
+ * dia, e um igual lido no modo {@link ModoDeStreak#SOB_DEMANDA sob demanda},
+ * sem verificação, antes e depois de períodos perdidos.
+ *
+ * @author Eric
+ */
+public class ModoDeStreakTest {
+
+    private Relogio relogioAnterior;
+    private ModoDeStreak modoAnterior;
+    private RelogioManual relogio;
+
+    @Before
+    public void fixarData() {
+        relogioAnterior = Calendario.getRelogio();
+        modoAnterior = Habito.getModoDeStreak();
+        relogio = new RelogioManual(LocalDate.of(2025, 6, 2));
+        Calendario.usarRelogio(relogio);
+    }
+
+    @After
+    public void restaurarData() {
+        Calendario.usarRelogio(relogioAnterior);
+        Habito.usarModoDeStreak(modoAnterior);
+    }
+
+    @Test
+    public void periodoPerdidoZeraNosDoisModos() {
+        Habito imediato = novo(Recorrencia.DIARIA);
+        Habito sobDemanda = novo(Recorrencia.DIARIA);
+        concluir(imediato, sobDemanda);
+        relogio.avancarDias(1);
+        concluir(imediato, sobDemanda);
+        assertMesmoStreak(2, imediato, sobDemanda);
+
+        // Um dia sem conclusão ainda está no prazo.
+        relogio.avancarDias(1);
+        assertMesmoStreak(2, imediato, sobDemanda);
+
+        // No dia seguinte um período inteiro passou sem conclusão.
+        relogio.avancarDias(1);
+        assertMesmoStreak(0, imediato, sobDemanda);
+
+        concluir(imediato, sobDemanda);
+        assertMesmoStreak(1, imediato, sobDemanda);
+    }
+
+    @Test
+    public void conclusoesAleatoriasBatemEntreOsModos() {
+        Random aleatorio = new Random(5);
+        for (Recorrencia recorrencia : Recorrencia.values()) {
+            Habito imediato = novo(recorrencia);
+            Habito sobDemanda = novo(recorrencia);
+            for (int dia = 0; dia < 800; dia++) {
+                if (aleatorio.nextInt(4) == 0) {
+                    concluir(imediato, sobDemanda);
+                }
+                relogio.avancarDias(1 + (aleatorio.nextInt(20) == 0 ? aleatorio.nextInt(40) : 0));
+                int esperado = lerNoModo(ModoDeStreak.SOB_DEMANDA, sobDemanda);
+                assertMesmoStreak(esperado, imediato, sobDemanda);
+            }
+        }
+    }
+
+    private static Habito novo(Recorrencia recorrencia) {
+        return new Habito("Hábito", Categoria.SAUDE, recorrencia, Prioridade.MEDIA);
+    }
+
+    /**
+     * Conclui os dois hábitos, cada um no seu modo.
+     */
+    private static void concluir(Habito imediato, Habito sobDemanda) {
+        Habito.usarModoDeStreak(ModoDeStreak.IMEDIATO);
+        imediato.verificarEresetarStreak();
+        imediato.marcarComoConcluido();
+        Habito.usarModoDeStreak(ModoDeStreak.SOB_DEMANDA);
+        sobDemanda.marcarComoConcluido();
+    }
+
+    /**
+     * Verifica o hábito imediato, como a expiração faz na virada do dia, e
+     * compara a sua sequência com a lida sob demanda no outro hábito.
+     */
+    private static void assertMesmoStreak(int esperado, Habito imediato, Habito sobDemanda) {
+        Habito.usarModoDeStreak(ModoDeStreak.IMEDIATO);
+        imediato.verificarEresetarStreak();
+        String data = " em " + Calendario.hoje() + " (" + imediato.getRecorrencia() + ")";
+        assertEquals("imediato" + data, esperado, lerNoModo(ModoDeStreak.IMEDIATO, imediato));
+        assertEquals("sob demanda" + data, esperado, lerNoModo(ModoDeStreak.SOB_DEMANDA, sobDemanda));
+    }
+
+    private static int lerNoModo(ModoDeStreak modo, Habito h) {
+        Habito.usarModoDeStreak(modo);
+        return h.getStreak();
+    }
+}
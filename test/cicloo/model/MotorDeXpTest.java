@@ -0,0 +1,75 @@
+package cicloo.model;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link MotorDeXp} comparado à subida de um nível por vez, e nas fronteiras
+ * entre níveis, onde a raiz quadrada pode arredondar para o lado errado.
+ *
+ * @author Eric
+ */
+public class MotorDeXpTest {
+
+    private static final int BASE = MotorDeXp.XP_BASE_POR_NIVEL;
+
+    @Test
+    public void aplicarBateComSubidaNivelANivel() {
+        Random aleatorio = new Random(5);
+        for (int i = 0; i < 100_000; i++) {
+            int nivel = 1 + aleatorio.nextInt(200);
+            int xp = aleatorio.nextInt(nivel * BASE);
+            long ganho = aleatorio.nextInt(4) == 0 ? aleatorio.nextInt(200_000) : aleatorio.nextInt(100);
+
+            long xpEsperado = xp + ganho;
+            int nivelEsperado = nivel;
+            while (xpEsperado >= (long) nivelEsperado * BASE) {
+                xpEsperado -= (long) nivelEsperado * BASE;
+                nivelEsperado++;
+            }
+            MotorDeXp.Progresso p = MotorDeXp.aplicar(nivel, xp, ganho);
+            assertEquals(nivelEsperado, p.nivel());
+            assertEquals(xpEsperado, p.xp());
+            assertEquals(nivelEsperado - nivel, p.niveisGanhos());
+        }
+    }
+
+    @Test
+    public void fronteirasDosNiveis() {
+        int[] niveis = {1, 2, 3, 10, 1_000, 65_536, 1_000_000, 100_000_000, 200_000_000};
+        for (int nivel : niveis) {
+            long inicio = MotorDeXp.xpAcumuladoAteNivel(nivel);
+            assertEquals(nivel, MotorDeXp.nivelParaXpTotal(inicio));
+            if (nivel > 1) {
+                assertEquals(nivel - 1, MotorDeXp.nivelParaXpTotal(inicio - 1));
+            }
+            long proximo = MotorDeXp.xpAcumuladoAteNivel(nivel + 1);
+            assertEquals(nivel, MotorDeXp.nivelParaXpTotal(proximo - 1));
+        }
+    }
+
+    @Test
+    public void xpAcumuladoEhASomaDosNiveis() {
+        long soma = 0;
+        for (int nivel = 1; nivel <= 500; nivel++) {
+            assertEquals(soma, MotorDeXp.xpAcumuladoAteNivel(nivel));
+            soma += (long) nivel * BASE;
+        }
+    }
+
+    @Test
+    public void xpZeroEhNivelUm() {
+        assertEquals(1, MotorDeXp.nivelParaXpTotal(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void xpNegativo() {
+        MotorDeXp.nivelParaXpTotal(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ganhoNegativo() {
+        MotorDeXp.aplicar(1, 0, -1);
+    }
+}
@@ -0,0 +1,39 @@
+package cicloo.model.enums;
+
+import java.time.LocalDate;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Números de período de cada {@link Recorrencia}: consecutivos, e
+ * {@link Recorrencia#inicioDoPeriodo} é o inverso de
+ * {@link Recorrencia#indicePeriodo}.
+ *
+ * @author Eric
+ */
+public class RecorrenciaTest {
+
+    @Test
+    public void inicioDoPeriodoEhOInversoDoIndice() {
+        LocalDate fim = LocalDate.of(2031, 1, 1);
+        for (Recorrencia r : Recorrencia.values()) {
+            int anterior = r.indicePeriodo(LocalDate.of(1969, 12, 31));
+            for (LocalDate d = LocalDate.of(1970, 1, 1); d.isBefore(fim); d = d.plusDays(1)) {
+                int indice = r.indicePeriodo(d);
+                assertTrue(r + " em " + d, indice == anterior || indice == anterior + 1);
+                LocalDate inicio = r.inicioDoPeriodo(indice);
+                assertFalse(r + " em " + d, inicio.isAfter(d));
+                assertEquals(r + " em " + d, indice, r.indicePeriodo(inicio));
+                assertEquals(r + " em " + d, indice - 1, r.indicePeriodo(inicio.minusDays(1)));
+                anterior = indice;
+            }
+        }
+    }
+
+    @Test
+    public void semanasTemSeteDias() {
+        LocalDate inicio = Recorrencia.SEMANAL.inicioDoPeriodo(2_900);
+        assertEquals(2_901, Recorrencia.SEMANAL.indicePeriodo(inicio.plusDays(7)));
+        assertEquals(2_900, Recorrencia.SEMANAL.indicePeriodo(inicio.plusDays(6)));
+    }
+}
@@ -0,0 +1,148 @@
+package cicloo.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link BitmapComprimido} comparado a um {@link BitSet}: históricos com
+ * sequências longas de uns e de zeros, bits ligados no fim e no meio, e as
+ * consultas feitas sobre as palavras comprimidas.
+ *
+ * @author Eric
+ */
+public class BitmapComprimidoTest {
+
+    @Test
+    public void historicosAleatoriosBatemComBitSet() {
+        Random aleatorio = new Random(3);
+        for (int rodada = 0; rodada < 200; rodada++) {
+            BitmapComprimido mapa = new BitmapComprimido();
+            BitSet modelo = new BitSet();
+            int dia = aleatorio.nextInt(30_000);
+            int marcacoes = aleatorio.nextInt(400);
+            for (int i = 0; i < marcacoes; i++) {
+                // sequências de dias seguidos, saltos curtos e longos
+                switch (aleatorio.nextInt(4)) {
+                    case 0 -> dia += 1 + aleatorio.nextInt(3);
+                    case 1 -> dia += 64 * (1 + aleatorio.nextInt(5));
+                    case 2 -> {
+                        int fim = dia + aleatorio.nextInt(300);
+                        for (; dia < fim; dia++) {
+                            marcar(mapa, modelo, dia);
+                        }
+                    }
+                    default -> dia++;
+                }
+                marcar(mapa, modelo, dia);
+                if (aleatorio.nextInt(10) == 0) {
+                    // bit no meio do histórico
+                    marcar(mapa, modelo, aleatorio.nextInt(dia + 1));
+                }
+            }
+            conferir(modelo, mapa, aleatorio);
+        }
+    }
+
+    @Test
+    public void sequenciaDeUnsAtravessaPalavras() {
+        BitmapComprimido mapa = new BitmapComprimido();
+        for (int i = 100; i < 1_000; i++) {
+            mapa.marcar(i);
+        }
+        assertEquals(900, mapa.cardinalidade());
+        assertEquals(900, mapa.maiorSequencia());
+        assertEquals(900, mapa.sequenciaAte(999));
+        assertEquals(500, mapa.sequenciaAte(599));
+        assertEquals(0, mapa.sequenciaAte(99));
+        assertEquals(300, mapa.contarEntre(0, 400));
+        assertEquals(999, mapa.ultimo());
+        assertTrue(mapa.paraPalavras().length < 900 / 64);
+    }
+
+    @Test
+    public void marcarDuasVezesNaoMudaNada() {
+        BitmapComprimido mapa = new BitmapComprimido();
+        assertTrue(mapa.marcar(20_000));
+        assertFalse(mapa.marcar(20_000));
+        assertEquals(1, mapa.cardinalidade());
+    }
+
+    @Test
+    public void vazio() {
+        BitmapComprimido mapa = new BitmapComprimido();
+        assertTrue(mapa.estaVazio());
+        assertEquals(-1, mapa.ultimo());
+        assertEquals(0, mapa.maiorSequencia());
+        assertEquals(0, mapa.contarEntre(0, 1_000));
+        assertFalse(mapa.contem(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indiceNegativo() {
+        new BitmapComprimido().marcar(-1);
+    }
+
+    private static void marcar(BitmapComprimido mapa, BitSet modelo, int indice) {
+        assertEquals(!modelo.get(indice), mapa.marcar(indice));
+        modelo.set(indice);
+    }
+
+    private static void conferir(BitSet modelo, BitmapComprimido mapa, Random aleatorio) {
+        assertEquals(modelo.cardinality(), mapa.cardinalidade());
+        assertEquals(modelo.isEmpty(), mapa.estaVazio());
+        assertEquals(modelo.length() - 1, mapa.ultimo());
+        assertEquals(maiorSequencia(modelo), mapa.maiorSequencia());
+
+        List<Integer> esperados = new ArrayList<>();
+        modelo.stream().forEach(esperados::add);
+        List<Integer> lidos = new ArrayList<>();
+        mapa.paraCada(lidos::add);
+        assertEquals(esperados, lidos);
+
+        int limite = modelo.length() + 200;
+        for (int i = 0; i < 200; i++) {
+            int indice = aleatorio.nextInt(limite);
+            assertEquals(modelo.get(indice), mapa.contem(indice));
+            assertEquals(sequenciaAte(modelo, indice), mapa.sequenciaAte(indice));
+            int inicio = aleatorio.nextInt(limite);
+            int fim = inicio + aleatorio.nextInt(limite - inicio + 1);
+            assertEquals(modelo.get(inicio, fim).cardinality(), mapa.contarEntre(inicio, fim));
+        }
+
+        BitmapComprimido carregado = new BitmapComprimido();
+        carregado.carregarPalavras(mapa.paraPalavras());
+        assertEquals(lidos, listar(carregado));
+        BitmapComprimido copia = new BitmapComprimido();
+        copia.marcar(7);
+        copia.copiarDe(mapa);
+        assertEquals(lidos, listar(copia));
+    }
+
+    private static List<Integer> listar(BitmapComprimido mapa) {
+        List<Integer> lidos = new ArrayList<>();
+        mapa.paraCada(lidos::add);
+        return lidos;
+    }
+
+    private static int sequenciaAte(BitSet modelo, int indice) {
+        int n = 0;
+        while (indice - n >= 0 && modelo.get(indice - n)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static int maiorSequencia(BitSet modelo) {
+        int maior = 0;
+        for (int i = modelo.nextSetBit(0); i >= 0; ) {
+            int fim = modelo.nextClearBit(i);
+            maior = Math.max(maior, fim - i);
+            i = modelo.nextSetBit(fim);
+        }
+        return maior;
+    }
+}
@@ -0,0 +1,167 @@
+package cicloo.util;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link Histograma} comparado às contagens exatas dos valores: baldes,
+ * percentis arredondados para o balde, remoções (inclusive de valores não
+ * contados), soma de histogramas e cópias.
+ *
+ * @author Eric
+ */
+public class HistogramaTest {
+
+    @Test
+    public void operacoesAleatoriasBatemComContagemExata() {
+        Random aleatorio = new Random(31);
+        Histograma histograma = new Histograma();
+        TreeMap<Integer, Long> modelo = new TreeMap<>();
+        long total = 0;
+        for (int i = 0; i < 20_000; i++) {
+            int valor = valor(aleatorio);
+            if (aleatorio.nextInt(3) > 0) {
+                histograma.registrar(valor);
+                modelo.merge(valor, 1L, Long::sum);
+                total++;
+            } else {
+                // O histograma não distingue os valores de um balde: remover
+                // o valor desconta qualquer um dos contados no balde dele.
+                Histograma.Faixa balde = balde(histograma, valor);
+                assertEquals(balde != null, histograma.remover(valor));
+                if (balde != null) {
+                    int chave = modelo.subMap(balde.menor(), true, balde.maior(), true).firstKey();
+                    if (modelo.merge(chave, -1L, Long::sum) == 0) {
+                        modelo.remove(chave);
+                    }
+                    total--;
+                }
+            }
+            assertEquals(total, histograma.getTotal());
+            if (i % 10 == 0) {
+                conferir(histograma, modelo, total);
+            }
+        }
+    }
+
+    @Test
+    public void removerDeBaldeVazioNaoMudaNada() {
+        Histograma h = new Histograma();
+        h.registrar(3);
+        assertFalse(h.remover(4));
+        assertEquals(1, h.getTotal());
+        assertEquals(3, h.percentil(100));
+        assertTrue(h.remover(3));
+        assertFalse(h.remover(3));
+        assertEquals(0, h.getTotal());
+        assertEquals(0, h.percentil(50));
+        assertEquals(List.of(), h.faixas());
+    }
+
+    @Test
+    public void maiorValorCabeNoUltimoBalde() {
+        Histograma h = new Histograma();
+        h.registrar(Integer.MAX_VALUE);
+        h.registrar(0);
+        assertEquals(Integer.MAX_VALUE, h.percentil(100));
+        assertEquals(0, h.percentil(50));
+        Histograma.Faixa ultima = h.faixas().get(1);
+        assertEquals(Integer.MAX_VALUE, ultima.maior());
+        assertTrue(ultima.menor() <= Integer.MAX_VALUE && ultima.menor() > Integer.MAX_VALUE - (Integer.MAX_VALUE >> 5));
+    }
+
+    @Test
+    public void acumularSomaBaldeABalde() {
+        Random aleatorio = new Random(37);
+        Histograma a = new Histograma();
+        Histograma b = new Histograma();
+        Histograma juntos = new Histograma();
+        for (int i = 0; i < 5_000; i++) {
+            int valor = valor(aleatorio);
+            (aleatorio.nextBoolean() ? a : b).registrar(valor);
+            juntos.registrar(valor);
+        }
+        Histograma copia = a.copia();
+        a.acumular(b);
+        assertEquals(juntos.faixas(), a.faixas());
+        assertEquals(juntos.getTotal(), a.getTotal());
+        assertEquals(juntos.percentil(90), a.percentil(90));
+
+        // A cópia não é afetada pelo original.
+        assertEquals(a.getTotal() - b.getTotal(), copia.getTotal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void valorNegativo() {
+        new Histograma().registrar(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentilForaDoIntervalo() {
+        new Histograma().percentil(100.5);
+    }
+
+    /**
+     * Valores quase sempre pequenos, às vezes em qualquer ponto dos
+     * {@code int}.
+     */
+    private static int valor(Random aleatorio) {
+        return switch (aleatorio.nextInt(4)) {
+            case 0 -> aleatorio.nextInt(Integer.MAX_VALUE);
+            case 1 -> aleatorio.nextInt(5_000);
+            default -> aleatorio.nextInt(100);
+        };
+    }
+
+    private static void conferir(Histograma histograma, TreeMap<Integer, Long> modelo, long total) {
+        long soma = 0;
+        for (Histograma.Faixa f : histograma.faixas()) {
+            assertTrue(f.menor() <= f.maior());
+            long noIntervalo = modelo.subMap(f.menor(), true, f.maior(), true)
+                    .values().stream().mapToLong(Long::longValue).sum();
+            assertEquals("balde " + f, noIntervalo, f.quantidade());
+            soma += f.quantidade();
+        }
+        assertEquals(total, soma);
+        for (double p : new double[]{0, 1, 50, 90, 99, 100}) {
+            if (total == 0) {
+                assertEquals(0, histograma.percentil(p));
+                continue;
+            }
+            int exato = exato(modelo, Math.max(1, (long) Math.ceil(p / 100 * total)));
+            int lido = histograma.percentil(p);
+            if (exato < 64) {
+                assertEquals("p" + p, exato, lido);
+            } else {
+                assertTrue("p" + p + ": " + lido + " para " + exato, lido >= exato && lido - exato < exato / 32);
+            }
+        }
+    }
+
+    /**
+     * O valor exato de posição {@code alvo} (a partir de 1) em ordem.
+     */
+    private static int exato(TreeMap<Integer, Long> modelo, long alvo) {
+        long acumulado = 0;
+        for (Map.Entry<Integer, Long> e : modelo.entrySet()) {
+            acumulado += e.getValue();
+            if (acumulado >= alvo) {
+                return e.getKey();
+            }
+        }
+        throw new AssertionError();
+    }
+
+    private static Histograma.Faixa balde(Histograma histograma, int valor) {
+        for (Histograma.Faixa f : histograma.faixas()) {
+            if (f.menor() <= valor && valor <= f.maior()) {
+                return f;
+            }
+        }
+        return null;
+    }
+}
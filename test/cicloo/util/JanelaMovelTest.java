@@ -0,0 +1,99 @@
+package cicloo.util;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link JanelaMovel} comparada à soma direta das contagens por dia, com
+ * avanços de um dia, saltos maiores que a janela e registros atrasados.
+ *
+ * @author Eric
+ */
+public class JanelaMovelTest {
+
+    private static final int[] TAMANHOS = {7, 30, 90};
+
+    @Test
+    public void registrosAleatoriosBatemComSomaDireta() {
+        Random aleatorio = new Random(13);
+        long hoje = 20_000;
+        JanelaMovel janela = new JanelaMovel(hoje, TAMANHOS);
+        TreeMap<Long, Long> modelo = new TreeMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            switch (aleatorio.nextInt(6)) {
+                case 0 -> hoje += 1;
+                case 1 -> hoje += aleatorio.nextInt(40);
+                case 2 -> hoje += aleatorio.nextInt(10) == 0 ? 100 + aleatorio.nextInt(200) : 0;
+                default -> {
+                    // registro de hoje, de um dia recente ou já fora da janela
+                    long dia = hoje - aleatorio.nextInt(120);
+                    int quantidade = 1 + aleatorio.nextInt(3);
+                    janela.registrar(dia, quantidade);
+                    if (hoje - dia < 90) {
+                        modelo.merge(dia, (long) quantidade, Long::sum);
+                    }
+                }
+            }
+            janela.avancarAte(hoje);
+            assertEquals(hoje, janela.getHoje());
+            for (int tamanho : TAMANHOS) {
+                assertEquals("janela de " + tamanho + " no dia " + hoje,
+                        somar(modelo, hoje, tamanho), janela.soma(tamanho));
+            }
+        }
+    }
+
+    @Test
+    public void registroNoFuturoAvancaAJanela() {
+        JanelaMovel janela = new JanelaMovel(100, TAMANHOS);
+        janela.registrar(100, 1);
+        janela.registrar(110, 2);
+        assertEquals(110, janela.getHoje());
+        assertEquals(2, janela.soma(7));
+        assertEquals(3, janela.soma(30));
+    }
+
+    @Test
+    public void voltarNoTempoNaoTemEfeito() {
+        JanelaMovel janela = new JanelaMovel(100, TAMANHOS);
+        janela.registrar(100, 1);
+        janela.avancarAte(50);
+        assertEquals(100, janela.getHoje());
+        assertEquals(1, janela.soma(7));
+    }
+
+    @Test
+    public void acumularAlinhaNoDiaMaisRecente() {
+        JanelaMovel a = new JanelaMovel(100, TAMANHOS);
+        JanelaMovel b = new JanelaMovel(85, TAMANHOS);
+        a.registrar(100, 1);
+        a.registrar(90, 1);
+        b.registrar(80, 4);
+        a.acumular(b, 1);
+        assertEquals(1, a.soma(7));
+        assertEquals(6, a.soma(30));
+        a.acumular(b, -1);
+        assertEquals(2, a.soma(30));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tamanhoNaoMantido() {
+        new JanelaMovel(0, TAMANHOS).soma(14);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tamanhosForaDeOrdem() {
+        new JanelaMovel(0, 30, 7);
+    }
+
+    private static long somar(TreeMap<Long, Long> modelo, long hoje, int tamanho) {
+        long soma = 0;
+        for (Map.Entry<Long, Long> e : modelo.subMap(hoje - tamanho, false, hoje, true).entrySet()) {
+            soma += e.getValue();
+        }
+        return soma;
+    }
+}
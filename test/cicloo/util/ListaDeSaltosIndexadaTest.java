@@ -0,0 +1,94 @@
+package cicloo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link ListaDeSaltosIndexada} comparada a uma lista ordenada: inserções,
+ * remoções, repetidos, posições e faixas, inclusive nas pontas.
+ *
+ * @author Eric
+ */
+public class ListaDeSaltosIndexadaTest {
+
+    @Test
+    public void operacoesAleatoriasBatemComListaOrdenada() {
+        Random aleatorio = new Random(23);
+        ListaDeSaltosIndexada<Integer> lista = new ListaDeSaltosIndexada<>(Comparator.naturalOrder());
+        List<Integer> modelo = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            int valor = aleatorio.nextInt(5_000);
+            int indice = Collections.binarySearch(modelo, valor);
+            switch (aleatorio.nextInt(6)) {
+                case 0, 1, 2 -> {
+                    assertEquals(indice < 0, lista.inserir(valor));
+                    if (indice < 0) {
+                        modelo.add(-indice - 1, valor);
+                    }
+                }
+                case 3 -> {
+                    assertEquals(indice >= 0, lista.remover(valor));
+                    if (indice >= 0) {
+                        modelo.remove(indice);
+                    }
+                }
+                case 4 -> assertEquals(Math.max(indice, -1), lista.posicao(valor));
+                default -> {
+                    if (!modelo.isEmpty()) {
+                        int posicao = aleatorio.nextInt(modelo.size());
+                        assertEquals(modelo.get(posicao), lista.obter(posicao));
+                        int quantidade = aleatorio.nextInt(20);
+                        assertEquals(modelo.subList(posicao, Math.min(modelo.size(), posicao + quantidade)),
+                                lista.faixa(posicao, quantidade));
+                    }
+                }
+            }
+            assertEquals(modelo.size(), lista.tamanho());
+        }
+        assertEquals(modelo, lista.faixa(0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void esvaziarEReusar() {
+        ListaDeSaltosIndexada<Integer> lista = new ListaDeSaltosIndexada<>(Comparator.reverseOrder());
+        for (int i = 0; i < 1_000; i++) {
+            lista.inserir(i);
+        }
+        assertEquals(Integer.valueOf(999), lista.obter(0));
+        assertEquals(999, lista.posicao(0));
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(lista.remover(i));
+        }
+        assertTrue(lista.estaVazia());
+        assertEquals(List.of(), lista.faixa(0, 10));
+        assertEquals(-1, lista.posicao(5));
+        lista.inserir(5);
+        lista.inserir(7);
+        assertEquals(List.of(7, 5), lista.faixa(0, 10));
+    }
+
+    @Test
+    public void faixaAlemDoFimFicaVazia() {
+        ListaDeSaltosIndexada<Integer> lista = new ListaDeSaltosIndexada<>(Comparator.naturalOrder());
+        lista.inserir(1);
+        assertEquals(List.of(), lista.faixa(1, 5));
+        assertEquals(List.of(), lista.faixa(0, 0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void obterForaDaLista() {
+        ListaDeSaltosIndexada<Integer> lista = new ListaDeSaltosIndexada<>(Comparator.naturalOrder());
+        lista.inserir(1);
+        lista.obter(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void faixaComInicioNegativo() {
+        new ListaDeSaltosIndexada<Integer>(Comparator.naturalOrder()).faixa(-1, 1);
+    }
+}
@@ -0,0 +1,158 @@
+package cicloo.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link MapaInt} comparado a um {@link LinkedHashMap}: busca, substituição,
+ * remoção com deslocamento para trás, crescimento, ordem de inserção e
+ * paginação por {@link MapaInt#copiarApos}.
+ *
+ * @author Eric
+ */
+public class MapaIntTest {
+
+    @Test
+    public void operacoesAleatoriasBatemComLinkedHashMap() {
+        Random aleatorio = new Random(7);
+        MapaInt<String> mapa = new MapaInt<>();
+        Map<Integer, String> modelo = new LinkedHashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // poucas chaves, para forçar colisões e agrupamentos na tabela
+            int chave = aleatorio.nextInt(5_000) - 100;
+            if (aleatorio.nextInt(3) == 0) {
+                assertEquals(modelo.remove(chave), mapa.remover(chave));
+            } else {
+                String valor = "v" + i;
+                assertEquals(modelo.put(chave, valor), mapa.colocar(chave, valor));
+            }
+            if (i % 10_000 == 0) {
+                conferir(modelo, mapa);
+            }
+        }
+        conferir(modelo, mapa);
+    }
+
+    @Test
+    public void remocaoNoMeioDoAgrupamentoMantemAsOutrasChaves() {
+        MapaInt<Integer> mapa = new MapaInt<>();
+        for (int i = 0; i < 1_000; i++) {
+            mapa.colocar(i, i);
+        }
+        for (int i = 0; i < 1_000; i += 2) {
+            assertEquals(Integer.valueOf(i), mapa.remover(i));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(i % 2 == 1, mapa.contem(i));
+        }
+        assertEquals(500, mapa.tamanho());
+    }
+
+    @Test
+    public void cresceMantendoAOrdemDeInsercao() {
+        MapaInt<Integer> mapa = new MapaInt<>();
+        List<Integer> esperados = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            int chave = (i * 7919) % 10_007;
+            mapa.colocar(chave, chave);
+            esperados.add(chave);
+        }
+        assertEquals(esperados, new ArrayList<>(mapa.valores()));
+        mapa.colocar(esperados.get(0), -1);
+        assertEquals(Integer.valueOf(-1), mapa.valores().iterator().next());
+    }
+
+    @Test
+    public void reservarNaoPerdeChaves() {
+        MapaInt<Integer> mapa = new MapaInt<>();
+        for (int i = 0; i < 100; i++) {
+            mapa.colocar(i, i);
+        }
+        mapa.reservar(100_000);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), mapa.obter(i));
+        }
+    }
+
+    @Test
+    public void paginaEmOrdemDeChaveComChavesCrescentes() {
+        MapaInt<Integer> mapa = new MapaInt<>();
+        for (int i = 0; i < 100; i++) {
+            mapa.colocar(i * 2, i * 2);
+        }
+        mapa.remover(10);
+        mapa.remover(12);
+        assertEquals(List.of(0, 2, 4, 6, 8, 14, 16, 18, 20, 22), paginas(mapa, 3));
+    }
+
+    @Test
+    public void paginaEmOrdemDeChaveComChavesForaDeOrdem() {
+        MapaInt<Integer> mapa = new MapaInt<>();
+        TreeMap<Integer, Integer> modelo = new TreeMap<>();
+        Random aleatorio = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            int chave = aleatorio.nextInt(10_000);
+            mapa.colocar(chave, chave);
+            modelo.put(chave, chave);
+        }
+        List<Integer> lidos = new ArrayList<>();
+        int cursor = -1;
+        boolean temMais = true;
+        while (temMais) {
+            List<Integer> pagina = new ArrayList<>();
+            temMais = mapa.copiarApos(cursor, 7, pagina);
+            lidos.addAll(pagina);
+            if (!pagina.isEmpty()) {
+                cursor = pagina.get(pagina.size() - 1);
+            }
+        }
+        assertEquals(new ArrayList<>(modelo.keySet()), lidos);
+    }
+
+    @Test
+    public void esvaziarPorRemocaoVoltaAPaginarEmOrdem() {
+        MapaInt<Integer> mapa = new MapaInt<>();
+        mapa.colocar(5, 5);
+        mapa.colocar(3, 3);
+        mapa.remover(5);
+        mapa.remover(3);
+        assertTrue(mapa.estaVazio());
+        for (int i = 1; i <= 4; i++) {
+            mapa.colocar(i, i);
+        }
+        List<Integer> pagina = new ArrayList<>();
+        assertTrue(mapa.copiarApos(1, 2, pagina));
+        assertEquals(List.of(2, 3), pagina);
+    }
+
+    /**
+     * Percorre todas as páginas a partir do início, com o tamanho informado,
+     * e devolve as primeiras dez chaves lidas.
+     */
+    private static List<Integer> paginas(MapaInt<Integer> mapa, int tamanho) {
+        List<Integer> lidos = new ArrayList<>();
+        int cursor = -1;
+        while (lidos.size() < 10) {
+            List<Integer> pagina = new ArrayList<>();
+            boolean temMais = mapa.copiarApos(cursor, tamanho, pagina);
+            lidos.addAll(pagina);
+            cursor = pagina.get(pagina.size() - 1);
+            assertTrue(temMais);
+        }
+        return lidos.subList(0, 10);
+    }
+
+    private static void conferir(Map<Integer, String> modelo, MapaInt<String> mapa) {
+        assertEquals(modelo.size(), mapa.tamanho());
+        assertEquals(new ArrayList<>(modelo.values()), new ArrayList<>(mapa.valores()));
+        for (Map.Entry<Integer, String> e : modelo.entrySet()) {
+            assertEquals(e.getValue(), mapa.obter(e.getKey()));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package cicloo.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link RodaDeTempo} comparada a um {@link TreeMap} de prazos: agendamentos
+ * próximos, distantes e já vencidos, reagendamentos, cancelamentos e avanços
+ * de um tique, de muitos tiques e para trás.
+ *
+ * @author Eric
+ */
+public class RodaDeTempoTest {
+
+    @Test
+    public void operacoesAleatoriasBatemComTreeMap() {
+        Random aleatorio = new Random(17);
+        long agora = 20_000;
+        RodaDeTempo roda = new RodaDeTempo(agora);
+        Map<Integer, Long> modelo = new TreeMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            int id = aleatorio.nextInt(2_000);
+            switch (aleatorio.nextInt(8)) {
+                case 0, 1, 2 -> {
+                    long prazo = agora + distancia(aleatorio);
+                    roda.agendar(id, prazo);
+                    modelo.put(id, prazo);
+                }
+                case 3 -> assertEquals(modelo.remove(id) != null, roda.cancelar(id));
+                default -> {
+                    long tique = agora + passo(aleatorio);
+                    List<Integer> vencidos = new ArrayList<>();
+                    roda.avancarAte(tique, vencidos::add);
+                    agora = Math.max(agora, tique);
+                    assertEquals(agora, roda.getAgora());
+                    List<Integer> esperados = new ArrayList<>();
+                    for (Map.Entry<Integer, Long> e : modelo.entrySet()) {
+                        if (e.getValue() <= agora) {
+                            esperados.add(e.getKey());
+                        }
+                    }
+                    Collections.sort(vencidos);
+                    assertEquals("avanço até " + agora, esperados, vencidos);
+                    esperados.forEach(modelo::remove);
+                }
+            }
+            assertEquals(modelo.size(), roda.tamanho());
+            Long prazo = modelo.get(id);
+            assertEquals(prazo == null ? Long.MIN_VALUE : prazo, roda.prazo(id));
+        }
+    }
+
+    @Test
+    public void prazoNoPassadoVenceNoProximoAvanco() {
+        RodaDeTempo roda = new RodaDeTempo(100);
+        roda.agendar(1, 90);
+        List<Integer> vencidos = new ArrayList<>();
+        roda.avancarAte(100, vencidos::add);
+        assertEquals(List.of(1), vencidos);
+        assertEquals(0, roda.tamanho());
+    }
+
+    @Test
+    public void prazoMuitoDistanteVenceNaHoraCerta() {
+        RodaDeTempo roda = new RodaDeTempo(0);
+        long prazo = 1L << 26;
+        roda.agendar(7, prazo);
+        List<Integer> vencidos = new ArrayList<>();
+        roda.avancarAte(prazo - 1, vencidos::add);
+        assertTrue(vencidos.isEmpty());
+        roda.avancarAte(prazo, vencidos::add);
+        assertEquals(List.of(7), vencidos);
+    }
+
+    /**
+     * Distância do prazo: quase sempre nos próximos dias, às vezes anos à
+     * frente ou já no passado.
+     */
+    private static long distancia(Random aleatorio) {
+        return switch (aleatorio.nextInt(10)) {
+            case 0 -> -aleatorio.nextInt(5);
+            case 1 -> aleatorio.nextInt(100_000);
+            case 2 -> aleatorio.nextInt(5_000);
+            default -> aleatorio.nextInt(70);
+        };
+    }
+
+    private static long passo(Random aleatorio) {
+        return switch (aleatorio.nextInt(10)) {
+            case 0 -> -aleatorio.nextInt(3);
+            case 1 -> aleatorio.nextInt(5_000);
+            default -> aleatorio.nextInt(3);
+        };
+    }
+}
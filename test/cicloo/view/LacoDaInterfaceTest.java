@@ -0,0 +1,76 @@
+package cicloo.view;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link LacoDaInterface}: as tarefas pedidas de outras threads rodam na
+ * thread que lê a entrada, enquanto ela espera o usuário.
+ *
+ * @author Eric
+ */
+public class LacoDaInterfaceTest {
+
+    @Test(timeout = 5_000)
+    public void tarefaRodaNaThreadQueLeAntesDaEntrada() throws IOException {
+        PipedOutputStream usuario = new PipedOutputStream();
+        LacoDaInterface laco = new LacoDaInterface(new PipedInputStream(usuario));
+        Scanner entrada = new Scanner(laco.getEntrada(), StandardCharsets.UTF_8);
+        List<String> ordem = new ArrayList<>();
+        Thread leitora = Thread.currentThread();
+
+        laco.executar(() -> {
+            assertSame(leitora, Thread.currentThread());
+            ordem.add("tarefa");
+        });
+        laco.executar(() -> {
+            throw new IllegalStateException("falha esperada");
+        });
+        laco.executar(() -> {
+            try {
+                usuario.write("sair\n".getBytes(StandardCharsets.UTF_8));
+                usuario.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        ordem.add(entrada.nextLine());
+
+        assertEquals(List.of("tarefa", "sair"), ordem);
+        assertFalse(entrada.hasNextLine());
+    }
+
+    @Test(timeout = 5_000)
+    public void repetirEntregaNaThreadQueLe() throws IOException, InterruptedException {
+        PipedOutputStream usuario = new PipedOutputStream();
+        LacoDaInterface laco = new LacoDaInterface(new PipedInputStream(usuario));
+        CountDownLatch entregas = new CountDownLatch(3);
+        Thread leitora = Thread.currentThread();
+        laco.repetir(() -> {
+            assertSame(leitora, Thread.currentThread());
+            entregas.countDown();
+            if (entregas.getCount() == 0) {
+                laco.executar(() -> {
+                    try {
+                        usuario.close();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+        }, Duration.ofMillis(10));
+
+        assertEquals(-1, laco.getEntrada().read());
+        assertTrue(entregas.await(0, TimeUnit.MILLISECONDS));
+    }
+}